@@ -1,11 +1,15 @@
 package com.monkey;
 
 import com.monkey.ast.Program;
+import com.monkey.closure.ClosureCompiler;
 import com.monkey.compiler.Bytecode;
 import com.monkey.compiler.Compiler;
 import com.monkey.evaluator.Evaluator;
 import com.monkey.lexer.Lexer;
 import com.monkey.evaluator.Environment;
+import com.monkey.evaluator.ParallelEvaluation;
+import com.monkey.evaluator.StackEvaluator;
+import com.monkey.nodes.NodeInterpreter;
 import com.monkey.object.MonkeyObject;
 import com.monkey.parser.Parser;
 import com.monkey.vm.VM;
@@ -15,14 +19,18 @@ import java.io.IOException;
 import java.io.InputStreamReader;
 import java.io.PrintWriter;
 import java.util.List;
+import java.util.function.BiFunction;
 
 /**
  * Monkey 語言主程序
  * Chapter 2: 整合編譯器和虛擬機
  *
- * 支持兩種執行模式:
+ * 支持五種執行模式:
  * 1. 解釋器模式 (Tree-Walking Interpreter)
  * 2. 編譯器模式 (Bytecode Compiler + VM)
+ * 3. 節點模式 (Self-Specializing AST Interpreter)
+ * 4. 閉包模式 (AST 編譯為 Java lambda)
+ * 5. 顯式棧模式 (堆上續延棧，深遞迴不會耗盡 Java 棧)
  */
 public class Main {
     private static final String PROMPT = ">> ";
@@ -52,7 +60,20 @@ public class Main {
                     runDemo();
                     return;
                 case "--interpreter":
-                    startInterpreterREPL();
+                    startInterpreterREPL(Evaluator::eval);
+                    return;
+                case "--parallel":
+                    Evaluator.setParallelEvaluation(new ParallelEvaluation());
+                    startInterpreterREPL(Evaluator::eval);
+                    return;
+                case "--nodes":
+                    startInterpreterREPL(NodeInterpreter::eval);
+                    return;
+                case "--closure":
+                    startInterpreterREPL(ClosureCompiler::eval);
+                    return;
+                case "--stack":
+                    startInterpreterREPL(StackEvaluator::eval);
                     return;
                 case "--compiler":
                     startCompilerREPL();
@@ -76,6 +97,10 @@ public class Main {
         System.out.println("  java -jar monkey.jar              Start compiler REPL (default)");
         System.out.println("  java -jar monkey.jar --compiler   Start compiler REPL");
         System.out.println("  java -jar monkey.jar --interpreter Start interpreter REPL");
+        System.out.println("  java -jar monkey.jar --parallel   Start interpreter REPL evaluating pure subexpressions in parallel");
+        System.out.println("  java -jar monkey.jar --nodes      Start self-specializing node interpreter REPL");
+        System.out.println("  java -jar monkey.jar --closure    Start closure-compiled interpreter REPL");
+        System.out.println("  java -jar monkey.jar --stack      Start explicit-stack interpreter REPL");
         System.out.println("  java -jar monkey.jar --demo       Run demo examples");
         System.out.println("  java -jar monkey.jar --help       Show this help");
     }
@@ -144,8 +169,9 @@ public class Main {
 
     /**
      * 啟動解釋器 REPL
+     * engine 在同一個全局環境中逐行求值
      */
-    private static void startInterpreterREPL() {
+    private static void startInterpreterREPL(BiFunction<Program, Environment, MonkeyObject> engine) {
         BufferedReader reader = new BufferedReader(new InputStreamReader(System.in));
         PrintWriter writer = new PrintWriter(System.out, true);
         Environment env = new Environment();
@@ -174,7 +200,7 @@ public class Main {
                 continue;
             }
 
-            MonkeyObject evaluated = Evaluator.eval(program, env);
+            MonkeyObject evaluated = engine.apply(program, env);
             if (evaluated != null) {
                 writer.println(evaluated.inspect());
             }
@@ -13,6 +13,8 @@ public class FunctionLiteral implements Expression {
     private final Token token; // fn token
     private final List<Identifier> parameters;
     private BlockStatement body;
+    // 由求值器的 Resolver 標註: 函數幀中每個槽位的名稱（參數在前，其後是函數體內的 let）
+    private String[] localNames;
 
     public FunctionLiteral(Token token) {
         this.token = token;
@@ -35,6 +37,14 @@ public class FunctionLiteral implements Expression {
         return body;
     }
 
+    public String[] getLocalNames() {
+        return localNames;
+    }
+
+    public void setLocalNames(String[] localNames) {
+        this.localNames = localNames;
+    }
+
     public Token getToken() {
         return token;
     }
@@ -10,6 +10,12 @@ public class Identifier implements Expression {
     private final Token token;   // IDENT token
     private final String value;  // 標識符名稱
 
+    // 由求值器的 Resolver 標註: 向外 depth 層環境中的第 slot 個槽位；-1 表示未解析
+    private int depth = -1;
+    private int slot = -1;
+    // 由 Resolver 標註: 同名內建函數在 Builtins 登記表中的 id；-1 表示不是內建函數名稱
+    private int builtinId = -1;
+
     public Identifier(Token token, String value) {
         this.token = token;
         this.value = value;
@@ -19,6 +25,27 @@ public class Identifier implements Expression {
         return value;
     }
 
+    public int getDepth() {
+        return depth;
+    }
+
+    public int getSlot() {
+        return slot;
+    }
+
+    public void resolve(int depth, int slot) {
+        this.depth = depth;
+        this.slot = slot;
+    }
+
+    public int getBuiltinId() {
+        return builtinId;
+    }
+
+    public void bindBuiltin(int builtinId) {
+        this.builtinId = builtinId;
+    }
+
     @Override
     public void expressionNode() {
     }
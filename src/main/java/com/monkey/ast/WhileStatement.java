@@ -0,0 +1,57 @@
+package com.monkey.ast;
+
+import com.monkey.token.Token;
+
+/**
+ * WhileStatement 表示 while 迴圈
+ * while (<condition>) <body>
+ */
+public class WhileStatement implements Statement {
+    private final Token token;        // 'while' token
+    private Expression condition;     // 迴圈條件
+    private BlockStatement body;      // 迴圈體
+
+    public WhileStatement(Token token) {
+        this.token = token;
+    }
+
+    public Expression getCondition() {
+        return condition;
+    }
+
+    public void setCondition(Expression condition) {
+        this.condition = condition;
+    }
+
+    public BlockStatement getBody() {
+        return body;
+    }
+
+    public void setBody(BlockStatement body) {
+        this.body = body;
+    }
+
+    @Override
+    public void statementNode() {
+    }
+
+    @Override
+    public Token getToken() {
+        return token;
+    }
+
+    @Override
+    public String tokenLiteral() {
+        return token.getLiteral();
+    }
+
+    @Override
+    public String string() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("while");
+        sb.append(condition.string());
+        sb.append(" ");
+        sb.append(body.string());
+        return sb.toString();
+    }
+}
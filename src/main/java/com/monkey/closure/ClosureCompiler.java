@@ -0,0 +1,508 @@
+package com.monkey.closure;
+
+import com.monkey.ast.*;
+import com.monkey.evaluator.Environment;
+import com.monkey.evaluator.Evaluator;
+import com.monkey.evaluator.Resolver;
+import com.monkey.evaluator.SlotRuntime;
+import com.monkey.evaluator.SlotRuntime.ErrorException;
+import com.monkey.evaluator.SlotRuntime.ReturnException;
+import com.monkey.object.*;
+
+import java.util.List;
+import java.util.Map;
+
+import static com.monkey.evaluator.SlotRuntime.check;
+import static com.monkey.evaluator.SlotRuntime.error;
+import static com.monkey.evaluator.SlotRuntime.isTruthy;
+import static com.monkey.evaluator.SlotRuntime.retain;
+import static com.monkey.evaluator.SlotRuntime.toBoolean;
+
+/**
+ * ClosureCompiler 把 AST 編譯為 Java lambda 組成的樹
+ *
+ * 介於樹遍歷求值器和位元組碼 VM 之間的第三種執行方式:
+ * 每個 AST 節點只在編譯時分派一次，運算符也在編譯時選定，
+ * 例如 InfixExpression("+") 編譯為一個直接調用左右子 Code 並做整數加法的 lambda。
+ * 變量使用 Resolver 解析的槽位，語義（包括錯誤訊息）與 Evaluator 相同。
+ *
+ * return 和運行時錯誤以不帶堆疊的異常傳遞。
+ */
+public final class ClosureCompiler {
+    private static final NullObject NULL = NullObject.NULL;
+    private static final BooleanObject TRUE = BooleanObject.TRUE;
+    private static final BooleanObject FALSE = BooleanObject.FALSE;
+
+    // 當前所在的函數巢狀層數，0 表示全局
+    private int functionDepth;
+
+    private ClosureCompiler() {
+    }
+
+    /**
+     * 在全局環境中編譯並執行程式
+     */
+    public static MonkeyObject eval(Program program, Environment env) {
+        Code code = compile(program, env);
+        try {
+            return code.run(env);
+        } catch (ReturnException e) {
+            return e.value;
+        } catch (ErrorException e) {
+            return e.error;
+        }
+    }
+
+    /**
+     * 解析槽位並編譯程式，結果只能在同一個全局環境中執行
+     */
+    public static Code compile(Program program, Environment env) {
+        Resolver.resolve(program, env);
+        return new ClosureCompiler().compileSequence(program.getStatements());
+    }
+
+    private Code compileSequence(List<Statement> statements) {
+        Code[] codes = new Code[statements.size()];
+        for (int i = 0; i < codes.length; i++) {
+            codes[i] = compile(statements.get(i));
+        }
+        switch (codes.length) {
+            case 0:
+                return f -> null;
+            case 1:
+                return codes[0];
+            case 2: {
+                Code first = codes[0];
+                Code second = codes[1];
+                return f -> {
+                    first.run(f);
+                    return second.run(f);
+                };
+            }
+            default:
+                return f -> {
+                    MonkeyObject result = null;
+                    for (Code code : codes) {
+                        result = code.run(f);
+                    }
+                    return result;
+                };
+        }
+    }
+
+    private Code[] compileExpressions(List<Expression> expressions) {
+        Code[] codes = new Code[expressions.size()];
+        for (int i = 0; i < codes.length; i++) {
+            codes[i] = compile(expressions.get(i));
+        }
+        return codes;
+    }
+
+    private Code compile(Node node) {
+        // 語句
+        if (node instanceof ExpressionStatement stmt) {
+            return compile(stmt.getExpression());
+        }
+
+        if (node instanceof BlockStatement block) {
+            return compileSequence(block.getStatements());
+        }
+
+        if (node instanceof ReturnStatement returnStmt) {
+            Code value = compile(returnStmt.getReturnValue());
+            return f -> {
+                throw new ReturnException(value.run(f));
+            };
+        }
+
+        if (node instanceof LetStatement letStmt) {
+            int slot = letStmt.getName().getSlot();
+            Code value = compile(letStmt.getValue());
+            return f -> {
+                MonkeyObject val = retain(value.run(f), f);
+                f.set(0, slot, val);
+                return val;
+            };
+        }
+
+        if (node instanceof AssignStatement assignStmt) {
+            return compileAssign(assignStmt.getName(), compile(assignStmt.getValue()));
+        }
+
+        if (node instanceof WhileStatement whileStmt) {
+            Code condition = compile(whileStmt.getCondition());
+            Code body = compile(whileStmt.getBody());
+            return f -> {
+                while (isTruthy(condition.run(f))) {
+                    body.run(f);
+                }
+                return NULL;
+            };
+        }
+
+        // 表達式
+        if (node instanceof IntegerLiteral intLit) {
+            MonkeyObject value = IntegerObject.valueOf(intLit.getValue());
+            return f -> value;
+        }
+
+        if (node instanceof BooleanLiteral boolLit) {
+            MonkeyObject value = toBoolean(boolLit.getValue());
+            return f -> value;
+        }
+
+        if (node instanceof StringLiteral strLit) {
+            MonkeyObject value = StringObject.intern(strLit.getValue());
+            return f -> value;
+        }
+
+        if (node instanceof ArrayLiteral arrLit) {
+            Code[] elements = compileExpressions(arrLit.getElements());
+            return f -> {
+                MonkeyObject[] values = new MonkeyObject[elements.length];
+                for (int i = 0; i < elements.length; i++) {
+                    values[i] = elements[i].run(f);
+                }
+                return ArrayObject.of(values, 0, values.length);
+            };
+        }
+
+        if (node instanceof HashLiteral hashLit) {
+            return compileHashLiteral(hashLit);
+        }
+
+        if (node instanceof IndexExpression indexExpr) {
+            Code left = compile(indexExpr.getLeft());
+            Code index = compile(indexExpr.getIndex());
+            return f -> {
+                MonkeyObject l = left.run(f);
+                MonkeyObject i = index.run(f);
+                if (l instanceof ArrayObject array && i instanceof IntegerObject idx) {
+                    long n = idx.getValue();
+                    return n < 0 || n >= array.size() ? NULL : array.get((int) n);
+                }
+                return check(Evaluator.evalIndexExpression(l, i));
+            };
+        }
+
+        if (node instanceof PrefixExpression prefix) {
+            return compilePrefix(prefix.getOperator(), compile(prefix.getRight()));
+        }
+
+        if (node instanceof InfixExpression infix) {
+            return compileInfix(infix.getOperator(), compile(infix.getLeft()), compile(infix.getRight()));
+        }
+
+        if (node instanceof IfExpression ifExpr) {
+            Code condition = compile(ifExpr.getCondition());
+            Code consequence = compile(ifExpr.getConsequence());
+            if (ifExpr.getAlternative() == null) {
+                return f -> isTruthy(condition.run(f)) ? consequence.run(f) : NULL;
+            }
+            Code alternative = compile(ifExpr.getAlternative());
+            return f -> isTruthy(condition.run(f)) ? consequence.run(f) : alternative.run(f);
+        }
+
+        if (node instanceof Identifier ident) {
+            return compileIdentifier(ident);
+        }
+
+        if (node instanceof FunctionLiteral fn) {
+            return compileFunction(fn);
+        }
+
+        if (node instanceof CallExpression call) {
+            return compileCall(compile(call.getFunction()), compileExpressions(call.getArguments()));
+        }
+
+        // 解析錯誤留下的空節點與求值器一樣得到 null
+        return f -> null;
+    }
+
+    /**
+     * 讀取變量: 槽位為空（let 尚未執行）時按名稱向外查找，再取解析時綁定的同名內建函數
+     */
+    private Code compileIdentifier(Identifier ident) {
+        String name = ident.getValue();
+        int depth = ident.getDepth();
+        int slot = ident.getSlot();
+        BuiltinObject builtin = ident.getBuiltinId() < 0 ? null : Builtins.get(ident.getBuiltinId());
+
+        if (depth == functionDepth) {
+            // 全局名稱: 沒有更外層可找
+            return f -> {
+                MonkeyObject val = f.get(depth, slot);
+                if (val != null) {
+                    return val;
+                }
+                if (builtin == null) {
+                    throw error("identifier not found: %s", name);
+                }
+                return builtin;
+            };
+        }
+
+        return f -> {
+            MonkeyObject val = f.get(depth, slot);
+            if (val != null) {
+                return val;
+            }
+            val = f.getFrom(depth + 1, name);
+            if (val != null) {
+                return val;
+            }
+            if (builtin == null) {
+                throw error("identifier not found: %s", name);
+            }
+            return builtin;
+        };
+    }
+
+    private Code compileAssign(Identifier ident, Code value) {
+        String name = ident.getValue();
+        int depth = ident.getDepth();
+        int slot = ident.getSlot();
+        return f -> {
+            MonkeyObject val = retain(value.run(f), f);
+            if (f.get(depth, slot) != null) {
+                f.set(depth, slot, val);
+            } else if (f.assignFrom(depth + 1, name, val) == null) {
+                throw error("identifier not found: %s", name);
+            }
+            return val;
+        };
+    }
+
+    private Code compileHashLiteral(HashLiteral hashLit) {
+        Map<Expression, Expression> pairs = hashLit.getPairs();
+        Code[] keys = new Code[pairs.size()];
+        Code[] values = new Code[pairs.size()];
+        int n = 0;
+        for (Map.Entry<Expression, Expression> entry : pairs.entrySet()) {
+            keys[n] = compile(entry.getKey());
+            values[n] = compile(entry.getValue());
+            n++;
+        }
+        return f -> {
+            PersistentHashMap map = PersistentHashMap.EMPTY;
+            for (int i = 0; i < keys.length; i++) {
+                MonkeyObject key = keys[i].run(f);
+                if (!(key instanceof Hashable)) {
+                    throw error("unusable as hash key: %s", key.type());
+                }
+                map = map.put(key, values[i].run(f));
+            }
+            return new HashObject(map);
+        };
+    }
+
+    private Code compilePrefix(String operator, Code right) {
+        return switch (operator) {
+            case "!" -> f -> toBoolean(!isTruthy(right.run(f)));
+            case "-" -> f -> {
+                MonkeyObject r = right.run(f);
+                if (r instanceof IntegerObject i) {
+                    return IntegerObject.valueOf(-i.getValue());
+                }
+                return check(Evaluator.evalPrefixExpression(operator, r));
+            };
+            default -> f -> check(Evaluator.evalPrefixExpression(operator, right.run(f)));
+        };
+    }
+
+    /**
+     * 中綴運算: 每個運算符一個 lambda，兩個整數時直接計算，其餘情況走求值器的通用語義
+     */
+    private Code compileInfix(String operator, Code left, Code right) {
+        return switch (operator) {
+            case "&&" -> f -> {
+                MonkeyObject l = left.run(f);
+                return isTruthy(l) ? right.run(f) : l;
+            };
+            case "||" -> f -> {
+                MonkeyObject l = left.run(f);
+                return isTruthy(l) ? l : right.run(f);
+            };
+            case "+" -> f -> {
+                MonkeyObject l = left.run(f);
+                MonkeyObject r = right.run(f);
+                if (l instanceof IntegerObject a && r instanceof IntegerObject b) {
+                    return IntegerObject.valueOf(a.getValue() + b.getValue());
+                }
+                if (l instanceof StringObject a && r instanceof StringObject b) {
+                    return StringObject.concat(a, b);
+                }
+                return generic(operator, l, r);
+            };
+            case "-" -> f -> {
+                MonkeyObject l = left.run(f);
+                MonkeyObject r = right.run(f);
+                if (l instanceof IntegerObject a && r instanceof IntegerObject b) {
+                    return IntegerObject.valueOf(a.getValue() - b.getValue());
+                }
+                return generic(operator, l, r);
+            };
+            case "*" -> f -> {
+                MonkeyObject l = left.run(f);
+                MonkeyObject r = right.run(f);
+                if (l instanceof IntegerObject a && r instanceof IntegerObject b) {
+                    return IntegerObject.valueOf(a.getValue() * b.getValue());
+                }
+                return generic(operator, l, r);
+            };
+            case "/" -> f -> {
+                MonkeyObject l = left.run(f);
+                MonkeyObject r = right.run(f);
+                if (l instanceof IntegerObject a && r instanceof IntegerObject b) {
+                    if (b.getValue() == 0) {
+                        throw error("division by zero");
+                    }
+                    return IntegerObject.valueOf(a.getValue() / b.getValue());
+                }
+                return generic(operator, l, r);
+            };
+            case "%" -> f -> {
+                MonkeyObject l = left.run(f);
+                MonkeyObject r = right.run(f);
+                if (l instanceof IntegerObject a && r instanceof IntegerObject b) {
+                    if (b.getValue() == 0) {
+                        throw error("division by zero");
+                    }
+                    return IntegerObject.valueOf(a.getValue() % b.getValue());
+                }
+                return generic(operator, l, r);
+            };
+            case "&" -> f -> {
+                MonkeyObject l = left.run(f);
+                MonkeyObject r = right.run(f);
+                if (l instanceof IntegerObject a && r instanceof IntegerObject b) {
+                    return IntegerObject.valueOf(a.getValue() & b.getValue());
+                }
+                return generic(operator, l, r);
+            };
+            case "|" -> f -> {
+                MonkeyObject l = left.run(f);
+                MonkeyObject r = right.run(f);
+                if (l instanceof IntegerObject a && r instanceof IntegerObject b) {
+                    return IntegerObject.valueOf(a.getValue() | b.getValue());
+                }
+                return generic(operator, l, r);
+            };
+            case "^" -> f -> {
+                MonkeyObject l = left.run(f);
+                MonkeyObject r = right.run(f);
+                if (l instanceof IntegerObject a && r instanceof IntegerObject b) {
+                    return IntegerObject.valueOf(a.getValue() ^ b.getValue());
+                }
+                return generic(operator, l, r);
+            };
+            case "<<" -> f -> {
+                MonkeyObject l = left.run(f);
+                MonkeyObject r = right.run(f);
+                if (l instanceof IntegerObject a && r instanceof IntegerObject b) {
+                    return IntegerObject.valueOf(a.getValue() << b.getValue());
+                }
+                return generic(operator, l, r);
+            };
+            case ">>" -> f -> {
+                MonkeyObject l = left.run(f);
+                MonkeyObject r = right.run(f);
+                if (l instanceof IntegerObject a && r instanceof IntegerObject b) {
+                    return IntegerObject.valueOf(a.getValue() >> b.getValue());
+                }
+                return generic(operator, l, r);
+            };
+            case "<" -> f -> {
+                MonkeyObject l = left.run(f);
+                MonkeyObject r = right.run(f);
+                if (l instanceof IntegerObject a && r instanceof IntegerObject b) {
+                    return toBoolean(a.getValue() < b.getValue());
+                }
+                return generic(operator, l, r);
+            };
+            case ">" -> f -> {
+                MonkeyObject l = left.run(f);
+                MonkeyObject r = right.run(f);
+                if (l instanceof IntegerObject a && r instanceof IntegerObject b) {
+                    return toBoolean(a.getValue() > b.getValue());
+                }
+                return generic(operator, l, r);
+            };
+            case "<=" -> f -> {
+                MonkeyObject l = left.run(f);
+                MonkeyObject r = right.run(f);
+                if (l instanceof IntegerObject a && r instanceof IntegerObject b) {
+                    return toBoolean(a.getValue() <= b.getValue());
+                }
+                return generic(operator, l, r);
+            };
+            case ">=" -> f -> {
+                MonkeyObject l = left.run(f);
+                MonkeyObject r = right.run(f);
+                if (l instanceof IntegerObject a && r instanceof IntegerObject b) {
+                    return toBoolean(a.getValue() >= b.getValue());
+                }
+                return generic(operator, l, r);
+            };
+            case "==" -> f -> {
+                MonkeyObject l = left.run(f);
+                MonkeyObject r = right.run(f);
+                if (l instanceof IntegerObject a && r instanceof IntegerObject b) {
+                    return toBoolean(a.getValue() == b.getValue());
+                }
+                return generic(operator, l, r);
+            };
+            case "!=" -> f -> {
+                MonkeyObject l = left.run(f);
+                MonkeyObject r = right.run(f);
+                if (l instanceof IntegerObject a && r instanceof IntegerObject b) {
+                    return toBoolean(a.getValue() != b.getValue());
+                }
+                return generic(operator, l, r);
+            };
+            // 求值器不認識的運算符，由通用語義報告錯誤
+            default -> f -> generic(operator, left.run(f), right.run(f));
+        };
+    }
+
+    private Code compileFunction(FunctionLiteral fn) {
+        List<Identifier> params = fn.getParameters();
+        int[] paramSlots = new int[params.size()];
+        for (int i = 0; i < paramSlots.length; i++) {
+            paramSlots[i] = params.get(i).getSlot();
+        }
+        String[] localNames = fn.getLocalNames();
+
+        functionDepth++;
+        Code body;
+        try {
+            body = compile(fn.getBody());
+        } finally {
+            functionDepth--;
+        }
+        return f -> new LambdaFunction(fn, localNames, paramSlots, body, f);
+    }
+
+    private Code compileCall(Code function, Code[] arguments) {
+        return f -> {
+            MonkeyObject fn = function.run(f);
+            MonkeyObject[] args = new MonkeyObject[arguments.length];
+            for (int i = 0; i < arguments.length; i++) {
+                args[i] = arguments[i].run(f);
+            }
+            if (fn instanceof LambdaFunction lambda) {
+                return lambda.call(args);
+            }
+            if (fn instanceof BuiltinObject builtin) {
+                return check(builtin.call(SlotRuntime.CALLER, args, 0, args.length));
+            }
+            throw error("not a function: %s", fn.type());
+        };
+    }
+
+    // 輔助方法
+
+    private static MonkeyObject generic(String operator, MonkeyObject l, MonkeyObject r) {
+        return check(Evaluator.evalInfixExpression(operator, l, r));
+    }
+}
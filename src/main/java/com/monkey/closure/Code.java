@@ -0,0 +1,13 @@
+package com.monkey.closure;
+
+import com.monkey.evaluator.Environment;
+import com.monkey.object.MonkeyObject;
+
+/**
+ * Code 一段已經編譯好的程式碼
+ * 由 ClosureCompiler 為每個 AST 節點建立一次，執行時直接調用，不再查看節點類型或運算符
+ */
+@FunctionalInterface
+public interface Code {
+    MonkeyObject run(Environment frame);
+}
@@ -0,0 +1,24 @@
+package com.monkey.closure;
+
+import com.monkey.ast.FunctionLiteral;
+import com.monkey.evaluator.Environment;
+import com.monkey.evaluator.SlotRuntime;
+import com.monkey.object.MonkeyObject;
+
+/**
+ * LambdaFunction 閉包編譯引擎中的函數
+ * 函數體是編譯好的 Code，調用時建立大小為 localNames 的環境幀
+ */
+public class LambdaFunction extends SlotRuntime.Function {
+    private final Code body;
+
+    LambdaFunction(FunctionLiteral literal, String[] localNames, int[] paramSlots, Code body, Environment env) {
+        super(literal, localNames, paramSlots, env);
+        this.body = body;
+    }
+
+    @Override
+    protected MonkeyObject run(Environment frame) {
+        return body.run(frame);
+    }
+}
@@ -68,6 +68,35 @@ public class Instructions {
         // Chapter 9 - 閉包
         DEFINITIONS.put(Opcode.OP_CLOSURE, new Definition("OpClosure", new int[]{2, 1}));
         DEFINITIONS.put(Opcode.OP_GET_FREE, new Definition("OpGetFree", new int[]{1}));
+
+        // 類型特化 - 整數專用指令
+        DEFINITIONS.put(Opcode.OP_ADD_INT, new Definition("OpAddInt", new int[]{}));
+        DEFINITIONS.put(Opcode.OP_SUB_INT, new Definition("OpSubInt", new int[]{}));
+        DEFINITIONS.put(Opcode.OP_MUL_INT, new Definition("OpMulInt", new int[]{}));
+        DEFINITIONS.put(Opcode.OP_DIV_INT, new Definition("OpDivInt", new int[]{}));
+        DEFINITIONS.put(Opcode.OP_EQUAL_INT, new Definition("OpEqualInt", new int[]{}));
+        DEFINITIONS.put(Opcode.OP_NOT_EQUAL_INT, new Definition("OpNotEqualInt", new int[]{}));
+        DEFINITIONS.put(Opcode.OP_GREATER_THAN_INT, new Definition("OpGreaterThanInt", new int[]{}));
+        DEFINITIONS.put(Opcode.OP_MINUS_INT, new Definition("OpMinusInt", new int[]{}));
+
+        // 短路邏輯運算
+        DEFINITIONS.put(Opcode.OP_JUMP_NOT_TRUTHY_OR_POP, new Definition("OpJumpNotTruthyOrPop", new int[]{2}));
+        DEFINITIONS.put(Opcode.OP_JUMP_TRUTHY_OR_POP, new Definition("OpJumpTruthyOrPop", new int[]{2}));
+
+        // 完整的比較與整數運算
+        DEFINITIONS.put(Opcode.OP_LESS_THAN, new Definition("OpLessThan", new int[]{}));
+        DEFINITIONS.put(Opcode.OP_LESS_EQUAL, new Definition("OpLessEqual", new int[]{}));
+        DEFINITIONS.put(Opcode.OP_GREATER_EQUAL, new Definition("OpGreaterEqual", new int[]{}));
+        DEFINITIONS.put(Opcode.OP_MOD, new Definition("OpMod", new int[]{}));
+        DEFINITIONS.put(Opcode.OP_BIT_AND, new Definition("OpBitAnd", new int[]{}));
+        DEFINITIONS.put(Opcode.OP_BIT_OR, new Definition("OpBitOr", new int[]{}));
+        DEFINITIONS.put(Opcode.OP_BIT_XOR, new Definition("OpBitXor", new int[]{}));
+        DEFINITIONS.put(Opcode.OP_SHIFT_LEFT, new Definition("OpShiftLeft", new int[]{}));
+        DEFINITIONS.put(Opcode.OP_SHIFT_RIGHT, new Definition("OpShiftRight", new int[]{}));
+        DEFINITIONS.put(Opcode.OP_LESS_THAN_INT, new Definition("OpLessThanInt", new int[]{}));
+        DEFINITIONS.put(Opcode.OP_LESS_EQUAL_INT, new Definition("OpLessEqualInt", new int[]{}));
+        DEFINITIONS.put(Opcode.OP_GREATER_EQUAL_INT, new Definition("OpGreaterEqualInt", new int[]{}));
+        DEFINITIONS.put(Opcode.OP_MOD_INT, new Definition("OpModInt", new int[]{}));
     }
 
     public Instructions() {
@@ -35,7 +35,37 @@ public enum Opcode {
 
     // Chapter 9 - 閉包
     OP_CLOSURE((byte) 27),      // 創建閉包 (操作數: 函數索引, 自由變量數量)
-    OP_GET_FREE((byte) 28)     // 獲取自由變量 (操作數: 自由變量索引)
+    OP_GET_FREE((byte) 28),     // 獲取自由變量 (操作數: 自由變量索引)
+
+    // 類型特化 - 編譯期已證明運算元為整數，VM 不再檢查類型
+    OP_ADD_INT((byte) 29),
+    OP_SUB_INT((byte) 30),
+    OP_MUL_INT((byte) 31),
+    OP_DIV_INT((byte) 32),
+    OP_EQUAL_INT((byte) 33),
+    OP_NOT_EQUAL_INT((byte) 34),
+    OP_GREATER_THAN_INT((byte) 35),
+    OP_MINUS_INT((byte) 36),
+
+    // 短路邏輯運算 (操作數: 跳轉目標)
+    // 棧頂決定結果時保留它並跳轉，否則彈出後繼續求值右側
+    OP_JUMP_NOT_TRUTHY_OR_POP((byte) 37), // &&
+    OP_JUMP_TRUTHY_OR_POP((byte) 38),     // ||
+
+    // 完整的比較與整數運算
+    OP_LESS_THAN((byte) 39),
+    OP_LESS_EQUAL((byte) 40),
+    OP_GREATER_EQUAL((byte) 41),
+    OP_MOD((byte) 42),
+    OP_BIT_AND((byte) 43),
+    OP_BIT_OR((byte) 44),
+    OP_BIT_XOR((byte) 45),
+    OP_SHIFT_LEFT((byte) 46),
+    OP_SHIFT_RIGHT((byte) 47),
+    OP_LESS_THAN_INT((byte) 48),
+    OP_LESS_EQUAL_INT((byte) 49),
+    OP_GREATER_EQUAL_INT((byte) 50),
+    OP_MOD_INT((byte) 51)
     ;
 
     private final byte value;
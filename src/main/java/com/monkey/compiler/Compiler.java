@@ -6,8 +6,10 @@ import com.monkey.code.Opcode;
 import com.monkey.object.*;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Comparator;
 import java.util.List;
+import java.util.Set;
 
 /**
  * Compiler 將 AST 編譯為字節碼
@@ -20,6 +22,13 @@ public class Compiler {
     private final List<CompilationScope> scopes;
     private int scopeIndex;
 
+    // 可記憶化的純遞迴函數（由 PurityAnalyzer 在編譯 Program 前計算）
+    private Set<FunctionLiteral> memoizable = Collections.emptySet();
+
+    // 類型特化: 對已證明為整數的運算發射不檢查類型的指令
+    private boolean typeSpecialization;
+    private TypeInferencer typeInferencer;
+
     public Compiler() {
         this.constants = new ArrayList<>();
         this.symbolTable = new SymbolTable();
@@ -28,7 +37,7 @@ public class Compiler {
 
         // 定義所有內建函數
         for (int i = 0; i < Builtins.BUILTINS.length; i++) {
-            symbolTable.defineBuiltin(i, Builtins.BUILTINS[i].name);
+            symbolTable.defineBuiltin(i, Builtins.BUILTINS[i].getName());
         }
 
         CompilationScope mainScope = new CompilationScope();
@@ -70,6 +79,10 @@ public class Compiler {
     public void compile(Node node) throws CompilerException {
         if (node instanceof Program) {
             Program program = (Program) node;
+            memoizable = PurityAnalyzer.analyze(program, builtinNames());
+            if (typeSpecialization) {
+                typeInferencer = TypeInferencer.infer(program, builtinNames());
+            }
             for (Statement stmt : program.getStatements()) {
                 compile(stmt);
             }
@@ -91,43 +104,76 @@ public class Compiler {
         else if (node instanceof ReturnStatement) {
             compileReturnStatement((ReturnStatement) node);
         }
+        else if (node instanceof AssignStatement) {
+            compileAssignStatement((AssignStatement) node);
+        }
+        else if (node instanceof WhileStatement) {
+            compileWhileStatement((WhileStatement) node);
+        }
         else if (node instanceof IfExpression) {
             compileIfExpression((IfExpression) node);
         }
         else if (node instanceof InfixExpression) {
             InfixExpression infixExpr = (InfixExpression) node;
 
-            if (infixExpr.getOperator().equals("<")) {
-                compile(infixExpr.getRight());
-                compile(infixExpr.getLeft());
-                emit(Opcode.OP_GREATER_THAN);
+            if (infixExpr.getOperator().equals("&&") || infixExpr.getOperator().equals("||")) {
+                compileLogicalExpression(infixExpr);
                 return;
             }
 
+            boolean integers = isProvenInteger(infixExpr.getLeft()) && isProvenInteger(infixExpr.getRight());
+
             compile(infixExpr.getLeft());
             compile(infixExpr.getRight());
 
             switch (infixExpr.getOperator()) {
                 case "+":
-                    emit(Opcode.OP_ADD);
+                    emit(integers ? Opcode.OP_ADD_INT : Opcode.OP_ADD);
                     break;
                 case "-":
-                    emit(Opcode.OP_SUB);
+                    emit(integers ? Opcode.OP_SUB_INT : Opcode.OP_SUB);
                     break;
                 case "*":
-                    emit(Opcode.OP_MUL);
+                    emit(integers ? Opcode.OP_MUL_INT : Opcode.OP_MUL);
                     break;
                 case "/":
-                    emit(Opcode.OP_DIV);
+                    emit(integers ? Opcode.OP_DIV_INT : Opcode.OP_DIV);
+                    break;
+                case "%":
+                    emit(integers ? Opcode.OP_MOD_INT : Opcode.OP_MOD);
+                    break;
+                case "&":
+                    emit(Opcode.OP_BIT_AND);
+                    break;
+                case "|":
+                    emit(Opcode.OP_BIT_OR);
+                    break;
+                case "^":
+                    emit(Opcode.OP_BIT_XOR);
+                    break;
+                case "<<":
+                    emit(Opcode.OP_SHIFT_LEFT);
+                    break;
+                case ">>":
+                    emit(Opcode.OP_SHIFT_RIGHT);
                     break;
                 case ">":
-                    emit(Opcode.OP_GREATER_THAN);
+                    emit(integers ? Opcode.OP_GREATER_THAN_INT : Opcode.OP_GREATER_THAN);
+                    break;
+                case "<":
+                    emit(integers ? Opcode.OP_LESS_THAN_INT : Opcode.OP_LESS_THAN);
+                    break;
+                case ">=":
+                    emit(integers ? Opcode.OP_GREATER_EQUAL_INT : Opcode.OP_GREATER_EQUAL);
+                    break;
+                case "<=":
+                    emit(integers ? Opcode.OP_LESS_EQUAL_INT : Opcode.OP_LESS_EQUAL);
                     break;
                 case "==":
-                    emit(Opcode.OP_EQUAL);
+                    emit(integers ? Opcode.OP_EQUAL_INT : Opcode.OP_EQUAL);
                     break;
                 case "!=":
-                    emit(Opcode.OP_NOT_EQUAL);
+                    emit(integers ? Opcode.OP_NOT_EQUAL_INT : Opcode.OP_NOT_EQUAL);
                     break;
                 default:
                     throw new CompilerException("unknown operator " + infixExpr.getOperator());
@@ -142,7 +188,7 @@ public class Compiler {
                     emit(Opcode.OP_BANG);
                     break;
                 case "-":
-                    emit(Opcode.OP_MINUS);
+                    emit(isProvenInteger(prefixExpr.getRight()) ? Opcode.OP_MINUS_INT : Opcode.OP_MINUS);
                     break;
                 default:
                     throw new CompilerException("unknown operator " + prefixExpr.getOperator());
@@ -150,12 +196,12 @@ public class Compiler {
         }
         else if (node instanceof IntegerLiteral) {
             IntegerLiteral intLit = (IntegerLiteral) node;
-            IntegerObject integer = new IntegerObject(intLit.getValue());
+            IntegerObject integer = IntegerObject.valueOf(intLit.getValue());
             emit(Opcode.OP_CONSTANT, addConstant(integer));
         }
         else if (node instanceof StringLiteral) {
             StringLiteral strLit = (StringLiteral) node;
-            StringObject str = new StringObject(strLit.getValue());
+            StringObject str = StringObject.intern(strLit.getValue());
             emit(Opcode.OP_CONSTANT, addConstant(str));
         }
         else if (node instanceof BooleanLiteral) {
@@ -219,7 +265,8 @@ public class Compiler {
         CompiledFunctionObject compiledFn = new CompiledFunctionObject(
                 instructions,
                 numLocals,
-                fn.getParameters().size()
+                fn.getParameters().size(),
+                memoizable.contains(fn)
         );
 
         int fnIndex = addConstant(compiledFn);
@@ -270,6 +317,48 @@ public class Compiler {
         }
     }
 
+    /**
+     * 編譯重新賦值
+     * 閉包捕獲的是自由變量的值副本，因此只允許對全局變量和當前函數的局部變量賦值
+     */
+    private void compileAssignStatement(AssignStatement assignStmt) throws CompilerException {
+        String name = assignStmt.getName().getValue();
+        Symbol symbol = symbolTable.resolve(name);
+        if (symbol == null) {
+            throw new CompilerException("undefined variable " + name);
+        }
+
+        compile(assignStmt.getValue());
+
+        switch (symbol.getScope()) {
+            case GLOBAL:
+                emit(Opcode.OP_SET_GLOBAL, symbol.getIndex());
+                break;
+            case LOCAL:
+                emit(Opcode.OP_SET_LOCAL, symbol.getIndex());
+                break;
+            default:
+                throw new CompilerException("cannot assign to " + symbol.getScope() + " variable " + name);
+        }
+    }
+
+    /**
+     * 編譯 while 迴圈，迴圈體結尾用 OpJump 跳回條件判斷（不產生任何幀）
+     *
+     * start: <condition>; OpJumpNotTruthy end; <body>; OpJump start; end:
+     */
+    private void compileWhileStatement(WhileStatement whileStmt) throws CompilerException {
+        int loopStart = currentInstructions().size();
+
+        compile(whileStmt.getCondition());
+        int jumpNotTruthyPos = emit(Opcode.OP_JUMP_NOT_TRUTHY, 9999);
+
+        compile(whileStmt.getBody());
+        emit(Opcode.OP_JUMP, loopStart);
+
+        changeOperand(jumpNotTruthyPos, currentInstructions().size());
+    }
+
     private void compileIdentifier(Identifier ident) throws CompilerException {
         Symbol symbol = symbolTable.resolve(ident.getValue());
         if (symbol == null) {
@@ -300,6 +389,12 @@ public class Compiler {
     }
 
     private void compileArrayLiteral(ArrayLiteral array) throws CompilerException {
+        MonkeyObject constant = array.getElements().isEmpty() ? null : constantValue(array);
+        if (constant != null) {
+            emit(Opcode.OP_CONSTANT, addConstant(constant));
+            return;
+        }
+
         for (Expression element : array.getElements()) {
             compile(element);
         }
@@ -307,8 +402,13 @@ public class Compiler {
     }
 
     private void compileHashLiteral(HashLiteral hash) throws CompilerException {
-        List<Expression> keys = new ArrayList<>(hash.getPairs().keySet());
-        keys.sort(Comparator.comparing(Node::string));
+        MonkeyObject constant = hash.getPairs().isEmpty() ? null : constantValue(hash);
+        if (constant != null) {
+            emit(Opcode.OP_CONSTANT, addConstant(constant));
+            return;
+        }
+
+        List<Expression> keys = sortedKeys(hash);
 
         for (Expression key : keys) {
             compile(key);
@@ -318,22 +418,94 @@ public class Compiler {
         emit(Opcode.OP_HASH, hash.getPairs().size() * 2);
     }
 
+    private static List<Expression> sortedKeys(HashLiteral hash) {
+        List<Expression> keys = new ArrayList<>(hash.getPairs().keySet());
+        keys.sort(Comparator.comparing(Node::string));
+        return keys;
+    }
+
+    /**
+     * 內容全為常量的集合字面值在編譯期直接建立，放入常量池
+     *
+     * 陣列與雜湊表都是持久化結構（push / put 返回新物件），因此同一個常量
+     * 可以安全地被每次執行共享；函數內的查找表不再在每次調用時重建、重新雜湊。
+     * 空的字面值仍用 OP_ARRAY 0 / OP_HASH 0，與一條 OP_CONSTANT 一樣便宜。
+     * 不是常量時返回 null。
+     */
+    private MonkeyObject constantValue(Expression node) {
+        if (node instanceof IntegerLiteral intLit) {
+            return IntegerObject.valueOf(intLit.getValue());
+        }
+        if (node instanceof StringLiteral strLit) {
+            return StringObject.intern(strLit.getValue());
+        }
+        if (node instanceof BooleanLiteral boolLit) {
+            return BooleanObject.valueOf(boolLit.getValue());
+        }
+        if (node instanceof PrefixExpression prefix
+                && prefix.getOperator().equals("-")
+                && prefix.getRight() instanceof IntegerLiteral intLit) {
+            return IntegerObject.valueOf(-intLit.getValue());
+        }
+        if (node instanceof ArrayLiteral array) {
+            List<MonkeyObject> elements = new ArrayList<>();
+            for (Expression element : array.getElements()) {
+                MonkeyObject value = constantValue(element);
+                if (value == null) {
+                    return null;
+                }
+                elements.add(value);
+            }
+            return ArrayObject.of(elements);
+        }
+        if (node instanceof HashLiteral hash) {
+            // 與運行時相同的鍵順序，重複的鍵由後者覆蓋
+            PersistentHashMap pairs = PersistentHashMap.EMPTY;
+            for (Expression keyExpr : sortedKeys(hash)) {
+                MonkeyObject key = constantValue(keyExpr);
+                MonkeyObject value = constantValue(hash.getPairs().get(keyExpr));
+                if (!(key instanceof Hashable) || value == null) {
+                    return null;
+                }
+                pairs = pairs.put(key, value);
+            }
+            return new HashObject(pairs);
+        }
+        return null;
+    }
+
     private void compileIndexExpression(IndexExpression indexExpr) throws CompilerException {
         compile(indexExpr.getLeft());
         compile(indexExpr.getIndex());
         emit(Opcode.OP_INDEX);
     }
 
+    /**
+     * 編譯短路邏輯運算
+     *
+     * a && b:  <a> OpJumpNotTruthyOrPop end; <b>; end:
+     * a || b:  <a> OpJumpTruthyOrPop end;    <b>; end:
+     */
+    private void compileLogicalExpression(InfixExpression infixExpr) throws CompilerException {
+        compile(infixExpr.getLeft());
+
+        Opcode jump = infixExpr.getOperator().equals("&&")
+                ? Opcode.OP_JUMP_NOT_TRUTHY_OR_POP
+                : Opcode.OP_JUMP_TRUTHY_OR_POP;
+        int jumpPos = emit(jump, 9999);
+
+        compile(infixExpr.getRight());
+
+        changeOperand(jumpPos, currentInstructions().size());
+    }
+
     private void compileIfExpression(IfExpression ifExpr) throws CompilerException {
         compile(ifExpr.getCondition());
 
         int jumpNotTruthyPos = emit(Opcode.OP_JUMP_NOT_TRUTHY, 9999);
 
         compile(ifExpr.getConsequence());
-
-        if (lastInstructionIs(Opcode.OP_POP)) {
-            removeLastPop();
-        }
+        finishBranchValue();
 
         int jumpPos = emit(Opcode.OP_JUMP, 9999);
 
@@ -344,16 +516,25 @@ public class Compiler {
             emit(Opcode.OP_NULL);
         } else {
             compile(ifExpr.getAlternative());
-
-            if (lastInstructionIs(Opcode.OP_POP)) {
-                removeLastPop();
-            }
+            finishBranchValue();
         }
 
         int afterAlternativePos = currentInstructions().size();
         changeOperand(jumpPos, afterAlternativePos);
     }
 
+    /**
+     * 讓 if 分支在棧上留下一個值:
+     * 以表達式結尾時移除最後的 OpPop；以賦值或迴圈等語句結尾時補上 OpNull
+     */
+    private void finishBranchValue() {
+        if (lastInstructionIs(Opcode.OP_POP)) {
+            removeLastPop();
+        } else if (!lastInstructionIs(Opcode.OP_RETURN_VALUE)) {
+            emit(Opcode.OP_NULL);
+        }
+    }
+
     private int emit(Opcode op, int... operands) {
         byte[] ins = Instructions.make(op, operands);
         int pos = addInstruction(ins);
@@ -399,6 +580,29 @@ public class Compiler {
         return constants.size() - 1;
     }
 
+    /**
+     * 開啟或關閉類型特化
+     *
+     * 開啟後，編譯 Program 時會先執行 TypeInferencer，
+     * 對能證明兩側都是整數的運算發射 *_INT 指令，其餘仍使用通用指令。
+     * 推導假設整個程式在同一次 compile 中給出（不適用於逐行編譯的 REPL）。
+     */
+    public void setTypeSpecialization(boolean enabled) {
+        this.typeSpecialization = enabled;
+    }
+
+    private boolean isProvenInteger(Expression expression) {
+        return typeSpecialization && typeInferencer != null && typeInferencer.isInteger(expression);
+    }
+
+    private static List<String> builtinNames() {
+        List<String> names = new ArrayList<>();
+        for (BuiltinObject builtin : Builtins.BUILTINS) {
+            names.add(builtin.getName());
+        }
+        return names;
+    }
+
     public Bytecode bytecode() {
         return new Bytecode(currentInstructions(), constants);
     }
@@ -0,0 +1,293 @@
+package com.monkey.compiler;
+
+import com.monkey.ast.*;
+
+import java.util.*;
+
+/**
+ * PurityAnalyzer 純度 / 副作用分析
+ *
+ * 在編譯前掃描整個 Program，找出可以安全記憶化（memoize）的遞迴函數。
+ * 一個函數字面量被判定為「純」需要滿足:
+ * - 不調用 puts（唯一有副作用的內建函數）
+ * - 不讀取外層函數的自由變量（閉包狀態）
+ * - 引用的全局變量只能是常量字面量或同樣是純函數的全局函數（且從未被重新賦值）
+ * - 只對自己的局部變量重新賦值
+ *
+ * 只有參與遞迴調用環（直接或間接調用自己）的純函數才會被標記，
+ * 因為對一般的小函數做記憶化只會增加查表開銷。
+ * 參數是否為整數 / 字串在運行時由 VM 檢查。
+ */
+public class PurityAnalyzer {
+    private static final Set<String> IMPURE_BUILTINS = Set.of("puts");
+
+    // 只定義一次的頂層 let 綁定: 名稱 -> 值表達式
+    private final Map<String, Expression> globals = new HashMap<>();
+    private final Set<String> builtinNames = new HashSet<>();
+
+    // 每個候選函數引用到的全局函數名稱
+    private final Map<FunctionLiteral, Set<String>> globalCalls = new IdentityHashMap<>();
+
+    private PurityAnalyzer(Collection<String> builtinNames) {
+        this.builtinNames.addAll(builtinNames);
+    }
+
+    /**
+     * 分析程式，返回可記憶化的函數字面量集合（以物件身份比較）
+     */
+    public static Set<FunctionLiteral> analyze(Program program, Collection<String> builtinNames) {
+        return new PurityAnalyzer(builtinNames).run(program);
+    }
+
+    private Set<FunctionLiteral> run(Program program) {
+        Set<String> definedTwice = new HashSet<>();
+        for (Statement stmt : program.getStatements()) {
+            if (stmt instanceof LetStatement let) {
+                String name = let.getName().getValue();
+                if (globals.containsKey(name)) {
+                    definedTwice.add(name);
+                }
+                globals.put(name, let.getValue());
+            }
+        }
+        definedTwice.forEach(globals::remove);
+
+        // 被重新賦值過的名稱不再是常量
+        Set<String> assigned = new HashSet<>();
+        collectAssignments(program, assigned);
+        assigned.forEach(globals::remove);
+
+        // 第一步: 逐個檢查頂層函數本身是否只引用允許的名稱
+        Set<FunctionLiteral> pure = Collections.newSetFromMap(new IdentityHashMap<>());
+        Map<String, FunctionLiteral> globalFunctions = new HashMap<>();
+        for (Map.Entry<String, Expression> entry : globals.entrySet()) {
+            if (!(entry.getValue() instanceof FunctionLiteral fn)) {
+                continue;
+            }
+            globalFunctions.put(entry.getKey(), fn);
+
+            Set<String> calls = new HashSet<>();
+            Deque<Set<String>> scopes = new ArrayDeque<>();
+            if (isPureFunction(fn, scopes, calls)) {
+                pure.add(fn);
+                globalCalls.put(fn, calls);
+            }
+        }
+
+        // 第二步: 不動點迭代，剔除引用了非純全局函數的函數
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            Iterator<FunctionLiteral> it = pure.iterator();
+            while (it.hasNext()) {
+                FunctionLiteral fn = it.next();
+                for (String callee : globalCalls.get(fn)) {
+                    FunctionLiteral target = globalFunctions.get(callee);
+                    if (target != null && !pure.contains(target)) {
+                        it.remove();
+                        changed = true;
+                        break;
+                    }
+                }
+            }
+        }
+
+        // 第三步: 只保留有參數且處於遞迴環上的函數
+        Set<FunctionLiteral> result = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (Map.Entry<String, FunctionLiteral> entry : globalFunctions.entrySet()) {
+            FunctionLiteral fn = entry.getValue();
+            if (pure.contains(fn) && !fn.getParameters().isEmpty()
+                    && reaches(entry.getKey(), entry.getKey(), globalFunctions, new HashSet<>())) {
+                result.add(fn);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 判斷從 from 出發的全局調用圖能否回到 target
+     */
+    private boolean reaches(String from, String target, Map<String, FunctionLiteral> functions,
+                            Set<String> visited) {
+        FunctionLiteral fn = functions.get(from);
+        Set<String> calls = fn == null ? null : globalCalls.get(fn);
+        if (calls == null) {
+            return false;
+        }
+        for (String callee : calls) {
+            if (callee.equals(target)) {
+                return true;
+            }
+            if (visited.add(callee) && reaches(callee, target, functions, visited)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean isPureFunction(FunctionLiteral fn, Deque<Set<String>> scopes, Set<String> calls) {
+        Set<String> scope = new HashSet<>();
+        for (Identifier param : fn.getParameters()) {
+            scope.add(param.getValue());
+        }
+        scopes.push(scope);
+        boolean pure = isPure(fn.getBody(), scopes, calls);
+        scopes.pop();
+        return pure;
+    }
+
+    private boolean isPure(Node node, Deque<Set<String>> scopes, Set<String> calls) {
+        if (node == null) {
+            return true;
+        }
+        if (node instanceof BlockStatement block) {
+            for (Statement stmt : block.getStatements()) {
+                if (!isPure(stmt, scopes, calls)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        if (node instanceof ExpressionStatement stmt) {
+            return isPure(stmt.getExpression(), scopes, calls);
+        }
+        if (node instanceof ReturnStatement stmt) {
+            return isPure(stmt.getReturnValue(), scopes, calls);
+        }
+        if (node instanceof LetStatement let) {
+            // 與編譯器一致: 先定義名稱，再編譯右側的值
+            scopes.peek().add(let.getName().getValue());
+            return isPure(let.getValue(), scopes, calls);
+        }
+        if (node instanceof AssignStatement assign) {
+            // 只允許修改當前函數自己的局部變量
+            return scopes.peek().contains(assign.getName().getValue())
+                    && isPure(assign.getValue(), scopes, calls);
+        }
+        if (node instanceof WhileStatement loop) {
+            return isPure(loop.getCondition(), scopes, calls) && isPure(loop.getBody(), scopes, calls);
+        }
+        if (node instanceof Identifier ident) {
+            return isPureReference(ident.getValue(), scopes, calls);
+        }
+        if (node instanceof PrefixExpression prefix) {
+            return isPure(prefix.getRight(), scopes, calls);
+        }
+        if (node instanceof InfixExpression infix) {
+            return isPure(infix.getLeft(), scopes, calls) && isPure(infix.getRight(), scopes, calls);
+        }
+        if (node instanceof IfExpression ifExpr) {
+            return isPure(ifExpr.getCondition(), scopes, calls)
+                    && isPure(ifExpr.getConsequence(), scopes, calls)
+                    && isPure(ifExpr.getAlternative(), scopes, calls);
+        }
+        if (node instanceof CallExpression call) {
+            if (!isPure(call.getFunction(), scopes, calls)) {
+                return false;
+            }
+            for (Expression arg : call.getArguments()) {
+                if (!isPure(arg, scopes, calls)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        if (node instanceof IndexExpression index) {
+            return isPure(index.getLeft(), scopes, calls) && isPure(index.getIndex(), scopes, calls);
+        }
+        if (node instanceof ArrayLiteral array) {
+            for (Expression element : array.getElements()) {
+                if (!isPure(element, scopes, calls)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        if (node instanceof HashLiteral hash) {
+            for (Map.Entry<Expression, Expression> pair : hash.getPairs().entrySet()) {
+                if (!isPure(pair.getKey(), scopes, calls) || !isPure(pair.getValue(), scopes, calls)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        if (node instanceof FunctionLiteral fn) {
+            return isPureFunction(fn, scopes, calls);
+        }
+        return node instanceof IntegerLiteral
+                || node instanceof StringLiteral
+                || node instanceof BooleanLiteral;
+    }
+
+    /**
+     * 收集程式中所有被重新賦值的名稱（不區分作用域，保守處理）
+     */
+    private static void collectAssignments(Node node, Set<String> assigned) {
+        if (node instanceof Program program) {
+            program.getStatements().forEach(stmt -> collectAssignments(stmt, assigned));
+        } else if (node instanceof BlockStatement block) {
+            block.getStatements().forEach(stmt -> collectAssignments(stmt, assigned));
+        } else if (node instanceof AssignStatement assign) {
+            assigned.add(assign.getName().getValue());
+            collectAssignments(assign.getValue(), assigned);
+        } else if (node instanceof WhileStatement loop) {
+            collectAssignments(loop.getCondition(), assigned);
+            collectAssignments(loop.getBody(), assigned);
+        } else if (node instanceof ExpressionStatement stmt) {
+            collectAssignments(stmt.getExpression(), assigned);
+        } else if (node instanceof ReturnStatement stmt) {
+            collectAssignments(stmt.getReturnValue(), assigned);
+        } else if (node instanceof LetStatement let) {
+            collectAssignments(let.getValue(), assigned);
+        } else if (node instanceof PrefixExpression prefix) {
+            collectAssignments(prefix.getRight(), assigned);
+        } else if (node instanceof InfixExpression infix) {
+            collectAssignments(infix.getLeft(), assigned);
+            collectAssignments(infix.getRight(), assigned);
+        } else if (node instanceof IfExpression ifExpr) {
+            collectAssignments(ifExpr.getCondition(), assigned);
+            collectAssignments(ifExpr.getConsequence(), assigned);
+            collectAssignments(ifExpr.getAlternative(), assigned);
+        } else if (node instanceof FunctionLiteral fn) {
+            collectAssignments(fn.getBody(), assigned);
+        } else if (node instanceof CallExpression call) {
+            collectAssignments(call.getFunction(), assigned);
+            call.getArguments().forEach(arg -> collectAssignments(arg, assigned));
+        } else if (node instanceof IndexExpression index) {
+            collectAssignments(index.getLeft(), assigned);
+            collectAssignments(index.getIndex(), assigned);
+        } else if (node instanceof ArrayLiteral array) {
+            array.getElements().forEach(element -> collectAssignments(element, assigned));
+        } else if (node instanceof HashLiteral hash) {
+            hash.getPairs().forEach((key, value) -> {
+                collectAssignments(key, assigned);
+                collectAssignments(value, assigned);
+            });
+        }
+    }
+
+    /**
+     * 名稱引用是否純:
+     * 函數內部的局部名稱、常量全局變量、全局函數（稍後由不動點驗證）、無副作用的內建函數
+     */
+    private boolean isPureReference(String name, Deque<Set<String>> scopes, Set<String> calls) {
+        for (Set<String> scope : scopes) {
+            if (scope.contains(name)) {
+                return true;
+            }
+        }
+
+        Expression global = globals.get(name);
+        if (global != null) {
+            if (global instanceof FunctionLiteral) {
+                calls.add(name);
+                return true;
+            }
+            return global instanceof IntegerLiteral
+                    || global instanceof StringLiteral
+                    || global instanceof BooleanLiteral;
+        }
+
+        return builtinNames.contains(name) && !IMPURE_BUILTINS.contains(name);
+    }
+}
@@ -0,0 +1,29 @@
+package com.monkey.compiler;
+
+/**
+ * StaticType 編譯期推導出的靜態類型
+ *
+ * 類型構成一個簡單的格 (lattice):
+ * NONE（尚無值）在最底層，UNKNOWN（無法證明）在最頂層，
+ * 中間是 INTEGER / STRING / BOOLEAN 三種可證明的類型。
+ */
+public enum StaticType {
+    NONE,
+    INTEGER,
+    STRING,
+    BOOLEAN,
+    UNKNOWN;
+
+    /**
+     * 求兩個類型的最小上界
+     */
+    public StaticType join(StaticType other) {
+        if (this == other || other == NONE) {
+            return this;
+        }
+        if (this == NONE) {
+            return other;
+        }
+        return UNKNOWN;
+    }
+}
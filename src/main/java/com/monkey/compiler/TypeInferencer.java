@@ -0,0 +1,389 @@
+package com.monkey.compiler;
+
+import com.monkey.ast.*;
+
+import java.util.*;
+
+/**
+ * TypeInferencer 靜態類型推導
+ *
+ * 對整個 Program 做一次流不敏感 (flow-insensitive) 的推導:
+ * - 每個綁定（let 或參數）的類型 = 所有寫入它的表達式（含重新賦值）類型的最小上界
+ * - 只被直接調用、從未作為值傳遞的函數，其參數類型來自所有調用點的實參
+ * - 函數返回類型 = 所有 return 值與函數體最後一個表達式的類型
+ *
+ * 反覆迭代直到不動點。名稱解析規則與 SymbolTable 一致（先定義，再編譯右側的值）。
+ * 推導假設編譯的是完整程式: 其他編譯單元中定義的名稱一律視為 UNKNOWN。
+ */
+public class TypeInferencer {
+    private final Set<String> builtinNames;
+
+    private final Map<Identifier, Binding> uses = new IdentityHashMap<>();
+    private final Map<FunctionLiteral, FunctionInfo> functions = new IdentityHashMap<>();
+    private final List<Binding> bindings = new ArrayList<>();
+
+    // 不動點之後的最終結果快取
+    private Map<Expression, StaticType> finalTypes;
+
+    private TypeInferencer(Collection<String> builtinNames) {
+        this.builtinNames = new HashSet<>(builtinNames);
+    }
+
+    /**
+     * 推導程式中各表達式的類型
+     */
+    public static TypeInferencer infer(Program program, Collection<String> builtinNames) {
+        TypeInferencer inferencer = new TypeInferencer(builtinNames);
+        inferencer.collect(program, new Scope(null), null);
+        inferencer.solve();
+        return inferencer;
+    }
+
+    /**
+     * 獲取表達式的推導類型
+     */
+    public StaticType typeOf(Expression expression) {
+        StaticType type = finalTypes.get(expression);
+        if (type == null) {
+            type = computeType(expression);
+            finalTypes.put(expression, type);
+        }
+        return type;
+    }
+
+    public boolean isInteger(Expression expression) {
+        return expression != null && typeOf(expression) == StaticType.INTEGER;
+    }
+
+    // ---------------------------------------------------------------
+    // 第一步: 收集綁定、調用點和返回值
+    // ---------------------------------------------------------------
+
+    private void collect(Node node, Scope scope, FunctionInfo current) {
+        if (node == null) {
+            return;
+        }
+        if (node instanceof Program program) {
+            for (Statement stmt : program.getStatements()) {
+                collect(stmt, scope, current);
+            }
+        } else if (node instanceof BlockStatement block) {
+            for (Statement stmt : block.getStatements()) {
+                collect(stmt, scope, current);
+            }
+        } else if (node instanceof ExpressionStatement stmt) {
+            collect(stmt.getExpression(), scope, current);
+        } else if (node instanceof ReturnStatement stmt) {
+            if (current != null && stmt.getReturnValue() != null) {
+                current.returns.add(stmt.getReturnValue());
+            }
+            collect(stmt.getReturnValue(), scope, current);
+        } else if (node instanceof LetStatement let) {
+            Binding binding = newBinding();
+            scope.store.put(let.getName().getValue(), binding);
+
+            if (let.getValue() instanceof FunctionLiteral fn) {
+                binding.function = collectFunction(fn, scope);
+            } else {
+                if (let.getValue() != null) {
+                    binding.writes.add(let.getValue());
+                }
+                collect(let.getValue(), scope, current);
+            }
+        } else if (node instanceof AssignStatement assign) {
+            Binding binding = resolve(assign.getName(), scope);
+            if (binding != null && binding.function != null) {
+                // 函數綁定被替換，通過該名稱的調用不再一定指向原函數
+                binding.function.escapes = true;
+                binding.function = null;
+                binding.type = StaticType.UNKNOWN;
+            }
+            if (binding != null && assign.getValue() != null) {
+                binding.writes.add(assign.getValue());
+            }
+            collect(assign.getValue(), scope, current);
+        } else if (node instanceof WhileStatement loop) {
+            collect(loop.getCondition(), scope, current);
+            collect(loop.getBody(), scope, current);
+        } else if (node instanceof Identifier ident) {
+            Binding binding = resolve(ident, scope);
+            if (binding != null && binding.function != null) {
+                // 函數被當作值使用，無法得知所有調用點
+                binding.function.escapes = true;
+            }
+        } else if (node instanceof CallExpression call) {
+            FunctionInfo callee = null;
+            if (call.getFunction() instanceof Identifier ident) {
+                Binding binding = resolve(ident, scope);
+                if (binding != null) {
+                    callee = binding.function;
+                }
+            } else if (call.getFunction() instanceof FunctionLiteral fn) {
+                callee = collectFunction(fn, scope);
+            } else {
+                collect(call.getFunction(), scope, current);
+            }
+
+            if (callee != null) {
+                callee.callSites.add(call.getArguments());
+            }
+            for (Expression arg : call.getArguments()) {
+                collect(arg, scope, current);
+            }
+        } else if (node instanceof FunctionLiteral fn) {
+            collectFunction(fn, scope).escapes = true;
+        } else if (node instanceof PrefixExpression prefix) {
+            collect(prefix.getRight(), scope, current);
+        } else if (node instanceof InfixExpression infix) {
+            collect(infix.getLeft(), scope, current);
+            collect(infix.getRight(), scope, current);
+        } else if (node instanceof IfExpression ifExpr) {
+            collect(ifExpr.getCondition(), scope, current);
+            collect(ifExpr.getConsequence(), scope, current);
+            collect(ifExpr.getAlternative(), scope, current);
+        } else if (node instanceof IndexExpression index) {
+            collect(index.getLeft(), scope, current);
+            collect(index.getIndex(), scope, current);
+        } else if (node instanceof ArrayLiteral array) {
+            for (Expression element : array.getElements()) {
+                collect(element, scope, current);
+            }
+        } else if (node instanceof HashLiteral hash) {
+            for (Map.Entry<Expression, Expression> pair : hash.getPairs().entrySet()) {
+                collect(pair.getKey(), scope, current);
+                collect(pair.getValue(), scope, current);
+            }
+        }
+    }
+
+    private FunctionInfo collectFunction(FunctionLiteral fn, Scope outer) {
+        Scope scope = new Scope(outer);
+        FunctionInfo info = new FunctionInfo();
+        for (Identifier param : fn.getParameters()) {
+            Binding binding = newBinding();
+            scope.store.put(param.getValue(), binding);
+            info.params.add(binding);
+        }
+        info.body = fn.getBody();
+        functions.put(fn, info);
+
+        collect(fn.getBody(), scope, info);
+        return info;
+    }
+
+    private Binding resolve(Identifier ident, Scope scope) {
+        for (Scope s = scope; s != null; s = s.outer) {
+            Binding binding = s.store.get(ident.getValue());
+            if (binding != null) {
+                uses.put(ident, binding);
+                return binding;
+            }
+        }
+        if (builtinNames.contains(ident.getValue())) {
+            Binding builtin = new Binding();
+            builtin.type = StaticType.UNKNOWN;
+            uses.put(ident, builtin);
+            return builtin;
+        }
+        return null;
+    }
+
+    private Binding newBinding() {
+        Binding binding = new Binding();
+        bindings.add(binding);
+        return binding;
+    }
+
+    // ---------------------------------------------------------------
+    // 第二步: 迭代至不動點
+    // ---------------------------------------------------------------
+
+    private void solve() {
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+
+            for (Binding binding : bindings) {
+                if (binding.function != null) {
+                    // 函數值本身不追蹤類型
+                    changed |= binding.widen(StaticType.UNKNOWN);
+                    continue;
+                }
+                for (Expression write : binding.writes) {
+                    changed |= binding.widen(computeType(write));
+                }
+            }
+
+            for (FunctionInfo fn : functions.values()) {
+                for (int i = 0; i < fn.params.size(); i++) {
+                    Binding param = fn.params.get(i);
+                    if (fn.escapes) {
+                        changed |= param.widen(StaticType.UNKNOWN);
+                        continue;
+                    }
+                    for (List<Expression> args : fn.callSites) {
+                        // 參數數量不符的調用會在運行時報錯，不會進入函數體
+                        if (args.size() == fn.params.size()) {
+                            changed |= param.widen(computeType(args.get(i)));
+                        }
+                    }
+                }
+
+                StaticType returnType = fn.returnType;
+                for (Expression value : fn.returns) {
+                    returnType = returnType.join(computeType(value));
+                }
+                returnType = returnType.join(blockValueType(fn.body));
+                if (returnType != fn.returnType) {
+                    fn.returnType = returnType;
+                    changed = true;
+                }
+            }
+        }
+
+        finalTypes = new IdentityHashMap<>();
+    }
+
+    private StaticType computeType(Expression expression) {
+        if (expression instanceof IntegerLiteral) {
+            return StaticType.INTEGER;
+        }
+        if (expression instanceof StringLiteral) {
+            return StaticType.STRING;
+        }
+        if (expression instanceof BooleanLiteral) {
+            return StaticType.BOOLEAN;
+        }
+        if (expression instanceof Identifier ident) {
+            Binding binding = uses.get(ident);
+            return binding == null ? StaticType.UNKNOWN : binding.type;
+        }
+        if (expression instanceof PrefixExpression prefix) {
+            if (prefix.getOperator().equals("!")) {
+                return StaticType.BOOLEAN;
+            }
+            StaticType right = computeType(prefix.getRight());
+            return right == StaticType.INTEGER || right == StaticType.NONE ? right : StaticType.UNKNOWN;
+        }
+        if (expression instanceof InfixExpression infix) {
+            return infixType(infix.getOperator(), computeType(infix.getLeft()), computeType(infix.getRight()));
+        }
+        if (expression instanceof IfExpression ifExpr) {
+            StaticType consequence = blockValueType(ifExpr.getConsequence());
+            if (ifExpr.getAlternative() == null) {
+                return consequence.join(StaticType.UNKNOWN);
+            }
+            return consequence.join(blockValueType(ifExpr.getAlternative()));
+        }
+        if (expression instanceof CallExpression call) {
+            if (call.getFunction() instanceof FunctionLiteral fn) {
+                return functions.get(fn).returnType;
+            }
+            if (call.getFunction() instanceof Identifier ident) {
+                Binding binding = uses.get(ident);
+                if (binding != null && binding.function != null) {
+                    return binding.function.returnType;
+                }
+            }
+            // 內建函數對不支援的實參返回錯誤物件（例如 len(1)），結果類型未知
+            return StaticType.UNKNOWN;
+        }
+        return StaticType.UNKNOWN;
+    }
+
+    private StaticType infixType(String operator, StaticType left, StaticType right) {
+        switch (operator) {
+            case "==":
+            case "!=":
+            case "<":
+            case ">":
+            case "<=":
+            case ">=":
+                return StaticType.BOOLEAN;
+            case "&&":
+            case "||":
+                // 結果是兩個運算元之一
+                return left.join(right);
+            case "+":
+                if (left == StaticType.STRING || right == StaticType.STRING) {
+                    return binaryType(StaticType.STRING, left, right);
+                }
+                return binaryType(StaticType.INTEGER, left, right);
+            case "-":
+            case "*":
+            case "/":
+            case "%":
+            case "&":
+            case "|":
+            case "^":
+            case "<<":
+            case ">>":
+                return binaryType(StaticType.INTEGER, left, right);
+            default:
+                return StaticType.UNKNOWN;
+        }
+    }
+
+    /**
+     * 兩個運算元都是 operand 類型時結果為 operand 類型；
+     * 任一運算元尚無值 (NONE) 時結果也尚無值，保持推導單調
+     */
+    private StaticType binaryType(StaticType operand, StaticType left, StaticType right) {
+        boolean leftOk = left == operand || left == StaticType.NONE;
+        boolean rightOk = right == operand || right == StaticType.NONE;
+        if (!leftOk || !rightOk) {
+            return StaticType.UNKNOWN;
+        }
+        return left == StaticType.NONE || right == StaticType.NONE ? StaticType.NONE : operand;
+    }
+
+    /**
+     * 區塊的值類型（與編譯器一致: 最後一個表達式語句的值）
+     */
+    private StaticType blockValueType(BlockStatement block) {
+        if (block == null || block.getStatements().isEmpty()) {
+            return StaticType.UNKNOWN;
+        }
+        Statement last = block.getStatements().get(block.getStatements().size() - 1);
+        if (last instanceof ExpressionStatement stmt) {
+            return computeType(stmt.getExpression());
+        }
+        if (last instanceof ReturnStatement) {
+            return StaticType.NONE;
+        }
+        return StaticType.UNKNOWN;
+    }
+
+    private static final class Scope {
+        final Scope outer;
+        final Map<String, Binding> store = new HashMap<>();
+
+        Scope(Scope outer) {
+            this.outer = outer;
+        }
+    }
+
+    private static final class Binding {
+        StaticType type = StaticType.NONE;
+        final List<Expression> writes = new ArrayList<>();
+        FunctionInfo function;  // let 綁定的函數字面量
+
+        boolean widen(StaticType other) {
+            StaticType joined = type.join(other);
+            if (joined == type) {
+                return false;
+            }
+            type = joined;
+            return true;
+        }
+    }
+
+    private static final class FunctionInfo {
+        final List<Binding> params = new ArrayList<>();
+        final List<Expression> returns = new ArrayList<>();
+        final List<List<Expression>> callSites = new ArrayList<>();
+        BlockStatement body;
+        boolean escapes;
+        StaticType returnType = StaticType.NONE;
+    }
+}
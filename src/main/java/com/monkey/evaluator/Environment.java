@@ -1,54 +1,196 @@
 package com.monkey.evaluator;
-import com.monkey.ast.*;
 import com.monkey.object.*;
 
-import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
-import java.util.List;
 import java.util.Map;
 
 /**
- * Evaluator 遍歷 AST 並對其求值
- * 實現 Tree-Walking Interpreter
+ * Environment 求值器的變量環境
+ *
+ * 每個環境是一個陣列幀: 槽位的佈局由 Resolver 在求值前決定，
+ * 識別符號帶有 (depth, slot) 標註，訪問時向外走 depth 層後直接按索引讀寫。
+ * 函數幀的大小固定（參數與函數體內的 let）；全局幀可以增長，REPL 每一行的新名稱追加在末尾。
+ *
+ * 槽位為 null 表示該名稱已宣告但 let 尚未執行，此時按名稱在更外層環境中查找，
+ * 與原先「當前環境沒有就向外找」的語義一致。
  */
 public class Environment {
-    private final Map<String, MonkeyObject> store;
     private final Environment outer;
+    private String[] names;
+    private MonkeyObject[] slots;
+    // 只有全局幀使用: 名稱 → 槽位
+    private final Map<String, Integer> index;
+    private int size;
+    // return 語句寫入的返回值，由 Evaluator 在函數邊界取回
+    private MonkeyObject returnValue;
 
     public Environment() {
-        this.store = new HashMap<>();
         this.outer = null;
+        this.names = new String[16];
+        this.slots = new MonkeyObject[16];
+        this.index = new HashMap<>();
+        this.size = 0;
     }
 
-    public Environment(Environment outer) {
-        this.store = new HashMap<>();
+    private Environment(Environment outer, String[] names) {
         this.outer = outer;
+        this.names = names;
+        this.slots = new MonkeyObject[names.length];
+        this.index = null;
+        this.size = names.length;
     }
 
     /**
-     * 獲取變數值
-     * 如果當前環境中找不到，則在外層環境中查找
+     * 創建函數調用的環境，槽位佈局由函數字面值的 localNames 決定
+     */
+    public static Environment newFunctionEnvironment(Environment outer, String[] localNames) {
+        return new Environment(outer, localNames);
+    }
+
+    /**
+     * 按解析結果讀取變量，未賦值時返回 null
+     */
+    public MonkeyObject get(int depth, int slot) {
+        Environment env = this;
+        for (int i = 0; i < depth; i++) {
+            env = env.outer;
+        }
+        return env.slots[slot];
+    }
+
+    /**
+     * 按解析結果寫入變量
+     */
+    public void set(int depth, int slot, MonkeyObject val) {
+        Environment env = this;
+        for (int i = 0; i < depth; i++) {
+            env = env.outer;
+        }
+        env.slots[slot] = val;
+    }
+
+    /**
+     * 按名稱獲取變量值
+     * 從當前環境向外查找第一個已賦值的同名變量
      */
     public MonkeyObject get(String name) {
-        MonkeyObject obj = store.get(name);
-        if (obj == null && outer != null) {
-            return outer.get(name);
+        for (Environment env = this; env != null; env = env.outer) {
+            int slot = env.slotOf(name);
+            if (slot >= 0 && env.slots[slot] != null) {
+                return env.slots[slot];
+            }
         }
-        return obj;
+        return null;
     }
 
     /**
-     * 設置變數值
+     * 從向外第 depth 層環境開始按名稱查找（解析到的槽位尚未賦值時使用）
+     */
+    public MonkeyObject getFrom(int depth, String name) {
+        Environment env = this;
+        for (int i = 0; i < depth && env != null; i++) {
+            env = env.outer;
+        }
+        return env == null ? null : env.get(name);
+    }
+
+    /**
+     * 按名稱設置當前環境中的變量值
+     * 全局環境中不存在的名稱會新增槽位
      */
     public MonkeyObject set(String name, MonkeyObject val) {
-        store.put(name, val);
+        int slot = slotOf(name);
+        if (slot < 0) {
+            slot = declare(name);
+        }
+        slots[slot] = val;
+        return val;
+    }
+
+    /**
+     * 重新賦值已存在的變量
+     * 從當前環境向外查找第一個已賦值的同名變量；找不到時返回 null
+     */
+    public MonkeyObject assign(String name, MonkeyObject val) {
+        for (Environment env = this; env != null; env = env.outer) {
+            int slot = env.slotOf(name);
+            if (slot >= 0 && env.slots[slot] != null) {
+                env.slots[slot] = val;
+                return val;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 從向外第 depth 層環境開始按名稱重新賦值
+     */
+    public MonkeyObject assignFrom(int depth, String name, MonkeyObject val) {
+        Environment env = this;
+        for (int i = 0; i < depth && env != null; i++) {
+            env = env.outer;
+        }
+        return env == null ? null : env.assign(name, val);
+    }
+
+    void setReturnValue(MonkeyObject val) {
+        this.returnValue = val;
+    }
+
+    /**
+     * 取回並清空返回槽位
+     */
+    MonkeyObject takeReturnValue() {
+        MonkeyObject val = returnValue;
+        returnValue = null;
         return val;
     }
 
     /**
-     * 創建一個新的封閉環境
+     * 是否為最外層（全局）環境
+     */
+    public boolean isGlobal() {
+        return outer == null;
+    }
+
+    Environment getOuter() {
+        return outer;
+    }
+
+    /**
+     * 名稱在本幀中的槽位，不存在時返回 -1
      */
-    public static Environment newEnclosedEnvironment(Environment outer) {
-        return new Environment(outer);
+    int slotOf(String name) {
+        if (index != null) {
+            Integer slot = index.get(name);
+            return slot == null ? -1 : slot;
+        }
+        for (int i = 0; i < size; i++) {
+            if (names[i].equals(name)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * 在全局幀中宣告一個名稱並返回其槽位（已存在時返回原槽位）
+     */
+    int declare(String name) {
+        if (index == null) {
+            throw new IllegalStateException("cannot declare " + name + " in a function environment");
+        }
+        Integer existing = index.get(name);
+        if (existing != null) {
+            return existing;
+        }
+        if (size == names.length) {
+            names = Arrays.copyOf(names, size * 2);
+            slots = Arrays.copyOf(slots, size * 2);
+        }
+        names[size] = name;
+        index.put(name, size);
+        return size++;
     }
 }
@@ -3,7 +3,6 @@ import com.monkey.ast.*;
 import com.monkey.object.*;
 
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -18,10 +17,37 @@ public class Evaluator {
     private static final BooleanObject TRUE = BooleanObject.TRUE;
     private static final BooleanObject FALSE = BooleanObject.FALSE;
 
+    /**
+     * return 的完成信號: 預先分配的唯一實例
+     * 返回值本身寫入當前函數幀的返回槽位（區塊不建立環境，return 總是在函數幀中執行），
+     * 信號沿區塊向上傳遞到 callFunction 或程式頂層後從幀中取回，不為每次 return 分配包裝物件。
+     */
+    private static final ReturnValue RETURN = new ReturnValue(NULL);
+
+    // 並行模式，為 null 時（默認）所有子表達式順序求值
+    private static volatile ParallelEvaluation parallel;
+
+    /**
+     * 開啟並行求值模式，傳入 null 關閉
+     * 陣列、雜湊字面值和調用實參中獨立的純子表達式會被分派到 ForkJoinPool 上求值
+     */
+    public static void setParallelEvaluation(ParallelEvaluation evaluation) {
+        parallel = evaluation;
+    }
+
     /**
      * 求值節點
+     * 在全局環境中求值時先由 Resolver 為識別符號分配槽位（每次調用都重新解析，REPL 的新名稱追加到全局幀）
      */
     public static MonkeyObject eval(Node node, Environment env) {
+        if (env.isGlobal()) {
+            Resolver.resolve(node, env);
+        }
+        MonkeyObject result = evalNode(node, env);
+        return result == RETURN ? env.takeReturnValue() : result;
+    }
+
+    static MonkeyObject evalNode(Node node, Environment env) {
         // Program - 求值所有語句
         if (node instanceof Program program) {
             return evalProgram(program, env);
@@ -29,7 +55,7 @@ public class Evaluator {
 
         // 語句
         if (node instanceof ExpressionStatement stmt) {
-            return eval(stmt.getExpression(), env);
+            return evalNode(stmt.getExpression(), env);
         }
 
         if (node instanceof BlockStatement block) {
@@ -37,25 +63,40 @@ public class Evaluator {
         }
 
         if (node instanceof ReturnStatement returnStmt) {
-            MonkeyObject val = eval(returnStmt.getReturnValue(), env);
-            if (isError(val)) {
+            MonkeyObject val = evalNode(returnStmt.getReturnValue(), env);
+            if (isAbrupt(val)) {
                 return val;
             }
-            return new ReturnValue(val);
+            env.setReturnValue(val);
+            return RETURN;
         }
 
         if (node instanceof LetStatement letStmt) {
-            MonkeyObject val = eval(letStmt.getValue(), env);
-            if (isError(val)) {
+            MonkeyObject val = evalNode(letStmt.getValue(), env);
+            if (isAbrupt(val)) {
                 return val;
             }
-            env.set(letStmt.getName().getValue(), val);
+            val = retain(val, env);
+            bind(letStmt.getName(), val, env);
             return val;
         }
 
+        if (node instanceof AssignStatement assignStmt) {
+            MonkeyObject val = evalNode(assignStmt.getValue(), env);
+            if (isAbrupt(val)) {
+                return val;
+            }
+            val = retain(val, env);
+            return evalAssignment(assignStmt.getName(), val, env);
+        }
+
+        if (node instanceof WhileStatement whileStmt) {
+            return evalWhileStatement(whileStmt, env);
+        }
+
         // 表達式
         if (node instanceof IntegerLiteral intLit) {
-            return new IntegerObject(intLit.getValue());
+            return IntegerObject.valueOf(intLit.getValue());
         }
 
         if (node instanceof BooleanLiteral boolLit) {
@@ -63,24 +104,24 @@ public class Evaluator {
         }
 
         if (node instanceof StringLiteral strLit) {
-            return new StringObject(strLit.getValue());
+            return StringObject.intern(strLit.getValue());
         }
 
         if (node instanceof ArrayLiteral arrLit) {
             List<MonkeyObject> elements = evalExpressions(arrLit.getElements(), env);
-            if (elements.size() == 1 && isError(elements.get(0))) {
+            if (elements.size() == 1 && isAbrupt(elements.get(0))) {
                 return elements.get(0);
             }
-            return new ArrayObject(elements);
+            return ArrayObject.of(elements);
         }
 
         if (node instanceof IndexExpression indexExpr) {
-            MonkeyObject left = eval(indexExpr.getLeft(), env);
-            if (isError(left)) {
+            MonkeyObject left = evalNode(indexExpr.getLeft(), env);
+            if (isAbrupt(left)) {
                 return left;
             }
-            MonkeyObject index = eval(indexExpr.getIndex(), env);
-            if (isError(index)) {
+            MonkeyObject index = evalNode(indexExpr.getIndex(), env);
+            if (isAbrupt(index)) {
                 return index;
             }
             return evalIndexExpression(left, index);
@@ -91,21 +132,25 @@ public class Evaluator {
         }
 
         if (node instanceof PrefixExpression prefix) {
-            MonkeyObject right = eval(prefix.getRight(), env);
-            if (isError(right)) {
+            MonkeyObject right = evalNode(prefix.getRight(), env);
+            if (isAbrupt(right)) {
                 return right;
             }
             return evalPrefixExpression(prefix.getOperator(), right);
         }
 
         if (node instanceof InfixExpression infix) {
-            MonkeyObject left = eval(infix.getLeft(), env);
-            if (isError(left)) {
+            if (isLogicalOperator(infix.getOperator())) {
+                return evalLogicalExpression(infix, env);
+            }
+
+            MonkeyObject left = evalNode(infix.getLeft(), env);
+            if (isAbrupt(left)) {
                 return left;
             }
 
-            MonkeyObject right = eval(infix.getRight(), env);
-            if (isError(right)) {
+            MonkeyObject right = evalNode(infix.getRight(), env);
+            if (isAbrupt(right)) {
                 return right;
             }
 
@@ -121,17 +166,25 @@ public class Evaluator {
         }
 
         if (node instanceof FunctionLiteral fn) {
-            return new FunctionObject(fn.getParameters(), fn.getBody(), env);
+            return new FunctionObject(fn.getParameters(), fn.getBody(), env, fn.getLocalNames());
         }
 
         if (node instanceof CallExpression call) {
-            MonkeyObject function = eval(call.getFunction(), env);
-            if (isError(function)) {
+            MonkeyObject function = evalNode(call.getFunction(), env);
+            if (isAbrupt(function)) {
                 return function;
             }
 
+            if (function instanceof FunctionObject fn) {
+                return callFunction(fn, call.getArguments(), env);
+            }
+            if (function instanceof BuiltinObject builtin && !builtin.isHigherOrder()
+                    && call.getArguments().size() <= 2) {
+                return callBuiltin(builtin, call.getArguments(), env);
+            }
+
             List<MonkeyObject> args = evalExpressions(call.getArguments(), env);
-            if (args.size() == 1 && isError(args.get(0))) {
+            if (args.size() == 1 && isAbrupt(args.get(0))) {
                 return args.get(0);
             }
 
@@ -141,6 +194,28 @@ public class Evaluator {
         return null;
     }
 
+    /**
+     * 綁定到全局環境的陣列視圖會被長期持有，必要時壓縮以釋放底層向量
+     * 函數內的局部綁定生命週期短，不做壓縮（遞迴 rest 保持 O(1)）
+     */
+    static MonkeyObject retain(MonkeyObject val, Environment env) {
+        if (env.isGlobal() && val instanceof ArrayObject array) {
+            return array.compact();
+        }
+        return val;
+    }
+
+    /**
+     * 在當前幀中綁定 let 名稱或函數參數
+     */
+    static void bind(Identifier name, MonkeyObject val, Environment env) {
+        if (name.getSlot() >= 0) {
+            env.set(name.getDepth(), name.getSlot(), val);
+        } else {
+            env.set(name.getValue(), val);
+        }
+    }
+
     /**
      * 求值程式（所有語句）
      */
@@ -148,11 +223,11 @@ public class Evaluator {
         MonkeyObject result = null;
 
         for (Statement stmt : program.getStatements()) {
-            result = eval(stmt, env);
+            result = evalNode(stmt, env);
 
             // 遇到 return，立即返回值
-            if (result instanceof ReturnValue returnValue) {
-                return returnValue.getValue();
+            if (result == RETURN) {
+                return env.takeReturnValue();
             }
 
             // 遇到錯誤，立即返回
@@ -171,14 +246,11 @@ public class Evaluator {
         MonkeyObject result = null;
 
         for (Statement stmt : block.getStatements()) {
-            result = eval(stmt, env);
+            result = evalNode(stmt, env);
 
-            if (result != null) {
-                ObjectType type = result.type();
-                // 不解包 ReturnValue，讓它向上傳播
-                if (type == ObjectType.RETURN_VALUE || type == ObjectType.ERROR) {
-                    return result;
-                }
+            // 不取回返回值，讓 return 信號向上傳播
+            if (isAbrupt(result)) {
+                return result;
             }
         }
 
@@ -187,8 +259,9 @@ public class Evaluator {
 
     /**
      * 求值前綴表達式
+     * 其他執行引擎（nodes）的通用路徑共用這裡的語義
      */
-    private static MonkeyObject evalPrefixExpression(String operator, MonkeyObject right) {
+    public static MonkeyObject evalPrefixExpression(String operator, MonkeyObject right) {
         return switch (operator) {
             case "!" -> evalBangOperatorExpression(right);
             case "-" -> evalMinusPrefixOperatorExpression(right);
@@ -220,13 +293,14 @@ public class Evaluator {
         }
 
         long value = ((IntegerObject) right).getValue();
-        return new IntegerObject(-value);
+        return IntegerObject.valueOf(-value);
     }
 
     /**
      * 求值中綴表達式
+     * 其他執行引擎（nodes）的通用路徑共用這裡的語義
      */
-    private static MonkeyObject evalInfixExpression(String operator, MonkeyObject left, MonkeyObject right) {
+    public static MonkeyObject evalInfixExpression(String operator, MonkeyObject left, MonkeyObject right) {
         // 整數運算
         if (left.type() == ObjectType.INTEGER && right.type() == ObjectType.INTEGER) {
             return evalIntegerInfixExpression(operator, left, right);
@@ -253,23 +327,47 @@ public class Evaluator {
         return newError("unknown operator: %s %s %s", left.type(), operator, right.type());
     }
 
+    static boolean isLogicalOperator(String operator) {
+        return operator.equals("&&") || operator.equals("||");
+    }
+
     /**
-     * 求值字串中綴表達式
+     * 求值短路邏輯表達式
+     * 結果是決定整個表達式真假的那個運算元（不轉換為布林值）
      */
-    private static MonkeyObject evalStringInfixExpression(String operator, MonkeyObject left, MonkeyObject right) {
-        if (!operator.equals("+")) {
-            return newError("unknown operator: %s %s %s", left.type(), operator, right.type());
+    private static MonkeyObject evalLogicalExpression(InfixExpression infix, Environment env) {
+        MonkeyObject left = evalNode(infix.getLeft(), env);
+        if (isAbrupt(left)) {
+            return left;
         }
 
-        String leftVal = ((StringObject) left).getValue();
-        String rightVal = ((StringObject) right).getValue();
-        return new StringObject(leftVal + rightVal);
+        boolean truthy = isTruthy(left);
+        if (infix.getOperator().equals("&&") ? !truthy : truthy) {
+            return left;
+        }
+
+        return evalNode(infix.getRight(), env);
+    }
+
+    /**
+     * 求值字串中綴表達式
+     */
+    private static MonkeyObject evalStringInfixExpression(String operator, MonkeyObject left, MonkeyObject right) {
+        StringObject leftStr = (StringObject) left;
+        StringObject rightStr = (StringObject) right;
+        return switch (operator) {
+            case "+" -> StringObject.concat(leftStr, rightStr);
+            case "==" -> nativeBoolToBooleanObject(leftStr.valueEquals(rightStr));
+            case "!=" -> nativeBoolToBooleanObject(!leftStr.valueEquals(rightStr));
+            default -> newError("unknown operator: %s %s %s", left.type(), operator, right.type());
+        };
     }
 
     /**
      * 求值索引表達式
+     * 其他執行引擎（nodes）的通用路徑共用這裡的語義
      */
-    private static MonkeyObject evalIndexExpression(MonkeyObject left, MonkeyObject index) {
+    public static MonkeyObject evalIndexExpression(MonkeyObject left, MonkeyObject index) {
         if (left.type() == ObjectType.ARRAY && index.type() == ObjectType.INTEGER) {
             return evalArrayIndexExpression(left, index);
         } else if (left.type() == ObjectType.HASH) {
@@ -285,13 +383,13 @@ public class Evaluator {
     private static MonkeyObject evalArrayIndexExpression(MonkeyObject array, MonkeyObject index) {
         ArrayObject arrayObject = (ArrayObject) array;
         long idx = ((IntegerObject) index).getValue();
-        int max = arrayObject.getElements().size() - 1;
+        int max = arrayObject.size() - 1;
 
         if (idx < 0 || idx > max) {
             return NULL;
         }
 
-        return arrayObject.getElements().get((int) idx);
+        return arrayObject.get((int) idx);
     }
 
     /**
@@ -300,12 +398,11 @@ public class Evaluator {
     private static MonkeyObject evalHashIndexExpression(MonkeyObject hash, MonkeyObject index) {
         HashObject hashObject = (HashObject) hash;
 
-        HashKey key = index.hashKey();
-        if (key == null) {
+        if (!(index instanceof Hashable)) {
             return newError("unusable as hash key: %s", index.type());
         }
 
-        HashObject.HashPair pair = hashObject.getPairs().get(key);
+        HashObject.HashPair pair = hashObject.get(index);
         if (pair == null) {
             return NULL;
         }
@@ -317,11 +414,24 @@ public class Evaluator {
      * 求值雜湊字面值
      */
     private static MonkeyObject evalHashLiteral(HashLiteral node, Environment env) {
-        Map<HashKey, HashObject.HashPair> pairs = new HashMap<>();
+        ParallelEvaluation evaluation = parallel;
+        if (evaluation != null && node.getPairs().size() > 1) {
+            List<Expression> exps = new ArrayList<>(node.getPairs().size() * 2);
+            node.getPairs().forEach((key, value) -> {
+                exps.add(key);
+                exps.add(value);
+            });
+            MonkeyObject[] values = evaluation.evalAll(exps, env);
+            if (values != null) {
+                return buildHash(values);
+            }
+        }
+
+        PersistentHashMap pairs = PersistentHashMap.EMPTY;
 
         for (Map.Entry<Expression, Expression> entry : node.getPairs().entrySet()) {
-            MonkeyObject key = eval(entry.getKey(), env);
-            if (isError(key)) {
+            MonkeyObject key = evalNode(entry.getKey(), env);
+            if (isAbrupt(key)) {
                 return key;
             }
 
@@ -329,18 +439,40 @@ public class Evaluator {
                 return newError("unusable as hash key: %s", key.type());
             }
 
-            MonkeyObject value = eval(entry.getValue(), env);
-            if (isError(value)) {
+            MonkeyObject value = evalNode(entry.getValue(), env);
+            if (isAbrupt(value)) {
                 return value;
             }
 
-            HashKey hashed = ((Hashable) key).hashKey();
-            pairs.put(hashed, new HashObject.HashPair(key, value));
+            pairs = pairs.put(key, value);
         }
 
         return new HashObject(pairs);
     }
 
+    /**
+     * 由並行求值的鍵、值交替結果建立雜湊
+     * 按順序求值時的檢查順序報告錯誤: 鍵的錯誤、鍵能否雜湊、值的錯誤，逐對從左到右
+     */
+    private static MonkeyObject buildHash(MonkeyObject[] values) {
+        PersistentHashMap pairs = PersistentHashMap.EMPTY;
+        for (int i = 0; i < values.length; i += 2) {
+            MonkeyObject key = values[i];
+            if (isAbrupt(key)) {
+                return key;
+            }
+            if (!(key instanceof Hashable)) {
+                return newError("unusable as hash key: %s", key.type());
+            }
+            MonkeyObject value = values[i + 1];
+            if (isAbrupt(value)) {
+                return value;
+            }
+            pairs = pairs.put(key, value);
+        }
+        return new HashObject(pairs);
+    }
+
     /**
      * 求值整數中綴表達式
      */
@@ -349,36 +481,70 @@ public class Evaluator {
         long rightVal = ((IntegerObject) right).getValue();
 
         return switch (operator) {
-            case "+" -> new IntegerObject(leftVal + rightVal);
-            case "-" -> new IntegerObject(leftVal - rightVal);
-            case "*" -> new IntegerObject(leftVal * rightVal);
+            case "+" -> IntegerObject.valueOf(leftVal + rightVal);
+            case "-" -> IntegerObject.valueOf(leftVal - rightVal);
+            case "*" -> IntegerObject.valueOf(leftVal * rightVal);
             case "/" -> {
                 if (rightVal == 0) {
                     yield newError("division by zero");
                 }
-                yield new IntegerObject(leftVal / rightVal);
+                yield IntegerObject.valueOf(leftVal / rightVal);
             }
+            case "%" -> {
+                if (rightVal == 0) {
+                    yield newError("division by zero");
+                }
+                yield IntegerObject.valueOf(leftVal % rightVal);
+            }
+            case "&" -> IntegerObject.valueOf(leftVal & rightVal);
+            case "|" -> IntegerObject.valueOf(leftVal | rightVal);
+            case "^" -> IntegerObject.valueOf(leftVal ^ rightVal);
+            case "<<" -> IntegerObject.valueOf(leftVal << rightVal);
+            case ">>" -> IntegerObject.valueOf(leftVal >> rightVal);
             case "<" -> nativeBoolToBooleanObject(leftVal < rightVal);
             case ">" -> nativeBoolToBooleanObject(leftVal > rightVal);
+            case "<=" -> nativeBoolToBooleanObject(leftVal <= rightVal);
+            case ">=" -> nativeBoolToBooleanObject(leftVal >= rightVal);
             case "==" -> nativeBoolToBooleanObject(leftVal == rightVal);
             case "!=" -> nativeBoolToBooleanObject(leftVal != rightVal);
             default -> newError("unknown operator: %s %s %s", left.type(), operator, right.type());
         };
     }
 
+    /**
+     * 求值 while 迴圈
+     * 迴圈本身的值為 NULL；迴圈體中的 return 和錯誤會中止迴圈並向上傳播
+     */
+    private static MonkeyObject evalWhileStatement(WhileStatement stmt, Environment env) {
+        while (true) {
+            MonkeyObject condition = evalNode(stmt.getCondition(), env);
+            if (isAbrupt(condition)) {
+                return condition;
+            }
+            if (!isTruthy(condition)) {
+                return NULL;
+            }
+
+            MonkeyObject result = evalNode(stmt.getBody(), env);
+            if (isAbrupt(result)) {
+                return result;
+            }
+        }
+    }
+
     /**
      * 求值 if 表達式
      */
     private static MonkeyObject evalIfExpression(IfExpression ie, Environment env) {
-        MonkeyObject condition = eval(ie.getCondition(), env);
-        if (isError(condition)) {
+        MonkeyObject condition = evalNode(ie.getCondition(), env);
+        if (isAbrupt(condition)) {
             return condition;
         }
 
         if (isTruthy(condition)) {
-            return eval(ie.getConsequence(), env);
+            return evalNode(ie.getConsequence(), env);
         } else if (ie.getAlternative() != null) {
-            return eval(ie.getAlternative(), env);
+            return evalNode(ie.getAlternative(), env);
         } else {
             return NULL;
         }
@@ -387,30 +553,72 @@ public class Evaluator {
     /**
      * 求值識別符號
      */
-    private static MonkeyObject evalIdentifier(Identifier node, Environment env) {
-        MonkeyObject val = env.get(node.getValue());
+    static MonkeyObject evalIdentifier(Identifier node, Environment env) {
+        int slot = node.getSlot();
+        MonkeyObject val;
+        if (slot >= 0) {
+            val = env.get(node.getDepth(), slot);
+            if (val == null) {
+                // 槽位的 let 尚未執行: 按名稱在更外層環境中查找
+                val = env.getFrom(node.getDepth() + 1, node.getValue());
+            }
+        } else {
+            val = env.get(node.getValue());
+        }
         if (val != null) {
             return val;
         }
 
-        // 檢查是否為內建函數
-        BuiltinFunction builtin = Builtins.getBuiltin(node.getValue());
-        if (builtin != null) {
-            return builtin;
+        // 內建函數: Resolver 已綁定 id；未經解析的節點按名稱查找
+        int builtinId = node.getBuiltinId();
+        if (builtinId >= 0) {
+            return Builtins.get(builtinId);
+        }
+        if (slot < 0) {
+            BuiltinObject builtin = Builtins.getBuiltinByName(node.getValue());
+            if (builtin != null) {
+                return builtin;
+            }
         }
 
-        return newError("identifier not found: " + node.getValue());
+        return newError("identifier not found: %s", node.getValue());
+    }
+
+    /**
+     * 重新賦值已存在的變量，槽位尚未賦值時與讀取一樣按名稱向外查找
+     */
+    static MonkeyObject evalAssignment(Identifier name, MonkeyObject val, Environment env) {
+        int slot = name.getSlot();
+        if (slot >= 0 && env.get(name.getDepth(), slot) != null) {
+            env.set(name.getDepth(), slot, val);
+            return val;
+        }
+        MonkeyObject assigned = slot >= 0
+                ? env.assignFrom(name.getDepth() + 1, name.getValue(), val)
+                : env.assign(name.getValue(), val);
+        if (assigned == null) {
+            return newError("identifier not found: %s", name.getValue());
+        }
+        return val;
     }
 
     /**
      * 求值表達式列表
      */
     private static List<MonkeyObject> evalExpressions(List<Expression> exps, Environment env) {
-        List<MonkeyObject> result = new ArrayList<>();
+        ParallelEvaluation evaluation = parallel;
+        if (evaluation != null && exps.size() > 1) {
+            List<MonkeyObject> values = evaluation.evalExpressions(exps, env);
+            if (values != null) {
+                return values;
+            }
+        }
+
+        List<MonkeyObject> result = new ArrayList<>(exps.size());
 
         for (Expression e : exps) {
-            MonkeyObject evaluated = eval(e, env);
-            if (isError(evaluated)) {
+            MonkeyObject evaluated = evalNode(e, env);
+            if (isAbrupt(evaluated)) {
                 return List.of(evaluated);
             }
             result.add(evaluated);
@@ -420,42 +628,145 @@ public class Evaluator {
     }
 
     /**
-     * 應用函數
+     * 應用內建函數（使用者函數由 callFunction 處理）
      */
-    private static MonkeyObject applyFunction(MonkeyObject fn, List<MonkeyObject> args) {
-        if (fn instanceof FunctionObject function) {
-            Environment extendedEnv = extendFunctionEnv(function, args);
-            MonkeyObject evaluated = eval(function.getBody(), extendedEnv);
-            return unwrapReturnValue(evaluated);
-        } else if (fn instanceof BuiltinFunction builtin) {
-            return builtin.getFn().apply(args);
-        } else {
-            return newError("not a function: %s", fn.type());
+    static MonkeyObject applyFunction(MonkeyObject fn, List<MonkeyObject> args) {
+        return applyFunction(fn, args, CALLER);
+    }
+
+    /**
+     * 應用內建函數，高階內建函數經由指定的 caller 回調函數值
+     */
+    static MonkeyObject applyFunction(MonkeyObject fn, List<MonkeyObject> args, FunctionCaller caller) {
+        if (fn instanceof BuiltinObject builtin && builtin.isHigherOrder()) {
+            return builtin.call(caller, args.toArray(new MonkeyObject[0]), 0, args.size());
+        }
+        if (fn instanceof BuiltinObject builtin) {
+            return switch (args.size()) {
+                case 0 -> builtin.call0();
+                case 1 -> builtin.call1(args.get(0));
+                case 2 -> builtin.call2(args.get(0), args.get(1));
+                default -> builtin.call(args.toArray(new MonkeyObject[0]));
+            };
+        }
+        return newError("not a function: %s", fn.type());
+    }
+
+    /**
+     * 調用最多兩個實參的內建函數: 實參求值後直接進入對應元數的入口，不建立參數列表
+     */
+    private static MonkeyObject callBuiltin(BuiltinObject builtin, List<Expression> arguments, Environment env) {
+        if (arguments.isEmpty()) {
+            return builtin.call0();
+        }
+        MonkeyObject first = evalNode(arguments.get(0), env);
+        if (isAbrupt(first)) {
+            return first;
+        }
+        if (arguments.size() == 1) {
+            return builtin.call1(first);
+        }
+        MonkeyObject second = evalNode(arguments.get(1), env);
+        if (isAbrupt(second)) {
+            return second;
         }
+        return builtin.call2(first, second);
     }
 
     /**
-     * 擴展函數環境（綁定參數）
+     * 高階內建函數回調函數值的入口: 實參已經求值，直接綁定到新幀
      */
-    private static Environment extendFunctionEnv(FunctionObject fn, List<MonkeyObject> args) {
-        Environment env = Environment.newEnclosedEnvironment(fn.getEnv());
+    static final FunctionCaller CALLER = new FunctionCaller() {
+        @Override
+        public MonkeyObject call1(MonkeyObject fn, MonkeyObject arg) {
+            if (fn instanceof FunctionObject function) {
+                return invokeFunction(function, arg, null, 1);
+            }
+            if (fn instanceof BuiltinObject builtin) {
+                return builtin.call1(this, arg);
+            }
+            return newError("not a function: %s", fn.type());
+        }
 
-        List<Identifier> params = fn.getParameters();
-        for (int i = 0; i < params.size(); i++) {
-            env.set(params.get(i).getValue(), args.get(i));
+        @Override
+        public MonkeyObject call2(MonkeyObject fn, MonkeyObject first, MonkeyObject second) {
+            if (fn instanceof FunctionObject function) {
+                return invokeFunction(function, first, second, 2);
+            }
+            if (fn instanceof BuiltinObject builtin) {
+                return builtin.call2(this, first, second);
+            }
+            return newError("not a function: %s", fn.type());
+        }
+    };
+
+    private static MonkeyObject invokeFunction(FunctionObject fn, MonkeyObject first, MonkeyObject second, int argc) {
+        Environment frame = callbackFrame(fn, first, second, argc);
+        if (frame == null) {
+            return newError("wrong number of arguments: want=%d, got=%d", fn.getParameters().size(), argc);
+        }
+
+        MonkeyObject evaluated = evalNode(fn.getBody(), frame);
+        if (evaluated == RETURN) {
+            return frame.takeReturnValue();
         }
+        return evaluated != null ? evaluated : NULL;
+    }
 
-        return env;
+    /**
+     * 為回調建立函數的新幀並綁定已求值的實參，實參不足時返回 null
+     */
+    static Environment callbackFrame(FunctionObject fn, MonkeyObject first, MonkeyObject second, int argc) {
+        List<Identifier> params = fn.getParameters();
+        if (argc < params.size()) {
+            return null;
+        }
+        Environment frame = Environment.newFunctionEnvironment(fn.getEnv(), fn.getLocalNames());
+        if (!params.isEmpty()) {
+            bind(params.get(0), first, frame);
+        }
+        if (params.size() > 1) {
+            bind(params.get(1), second, frame);
+        }
+        return frame;
     }
 
     /**
-     * 解包 ReturnValue
+     * 調用使用者函數
+     * 實參直接求值到新幀的參數槽位，不建立中間的參數列表；return 的值從新幀的返回槽位取回
      */
-    private static MonkeyObject unwrapReturnValue(MonkeyObject obj) {
-        if (obj instanceof ReturnValue returnValue) {
-            return returnValue.getValue();
+    private static MonkeyObject callFunction(FunctionObject fn, List<Expression> arguments, Environment env) {
+        Environment frame = Environment.newFunctionEnvironment(fn.getEnv(), fn.getLocalNames());
+        List<Identifier> params = fn.getParameters();
+
+        ParallelEvaluation evaluation = parallel;
+        List<MonkeyObject> forked = evaluation != null && arguments.size() > 1
+                ? evaluation.evalExpressions(arguments, env)
+                : null;
+        if (forked != null) {
+            if (forked.size() == 1) {
+                return forked.get(0);
+            }
+            for (int i = 0; i < params.size() && i < forked.size(); i++) {
+                bind(params.get(i), forked.get(i), frame);
+            }
+        }
+
+        for (int i = 0; forked == null && i < arguments.size(); i++) {
+            MonkeyObject arg = evalNode(arguments.get(i), env);
+            if (isAbrupt(arg)) {
+                return arg;
+            }
+            if (i < params.size()) {
+                bind(params.get(i), arg, frame);
+            }
         }
-        return obj;
+        if (arguments.size() < params.size()) {
+            return newError("wrong number of arguments: want=%d, got=%d", params.size(), arguments.size());
+        }
+
+        MonkeyObject evaluated = evalNode(fn.getBody(), frame);
+        return evaluated == RETURN ? frame.takeReturnValue() : evaluated;
     }
 
     // 輔助方法
@@ -464,7 +775,7 @@ public class Evaluator {
      * 判斷值是否為真
      * Monkey 中，只有 false 和 null 是假值
      */
-    private static boolean isTruthy(MonkeyObject obj) {
+    static boolean isTruthy(MonkeyObject obj) {
         if (obj == NULL) {
             return false;
         } else if (obj == TRUE) {
@@ -479,21 +790,21 @@ public class Evaluator {
     /**
      * 將 Java boolean 轉換為 BooleanObject
      */
-    private static BooleanObject nativeBoolToBooleanObject(boolean input) {
+    static BooleanObject nativeBoolToBooleanObject(boolean input) {
         return input ? TRUE : FALSE;
     }
 
     /**
-     * 創建錯誤物件
+     * 創建錯誤物件，訊息延遲到讀取時才格式化
      */
     private static ErrorObject newError(String format, Object... args) {
-        return new ErrorObject(String.format(format, args));
+        return ErrorObject.of(format, args);
     }
 
     /**
-     * 判斷是否為錯誤物件
+     * 判斷是否為非正常完成（錯誤或 return 信號），需要立即向上傳遞
      */
-    private static boolean isError(MonkeyObject obj) {
-        return obj != null && obj.type() == ObjectType.ERROR;
+    private static boolean isAbrupt(MonkeyObject obj) {
+        return obj == RETURN || obj instanceof ErrorObject;
     }
 }
@@ -0,0 +1,368 @@
+package com.monkey.evaluator;
+import com.monkey.ast.*;
+import com.monkey.object.*;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * ParallelEvaluation 求值器的並行模式（由 Evaluator.setParallelEvaluation 開啟）
+ *
+ * 陣列字面值的元素、雜湊字面值的鍵值和調用的實參彼此獨立: 當它們全部是純的，
+ * 且至少兩個的估計成本超過閾值時，把昂貴的那些分派到 ForkJoinPool 上並行求值。
+ *
+ * 純度在分派時按當前的值分析:
+ * - 表達式本身不含 let、賦值和 return（它們會寫入共享的當前幀）
+ * - 調用的被調用者必須是名稱，其當前值是無副作用的非高階內建函數，或函數體同樣是純的使用者函數；
+ *   函數體內只允許綁定和修改自己幀中的局部變量（每次調用的新幀只屬於執行它的線程）
+ * 所有兄弟表達式都是純的，它們之間只共享只讀的環境，求值順序不可觀察。
+ *
+ * 全部完成後按從左到右的順序檢查結果，報告的錯誤與順序求值相同:
+ * 陣列元素和實參報告最左側的錯誤，雜湊字面值逐對依次檢查鍵的錯誤、鍵能否雜湊、值的錯誤。
+ * 差別只在於錯誤右側的純表達式也會被求值。
+ */
+public final class ParallelEvaluation {
+
+    /**
+     * 默認的成本閾值: 含有任何函數調用的表達式
+     */
+    public static final int DEFAULT_COST_THRESHOLD = 32;
+
+    // 一次調用的估計成本（相對於一個 AST 節點）
+    private static final int CALL_COST = 32;
+    // 工作線程的本地隊列已積壓這麼多任務時不再分派，避免遞迴中的過度拆分
+    private static final int MAX_SURPLUS = 3;
+
+    private final ForkJoinPool pool;
+    private final int costThreshold;
+    private final LongAdder forkedTasks = new LongAdder();
+
+    public ParallelEvaluation() {
+        this(ForkJoinPool.commonPool(), DEFAULT_COST_THRESHOLD);
+    }
+
+    public ParallelEvaluation(ForkJoinPool pool, int costThreshold) {
+        this.pool = pool;
+        this.costThreshold = costThreshold;
+    }
+
+    /**
+     * 已分派到線程池的任務數
+     */
+    public long getForkedTaskCount() {
+        return forkedTasks.sum();
+    }
+
+    /**
+     * 並行求值表達式列表
+     * 返回值的約定與 Evaluator.evalExpressions 相同（出錯時是只含最左側錯誤的列表）；
+     * 不值得或不能並行時返回 null，由調用者順序求值。
+     */
+    List<MonkeyObject> evalExpressions(List<? extends Expression> exps, Environment env) {
+        MonkeyObject[] results = evalAll(exps, env);
+        if (results == null) {
+            return null;
+        }
+        List<MonkeyObject> values = new ArrayList<>(results.length);
+        for (MonkeyObject val : results) {
+            if (val instanceof ErrorObject) {
+                return List.of(val);
+            }
+            values.add(val);
+        }
+        return values;
+    }
+
+    /**
+     * 並行求值表達式列表，返回每個表達式未經檢查的結果（可能含有錯誤物件），
+     * 由調用者按順序求值時的檢查順序處理；不值得或不能並行時返回 null。
+     */
+    MonkeyObject[] evalAll(List<? extends Expression> exps, Environment env) {
+        if (ForkJoinTask.getPool() == pool && ForkJoinTask.getSurplusQueuedTaskCount() > MAX_SURPLUS) {
+            return null;
+        }
+
+        int n = exps.size();
+        boolean[] expensive = new boolean[n];
+        int candidates = 0;
+        for (int i = 0; i < n; i++) {
+            if (cost(exps.get(i)) >= costThreshold) {
+                expensive[i] = true;
+                candidates++;
+            }
+        }
+        if (candidates < 2) {
+            return null;
+        }
+
+        Purity purity = new Purity();
+        for (Expression e : exps) {
+            if (!purity.isPure(e, env)) {
+                return null;
+            }
+        }
+
+        // 昂貴的表達式中最後一個留在當前線程，其餘分派出去
+        Task[] tasks = new Task[n];
+        int forked = 0;
+        for (int i = 0; i < n && forked < candidates - 1; i++) {
+            if (expensive[i]) {
+                tasks[i] = new Task(exps.get(i), env);
+                if (ForkJoinTask.getPool() == pool) {
+                    tasks[i].fork();
+                } else {
+                    pool.execute(tasks[i]);
+                }
+                forked++;
+            }
+        }
+        forkedTasks.add(forked);
+
+        MonkeyObject[] results = new MonkeyObject[n];
+        for (int i = 0; i < n; i++) {
+            if (tasks[i] == null) {
+                results[i] = Evaluator.evalNode(exps.get(i), env);
+            }
+        }
+
+        for (int i = 0; i < n; i++) {
+            if (tasks[i] != null) {
+                results[i] = tasks[i].join();
+            }
+        }
+        return results;
+    }
+
+    /**
+     * 估計表達式的求值成本: 每個節點 1，每個調用 CALL_COST（函數體的成本無法靜態得知）
+     */
+    private static int cost(Node node) {
+        if (node instanceof CallExpression call) {
+            int total = CALL_COST + cost(call.getFunction());
+            for (Expression arg : call.getArguments()) {
+                total += cost(arg);
+            }
+            return total;
+        }
+        if (node instanceof InfixExpression infix) {
+            return 1 + cost(infix.getLeft()) + cost(infix.getRight());
+        }
+        if (node instanceof PrefixExpression prefix) {
+            return 1 + cost(prefix.getRight());
+        }
+        if (node instanceof IndexExpression index) {
+            return 1 + cost(index.getLeft()) + cost(index.getIndex());
+        }
+        if (node instanceof IfExpression ifExpr) {
+            return 1 + cost(ifExpr.getCondition()) + cost(ifExpr.getConsequence()) + cost(ifExpr.getAlternative());
+        }
+        if (node instanceof BlockStatement block) {
+            int total = 1;
+            for (Statement stmt : block.getStatements()) {
+                total += cost(stmt);
+            }
+            return total;
+        }
+        if (node instanceof ExpressionStatement stmt) {
+            return cost(stmt.getExpression());
+        }
+        if (node instanceof ArrayLiteral array) {
+            int total = 1;
+            for (Expression element : array.getElements()) {
+                total += cost(element);
+            }
+            return total;
+        }
+        if (node instanceof HashLiteral hash) {
+            int total = 1;
+            for (Map.Entry<Expression, Expression> pair : hash.getPairs().entrySet()) {
+                total += cost(pair.getKey()) + cost(pair.getValue());
+            }
+            return total;
+        }
+        return node == null ? 0 : 1;
+    }
+
+    /**
+     * 在線程池中求值一個表達式
+     */
+    private static final class Task extends RecursiveTask<MonkeyObject> {
+        private final Expression expression;
+        private final Environment env;
+
+        Task(Expression expression, Environment env) {
+            this.expression = expression;
+            this.env = env;
+        }
+
+        @Override
+        protected MonkeyObject compute() {
+            return Evaluator.evalNode(expression, env);
+        }
+    }
+
+    /**
+     * 一次分派決策中的純度分析
+     * 函數按物件身份記住結果；分析中的函數先假定為純（遞迴），任何不純都使整個分析失敗，
+     * 因此假定不會影響最終結果。
+     */
+    private static final class Purity {
+        private final Map<FunctionObject, Boolean> functions = new IdentityHashMap<>();
+        // 正在分析的函數體中確定已綁定的局部名稱（允許重新賦值）
+        private final Deque<Set<String>> locals = new ArrayDeque<>();
+        // 正在分析的函數幀中的所有名稱（參數和函數體內任何位置的 let）
+        private final Deque<String[]> declared = new ArrayDeque<>();
+
+        boolean isPure(Node node, Environment scope) {
+            if (node == null) {
+                return true;
+            }
+            if (node instanceof BlockStatement block) {
+                // 區塊內的 let 不一定執行，離開區塊後不再視為已綁定
+                Set<String> saved = locals.isEmpty() ? null : new HashSet<>(locals.peek());
+                try {
+                    for (Statement stmt : block.getStatements()) {
+                        if (!isPure(stmt, scope)) {
+                            return false;
+                        }
+                    }
+                    return true;
+                } finally {
+                    if (saved != null) {
+                        locals.pop();
+                        locals.push(saved);
+                    }
+                }
+            }
+            if (node instanceof ExpressionStatement stmt) {
+                return isPure(stmt.getExpression(), scope);
+            }
+            if (node instanceof LetStatement let) {
+                if (locals.isEmpty() || !isPure(let.getValue(), scope)) {
+                    return false;
+                }
+                locals.peek().add(let.getName().getValue());
+                return true;
+            }
+            if (node instanceof AssignStatement assign) {
+                return !locals.isEmpty()
+                        && locals.peek().contains(assign.getName().getValue())
+                        && isPure(assign.getValue(), scope);
+            }
+            if (node instanceof ReturnStatement stmt) {
+                return !locals.isEmpty() && isPure(stmt.getReturnValue(), scope);
+            }
+            if (node instanceof WhileStatement loop) {
+                return isPure(loop.getCondition(), scope) && isPure(loop.getBody(), scope);
+            }
+            if (node instanceof PrefixExpression prefix) {
+                return isPure(prefix.getRight(), scope);
+            }
+            if (node instanceof InfixExpression infix) {
+                return isPure(infix.getLeft(), scope) && isPure(infix.getRight(), scope);
+            }
+            if (node instanceof IfExpression ifExpr) {
+                return isPure(ifExpr.getCondition(), scope)
+                        && isPure(ifExpr.getConsequence(), scope)
+                        && isPure(ifExpr.getAlternative(), scope);
+            }
+            if (node instanceof IndexExpression index) {
+                return isPure(index.getLeft(), scope) && isPure(index.getIndex(), scope);
+            }
+            if (node instanceof ArrayLiteral array) {
+                for (Expression element : array.getElements()) {
+                    if (!isPure(element, scope)) {
+                        return false;
+                    }
+                }
+                return true;
+            }
+            if (node instanceof HashLiteral hash) {
+                for (Map.Entry<Expression, Expression> pair : hash.getPairs().entrySet()) {
+                    if (!isPure(pair.getKey(), scope) || !isPure(pair.getValue(), scope)) {
+                        return false;
+                    }
+                }
+                return true;
+            }
+            if (node instanceof CallExpression call) {
+                for (Expression arg : call.getArguments()) {
+                    if (!isPure(arg, scope)) {
+                        return false;
+                    }
+                }
+                return isPureCallee(call.getFunction(), scope);
+            }
+            // 字面值、識別符號的讀取和建立閉包都沒有副作用
+            return true;
+        }
+
+        /**
+         * 被調用者必須是名稱，並且按當前的綁定可以確定是哪個函數
+         */
+        private boolean isPureCallee(Expression callee, Environment scope) {
+            if (!(callee instanceof Identifier ident)) {
+                return false;
+            }
+            String name = ident.getValue();
+            if (!declared.isEmpty() && isDeclared(declared.peek(), name)) {
+                // 函數自己的參數或局部變量: 每次調用的值不同，無法確定
+                return false;
+            }
+
+            MonkeyObject fn = scope.get(name);
+            if (fn == null) {
+                fn = Builtins.getBuiltinByName(name);
+            }
+            if (fn instanceof FunctionObject function) {
+                return isPureFunction(function);
+            }
+            // 內建函數只有 puts 有副作用；高階內建函數調用的是實參中的函數，這裡不追蹤，視為不純。
+            // 未定義的名稱和不可調用的值只會產生錯誤
+            return fn != Builtins.PUTS && !(fn instanceof BuiltinObject builtin && builtin.isHigherOrder());
+        }
+
+        private boolean isPureFunction(FunctionObject fn) {
+            Boolean known = functions.get(fn);
+            if (known != null) {
+                return known;
+            }
+            functions.put(fn, true);
+
+            Set<String> scope = new HashSet<>();
+            for (Identifier param : fn.getParameters()) {
+                scope.add(param.getValue());
+            }
+            locals.push(scope);
+            declared.push(fn.getLocalNames());
+            boolean pure = isPure(fn.getBody(), fn.getEnv());
+            declared.pop();
+            locals.pop();
+
+            functions.put(fn, pure);
+            return pure;
+        }
+
+        private static boolean isDeclared(String[] names, String name) {
+            if (names == null) {
+                return true;
+            }
+            for (String declaredName : names) {
+                if (declaredName.equals(name)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}
@@ -0,0 +1,215 @@
+package com.monkey.evaluator;
+import com.monkey.ast.*;
+import com.monkey.object.Builtins;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Resolver 在求值前為識別符號標註 (depth, slot)
+ *
+ * 作用域只有兩種: 全局作用域和函數體（區塊不建立新作用域，與求值器的環境一致）。
+ * 函數幀的槽位依次是參數和函數體內所有 let 的名稱（不含巢狀函數），
+ * 因此無論 let 是否已經執行，同一個名稱在整個函數體內都解析到同一個槽位。
+ *
+ * 全局作用域直接使用傳入的全局環境分配槽位: 未知的名稱（內建函數、稍後才定義的全局變量）
+ * 也會得到一個空槽位，REPL 的下一行定義它時填入同一槽位，之前建立的閉包無需重新解析。
+ */
+public final class Resolver {
+    private final Environment globals;
+    private Scope scope;
+
+    private Resolver(Environment globals) {
+        this.globals = globals;
+    }
+
+    /**
+     * 解析節點中的所有識別符號，node 將在 globals 中求值
+     */
+    public static void resolve(Node node, Environment globals) {
+        new Resolver(globals).visit(node);
+    }
+
+    private void visit(Node node) {
+        if (node == null) {
+            return;
+        }
+
+        if (node instanceof Program program) {
+            for (Statement stmt : program.getStatements()) {
+                visit(stmt);
+            }
+        } else if (node instanceof ExpressionStatement stmt) {
+            visit(stmt.getExpression());
+        } else if (node instanceof BlockStatement block) {
+            for (Statement stmt : block.getStatements()) {
+                visit(stmt);
+            }
+        } else if (node instanceof ReturnStatement returnStmt) {
+            visit(returnStmt.getReturnValue());
+        } else if (node instanceof LetStatement letStmt) {
+            visit(letStmt.getValue());
+            declare(letStmt.getName());
+        } else if (node instanceof AssignStatement assignStmt) {
+            visit(assignStmt.getValue());
+            reference(assignStmt.getName());
+        } else if (node instanceof WhileStatement whileStmt) {
+            visit(whileStmt.getCondition());
+            visit(whileStmt.getBody());
+        } else if (node instanceof ArrayLiteral arrLit) {
+            for (Expression e : arrLit.getElements()) {
+                visit(e);
+            }
+        } else if (node instanceof IndexExpression indexExpr) {
+            visit(indexExpr.getLeft());
+            visit(indexExpr.getIndex());
+        } else if (node instanceof HashLiteral hashLit) {
+            for (Map.Entry<Expression, Expression> entry : hashLit.getPairs().entrySet()) {
+                visit(entry.getKey());
+                visit(entry.getValue());
+            }
+        } else if (node instanceof PrefixExpression prefix) {
+            visit(prefix.getRight());
+        } else if (node instanceof InfixExpression infix) {
+            visit(infix.getLeft());
+            visit(infix.getRight());
+        } else if (node instanceof IfExpression ifExpr) {
+            visit(ifExpr.getCondition());
+            visit(ifExpr.getConsequence());
+            visit(ifExpr.getAlternative());
+        } else if (node instanceof Identifier ident) {
+            reference(ident);
+        } else if (node instanceof FunctionLiteral fn) {
+            visitFunction(fn);
+        } else if (node instanceof CallExpression call) {
+            visit(call.getFunction());
+            for (Expression e : call.getArguments()) {
+                visit(e);
+            }
+        }
+    }
+
+    private void visitFunction(FunctionLiteral fn) {
+        Scope fnScope = new Scope(scope);
+        for (Identifier param : fn.getParameters()) {
+            fnScope.add(param.getValue());
+        }
+        hoistLets(fn.getBody(), fnScope);
+        fn.setLocalNames(fnScope.names.toArray(new String[0]));
+
+        scope = fnScope;
+        try {
+            for (Identifier param : fn.getParameters()) {
+                param.resolve(0, fnScope.indexOf(param.getValue()));
+            }
+            visit(fn.getBody());
+        } finally {
+            scope = fnScope.outer;
+        }
+    }
+
+    /**
+     * 收集函數體內所有 let 的名稱（不進入巢狀函數）
+     */
+    private static void hoistLets(Node node, Scope fnScope) {
+        if (node == null || node instanceof FunctionLiteral) {
+            return;
+        }
+
+        if (node instanceof LetStatement letStmt) {
+            fnScope.add(letStmt.getName().getValue());
+            hoistLets(letStmt.getValue(), fnScope);
+        } else if (node instanceof BlockStatement block) {
+            for (Statement stmt : block.getStatements()) {
+                hoistLets(stmt, fnScope);
+            }
+        } else if (node instanceof ExpressionStatement stmt) {
+            hoistLets(stmt.getExpression(), fnScope);
+        } else if (node instanceof ReturnStatement returnStmt) {
+            hoistLets(returnStmt.getReturnValue(), fnScope);
+        } else if (node instanceof AssignStatement assignStmt) {
+            hoistLets(assignStmt.getValue(), fnScope);
+        } else if (node instanceof WhileStatement whileStmt) {
+            hoistLets(whileStmt.getCondition(), fnScope);
+            hoistLets(whileStmt.getBody(), fnScope);
+        } else if (node instanceof IfExpression ifExpr) {
+            hoistLets(ifExpr.getCondition(), fnScope);
+            hoistLets(ifExpr.getConsequence(), fnScope);
+            hoistLets(ifExpr.getAlternative(), fnScope);
+        } else if (node instanceof ArrayLiteral arrLit) {
+            for (Expression e : arrLit.getElements()) {
+                hoistLets(e, fnScope);
+            }
+        } else if (node instanceof IndexExpression indexExpr) {
+            hoistLets(indexExpr.getLeft(), fnScope);
+            hoistLets(indexExpr.getIndex(), fnScope);
+        } else if (node instanceof HashLiteral hashLit) {
+            for (Map.Entry<Expression, Expression> entry : hashLit.getPairs().entrySet()) {
+                hoistLets(entry.getKey(), fnScope);
+                hoistLets(entry.getValue(), fnScope);
+            }
+        } else if (node instanceof PrefixExpression prefix) {
+            hoistLets(prefix.getRight(), fnScope);
+        } else if (node instanceof InfixExpression infix) {
+            hoistLets(infix.getLeft(), fnScope);
+            hoistLets(infix.getRight(), fnScope);
+        } else if (node instanceof CallExpression call) {
+            hoistLets(call.getFunction(), fnScope);
+            for (Expression e : call.getArguments()) {
+                hoistLets(e, fnScope);
+            }
+        }
+    }
+
+    /**
+     * let 綁定: 函數內的名稱已經提升，全局名稱在此分配槽位
+     */
+    private void declare(Identifier name) {
+        if (scope == null) {
+            name.resolve(0, globals.declare(name.getValue()));
+        } else {
+            name.resolve(0, scope.indexOf(name.getValue()));
+        }
+    }
+
+    /**
+     * 名稱引用: 由內向外查找第一個宣告了該名稱的作用域，都沒有時歸入全局
+     */
+    private void reference(Identifier ident) {
+        // 槽位為空時的最後一站: 內建函數在此綁定 id，運行時不再按名稱查表
+        ident.bindBuiltin(Builtins.indexOf(ident.getValue()));
+        int depth = 0;
+        for (Scope s = scope; s != null; s = s.outer) {
+            int slot = s.indexOf(ident.getValue());
+            if (slot >= 0) {
+                ident.resolve(depth, slot);
+                return;
+            }
+            depth++;
+        }
+        ident.resolve(depth, globals.declare(ident.getValue()));
+    }
+
+    /**
+     * 函數作用域: 名稱在列表中的位置就是它在函數幀中的槽位
+     */
+    private static final class Scope {
+        final Scope outer;
+        final List<String> names = new ArrayList<>();
+
+        Scope(Scope outer) {
+            this.outer = outer;
+        }
+
+        void add(String name) {
+            if (!names.contains(name)) {
+                names.add(name);
+            }
+        }
+
+        int indexOf(String name) {
+            return names.indexOf(name);
+        }
+    }
+}
@@ -0,0 +1,171 @@
+package com.monkey.evaluator;
+
+import com.monkey.ast.FunctionLiteral;
+import com.monkey.ast.Identifier;
+import com.monkey.object.ArrayObject;
+import com.monkey.object.BooleanObject;
+import com.monkey.object.BuiltinObject;
+import com.monkey.object.ErrorObject;
+import com.monkey.object.FunctionCaller;
+import com.monkey.object.HashKey;
+import com.monkey.object.MonkeyObject;
+import com.monkey.object.NullObject;
+import com.monkey.object.ObjectType;
+
+import java.util.stream.Collectors;
+
+/**
+ * SlotRuntime 節點引擎（com.monkey.nodes）和閉包編譯引擎（com.monkey.closure）共用的運行時
+ *
+ * 兩者都在 Resolver 解析的槽位環境幀上執行，並以不帶堆疊的異常傳遞 return 和運行時錯誤。
+ * 這裡集中控制流異常、真值與錯誤檢查、全局陣列的壓縮以及函數調用時的建幀，
+ * 兩個引擎只提供各自執行函數體的方式。
+ */
+public final class SlotRuntime {
+    private static final NullObject NULL = NullObject.NULL;
+    private static final BooleanObject TRUE = BooleanObject.TRUE;
+    private static final BooleanObject FALSE = BooleanObject.FALSE;
+
+    private SlotRuntime() {
+    }
+
+    public static boolean isTruthy(MonkeyObject obj) {
+        return obj != NULL && obj != FALSE;
+    }
+
+    public static BooleanObject toBoolean(boolean value) {
+        return value ? TRUE : FALSE;
+    }
+
+    /**
+     * 共用的求值器函數以 ErrorObject 表示錯誤，這裡把它轉換為異常
+     */
+    public static MonkeyObject check(MonkeyObject result) {
+        if (result instanceof ErrorObject error) {
+            throw new ErrorException(error);
+        }
+        return result;
+    }
+
+    public static ErrorException error(String format, Object... args) {
+        return new ErrorException(ErrorObject.of(format, args));
+    }
+
+    /**
+     * 綁定到全局環境的陣列視圖會被長期持有，與求值器一樣壓縮以釋放底層向量
+     */
+    public static MonkeyObject retain(MonkeyObject val, Environment frame) {
+        if (frame.isGlobal() && val instanceof ArrayObject array) {
+            return array.compact();
+        }
+        return val;
+    }
+
+    /**
+     * return 語句: 攜帶返回值直到函數邊界或程式頂層
+     */
+    public static final class ReturnException extends RuntimeException {
+        public final MonkeyObject value;
+
+        public ReturnException(MonkeyObject value) {
+            super(null, null, false, false);
+            this.value = value;
+        }
+    }
+
+    /**
+     * 運行時錯誤: 一直傳遞到程式頂層
+     */
+    public static final class ErrorException extends RuntimeException {
+        public final ErrorObject error;
+
+        public ErrorException(ErrorObject error) {
+            super(null, null, false, false);
+            this.error = error;
+        }
+    }
+
+    /**
+     * 槽位引擎中的函數（閉包）
+     * 調用時建立大小為 localNames 的環境幀並寫入參數槽位，函數體由子類以各自的方式執行
+     */
+    public abstract static class Function implements MonkeyObject {
+        private final FunctionLiteral literal;
+        private final String[] localNames;
+        private final int[] paramSlots;
+        private final Environment env;
+
+        protected Function(FunctionLiteral literal, String[] localNames, int[] paramSlots, Environment env) {
+            this.literal = literal;
+            this.localNames = localNames;
+            this.paramSlots = paramSlots;
+            this.env = env;
+        }
+
+        /**
+         * 在已寫入參數的新幀中執行函數體
+         */
+        protected abstract MonkeyObject run(Environment frame);
+
+        public final MonkeyObject call(MonkeyObject[] args) {
+            if (args.length < paramSlots.length) {
+                throw error("wrong number of arguments: want=%d, got=%d", paramSlots.length, args.length);
+            }
+            Environment frame = Environment.newFunctionEnvironment(env, localNames);
+            for (int i = 0; i < paramSlots.length; i++) {
+                frame.set(0, paramSlots[i], args[i]);
+            }
+            try {
+                return run(frame);
+            } catch (ReturnException e) {
+                return e.value;
+            }
+        }
+
+        @Override
+        public ObjectType type() {
+            return ObjectType.FUNCTION;
+        }
+
+        @Override
+        public String inspect() {
+            String params = literal.getParameters().stream()
+                    .map(Identifier::string)
+                    .collect(Collectors.joining(", "));
+
+            return "fn(" + params + ") {\n" + literal.getBody().string() + "\n}";
+        }
+
+        @Override
+        public HashKey hashKey() {
+            return null;
+        }
+    }
+
+    /**
+     * 高階內建函數回調函數值的入口，錯誤與引擎中的其他錯誤一樣拋出
+     */
+    public static final FunctionCaller CALLER = new FunctionCaller() {
+        @Override
+        public MonkeyObject call1(MonkeyObject fn, MonkeyObject arg) {
+            if (fn instanceof Function function) {
+                return function.call(new MonkeyObject[]{arg});
+            }
+            if (fn instanceof BuiltinObject builtin) {
+                return builtin.call1(this, arg);
+            }
+            throw error("not a function: %s", fn.type());
+        }
+
+        @Override
+        public MonkeyObject call2(MonkeyObject fn, MonkeyObject first, MonkeyObject second) {
+            if (fn instanceof Function function) {
+                return function.call(new MonkeyObject[]{first, second});
+            }
+            if (fn instanceof BuiltinObject builtin) {
+                return builtin.call2(this, first, second);
+            }
+            throw error("not a function: %s", fn.type());
+        }
+    };
+}
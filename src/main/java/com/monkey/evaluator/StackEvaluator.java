@@ -0,0 +1,530 @@
+package com.monkey.evaluator;
+import com.monkey.ast.*;
+import com.monkey.object.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * StackEvaluator 以顯式續延棧求值 AST
+ *
+ * 語義與 Evaluator 相同，但不在 Java 棧上遞迴: 每個尚未完成的節點是堆上續延棧中的一幀，
+ * 主迴圈反覆恢復棧頂幀，把剛完成的子節點的值交給它。葉節點（字面值、識別符號、函數字面值）就地求值，不入棧。
+ *
+ * 尾位置（區塊的最後一條語句、if 的分支、邏輯運算的右側、緊鄰函數邊界的 return）不壓入新幀而是替換當前幀；
+ * 函數調用若直接位於另一次調用的返回邊界之上，就重用該邊界幀，Monkey 的尾調用因此不增長棧。
+ *
+ * 棧的深度只受記憶體預算限制: 每一幀及其持有的函數環境按估計大小計入預算，
+ * 超出時返回錯誤物件，而不是拋出 StackOverflowError。
+ */
+public class StackEvaluator {
+
+    /**
+     * 默認的續延棧記憶體預算
+     */
+    public static final long DEFAULT_STACK_BYTES = 64L << 20;
+
+    // 估計大小（壓縮指針）: 續延幀物件加上棧陣列中的引用
+    private static final int FRAME_BYTES = 64;
+    // 函數環境物件本身，不含槽位陣列的元素
+    private static final int ENVIRONMENT_BYTES = 56;
+    private static final int SLOT_BYTES = 4;
+
+    // 調用幀進入函數體後的狀態: 等待函數體完成，同時是 return 展開的目標
+    private static final int BOUNDARY = -1;
+
+    private static final NullObject NULL = NullObject.NULL;
+
+    /**
+     * 續延幀
+     * 幀物件在棧中重用，pc 記錄節點求值進行到哪一步，其餘欄位保存該步之前已求得的中間結果。
+     */
+    private static final class Frame {
+        Node node;
+        Environment env;
+        int pc;
+        // 估計佔用的位元組（包括調用持有的被調用者環境）
+        long bytes;
+        // 中綴和索引的左值；調用的被調用者
+        MonkeyObject acc;
+        // 陣列字面值的元素；內建函數的實參
+        List<MonkeyObject> items;
+        // 使用者函數的新幀，實參直接求值到其參數槽位
+        Environment callee;
+        // 雜湊字面值: 剩餘的鍵值對、已求值的部分和當前鍵對應的值表達式
+        Iterator<Map.Entry<Expression, Expression>> entries;
+        PersistentHashMap pairs;
+        Expression pending;
+    }
+
+    private final long budget;
+    private Frame[] stack = new Frame[64];
+    private int sp;
+    private long usedBytes;
+    // 最近完成的子節點的值，由主迴圈交給棧頂幀
+    private MonkeyObject value;
+
+    public StackEvaluator() {
+        this(DEFAULT_STACK_BYTES);
+    }
+
+    /**
+     * @param budget 續延棧（包括函數環境）的記憶體預算，以位元組計
+     */
+    public StackEvaluator(long budget) {
+        if (budget < FRAME_BYTES) {
+            throw new IllegalArgumentException("stack budget too small: " + budget);
+        }
+        this.budget = budget;
+    }
+
+    /**
+     * 以默認預算求值節點
+     */
+    public static MonkeyObject eval(Node node, Environment env) {
+        return new StackEvaluator().evaluate(node, env);
+    }
+
+    /**
+     * 求值節點
+     * 與 Evaluator.eval 一樣，在全局環境中求值時先解析識別符號的槽位
+     */
+    public MonkeyObject evaluate(Node node, Environment env) {
+        if (env.isGlobal()) {
+            Resolver.resolve(node, env);
+        }
+        try {
+            value = null;
+            descend(node, env);
+            return run();
+        } finally {
+            reset();
+        }
+    }
+
+    /**
+     * 主迴圈: 錯誤中止整個求值，棧清空時 value 就是結果
+     */
+    private MonkeyObject run() {
+        while (sp > 0) {
+            if (value instanceof ErrorObject) {
+                return value;
+            }
+            Frame f = stack[sp - 1];
+            Node node = f.node;
+
+            if (node instanceof Program program) {
+                sequence(f, program.getStatements());
+            } else if (node instanceof BlockStatement block) {
+                sequence(f, block.getStatements());
+            } else if (node instanceof ExpressionStatement stmt) {
+                replace(f, stmt.getExpression());
+            } else if (node instanceof ReturnStatement returnStmt) {
+                stepReturn(f, returnStmt);
+            } else if (node instanceof LetStatement letStmt) {
+                if (f.pc == 0) {
+                    f.pc = 1;
+                    descend(letStmt.getValue(), f.env);
+                } else {
+                    MonkeyObject val = Evaluator.retain(value, f.env);
+                    Evaluator.bind(letStmt.getName(), val, f.env);
+                    complete(val);
+                }
+            } else if (node instanceof AssignStatement assignStmt) {
+                if (f.pc == 0) {
+                    f.pc = 1;
+                    descend(assignStmt.getValue(), f.env);
+                } else {
+                    MonkeyObject val = Evaluator.retain(value, f.env);
+                    complete(Evaluator.evalAssignment(assignStmt.getName(), val, f.env));
+                }
+            } else if (node instanceof WhileStatement whileStmt) {
+                // pc 0: 求值條件（首次進入或迴圈體完成後）；pc 1: 條件已求值
+                if (f.pc == 0) {
+                    f.pc = 1;
+                    descend(whileStmt.getCondition(), f.env);
+                } else if (!Evaluator.isTruthy(value)) {
+                    complete(NULL);
+                } else {
+                    f.pc = 0;
+                    descend(whileStmt.getBody(), f.env);
+                }
+            } else if (node instanceof IfExpression ifExpr) {
+                if (f.pc == 0) {
+                    f.pc = 1;
+                    descend(ifExpr.getCondition(), f.env);
+                } else if (Evaluator.isTruthy(value)) {
+                    replace(f, ifExpr.getConsequence());
+                } else if (ifExpr.getAlternative() != null) {
+                    replace(f, ifExpr.getAlternative());
+                } else {
+                    complete(NULL);
+                }
+            } else if (node instanceof InfixExpression infix) {
+                stepInfix(f, infix);
+            } else if (node instanceof PrefixExpression prefix) {
+                if (f.pc == 0) {
+                    f.pc = 1;
+                    descend(prefix.getRight(), f.env);
+                } else {
+                    complete(Evaluator.evalPrefixExpression(prefix.getOperator(), value));
+                }
+            } else if (node instanceof IndexExpression indexExpr) {
+                if (f.pc == 0) {
+                    f.pc = 1;
+                    descend(indexExpr.getLeft(), f.env);
+                } else if (f.pc == 1) {
+                    f.acc = value;
+                    f.pc = 2;
+                    descend(indexExpr.getIndex(), f.env);
+                } else {
+                    complete(Evaluator.evalIndexExpression(f.acc, value));
+                }
+            } else if (node instanceof ArrayLiteral arrLit) {
+                stepArray(f, arrLit.getElements());
+            } else if (node instanceof HashLiteral hashLit) {
+                stepHash(f, hashLit);
+            } else if (node instanceof CallExpression call) {
+                stepCall(f, call);
+            } else {
+                complete(null);
+            }
+        }
+        return value;
+    }
+
+    /**
+     * 程式和區塊: pc 是下一條語句的索引，最後一條語句替換本幀
+     * 中間語句的值被丟棄；錯誤由主迴圈攔截，return 直接展開棧，都不會回到這裡。
+     */
+    private void sequence(Frame f, List<Statement> statements) {
+        int i = f.pc;
+        if (i >= statements.size()) {
+            complete(null);
+        } else if (i == statements.size() - 1) {
+            replace(f, statements.get(i));
+        } else {
+            f.pc = i + 1;
+            descend(statements.get(i), f.env);
+        }
+    }
+
+    /**
+     * return: 緊鄰返回邊界（或位於棧底）時返回值就是外層的結果，直接替換本幀；
+     * 否則求值後展開到最近的返回邊界
+     */
+    private void stepReturn(Frame f, ReturnStatement returnStmt) {
+        if (f.pc == 0) {
+            if (sp == 1 || stack[sp - 2].pc == BOUNDARY) {
+                replace(f, returnStmt.getReturnValue());
+            } else {
+                f.pc = 1;
+                descend(returnStmt.getReturnValue(), f.env);
+            }
+            return;
+        }
+
+        MonkeyObject result = value;
+        while (sp > 0 && stack[sp - 1].pc != BOUNDARY) {
+            pop();
+        }
+        if (sp > 0) {
+            pop();
+        }
+        value = result;
+    }
+
+    private void stepInfix(Frame f, InfixExpression infix) {
+        if (Evaluator.isLogicalOperator(infix.getOperator())) {
+            if (f.pc == 0) {
+                f.pc = 1;
+                descend(infix.getLeft(), f.env);
+                return;
+            }
+            boolean truthy = Evaluator.isTruthy(value);
+            if (infix.getOperator().equals("&&") ? !truthy : truthy) {
+                complete(value);
+            } else {
+                replace(f, infix.getRight());
+            }
+            return;
+        }
+
+        if (f.pc == 0) {
+            f.pc = 1;
+            descend(infix.getLeft(), f.env);
+        } else if (f.pc == 1) {
+            f.acc = value;
+            f.pc = 2;
+            descend(infix.getRight(), f.env);
+        } else {
+            complete(Evaluator.evalInfixExpression(infix.getOperator(), f.acc, value));
+        }
+    }
+
+    /**
+     * 陣列字面值: pc = k (k >= 1) 時等待第 k - 1 個元素
+     */
+    private void stepArray(Frame f, List<Expression> elements) {
+        if (f.pc == 0) {
+            f.items = new ArrayList<>(elements.size());
+        } else {
+            f.items.add(value);
+        }
+        if (f.pc < elements.size()) {
+            f.pc++;
+            descend(elements.get(f.pc - 1), f.env);
+        } else {
+            complete(ArrayObject.of(f.items));
+        }
+    }
+
+    /**
+     * 雜湊字面值: pc 1 等待鍵，pc 2 等待值
+     */
+    private void stepHash(Frame f, HashLiteral hashLit) {
+        if (f.pc == 0) {
+            f.entries = hashLit.getPairs().entrySet().iterator();
+            f.pairs = PersistentHashMap.EMPTY;
+        } else if (f.pc == 1) {
+            if (!(value instanceof Hashable)) {
+                complete(ErrorObject.of("unusable as hash key: %s", value.type()));
+                return;
+            }
+            f.acc = value;
+            f.pc = 2;
+            descend(f.pending, f.env);
+            return;
+        } else {
+            f.pairs = f.pairs.put(f.acc, value);
+        }
+
+        if (f.entries.hasNext()) {
+            Map.Entry<Expression, Expression> entry = f.entries.next();
+            f.pending = entry.getValue();
+            f.pc = 1;
+            descend(entry.getKey(), f.env);
+        } else {
+            complete(new HashObject(f.pairs));
+        }
+    }
+
+    /**
+     * 調用: pc 1 等待被調用者，pc = 2 + i 等待第 i 個實參，BOUNDARY 等待函數體
+     */
+    private void stepCall(Frame f, CallExpression call) {
+        List<Expression> arguments = call.getArguments();
+        if (f.pc == 0) {
+            f.pc = 1;
+            descend(call.getFunction(), f.env);
+            return;
+        }
+        if (f.pc == BOUNDARY) {
+            complete(value);
+            return;
+        }
+
+        if (f.pc == 1) {
+            f.acc = value;
+            if (value instanceof FunctionObject fn) {
+                f.callee = Environment.newFunctionEnvironment(fn.getEnv(), fn.getLocalNames());
+            } else {
+                f.items = new ArrayList<>(arguments.size());
+            }
+        } else {
+            int i = f.pc - 2;
+            if (f.callee == null) {
+                f.items.add(value);
+            } else {
+                List<Identifier> params = ((FunctionObject) f.acc).getParameters();
+                if (i < params.size()) {
+                    Evaluator.bind(params.get(i), value, f.callee);
+                }
+            }
+        }
+
+        int next = f.pc - 1;
+        if (next < arguments.size()) {
+            f.pc++;
+            descend(arguments.get(next), f.env);
+        } else {
+            invoke(f, arguments.size());
+        }
+    }
+
+    /**
+     * 所有實參求值完成後進入函數
+     * 本幀直接位於另一次調用的返回邊界之上時（尾調用）彈出本幀，由該邊界接收函數體的值。
+     */
+    private void invoke(Frame f, int argc) {
+        if (!(f.acc instanceof FunctionObject fn)) {
+            FunctionCaller caller = f.acc instanceof BuiltinObject builtin && builtin.isHigherOrder()
+                    ? new Callbacks(budget - usedBytes)
+                    : Evaluator.CALLER;
+            complete(Evaluator.applyFunction(f.acc, f.items, caller));
+            return;
+        }
+
+        int want = fn.getParameters().size();
+        if (argc < want) {
+            complete(ErrorObject.of("wrong number of arguments: want=%d, got=%d", want, argc));
+            return;
+        }
+
+        Environment callee = f.callee;
+        long calleeBytes = ENVIRONMENT_BYTES + (long) SLOT_BYTES * fn.getLocalNames().length;
+        Frame boundary;
+        if (sp >= 2 && stack[sp - 2].pc == BOUNDARY) {
+            pop();
+            boundary = stack[sp - 1];
+            usedBytes -= boundary.bytes - FRAME_BYTES;
+            boundary.bytes = FRAME_BYTES;
+        } else {
+            boundary = f;
+            boundary.pc = BOUNDARY;
+            boundary.acc = null;
+            boundary.callee = null;
+        }
+        boundary.env = callee;
+        boundary.bytes += calleeBytes;
+        usedBytes += calleeBytes;
+        if (usedBytes > budget) {
+            value = overflow();
+            return;
+        }
+        descend(fn.getBody(), callee);
+    }
+
+    /**
+     * 開始求值子節點: 葉節點直接得到值，其餘節點壓入新幀
+     */
+    private void descend(Node node, Environment env) {
+        if (node instanceof Identifier ident) {
+            value = Evaluator.evalIdentifier(ident, env);
+        } else if (node instanceof IntegerLiteral intLit) {
+            value = IntegerObject.valueOf(intLit.getValue());
+        } else if (node instanceof BooleanLiteral boolLit) {
+            value = Evaluator.nativeBoolToBooleanObject(boolLit.getValue());
+        } else if (node instanceof StringLiteral strLit) {
+            value = StringObject.intern(strLit.getValue());
+        } else if (node instanceof FunctionLiteral fn) {
+            value = new FunctionObject(fn.getParameters(), fn.getBody(), env, fn.getLocalNames());
+        } else {
+            push(node, env);
+        }
+    }
+
+    /**
+     * 尾位置: 本幀的值就是子節點的值，彈出本幀後在原位置求值子節點
+     */
+    private void replace(Frame f, Node node) {
+        Environment env = f.env;
+        pop();
+        descend(node, env);
+    }
+
+    /**
+     * 棧頂幀完成
+     */
+    private void complete(MonkeyObject result) {
+        pop();
+        value = result;
+    }
+
+    private void push(Node node, Environment env) {
+        if (usedBytes + FRAME_BYTES > budget) {
+            value = overflow();
+            return;
+        }
+        if (sp == stack.length) {
+            stack = Arrays.copyOf(stack, sp * 2);
+        }
+        Frame f = stack[sp];
+        if (f == null) {
+            f = new Frame();
+            stack[sp] = f;
+        }
+        sp++;
+        f.node = node;
+        f.env = env;
+        f.pc = 0;
+        f.bytes = FRAME_BYTES;
+        usedBytes += FRAME_BYTES;
+    }
+
+    /**
+     * 彈出棧頂幀，並釋放它持有的中間結果
+     */
+    private void pop() {
+        Frame f = stack[--sp];
+        usedBytes -= f.bytes;
+        f.node = null;
+        f.env = null;
+        f.acc = null;
+        f.items = null;
+        f.callee = null;
+        f.entries = null;
+        f.pairs = null;
+        f.pending = null;
+    }
+
+    private void reset() {
+        while (sp > 0) {
+            pop();
+        }
+        usedBytes = 0;
+        value = null;
+    }
+
+    private ErrorObject overflow() {
+        return ErrorObject.of("stack overflow: evaluation exceeded the %d-byte stack budget", budget);
+    }
+
+    /**
+     * 高階內建函數（map、filter 等）的回調
+     * 在嵌套的 StackEvaluator 中求值函數體，預算是外層剩餘的部分，回調中的深遞迴同樣不佔用 Java 棧。
+     * 同一次內建函數調用的所有回調共用一個嵌套求值器（每次求值結束時它會清空自己的棧）。
+     */
+    private final class Callbacks implements FunctionCaller {
+        private final StackEvaluator nested;
+
+        Callbacks(long remaining) {
+            this.nested = remaining >= FRAME_BYTES ? new StackEvaluator(remaining) : null;
+        }
+
+        @Override
+        public MonkeyObject call1(MonkeyObject fn, MonkeyObject arg) {
+            if (fn instanceof BuiltinObject builtin) {
+                return builtin.call1(this, arg);
+            }
+            return invoke(fn, arg, null, 1);
+        }
+
+        @Override
+        public MonkeyObject call2(MonkeyObject fn, MonkeyObject first, MonkeyObject second) {
+            if (fn instanceof BuiltinObject builtin) {
+                return builtin.call2(this, first, second);
+            }
+            return invoke(fn, first, second, 2);
+        }
+
+        private MonkeyObject invoke(MonkeyObject fn, MonkeyObject first, MonkeyObject second, int argc) {
+            if (!(fn instanceof FunctionObject function)) {
+                return ErrorObject.of("not a function: %s", fn.type());
+            }
+            Environment frame = Evaluator.callbackFrame(function, first, second, argc);
+            if (frame == null) {
+                return ErrorObject.of("wrong number of arguments: want=%d, got=%d",
+                        function.getParameters().size(), argc);
+            }
+            if (nested == null) {
+                return overflow();
+            }
+            MonkeyObject result = nested.evaluate(function.getBody(), frame);
+            return result != null ? result : NULL;
+        }
+    }
+}
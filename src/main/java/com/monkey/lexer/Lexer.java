@@ -73,10 +73,52 @@ public class Lexer {
                     tok = new Token(TokenType.BANG, ch);
                 }
             }
+            case '&' -> {
+                if (peekChar() == '&') {
+                    char currentCh = ch;
+                    readChar();
+                    tok = new Token(TokenType.AND, "" + currentCh + ch);
+                } else {
+                    tok = new Token(TokenType.AMPERSAND, ch);
+                }
+            }
+            case '|' -> {
+                if (peekChar() == '|') {
+                    char currentCh = ch;
+                    readChar();
+                    tok = new Token(TokenType.OR, "" + currentCh + ch);
+                } else {
+                    tok = new Token(TokenType.PIPE, ch);
+                }
+            }
             case '/' -> tok = new Token(TokenType.SLASH, ch);
             case '*' -> tok = new Token(TokenType.ASTERISK, ch);
-            case '<' -> tok = new Token(TokenType.LT, ch);
-            case '>' -> tok = new Token(TokenType.GT, ch);
+            case '%' -> tok = new Token(TokenType.PERCENT, ch);
+            case '^' -> tok = new Token(TokenType.CARET, ch);
+            case '<' -> {
+                char currentCh = ch;
+                if (peekChar() == '=') {
+                    readChar();
+                    tok = new Token(TokenType.LT_EQ, "" + currentCh + ch);
+                } else if (peekChar() == '<') {
+                    readChar();
+                    tok = new Token(TokenType.SHIFT_LEFT, "" + currentCh + ch);
+                } else {
+                    tok = new Token(TokenType.LT, ch);
+                }
+            }
+            case '>' -> {
+                char currentCh = ch;
+                if (peekChar() == '=') {
+                    readChar();
+                    tok = new Token(TokenType.GT_EQ, "" + currentCh + ch);
+                } else if (peekChar() == '>') {
+                    readChar();
+                    tok = new Token(TokenType.SHIFT_RIGHT, "" + currentCh + ch);
+                } else {
+                    tok = new Token(TokenType.GT, ch);
+                }
+            }
             case ';' -> tok = new Token(TokenType.SEMICOLON, ch);
             case ',' -> tok = new Token(TokenType.COMMA, ch);
             case '(' -> tok = new Token(TokenType.LPAREN, ch);
@@ -0,0 +1,369 @@
+package com.monkey.nodes;
+
+import com.monkey.evaluator.Environment;
+import com.monkey.evaluator.Evaluator;
+import com.monkey.object.IntegerObject;
+import com.monkey.object.MonkeyObject;
+import com.monkey.object.StringObject;
+
+import static com.monkey.evaluator.SlotRuntime.check;
+import static com.monkey.evaluator.SlotRuntime.error;
+import static com.monkey.evaluator.SlotRuntime.toBoolean;
+
+/**
+ * BinaryNode 中綴運算（&& 和 || 除外）
+ *
+ * 初始為 Uninitialized: 第一次執行時根據運算元類型和運算符換成特化節點，
+ * 例如兩個整數的 + 換成 IntAdd，兩個字串的 + 換成 StringConcat。
+ * 特化節點遇到預期之外的類型時退化為 Generic，之後不再特化（避免反覆重寫）。
+ */
+abstract class BinaryNode extends MonkeyNode {
+    final String operator;
+    MonkeyNode left;
+    MonkeyNode right;
+
+    BinaryNode(String operator, MonkeyNode left, MonkeyNode right) {
+        this.operator = operator;
+        this.left = adopt(left);
+        this.right = adopt(right);
+    }
+
+    @Override
+    final MonkeyObject execute(Environment frame) {
+        MonkeyObject l = left.execute(frame);
+        MonkeyObject r = right.execute(frame);
+        return executeWith(l, r);
+    }
+
+    abstract MonkeyObject executeWith(MonkeyObject l, MonkeyObject r);
+
+    @Override
+    protected void replaceChild(MonkeyNode oldChild, MonkeyNode newChild) {
+        if (left == oldChild) {
+            left = newChild;
+        } else if (right == oldChild) {
+            right = newChild;
+        } else {
+            throw notAChild(oldChild);
+        }
+    }
+
+    /**
+     * 特化失敗: 換成通用節點並以通用語義計算本次結果
+     */
+    protected final MonkeyObject generalize(MonkeyObject l, MonkeyObject r) {
+        MonkeyNode current = current();
+        if (current != this) {
+            return ((BinaryNode) current).executeWith(l, r);
+        }
+        return replace(new Generic(operator, left, right)).executeWith(l, r);
+    }
+
+    /**
+     * 根據第一次觀察到的運算元選擇特化節點
+     */
+    private static BinaryNode specialize(String operator, MonkeyNode left, MonkeyNode right,
+                                         MonkeyObject l, MonkeyObject r) {
+        if (l instanceof IntegerObject && r instanceof IntegerObject) {
+            return switch (operator) {
+                case "+" -> new IntAdd(left, right);
+                case "-" -> new IntSub(left, right);
+                case "*" -> new IntMul(left, right);
+                case "/" -> new IntDiv(left, right);
+                case "%" -> new IntMod(left, right);
+                case "&" -> new IntAnd(left, right);
+                case "|" -> new IntOr(left, right);
+                case "^" -> new IntXor(left, right);
+                case "<<" -> new IntShl(left, right);
+                case ">>" -> new IntShr(left, right);
+                case "<" -> new IntLess(left, right);
+                case ">" -> new IntGreater(left, right);
+                case "<=" -> new IntLessEqual(left, right);
+                case ">=" -> new IntGreaterEqual(left, right);
+                case "==" -> new IntEqual(left, right);
+                case "!=" -> new IntNotEqual(left, right);
+                default -> new Generic(operator, left, right);
+            };
+        }
+        if (l instanceof StringObject && r instanceof StringObject) {
+            return switch (operator) {
+                case "+" -> new StringConcat(left, right);
+                case "==" -> new StringEqual(operator, left, right, false);
+                case "!=" -> new StringEqual(operator, left, right, true);
+                default -> new Generic(operator, left, right);
+            };
+        }
+        return new Generic(operator, left, right);
+    }
+
+    /**
+     * 尚未執行過的中綴節點
+     */
+    static final class Uninitialized extends BinaryNode {
+        Uninitialized(String operator, MonkeyNode left, MonkeyNode right) {
+            super(operator, left, right);
+        }
+
+        @Override
+        MonkeyObject executeWith(MonkeyObject l, MonkeyObject r) {
+            // 運算元中的遞迴調用可能已經特化了這個位置
+            MonkeyNode current = current();
+            if (current != this) {
+                return ((BinaryNode) current).executeWith(l, r);
+            }
+            return replace(specialize(operator, left, right, l, r)).executeWith(l, r);
+        }
+    }
+
+    /**
+     * 通用節點: 與求值器的中綴語義完全相同
+     */
+    static final class Generic extends BinaryNode {
+        Generic(String operator, MonkeyNode left, MonkeyNode right) {
+            super(operator, left, right);
+        }
+
+        @Override
+        MonkeyObject executeWith(MonkeyObject l, MonkeyObject r) {
+            return check(Evaluator.evalInfixExpression(operator, l, r));
+        }
+    }
+
+    /**
+     * 兩個整數運算元的特化節點，子類只需實現 compute
+     */
+    abstract static class IntBinary extends BinaryNode {
+        IntBinary(String operator, MonkeyNode left, MonkeyNode right) {
+            super(operator, left, right);
+        }
+
+        @Override
+        final MonkeyObject executeWith(MonkeyObject l, MonkeyObject r) {
+            if (l instanceof IntegerObject a && r instanceof IntegerObject b) {
+                return compute(a.getValue(), b.getValue());
+            }
+            return generalize(l, r);
+        }
+
+        abstract MonkeyObject compute(long a, long b);
+    }
+
+    static final class IntAdd extends IntBinary {
+        IntAdd(MonkeyNode left, MonkeyNode right) {
+            super("+", left, right);
+        }
+
+        @Override
+        MonkeyObject compute(long a, long b) {
+            return IntegerObject.valueOf(a + b);
+        }
+    }
+
+    static final class IntSub extends IntBinary {
+        IntSub(MonkeyNode left, MonkeyNode right) {
+            super("-", left, right);
+        }
+
+        @Override
+        MonkeyObject compute(long a, long b) {
+            return IntegerObject.valueOf(a - b);
+        }
+    }
+
+    static final class IntMul extends IntBinary {
+        IntMul(MonkeyNode left, MonkeyNode right) {
+            super("*", left, right);
+        }
+
+        @Override
+        MonkeyObject compute(long a, long b) {
+            return IntegerObject.valueOf(a * b);
+        }
+    }
+
+    static final class IntDiv extends IntBinary {
+        IntDiv(MonkeyNode left, MonkeyNode right) {
+            super("/", left, right);
+        }
+
+        @Override
+        MonkeyObject compute(long a, long b) {
+            if (b == 0) {
+                throw error("division by zero");
+            }
+            return IntegerObject.valueOf(a / b);
+        }
+    }
+
+    static final class IntMod extends IntBinary {
+        IntMod(MonkeyNode left, MonkeyNode right) {
+            super("%", left, right);
+        }
+
+        @Override
+        MonkeyObject compute(long a, long b) {
+            if (b == 0) {
+                throw error("division by zero");
+            }
+            return IntegerObject.valueOf(a % b);
+        }
+    }
+
+    static final class IntAnd extends IntBinary {
+        IntAnd(MonkeyNode left, MonkeyNode right) {
+            super("&", left, right);
+        }
+
+        @Override
+        MonkeyObject compute(long a, long b) {
+            return IntegerObject.valueOf(a & b);
+        }
+    }
+
+    static final class IntOr extends IntBinary {
+        IntOr(MonkeyNode left, MonkeyNode right) {
+            super("|", left, right);
+        }
+
+        @Override
+        MonkeyObject compute(long a, long b) {
+            return IntegerObject.valueOf(a | b);
+        }
+    }
+
+    static final class IntXor extends IntBinary {
+        IntXor(MonkeyNode left, MonkeyNode right) {
+            super("^", left, right);
+        }
+
+        @Override
+        MonkeyObject compute(long a, long b) {
+            return IntegerObject.valueOf(a ^ b);
+        }
+    }
+
+    static final class IntShl extends IntBinary {
+        IntShl(MonkeyNode left, MonkeyNode right) {
+            super("<<", left, right);
+        }
+
+        @Override
+        MonkeyObject compute(long a, long b) {
+            return IntegerObject.valueOf(a << b);
+        }
+    }
+
+    static final class IntShr extends IntBinary {
+        IntShr(MonkeyNode left, MonkeyNode right) {
+            super(">>", left, right);
+        }
+
+        @Override
+        MonkeyObject compute(long a, long b) {
+            return IntegerObject.valueOf(a >> b);
+        }
+    }
+
+    static final class IntLess extends IntBinary {
+        IntLess(MonkeyNode left, MonkeyNode right) {
+            super("<", left, right);
+        }
+
+        @Override
+        MonkeyObject compute(long a, long b) {
+            return toBoolean(a < b);
+        }
+    }
+
+    static final class IntGreater extends IntBinary {
+        IntGreater(MonkeyNode left, MonkeyNode right) {
+            super(">", left, right);
+        }
+
+        @Override
+        MonkeyObject compute(long a, long b) {
+            return toBoolean(a > b);
+        }
+    }
+
+    static final class IntLessEqual extends IntBinary {
+        IntLessEqual(MonkeyNode left, MonkeyNode right) {
+            super("<=", left, right);
+        }
+
+        @Override
+        MonkeyObject compute(long a, long b) {
+            return toBoolean(a <= b);
+        }
+    }
+
+    static final class IntGreaterEqual extends IntBinary {
+        IntGreaterEqual(MonkeyNode left, MonkeyNode right) {
+            super(">=", left, right);
+        }
+
+        @Override
+        MonkeyObject compute(long a, long b) {
+            return toBoolean(a >= b);
+        }
+    }
+
+    static final class IntEqual extends IntBinary {
+        IntEqual(MonkeyNode left, MonkeyNode right) {
+            super("==", left, right);
+        }
+
+        @Override
+        MonkeyObject compute(long a, long b) {
+            return toBoolean(a == b);
+        }
+    }
+
+    static final class IntNotEqual extends IntBinary {
+        IntNotEqual(MonkeyNode left, MonkeyNode right) {
+            super("!=", left, right);
+        }
+
+        @Override
+        MonkeyObject compute(long a, long b) {
+            return toBoolean(a != b);
+        }
+    }
+
+    /**
+     * 兩個字串的 +
+     */
+    static final class StringConcat extends BinaryNode {
+        StringConcat(MonkeyNode left, MonkeyNode right) {
+            super("+", left, right);
+        }
+
+        @Override
+        MonkeyObject executeWith(MonkeyObject l, MonkeyObject r) {
+            if (l instanceof StringObject a && r instanceof StringObject b) {
+                return StringObject.concat(a, b);
+            }
+            return generalize(l, r);
+        }
+    }
+
+    /**
+     * 兩個字串的 == 和 !=（按值比較）
+     */
+    static final class StringEqual extends BinaryNode {
+        private final boolean negate;
+
+        StringEqual(String operator, MonkeyNode left, MonkeyNode right, boolean negate) {
+            super(operator, left, right);
+            this.negate = negate;
+        }
+
+        @Override
+        MonkeyObject executeWith(MonkeyObject l, MonkeyObject r) {
+            if (l instanceof StringObject a && r instanceof StringObject b) {
+                return toBoolean(a.valueEquals(b) != negate);
+            }
+            return generalize(l, r);
+        }
+    }
+}
@@ -0,0 +1,168 @@
+package com.monkey.nodes;
+
+import com.monkey.evaluator.Environment;
+import com.monkey.evaluator.SlotRuntime.ReturnException;
+import com.monkey.object.MonkeyObject;
+
+import static com.monkey.evaluator.SlotRuntime.isTruthy;
+
+/**
+ * 語句序列和控制流節點
+ */
+final class ControlNodes {
+    private ControlNodes() {
+    }
+
+    /**
+     * 語句序列（程式、函數體、區塊），結果是最後一個語句的值
+     */
+    static final class Block extends MonkeyNode {
+        final MonkeyNode[] statements;
+
+        Block(MonkeyNode[] statements) {
+            this.statements = statements;
+            for (MonkeyNode statement : statements) {
+                adopt(statement);
+            }
+        }
+
+        @Override
+        MonkeyObject execute(Environment frame) {
+            MonkeyObject result = null;
+            for (MonkeyNode statement : statements) {
+                result = statement.execute(frame);
+            }
+            return result;
+        }
+
+        @Override
+        protected void replaceChild(MonkeyNode oldChild, MonkeyNode newChild) {
+            if (!replaceIn(statements, oldChild, newChild)) {
+                throw notAChild(oldChild);
+            }
+        }
+    }
+
+    static final class Return extends MonkeyNode {
+        MonkeyNode value;
+
+        Return(MonkeyNode value) {
+            this.value = adopt(value);
+        }
+
+        @Override
+        MonkeyObject execute(Environment frame) {
+            throw new ReturnException(value.execute(frame));
+        }
+
+        @Override
+        protected void replaceChild(MonkeyNode oldChild, MonkeyNode newChild) {
+            if (value != oldChild) {
+                throw notAChild(oldChild);
+            }
+            value = newChild;
+        }
+    }
+
+    static final class If extends MonkeyNode {
+        MonkeyNode condition;
+        MonkeyNode consequence;
+        MonkeyNode alternative;
+
+        If(MonkeyNode condition, MonkeyNode consequence, MonkeyNode alternative) {
+            this.condition = adopt(condition);
+            this.consequence = adopt(consequence);
+            this.alternative = adopt(alternative);
+        }
+
+        @Override
+        MonkeyObject execute(Environment frame) {
+            if (isTruthy(condition.execute(frame))) {
+                return consequence.execute(frame);
+            } else if (alternative != null) {
+                return alternative.execute(frame);
+            }
+            return NULL;
+        }
+
+        @Override
+        protected void replaceChild(MonkeyNode oldChild, MonkeyNode newChild) {
+            if (condition == oldChild) {
+                condition = newChild;
+            } else if (consequence == oldChild) {
+                consequence = newChild;
+            } else if (alternative == oldChild) {
+                alternative = newChild;
+            } else {
+                throw notAChild(oldChild);
+            }
+        }
+    }
+
+    /**
+     * while 迴圈，值為 NULL
+     */
+    static final class While extends MonkeyNode {
+        MonkeyNode condition;
+        MonkeyNode body;
+
+        While(MonkeyNode condition, MonkeyNode body) {
+            this.condition = adopt(condition);
+            this.body = adopt(body);
+        }
+
+        @Override
+        MonkeyObject execute(Environment frame) {
+            while (isTruthy(condition.execute(frame))) {
+                body.execute(frame);
+            }
+            return NULL;
+        }
+
+        @Override
+        protected void replaceChild(MonkeyNode oldChild, MonkeyNode newChild) {
+            if (condition == oldChild) {
+                condition = newChild;
+            } else if (body == oldChild) {
+                body = newChild;
+            } else {
+                throw notAChild(oldChild);
+            }
+        }
+    }
+
+    /**
+     * 短路的 && 和 ||，結果是決定真假的那個運算元
+     */
+    static final class Logical extends MonkeyNode {
+        private final boolean and;
+        MonkeyNode left;
+        MonkeyNode right;
+
+        Logical(boolean and, MonkeyNode left, MonkeyNode right) {
+            this.and = and;
+            this.left = adopt(left);
+            this.right = adopt(right);
+        }
+
+        @Override
+        MonkeyObject execute(Environment frame) {
+            MonkeyObject l = left.execute(frame);
+            if (isTruthy(l) != and) {
+                return l;
+            }
+            return right.execute(frame);
+        }
+
+        @Override
+        protected void replaceChild(MonkeyNode oldChild, MonkeyNode newChild) {
+            if (left == oldChild) {
+                left = newChild;
+            } else if (right == oldChild) {
+                right = newChild;
+            } else {
+                throw notAChild(oldChild);
+            }
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package com.monkey.nodes;
+
+import com.monkey.evaluator.Environment;
+import com.monkey.object.BooleanObject;
+import com.monkey.object.MonkeyObject;
+import com.monkey.object.NullObject;
+
+/**
+ * MonkeyNode 可執行節點的基類
+ *
+ * NodeBuilder 把 AST 轉換為節點樹，每個節點直接實現自己的 execute，
+ * 不再經過求值器的 instanceof 分派。節點可以在觀察到運行時類型後
+ * 用 replace 把自己換成特化的版本（例如整數加法），之後的執行直接走特化路徑。
+ *
+ * return 和運行時錯誤以不帶堆疊的異常傳遞，節點之間不需要逐層檢查返回值。
+ */
+abstract class MonkeyNode {
+    protected static final NullObject NULL = NullObject.NULL;
+    protected static final BooleanObject TRUE = BooleanObject.TRUE;
+    protected static final BooleanObject FALSE = BooleanObject.FALSE;
+
+    private MonkeyNode parent;
+    // 已從樹中換下時指向取代它的節點
+    private MonkeyNode replacement;
+
+    /**
+     * 在給定的環境幀中執行節點
+     */
+    abstract MonkeyObject execute(Environment frame);
+
+    MonkeyNode getParent() {
+        return parent;
+    }
+
+    /**
+     * 設置子節點的父節點，返回子節點本身
+     */
+    protected final <T extends MonkeyNode> T adopt(T child) {
+        if (child != null) {
+            ((MonkeyNode) child).parent = this;
+        }
+        return child;
+    }
+
+    /**
+     * 把子節點 oldChild 換成 newChild，有子節點的節點都要實現
+     */
+    protected void replaceChild(MonkeyNode oldChild, MonkeyNode newChild) {
+        throw new IllegalStateException(getClass().getSimpleName() + " has no children");
+    }
+
+    /**
+     * 在父節點中用 replacement 取代自己，返回 replacement
+     * 每個節點只能被取代一次，已換下的節點應經由 current() 委派
+     */
+    protected final <T extends MonkeyNode> T replace(T replacement) {
+        if (this.replacement != null) {
+            throw new IllegalStateException(getClass().getSimpleName() + " was already replaced");
+        }
+        parent.replaceChild(this, replacement);
+        ((MonkeyNode) replacement).parent = parent;
+        this.replacement = replacement;
+        return replacement;
+    }
+
+    /**
+     * 當前位於本節點位置上的節點，未被取代時是自己
+     * 遞迴會讓同一個節點在執行中途被內層的執行換下（例如 fib(n - 1) + fib(n - 2) 的 +），
+     * 外層返回後必須委派給當前節點，而不是再重寫一次: 重複的重寫會把子節點收養到不在樹中的節點上。
+     */
+    protected final MonkeyNode current() {
+        MonkeyNode node = this;
+        while (node.replacement != null) {
+            node = node.replacement;
+        }
+        return node;
+    }
+
+    protected final IllegalStateException notAChild(MonkeyNode child) {
+        return new IllegalStateException(
+                child.getClass().getSimpleName() + " is not a child of " + getClass().getSimpleName());
+    }
+
+    /**
+     * 子節點陣列中的替換
+     */
+    protected static boolean replaceIn(MonkeyNode[] children, MonkeyNode oldChild, MonkeyNode newChild) {
+        for (int i = 0; i < children.length; i++) {
+            if (children[i] == oldChild) {
+                children[i] = newChild;
+                return true;
+            }
+        }
+        return false;
+    }
+}
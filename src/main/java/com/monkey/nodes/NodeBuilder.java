@@ -0,0 +1,158 @@
+package com.monkey.nodes;
+
+import com.monkey.ast.*;
+import com.monkey.object.BooleanObject;
+import com.monkey.object.Builtins;
+import com.monkey.object.IntegerObject;
+import com.monkey.object.StringObject;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * NodeBuilder 把已經解析過槽位的 AST 轉換為可執行節點樹
+ * 每個 AST 節點只在這裡分派一次，運算符字串也只在建立中綴節點時查看。
+ */
+final class NodeBuilder {
+    // 當前所在的函數巢狀層數，0 表示全局
+    private int functionDepth;
+
+    private NodeBuilder() {
+    }
+
+    static ControlNodes.Block build(Program program) {
+        NodeBuilder builder = new NodeBuilder();
+        return new ControlNodes.Block(builder.buildStatements(program.getStatements()));
+    }
+
+    private MonkeyNode[] buildStatements(List<Statement> statements) {
+        MonkeyNode[] nodes = new MonkeyNode[statements.size()];
+        for (int i = 0; i < nodes.length; i++) {
+            nodes[i] = build(statements.get(i));
+        }
+        return nodes;
+    }
+
+    private MonkeyNode[] buildExpressions(List<Expression> expressions) {
+        MonkeyNode[] nodes = new MonkeyNode[expressions.size()];
+        for (int i = 0; i < nodes.length; i++) {
+            nodes[i] = build(expressions.get(i));
+        }
+        return nodes;
+    }
+
+    private MonkeyNode build(Node node) {
+        // 語句
+        if (node instanceof ExpressionStatement stmt) {
+            return build(stmt.getExpression());
+        }
+
+        if (node instanceof BlockStatement block) {
+            return new ControlNodes.Block(buildStatements(block.getStatements()));
+        }
+
+        if (node instanceof ReturnStatement returnStmt) {
+            return new ControlNodes.Return(build(returnStmt.getReturnValue()));
+        }
+
+        if (node instanceof LetStatement letStmt) {
+            return new VariableNodes.Let(letStmt.getName().getSlot(), build(letStmt.getValue()));
+        }
+
+        if (node instanceof AssignStatement assignStmt) {
+            Identifier name = assignStmt.getName();
+            return new VariableNodes.Assign(name.getValue(), name.getDepth(), name.getSlot(),
+                    build(assignStmt.getValue()));
+        }
+
+        if (node instanceof WhileStatement whileStmt) {
+            return new ControlNodes.While(build(whileStmt.getCondition()), build(whileStmt.getBody()));
+        }
+
+        // 表達式
+        if (node instanceof IntegerLiteral intLit) {
+            return new ValueNodes.Constant(IntegerObject.valueOf(intLit.getValue()));
+        }
+
+        if (node instanceof BooleanLiteral boolLit) {
+            return new ValueNodes.Constant(boolLit.getValue() ? BooleanObject.TRUE : BooleanObject.FALSE);
+        }
+
+        if (node instanceof StringLiteral strLit) {
+            return new ValueNodes.Constant(StringObject.intern(strLit.getValue()));
+        }
+
+        if (node instanceof ArrayLiteral arrLit) {
+            return new ValueNodes.ArrayLiteral(buildExpressions(arrLit.getElements()));
+        }
+
+        if (node instanceof HashLiteral hashLit) {
+            Map<Expression, Expression> pairs = hashLit.getPairs();
+            MonkeyNode[] keys = new MonkeyNode[pairs.size()];
+            MonkeyNode[] values = new MonkeyNode[pairs.size()];
+            int i = 0;
+            for (Map.Entry<Expression, Expression> entry : pairs.entrySet()) {
+                keys[i] = build(entry.getKey());
+                values[i] = build(entry.getValue());
+                i++;
+            }
+            return new ValueNodes.HashLiteral(keys, values);
+        }
+
+        if (node instanceof IndexExpression indexExpr) {
+            return new ValueNodes.Index(build(indexExpr.getLeft()), build(indexExpr.getIndex()));
+        }
+
+        if (node instanceof PrefixExpression prefix) {
+            return new ValueNodes.Prefix(prefix.getOperator(), build(prefix.getRight()));
+        }
+
+        if (node instanceof InfixExpression infix) {
+            MonkeyNode left = build(infix.getLeft());
+            MonkeyNode right = build(infix.getRight());
+            return switch (infix.getOperator()) {
+                case "&&" -> new ControlNodes.Logical(true, left, right);
+                case "||" -> new ControlNodes.Logical(false, left, right);
+                default -> new BinaryNode.Uninitialized(infix.getOperator(), left, right);
+            };
+        }
+
+        if (node instanceof IfExpression ifExpr) {
+            return new ControlNodes.If(build(ifExpr.getCondition()), build(ifExpr.getConsequence()),
+                    ifExpr.getAlternative() == null ? null : build(ifExpr.getAlternative()));
+        }
+
+        if (node instanceof Identifier ident) {
+            return new VariableNodes.Read(ident.getValue(), ident.getDepth(), ident.getSlot(),
+                    ident.getDepth() == functionDepth,
+                    ident.getBuiltinId() < 0 ? null : Builtins.get(ident.getBuiltinId()));
+        }
+
+        if (node instanceof FunctionLiteral fn) {
+            return buildFunction(fn);
+        }
+
+        if (node instanceof CallExpression call) {
+            return new ValueNodes.Call(build(call.getFunction()), buildExpressions(call.getArguments()));
+        }
+
+        // 解析錯誤留下的空節點與求值器一樣得到 null
+        return new ValueNodes.Constant(null);
+    }
+
+    private MonkeyNode buildFunction(FunctionLiteral fn) {
+        List<Identifier> params = fn.getParameters();
+        int[] paramSlots = new int[params.size()];
+        for (int i = 0; i < paramSlots.length; i++) {
+            paramSlots[i] = params.get(i).getSlot();
+        }
+
+        functionDepth++;
+        try {
+            MonkeyNode body = build(fn.getBody());
+            return new ValueNodes.Function(fn, fn.getLocalNames(), paramSlots, body);
+        } finally {
+            functionDepth--;
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package com.monkey.nodes;
+
+import com.monkey.ast.FunctionLiteral;
+import com.monkey.evaluator.Environment;
+import com.monkey.evaluator.SlotRuntime;
+import com.monkey.object.MonkeyObject;
+
+/**
+ * NodeFunction 節點引擎中的函數（閉包）
+ * 函數體是已經建立的節點樹，調用時建立大小為 localNames 的環境幀
+ */
+public class NodeFunction extends SlotRuntime.Function {
+    private final MonkeyNode body;
+
+    NodeFunction(FunctionLiteral literal, String[] localNames, int[] paramSlots, MonkeyNode body, Environment env) {
+        super(literal, localNames, paramSlots, env);
+        this.body = body;
+    }
+
+    @Override
+    protected MonkeyObject run(Environment frame) {
+        return body.execute(frame);
+    }
+}
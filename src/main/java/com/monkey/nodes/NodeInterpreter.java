@@ -0,0 +1,49 @@
+package com.monkey.nodes;
+
+import com.monkey.ast.Program;
+import com.monkey.evaluator.Environment;
+import com.monkey.evaluator.Resolver;
+import com.monkey.evaluator.SlotRuntime.ErrorException;
+import com.monkey.evaluator.SlotRuntime.ReturnException;
+import com.monkey.object.MonkeyObject;
+
+/**
+ * NodeInterpreter 自我特化的 AST 解釋器
+ *
+ * 與樹遍歷求值器使用同一個 Resolver 和環境幀，語義與 Evaluator 相同:
+ * 1. Resolver 為識別符號分配槽位
+ * 2. NodeBuilder 把 Program 轉換為節點樹
+ * 3. 執行節點樹，中綴運算等節點在執行中根據觀察到的類型把自己重寫為特化版本
+ *
+ * 全局環境可以跨多次調用共用（REPL），之前建立的函數繼續有效。
+ */
+public class NodeInterpreter {
+
+    private NodeInterpreter() {
+    }
+
+    /**
+     * 在全局環境中執行程式
+     */
+    public static MonkeyObject eval(Program program, Environment env) {
+        return execute(prepare(program, env), env);
+    }
+
+    /**
+     * 解析槽位並建立節點樹
+     */
+    static ControlNodes.Block prepare(Program program, Environment env) {
+        Resolver.resolve(program, env);
+        return NodeBuilder.build(program);
+    }
+
+    static MonkeyObject execute(ControlNodes.Block root, Environment env) {
+        try {
+            return root.execute(env);
+        } catch (ReturnException e) {
+            return e.value;
+        } catch (ErrorException e) {
+            return e.error;
+        }
+    }
+}
@@ -0,0 +1,281 @@
+package com.monkey.nodes;
+
+import com.monkey.ast.FunctionLiteral;
+import com.monkey.evaluator.Environment;
+import com.monkey.evaluator.Evaluator;
+import com.monkey.evaluator.SlotRuntime;
+import com.monkey.object.*;
+
+import static com.monkey.evaluator.SlotRuntime.check;
+import static com.monkey.evaluator.SlotRuntime.error;
+
+
+/**
+ * 字面值、索引、前綴運算、函數和調用節點
+ */
+final class ValueNodes {
+    private ValueNodes() {
+    }
+
+    /**
+     * 建立時已知的值（整數、字串、布爾值）
+     */
+    static final class Constant extends MonkeyNode {
+        final MonkeyObject value;
+
+        Constant(MonkeyObject value) {
+            this.value = value;
+        }
+
+        @Override
+        MonkeyObject execute(Environment frame) {
+            return value;
+        }
+    }
+
+    static final class ArrayLiteral extends MonkeyNode {
+        final MonkeyNode[] elements;
+
+        ArrayLiteral(MonkeyNode[] elements) {
+            this.elements = elements;
+            for (MonkeyNode element : elements) {
+                adopt(element);
+            }
+        }
+
+        @Override
+        MonkeyObject execute(Environment frame) {
+            MonkeyObject[] values = new MonkeyObject[elements.length];
+            for (int i = 0; i < elements.length; i++) {
+                values[i] = elements[i].execute(frame);
+            }
+            return ArrayObject.of(values, 0, values.length);
+        }
+
+        @Override
+        protected void replaceChild(MonkeyNode oldChild, MonkeyNode newChild) {
+            if (!replaceIn(elements, oldChild, newChild)) {
+                throw notAChild(oldChild);
+            }
+        }
+    }
+
+    static final class HashLiteral extends MonkeyNode {
+        final MonkeyNode[] keys;
+        final MonkeyNode[] values;
+
+        HashLiteral(MonkeyNode[] keys, MonkeyNode[] values) {
+            this.keys = keys;
+            this.values = values;
+            for (int i = 0; i < keys.length; i++) {
+                adopt(keys[i]);
+                adopt(values[i]);
+            }
+        }
+
+        @Override
+        MonkeyObject execute(Environment frame) {
+            PersistentHashMap pairs = PersistentHashMap.EMPTY;
+            for (int i = 0; i < keys.length; i++) {
+                MonkeyObject key = keys[i].execute(frame);
+                if (!(key instanceof Hashable)) {
+                    throw error("unusable as hash key: %s", key.type());
+                }
+                pairs = pairs.put(key, values[i].execute(frame));
+            }
+            return new HashObject(pairs);
+        }
+
+        @Override
+        protected void replaceChild(MonkeyNode oldChild, MonkeyNode newChild) {
+            if (!replaceIn(keys, oldChild, newChild) && !replaceIn(values, oldChild, newChild)) {
+                throw notAChild(oldChild);
+            }
+        }
+    }
+
+    static final class Prefix extends MonkeyNode {
+        private final String operator;
+        MonkeyNode right;
+
+        Prefix(String operator, MonkeyNode right) {
+            this.operator = operator;
+            this.right = adopt(right);
+        }
+
+        @Override
+        MonkeyObject execute(Environment frame) {
+            return check(Evaluator.evalPrefixExpression(operator, right.execute(frame)));
+        }
+
+        @Override
+        protected void replaceChild(MonkeyNode oldChild, MonkeyNode newChild) {
+            if (right != oldChild) {
+                throw notAChild(oldChild);
+            }
+            right = newChild;
+        }
+    }
+
+    /**
+     * 索引表達式: 第一次執行時觀察到陣列和整數則特化為 ArrayIndex，否則走通用路徑
+     */
+    static final class Index extends MonkeyNode {
+        private final boolean specializeArrays;
+        MonkeyNode left;
+        MonkeyNode index;
+
+        Index(MonkeyNode left, MonkeyNode index) {
+            this(left, index, true);
+        }
+
+        private Index(MonkeyNode left, MonkeyNode index, boolean specializeArrays) {
+            this.specializeArrays = specializeArrays;
+            this.left = adopt(left);
+            this.index = adopt(index);
+        }
+
+        @Override
+        MonkeyObject execute(Environment frame) {
+            return executeWith(left.execute(frame), index.execute(frame));
+        }
+
+        MonkeyObject executeWith(MonkeyObject l, MonkeyObject i) {
+            if (specializeArrays && l instanceof ArrayObject && i instanceof IntegerObject) {
+                // 運算元中的遞迴調用可能已經特化了這個位置
+                MonkeyNode current = current();
+                if (current != this) {
+                    return executeIndex(current, l, i);
+                }
+                return replace(new ArrayIndex(left, index)).executeWith(l, i);
+            }
+            return check(Evaluator.evalIndexExpression(l, i));
+        }
+
+        @Override
+        protected void replaceChild(MonkeyNode oldChild, MonkeyNode newChild) {
+            if (left == oldChild) {
+                left = newChild;
+            } else if (index == oldChild) {
+                index = newChild;
+            } else {
+                throw notAChild(oldChild);
+            }
+        }
+    }
+
+    static final class ArrayIndex extends MonkeyNode {
+        MonkeyNode left;
+        MonkeyNode index;
+
+        ArrayIndex(MonkeyNode left, MonkeyNode index) {
+            this.left = adopt(left);
+            this.index = adopt(index);
+        }
+
+        @Override
+        MonkeyObject execute(Environment frame) {
+            return executeWith(left.execute(frame), index.execute(frame));
+        }
+
+        MonkeyObject executeWith(MonkeyObject l, MonkeyObject i) {
+            if (l instanceof ArrayObject array && i instanceof IntegerObject idx) {
+                long n = idx.getValue();
+                return n < 0 || n >= array.size() ? NULL : array.get((int) n);
+            }
+            // 退化為不再特化的通用索引節點
+            MonkeyNode current = current();
+            if (current != this) {
+                return executeIndex(current, l, i);
+            }
+            replace(new Index(left, index, false));
+            return check(Evaluator.evalIndexExpression(l, i));
+        }
+
+        @Override
+        protected void replaceChild(MonkeyNode oldChild, MonkeyNode newChild) {
+            if (left == oldChild) {
+                left = newChild;
+            } else if (index == oldChild) {
+                index = newChild;
+            } else {
+                throw notAChild(oldChild);
+            }
+        }
+    }
+
+    /**
+     * 以已求值的運算元執行索引位置上的當前節點
+     */
+    private static MonkeyObject executeIndex(MonkeyNode node, MonkeyObject l, MonkeyObject i) {
+        if (node instanceof ArrayIndex arrayIndex) {
+            return arrayIndex.executeWith(l, i);
+        }
+        return ((Index) node).executeWith(l, i);
+    }
+
+    /**
+     * 函數字面值: 每次執行建立捕獲當前幀的 NodeFunction，函數體節點在所有閉包之間共享
+     */
+    static final class Function extends MonkeyNode {
+        private final FunctionLiteral literal;
+        private final String[] localNames;
+        private final int[] paramSlots;
+        final MonkeyNode body;
+
+        Function(FunctionLiteral literal, String[] localNames, int[] paramSlots, MonkeyNode body) {
+            this.literal = literal;
+            this.localNames = localNames;
+            this.paramSlots = paramSlots;
+            this.body = adopt(body);
+        }
+
+        @Override
+        MonkeyObject execute(Environment frame) {
+            return new NodeFunction(literal, localNames, paramSlots, body, frame);
+        }
+
+        @Override
+        protected void replaceChild(MonkeyNode oldChild, MonkeyNode newChild) {
+            throw new IllegalStateException("function body cannot be replaced");
+        }
+    }
+
+    static final class Call extends MonkeyNode {
+        MonkeyNode function;
+        final MonkeyNode[] arguments;
+
+        Call(MonkeyNode function, MonkeyNode[] arguments) {
+            this.function = adopt(function);
+            this.arguments = arguments;
+            for (MonkeyNode argument : arguments) {
+                adopt(argument);
+            }
+        }
+
+        @Override
+        MonkeyObject execute(Environment frame) {
+            MonkeyObject fn = function.execute(frame);
+            MonkeyObject[] args = new MonkeyObject[arguments.length];
+            for (int i = 0; i < arguments.length; i++) {
+                args[i] = arguments[i].execute(frame);
+            }
+            if (fn instanceof NodeFunction nodeFunction) {
+                return nodeFunction.call(args);
+            }
+            if (fn instanceof BuiltinObject builtin) {
+                return check(builtin.call(SlotRuntime.CALLER, args, 0, args.length));
+            }
+            throw error("not a function: %s", fn.type());
+        }
+
+        @Override
+        protected void replaceChild(MonkeyNode oldChild, MonkeyNode newChild) {
+            if (function == oldChild) {
+                function = newChild;
+            } else if (!replaceIn(arguments, oldChild, newChild)) {
+                throw notAChild(oldChild);
+            }
+        }
+    }
+}
@@ -0,0 +1,143 @@
+package com.monkey.nodes;
+
+import com.monkey.evaluator.Environment;
+import com.monkey.object.BuiltinObject;
+import com.monkey.object.MonkeyObject;
+
+import static com.monkey.evaluator.SlotRuntime.error;
+import static com.monkey.evaluator.SlotRuntime.retain;
+
+/**
+ * 變量的讀取、綁定和賦值節點
+ * 槽位由 Resolver 解析，節點建立時複製 (depth, slot)，執行時直接按索引訪問環境幀。
+ */
+final class VariableNodes {
+    private VariableNodes() {
+    }
+
+    /**
+     * 讀取變量
+     * 槽位為空（let 尚未執行）時按名稱向外查找，再取解析時綁定的同名內建函數。
+     */
+    static final class Read extends MonkeyNode {
+        final String name;
+        final int depth;
+        final int slot;
+        // 解析到全局幀: 槽位為空時沒有更外層可找
+        final boolean global;
+        // 同名的內建函數，沒有時為 null
+        final BuiltinObject builtin;
+
+        Read(String name, int depth, int slot, boolean global, BuiltinObject builtin) {
+            this.name = name;
+            this.depth = depth;
+            this.slot = slot;
+            this.global = global;
+            this.builtin = builtin;
+        }
+
+        @Override
+        MonkeyObject execute(Environment frame) {
+            MonkeyObject val = frame.get(depth, slot);
+            if (val != null) {
+                return val;
+            }
+            val = frame.getFrom(depth + 1, name);
+            if (val != null) {
+                return val;
+            }
+            if (builtin == null) {
+                throw error("identifier not found: %s", name);
+            }
+            if (global && current() == this) {
+                replace(new BuiltinRead(this));
+            }
+            return builtin;
+        }
+    }
+
+    /**
+     * 讀到內建函數的全局名稱: 槽位仍為空時直接返回緩存的內建函數
+     */
+    static final class BuiltinRead extends MonkeyNode {
+        private final int depth;
+        private final int slot;
+        private final BuiltinObject builtin;
+
+        BuiltinRead(Read read) {
+            this.depth = read.depth;
+            this.slot = read.slot;
+            this.builtin = read.builtin;
+        }
+
+        @Override
+        MonkeyObject execute(Environment frame) {
+            MonkeyObject val = frame.get(depth, slot);
+            return val != null ? val : builtin;
+        }
+    }
+
+    /**
+     * let 綁定，總是寫入當前幀
+     */
+    static final class Let extends MonkeyNode {
+        private final int slot;
+        MonkeyNode value;
+
+        Let(int slot, MonkeyNode value) {
+            this.slot = slot;
+            this.value = adopt(value);
+        }
+
+        @Override
+        MonkeyObject execute(Environment frame) {
+            MonkeyObject val = retain(value.execute(frame), frame);
+            frame.set(0, slot, val);
+            return val;
+        }
+
+        @Override
+        protected void replaceChild(MonkeyNode oldChild, MonkeyNode newChild) {
+            if (value != oldChild) {
+                throw notAChild(oldChild);
+            }
+            value = newChild;
+        }
+    }
+
+    /**
+     * 重新賦值已存在的變量
+     */
+    static final class Assign extends MonkeyNode {
+        private final String name;
+        private final int depth;
+        private final int slot;
+        MonkeyNode value;
+
+        Assign(String name, int depth, int slot, MonkeyNode value) {
+            this.name = name;
+            this.depth = depth;
+            this.slot = slot;
+            this.value = adopt(value);
+        }
+
+        @Override
+        MonkeyObject execute(Environment frame) {
+            MonkeyObject val = retain(value.execute(frame), frame);
+            if (frame.get(depth, slot) != null) {
+                frame.set(depth, slot, val);
+            } else if (frame.assignFrom(depth + 1, name, val) == null) {
+                throw error("identifier not found: %s", name);
+            }
+            return val;
+        }
+
+        @Override
+        protected void replaceChild(MonkeyNode oldChild, MonkeyNode newChild) {
+            if (value != oldChild) {
+                throw notAChild(oldChild);
+            }
+            value = newChild;
+        }
+    }
+}
@@ -1,19 +1,196 @@
 package com.monkey.object;
+import java.util.AbstractList;
 import java.util.List;
 import java.util.stream.Collectors;
 
 /**
  * ArrayObject 代表陣列
+ * 元素存放在持久化向量中，push 產生的新陣列與原陣列共享結構。
+ * 陣列也可以是底層向量上 [offset, offset + length) 的視圖，rest 因此是 O(1)。
+ *
+ * 元素全為整數時使用 PersistentLongVector（每個元素 8 字節的 long），
+ * 讀取時再經 IntegerObject.valueOf 裝箱；一旦加入非整數元素就轉為通用的 PersistentVector。
  */
 public class ArrayObject implements MonkeyObject {
-    private final List<MonkeyObject> elements;
+    // 兩者恰有一個非 null
+    private final PersistentVector elements;
+    private final PersistentLongVector longs;
+    private final int offset;
+    private final int length;
 
     public ArrayObject(List<MonkeyObject> elements) {
+        this(PersistentVector.of(elements));
+    }
+
+    public ArrayObject(PersistentVector elements) {
+        this(elements, null, 0, elements.size());
+    }
+
+    public ArrayObject(PersistentLongVector longs) {
+        this(null, longs, 0, longs.size());
+    }
+
+    private ArrayObject(PersistentVector elements, PersistentLongVector longs, int offset, int length) {
         this.elements = elements;
+        this.longs = longs;
+        this.offset = offset;
+        this.length = length;
+    }
+
+    /**
+     * 由元素建立陣列，全為整數時使用緊湊的 long 表示
+     */
+    public static ArrayObject of(MonkeyObject[] items, int from, int to) {
+        boolean allIntegers = true;
+        for (int i = from; i < to && allIntegers; i++) {
+            allIntegers = items[i] instanceof IntegerObject;
+        }
+        if (allIntegers) {
+            PersistentLongVector longs = PersistentLongVector.EMPTY;
+            for (int i = from; i < to; i++) {
+                longs = longs.conj(((IntegerObject) items[i]).getValue());
+            }
+            return new ArrayObject(longs);
+        }
+        PersistentVector vector = PersistentVector.EMPTY;
+        for (int i = from; i < to; i++) {
+            vector = vector.conj(items[i]);
+        }
+        return new ArrayObject(vector);
+    }
+
+    public static ArrayObject of(List<MonkeyObject> elements) {
+        return of(elements.toArray(new MonkeyObject[0]), 0, elements.size());
     }
 
+    /**
+     * 以唯讀列表的形式訪問元素（不複製）
+     */
     public List<MonkeyObject> getElements() {
-        return elements;
+        return new AbstractList<>() {
+            @Override
+            public MonkeyObject get(int index) {
+                return ArrayObject.this.get(index);
+            }
+
+            @Override
+            public int size() {
+                return length;
+            }
+        };
+    }
+
+    public int size() {
+        return length;
+    }
+
+    public MonkeyObject get(int index) {
+        checkIndex(index);
+        if (longs != null) {
+            return IntegerObject.valueOf(longs.get(offset + index));
+        }
+        return elements.get(offset + index);
+    }
+
+    /**
+     * 讀取整數元素而不裝箱，只適用於 isIntArray() 為 true 的陣列
+     */
+    public long getLong(int index) {
+        checkIndex(index);
+        return longs.get(offset + index);
+    }
+
+    /**
+     * 是否以 long 緊湊存放（所有元素都是整數）
+     */
+    public boolean isIntArray() {
+        return longs != null;
+    }
+
+    /**
+     * 返回追加一個元素後的新陣列，原陣列保持不變
+     * 視圖延伸到底層向量末尾時直接在其上追加，否則先複製視圖範圍；
+     * 整數陣列加入非整數元素時轉為通用表示
+     */
+    public ArrayObject push(MonkeyObject element) {
+        if (longs != null) {
+            if (element instanceof IntegerObject integer) {
+                long value = integer.getValue();
+                if (offset + length == longs.size()) {
+                    return new ArrayObject(null, longs.conj(value), offset, length + 1);
+                }
+                return new ArrayObject(copyLongs().conj(value));
+            }
+            return new ArrayObject(longs.widen(offset, offset + length).conj(element));
+        }
+        if (offset + length == elements.size()) {
+            return new ArrayObject(elements.conj(element), null, offset, length + 1);
+        }
+        return new ArrayObject(copyElements().conj(element));
+    }
+
+    /**
+     * 返回除第一個元素外的視圖 (O(1)，與原陣列共享底層向量)
+     */
+    public ArrayObject rest() {
+        return slice(1, length);
+    }
+
+    /**
+     * 返回 [from, to) 範圍的視圖
+     */
+    public ArrayObject slice(int from, int to) {
+        if (from < 0 || to > length || from > to) {
+            throw new IndexOutOfBoundsException("slice [" + from + ", " + to + ") out of bounds for length " + length);
+        }
+        return new ArrayObject(elements, longs, offset + from, to - from);
+    }
+
+    /**
+     * 是否只是底層向量的一部分
+     */
+    public boolean isView() {
+        return offset != 0 || length != backingSize();
+    }
+
+    /**
+     * 為長期持有的陣列釋放視圖以外的元素
+     * 只有當視圖不到底層向量的一半時才複製，其餘情況返回自身
+     */
+    public ArrayObject compact() {
+        if (length * 2 >= backingSize()) {
+            return this;
+        }
+        if (longs != null) {
+            return new ArrayObject(copyLongs());
+        }
+        return new ArrayObject(copyElements());
+    }
+
+    private int backingSize() {
+        return longs != null ? longs.size() : elements.size();
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= length) {
+            throw new IndexOutOfBoundsException("index " + index + " out of bounds for length " + length);
+        }
+    }
+
+    private PersistentVector copyElements() {
+        PersistentVector copy = PersistentVector.EMPTY;
+        for (int i = 0; i < length; i++) {
+            copy = copy.conj(elements.get(offset + i));
+        }
+        return copy;
+    }
+
+    private PersistentLongVector copyLongs() {
+        PersistentLongVector copy = PersistentLongVector.EMPTY;
+        for (int i = 0; i < length; i++) {
+            copy = copy.conj(longs.get(offset + i));
+        }
+        return copy;
     }
 
     @Override
@@ -23,7 +200,7 @@ public class ArrayObject implements MonkeyObject {
 
     @Override
     public String inspect() {
-        String elementsStr = elements.stream()
+        String elementsStr = getElements().stream()
                 .map(MonkeyObject::inspect)
                 .collect(Collectors.joining(", "));
         return "[" + elementsStr + "]";
@@ -33,4 +210,4 @@ public class ArrayObject implements MonkeyObject {
     public HashKey hashKey() {
         return null;
     }
-}
\ No newline at end of file
+}
@@ -6,6 +6,7 @@ package com.monkey.object;
  */
 public class BooleanObject implements MonkeyObject, Hashable{
     private final boolean value;
+    private final HashKey hashKey;
 
     // 單例模式 - 只有兩個實例
     public static final BooleanObject TRUE = new BooleanObject(true);
@@ -13,6 +14,7 @@ public class BooleanObject implements MonkeyObject, Hashable{
 
     public BooleanObject(boolean value) {
         this.value = value;
+        this.hashKey = new HashKey(ObjectType.BOOLEAN, value ? 1L : 0L);
     }
 
     /**
@@ -38,8 +40,12 @@ public class BooleanObject implements MonkeyObject, Hashable{
 
     @Override
     public HashKey hashKey() {
-        long hash = value ? 1L : 0L;
-        return new HashKey(type(), hash);
+        return hashKey;
+    }
+
+    @Override
+    public int keyHash() {
+        return value ? 1231 : 1237;
     }
 
     @Override
@@ -3,18 +3,63 @@ package com.monkey.object;
 /**
  * BuiltinObject 表示內建函數
  * Chapter 8: Built-in Functions
+ *
+ * 所有執行引擎共用 Builtins 中的同一批實例，id 是它在登記表中的索引（也是 OpGetBuiltin 的運算元）。
+ * 固定參數個數的內建函數以對應元數的函數定義，調用者按實參個數進入 call0 / call1 / call2，
+ * 不必為每次調用建立參數陣列或列表；其他個數和可變參數經由 call(args, from, count)，
+ * 實參是調用者陣列中的一段（VM 直接傳入自己的堆疊），同樣不複製。
+ *
+ * 高階內建函數需要回調 Monkey 函數，只能經由帶 FunctionCaller 的入口調用，
+ * 各執行引擎以 isHigherOrder() 判斷並傳入自己的 caller。
  */
 public class BuiltinObject implements MonkeyObject {
 
     @FunctionalInterface
-    public interface BuiltinFunction {
-        MonkeyObject apply(MonkeyObject... args);
+    public interface Unary {
+        MonkeyObject apply(MonkeyObject arg);
     }
 
-    private final BuiltinFunction fn;
+    @FunctionalInterface
+    public interface Binary {
+        MonkeyObject apply(MonkeyObject first, MonkeyObject second);
+    }
+
+    /**
+     * 可變參數: 實參是 args[from, from + count)，只能在調用期間讀取
+     */
+    @FunctionalInterface
+    public interface Variadic {
+        MonkeyObject apply(MonkeyObject[] args, int from, int count);
+    }
+
+    /**
+     * 高階: 實參同上，另外取得回調函數值的 caller
+     */
+    @FunctionalInterface
+    public interface HigherOrder {
+        MonkeyObject apply(FunctionCaller caller, MonkeyObject[] args, int from, int count);
+    }
+
+    private static final MonkeyObject[] NO_ARGS = new MonkeyObject[0];
 
-    public BuiltinObject(BuiltinFunction fn) {
-        this.fn = fn;
+    private final int id;
+    private final String name;
+    // 參數個數，-1 表示可變參數
+    private final int arity;
+    private final Unary unary;
+    private final Binary binary;
+    private final Variadic variadic;
+    private final HigherOrder higherOrder;
+
+    BuiltinObject(int id, String name, int arity, Unary unary, Binary binary, Variadic variadic,
+                  HigherOrder higherOrder) {
+        this.id = id;
+        this.name = name;
+        this.arity = arity;
+        this.unary = unary;
+        this.binary = binary;
+        this.variadic = variadic;
+        this.higherOrder = higherOrder;
     }
 
     @Override
@@ -32,7 +77,108 @@ public class BuiltinObject implements MonkeyObject {
         return null; // 內建函數不可雜湊
     }
 
-    public BuiltinFunction getFn() {
-        return fn;
+    public int getId() {
+        return id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getArity() {
+        return arity;
+    }
+
+    /**
+     * 是否需要回調 Monkey 函數（只能經由帶 FunctionCaller 的入口調用）
+     */
+    public boolean isHigherOrder() {
+        return higherOrder != null;
+    }
+
+    public MonkeyObject call0() {
+        if (variadic != null) {
+            return variadic.apply(NO_ARGS, 0, 0);
+        }
+        return higherOrder != null ? noCaller() : wrongArity(0);
+    }
+
+    public MonkeyObject call1(MonkeyObject arg) {
+        if (unary != null) {
+            return unary.apply(arg);
+        }
+        if (variadic != null) {
+            return variadic.apply(new MonkeyObject[]{arg}, 0, 1);
+        }
+        return higherOrder != null ? noCaller() : wrongArity(1);
+    }
+
+    public MonkeyObject call2(MonkeyObject first, MonkeyObject second) {
+        if (binary != null) {
+            return binary.apply(first, second);
+        }
+        if (variadic != null) {
+            return variadic.apply(new MonkeyObject[]{first, second}, 0, 2);
+        }
+        return higherOrder != null ? noCaller() : wrongArity(2);
+    }
+
+    /**
+     * 以任意個數的實參調用
+     */
+    public MonkeyObject call(MonkeyObject[] args) {
+        return call(args, 0, args.length);
+    }
+
+    /**
+     * 以陣列中的一段 args[from, from + count) 作為實參調用，不複製
+     * 固定元數的內建函數按個數進入對應的入口，可變參數的直接讀取這一段。
+     */
+    public MonkeyObject call(MonkeyObject[] args, int from, int count) {
+        if (variadic != null) {
+            return variadic.apply(args, from, count);
+        }
+        if (higherOrder != null) {
+            return noCaller();
+        }
+        return switch (count) {
+            case 1 -> call1(args[from]);
+            case 2 -> call2(args[from], args[from + 1]);
+            default -> wrongArity(count);
+        };
+    }
+
+    /**
+     * 通用入口: 高階內建函數經由 caller 回調函數值，其餘的與 call(args, from, count) 相同
+     */
+    public MonkeyObject call(FunctionCaller caller, MonkeyObject[] args, int from, int count) {
+        if (higherOrder == null) {
+            return call(args, from, count);
+        }
+        if (arity >= 0 && count != arity) {
+            return wrongArity(count);
+        }
+        return higherOrder.apply(caller, args, from, count);
+    }
+
+    /**
+     * 內建函數作為回調的函數值時（如 map(arr, len)）由 caller 以此調用
+     */
+    public MonkeyObject call1(FunctionCaller caller, MonkeyObject arg) {
+        return higherOrder == null ? call1(arg) : call(caller, new MonkeyObject[]{arg}, 0, 1);
+    }
+
+    public MonkeyObject call2(FunctionCaller caller, MonkeyObject first, MonkeyObject second) {
+        return higherOrder == null
+                ? call2(first, second)
+                : call(caller, new MonkeyObject[]{first, second}, 0, 2);
+    }
+
+    private ErrorObject wrongArity(int got) {
+        return ErrorObject.of("wrong number of arguments. got=%d, want=%d", got, arity);
+    }
+
+    private ErrorObject noCaller() {
+        return ErrorObject.of("builtin `%s` calls functions and needs a function caller", name);
     }
-}
\ No newline at end of file
+}
@@ -1,137 +1,298 @@
 package com.monkey.object;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Builtins 包含所有內建函數的定義
  * Chapter 8: Built-in Functions
+ *
+ * 求值器、節點、閉包引擎和 VM 共用這一個登記表: 名稱在解析 / 編譯時綁定到穩定的整數 id，
+ * 運行時按 id 直接取出。新增內建函數只需在下面按順序登記一次。
+ *
+ * map、filter、reduce、sort 是高階內建函數: 在 Java 中迭代陣列，經由執行引擎提供的
+ * FunctionCaller 回調 Monkey 函數，取代以 rest / push 逐元素遞迴的腳本實現（每個元素一幀）。
  */
 public class Builtins {
 
-    public static class BuiltinDefinition {
-        public final String name;
-        public final BuiltinObject builtin;
+    private static final List<BuiltinObject> REGISTRY = new ArrayList<>();
 
-        public BuiltinDefinition(String name, BuiltinObject builtin) {
-            this.name = name;
-            this.builtin = builtin;
+    // 登記順序就是 id，用於 OpGetBuiltin 指令，不可重排
+
+    // 0: len
+    public static final BuiltinObject LEN = unary("len", arg -> {
+        if (arg instanceof ArrayObject arr) {
+            return IntegerObject.valueOf(arr.size());
+        } else if (arg instanceof StringObject str) {
+            return IntegerObject.valueOf(str.length());
         }
-    }
+        return ErrorObject.of("argument to `len` not supported, got %s", arg.type());
+    });
 
-    /**
-     * 所有內建函數的列表
-     * 索引順序很重要，用於 OpGetBuiltin 指令
-     */
-    public static final BuiltinDefinition[] BUILTINS = new BuiltinDefinition[]{
-            // 0: len
-            new BuiltinDefinition("len", new BuiltinObject(args -> {
-                if (args.length != 1) {
-                    return newError("wrong number of arguments. got=%d, want=1", args.length);
-                }
+    // 1: puts
+    public static final BuiltinObject PUTS = variadic("puts", (args, from, count) -> {
+        for (int i = from; i < from + count; i++) {
+            System.out.println(args[i].inspect());
+        }
+        return NullObject.NULL;
+    });
 
-                if (args[0] instanceof ArrayObject) {
-                    ArrayObject arr = (ArrayObject) args[0];
-                    return new IntegerObject(arr.getElements().size());
-                } else if (args[0] instanceof StringObject) {
-                    StringObject str = (StringObject) args[0];
-                    return new IntegerObject(str.getValue().length());
-                } else {
-                    return newError("argument to `len` not supported, got %s", args[0].type());
-                }
-            })),
+    // 2: first
+    public static final BuiltinObject FIRST = unary("first", arg -> {
+        if (!(arg instanceof ArrayObject arr)) {
+            return ErrorObject.of("argument to `first` must be ARRAY, got %s", arg.type());
+        }
+        return arr.size() > 0 ? arr.get(0) : NullObject.NULL;
+    });
 
-            // 1: puts
-            new BuiltinDefinition("puts", new BuiltinObject(args -> {
-                for (MonkeyObject arg : args) {
-                    System.out.println(arg.inspect());
-                }
-                return null; // 返回 null，VM 會轉換為 NULL
-            })),
+    // 3: last
+    public static final BuiltinObject LAST = unary("last", arg -> {
+        if (!(arg instanceof ArrayObject arr)) {
+            return ErrorObject.of("argument to `last` must be ARRAY, got %s", arg.type());
+        }
+        int length = arr.size();
+        return length > 0 ? arr.get(length - 1) : NullObject.NULL;
+    });
 
-            // 2: first
-            new BuiltinDefinition("first", new BuiltinObject(args -> {
-                if (args.length != 1) {
-                    return newError("wrong number of arguments. got=%d, want=1", args.length);
-                }
-                if (!(args[0] instanceof ArrayObject)) {
-                    return newError("argument to `first` must be ARRAY, got %s", args[0].type());
-                }
+    // 4: rest
+    public static final BuiltinObject REST = unary("rest", arg -> {
+        if (!(arg instanceof ArrayObject arr)) {
+            return ErrorObject.of("argument to `rest` must be ARRAY, got %s", arg.type());
+        }
+        return arr.size() > 0 ? arr.rest() : NullObject.NULL;
+    });
 
-                ArrayObject arr = (ArrayObject) args[0];
-                if (arr.getElements().size() > 0) {
-                    return arr.getElements().get(0);
-                }
-                return null; // 返回 null，VM 會轉換為 NULL
-            })),
+    // 5: push
+    public static final BuiltinObject PUSH = binary("push", (array, element) -> {
+        if (!(array instanceof ArrayObject arr)) {
+            return ErrorObject.of("argument to `push` must be ARRAY, got %s", array.type());
+        }
+        return arr.push(element);
+    });
 
-            // 3: last
-            new BuiltinDefinition("last", new BuiltinObject(args -> {
-                if (args.length != 1) {
-                    return newError("wrong number of arguments. got=%d, want=1", args.length);
-                }
-                if (!(args[0] instanceof ArrayObject)) {
-                    return newError("argument to `last` must be ARRAY, got %s", args[0].type());
-                }
+    // 6: map(arr, f)
+    public static final BuiltinObject MAP = higherOrder("map", 2, (caller, args, from, count) -> {
+        ErrorObject invalid = checkArguments("map", args[from], args[from + 1]);
+        if (invalid != null) {
+            return invalid;
+        }
+        ArrayObject arr = (ArrayObject) args[from];
+        MonkeyObject fn = args[from + 1];
+        int length = arr.size();
+        MonkeyObject[] results = new MonkeyObject[length];
+        for (int i = 0; i < length; i++) {
+            MonkeyObject result = caller.call1(fn, arr.get(i));
+            if (result instanceof ErrorObject) {
+                return result;
+            }
+            results[i] = result;
+        }
+        return ArrayObject.of(results, 0, length);
+    });
 
-                ArrayObject arr = (ArrayObject) args[0];
-                int length = arr.getElements().size();
-                if (length > 0) {
-                    return arr.getElements().get(length - 1);
-                }
-                return null; // 返回 null，VM 會轉換為 NULL
-            })),
+    // 7: filter(arr, f)
+    public static final BuiltinObject FILTER = higherOrder("filter", 2, (caller, args, from, count) -> {
+        ErrorObject invalid = checkArguments("filter", args[from], args[from + 1]);
+        if (invalid != null) {
+            return invalid;
+        }
+        ArrayObject arr = (ArrayObject) args[from];
+        MonkeyObject fn = args[from + 1];
+        int length = arr.size();
+        MonkeyObject[] kept = new MonkeyObject[length];
+        int n = 0;
+        for (int i = 0; i < length; i++) {
+            MonkeyObject element = arr.get(i);
+            MonkeyObject result = caller.call1(fn, element);
+            if (result instanceof ErrorObject) {
+                return result;
+            }
+            if (isTruthy(result)) {
+                kept[n++] = element;
+            }
+        }
+        return ArrayObject.of(kept, 0, n);
+    });
 
-            // 4: rest
-            new BuiltinDefinition("rest", new BuiltinObject(args -> {
-                if (args.length != 1) {
-                    return newError("wrong number of arguments. got=%d, want=1", args.length);
-                }
-                if (!(args[0] instanceof ArrayObject)) {
-                    return newError("argument to `rest` must be ARRAY, got %s", args[0].type());
-                }
+    // 8: reduce(arr, initial, f)，f(acc, element)
+    public static final BuiltinObject REDUCE = higherOrder("reduce", 3, (caller, args, from, count) -> {
+        ErrorObject invalid = checkArguments("reduce", args[from], args[from + 2]);
+        if (invalid != null) {
+            return invalid;
+        }
+        ArrayObject arr = (ArrayObject) args[from];
+        MonkeyObject acc = args[from + 1];
+        MonkeyObject fn = args[from + 2];
+        int length = arr.size();
+        for (int i = 0; i < length; i++) {
+            acc = caller.call2(fn, acc, arr.get(i));
+            if (acc instanceof ErrorObject) {
+                return acc;
+            }
+        }
+        return acc;
+    });
 
-                ArrayObject arr = (ArrayObject) args[0];
-                int length = arr.getElements().size();
-                if (length > 0) {
-                    List<MonkeyObject> newElements = new ArrayList<>(arr.getElements().subList(1, length));
-                    return new ArrayObject(newElements);
-                }
-                return null; // 返回 null，VM 會轉換為 NULL
-            })),
+    // 9: sort(arr) 按整數或字串的自然順序；sort(arr, cmp) 按 cmp(a, b) 返回的整數符號。排序是穩定的
+    public static final BuiltinObject SORT = higherOrder("sort", -1, (caller, args, from, count) -> {
+        if (count != 1 && count != 2) {
+            return ErrorObject.of("wrong number of arguments. got=%d, want=1 or 2", count);
+        }
+        if (!(args[from] instanceof ArrayObject arr)) {
+            return ErrorObject.of("argument to `sort` must be ARRAY, got %s", args[from].type());
+        }
+        if (count == 1) {
+            return sortNatural(arr);
+        }
+        ErrorObject invalid = checkArguments("sort", arr, args[from + 1]);
+        return invalid != null ? invalid : sortWith(caller, arr, args[from + 1]);
+    });
 
-            // 5: push
-            new BuiltinDefinition("push", new BuiltinObject(args -> {
-                if (args.length != 2) {
-                    return newError("wrong number of arguments. got=%d, want=2", args.length);
-                }
-                if (!(args[0] instanceof ArrayObject)) {
-                    return newError("argument to `push` must be ARRAY, got %s", args[0].type());
-                }
+    /**
+     * 所有內建函數的列表，索引即 id
+     */
+    public static final BuiltinObject[] BUILTINS = REGISTRY.toArray(new BuiltinObject[0]);
 
-                ArrayObject arr = (ArrayObject) args[0];
-                List<MonkeyObject> newElements = new ArrayList<>(arr.getElements());
-                newElements.add(args[1]);
-                return new ArrayObject(newElements);
-            }))
-    };
+    private static final Map<String, BuiltinObject> BY_NAME = new HashMap<>();
+
+    static {
+        for (BuiltinObject builtin : BUILTINS) {
+            BY_NAME.put(builtin.getName(), builtin);
+        }
+    }
+
+    /**
+     * 按 id 取出內建函數
+     */
+    public static BuiltinObject get(int id) {
+        return BUILTINS[id];
+    }
+
+    /**
+     * 名稱對應的 id，不是內建函數時返回 -1
+     */
+    public static int indexOf(String name) {
+        BuiltinObject builtin = BY_NAME.get(name);
+        return builtin == null ? -1 : builtin.getId();
+    }
 
     /**
      * 根據名稱獲取內建函數
      */
     public static BuiltinObject getBuiltinByName(String name) {
-        for (BuiltinDefinition def : BUILTINS) {
-            if (def.name.equals(name)) {
-                return def.builtin;
-            }
+        return BY_NAME.get(name);
+    }
+
+    /**
+     * 高階內建函數的共同檢查: 第一個實參是陣列，回調是可調用的值
+     */
+    private static ErrorObject checkArguments(String name, MonkeyObject array, MonkeyObject fn) {
+        if (!(array instanceof ArrayObject)) {
+            return ErrorObject.of("argument to `%s` must be ARRAY, got %s", name, array.type());
+        }
+        ObjectType type = fn.type();
+        if (type != ObjectType.FUNCTION && type != ObjectType.CLOSURE && type != ObjectType.BUILTIN) {
+            return ErrorObject.of("argument to `%s` must be FUNCTION, got %s", name, type);
         }
         return null;
     }
 
+    private static boolean isTruthy(MonkeyObject obj) {
+        return obj != NullObject.NULL && !(obj instanceof BooleanObject bool && !bool.getValue());
+    }
+
     /**
-     * 創建錯誤對象
+     * 自然順序: 整數陣列直接排序 long，字串按字典序，其他元素無法比較
      */
-    private static ErrorObject newError(String format, Object... args) {
-        return new ErrorObject(String.format(format, args));
+    private static MonkeyObject sortNatural(ArrayObject arr) {
+        int length = arr.size();
+        if (arr.isIntArray()) {
+            long[] values = new long[length];
+            for (int i = 0; i < length; i++) {
+                values[i] = arr.getLong(i);
+            }
+            Arrays.sort(values);
+            PersistentLongVector sorted = PersistentLongVector.EMPTY;
+            for (long value : values) {
+                sorted = sorted.conj(value);
+            }
+            return new ArrayObject(sorted);
+        }
+
+        StringObject[] strings = new StringObject[length];
+        for (int i = 0; i < length; i++) {
+            if (!(arr.get(i) instanceof StringObject str)) {
+                return ErrorObject.of("`sort` cannot compare %s without a comparator", arr.get(i).type());
+            }
+            strings[i] = str;
+        }
+        Arrays.sort(strings, (a, b) -> a.getValue().compareTo(b.getValue()));
+        return ArrayObject.of(strings, 0, length);
+    }
+
+    /**
+     * 按比較函數排序，比較函數出錯時中止排序並返回該錯誤
+     */
+    private static MonkeyObject sortWith(FunctionCaller caller, ArrayObject arr, MonkeyObject cmp) {
+        int length = arr.size();
+        MonkeyObject[] items = new MonkeyObject[length];
+        for (int i = 0; i < length; i++) {
+            items[i] = arr.get(i);
+        }
+        try {
+            Arrays.sort(items, (a, b) -> {
+                MonkeyObject result = caller.call2(cmp, a, b);
+                if (result instanceof IntegerObject integer) {
+                    return Long.signum(integer.getValue());
+                }
+                if (result instanceof ErrorObject error) {
+                    throw new SortAbort(error);
+                }
+                throw new SortAbort(ErrorObject.of(
+                        "comparator for `sort` must return INTEGER, got %s", result.type()));
+            });
+        } catch (SortAbort e) {
+            return e.error;
+        } catch (IllegalArgumentException e) {
+            // TimSort 發現比較結果前後矛盾
+            return ErrorObject.of("comparator for `sort` is inconsistent");
+        }
+        return ArrayObject.of(items, 0, length);
+    }
+
+    /**
+     * 從 Arrays.sort 的比較器中帶出錯誤物件
+     */
+    private static final class SortAbort extends RuntimeException {
+        final ErrorObject error;
+
+        SortAbort(ErrorObject error) {
+            super(null, null, false, false);
+            this.error = error;
+        }
+    }
+
+    private static BuiltinObject unary(String name, BuiltinObject.Unary fn) {
+        return register(new BuiltinObject(REGISTRY.size(), name, 1, fn, null, null, null));
+    }
+
+    private static BuiltinObject binary(String name, BuiltinObject.Binary fn) {
+        return register(new BuiltinObject(REGISTRY.size(), name, 2, null, fn, null, null));
+    }
+
+    private static BuiltinObject variadic(String name, BuiltinObject.Variadic fn) {
+        return register(new BuiltinObject(REGISTRY.size(), name, -1, null, null, fn, null));
+    }
+
+    private static BuiltinObject higherOrder(String name, int arity, BuiltinObject.HigherOrder fn) {
+        return register(new BuiltinObject(REGISTRY.size(), name, arity, null, null, null, fn));
+    }
+
+    private static BuiltinObject register(BuiltinObject builtin) {
+        REGISTRY.add(builtin);
+        return builtin;
     }
-}
\ No newline at end of file
+}
@@ -10,20 +10,28 @@ import com.monkey.code.Instructions;
  * - instructions: 函數的字節碼指令
  * - numLocals: 局部變量數量
  * - numParameters: 參數數量
+ * - memoizable: 是否可記憶化（由 PurityAnalyzer 判定的純遞迴函數）
  */
 public class CompiledFunctionObject implements MonkeyObject {
     private final Instructions instructions;
     private final int numLocals;
     private final int numParameters;
+    private final boolean memoizable;
 
     public CompiledFunctionObject(Instructions instructions) {
         this(instructions, 0, 0);
     }
 
     public CompiledFunctionObject(Instructions instructions, int numLocals, int numParameters) {
+        this(instructions, numLocals, numParameters, false);
+    }
+
+    public CompiledFunctionObject(Instructions instructions, int numLocals, int numParameters,
+                                  boolean memoizable) {
         this.instructions = instructions;
         this.numLocals = numLocals;
         this.numParameters = numParameters;
+        this.memoizable = memoizable;
     }
 
     @Override
@@ -48,6 +56,10 @@ public class CompiledFunctionObject implements MonkeyObject {
         return numParameters;
     }
 
+    public boolean isMemoizable() {
+        return memoizable;
+    }
+
     @Override
     public HashKey hashKey() {
         return null; // 函數不可雜湊
@@ -2,14 +2,33 @@ package com.monkey.object;
 
 /**
  * ErrorObject 代表運行時錯誤
+ *
+ * 錯誤以格式模板和參數儲存，訊息在第一次讀取時才格式化:
+ * 錯誤通常只是沿著調用鏈向上傳遞，很多從未被顯示，不必為它們呼叫 String.format。
  */
 public class ErrorObject implements MonkeyObject {
-    private final String message;
+    private final String template;
+    private final Object[] args;
+    private String message;
 
     public ErrorObject(String message) {
+        this.template = message;
+        this.args = null;
         this.message = message;
     }
 
+    private ErrorObject(String template, Object[] args) {
+        this.template = template;
+        this.args = args;
+    }
+
+    /**
+     * 以 String.format 模板建立錯誤，訊息延遲到需要時才格式化
+     */
+    public static ErrorObject of(String template, Object... args) {
+        return new ErrorObject(template, args);
+    }
+
     @Override
     public ObjectType type() {
         return ObjectType.ERROR;
@@ -17,7 +36,7 @@ public class ErrorObject implements MonkeyObject {
 
     @Override
     public String inspect() {
-        return "ERROR: " + message;
+        return "ERROR: " + getMessage();
     }
 
     @Override
@@ -26,19 +45,36 @@ public class ErrorObject implements MonkeyObject {
     }
 
     public String getMessage() {
+        if (message == null) {
+            message = String.format(template, args);
+        }
         return message;
     }
 
+    /**
+     * 格式模板（不含參數的錯誤即為訊息本身）
+     */
+    public String getTemplate() {
+        return template;
+    }
+
+    /**
+     * 模板參數的副本，沒有參數時為空陣列
+     */
+    public Object[] getArgs() {
+        return args == null ? new Object[0] : args.clone();
+    }
+
     @Override
     public boolean equals(Object obj) {
         if (this == obj) return true;
         if (!(obj instanceof ErrorObject)) return false;
         ErrorObject other = (ErrorObject) obj;
-        return message.equals(other.message);
+        return getMessage().equals(other.getMessage());
     }
 
     @Override
     public int hashCode() {
-        return message.hashCode();
+        return getMessage().hashCode();
     }
 }
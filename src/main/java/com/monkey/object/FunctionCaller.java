@@ -0,0 +1,20 @@
+package com.monkey.object;
+
+/**
+ * FunctionCaller 讓高階內建函數（map、filter 等）回調 Monkey 函數
+ *
+ * 由當前的執行引擎提供: 求值器直接求值函數體，VM 在自己的堆疊和幀陣列上重入執行閉包。
+ * 回調的結果是錯誤物件時，內建函數應立即把它作為自己的結果返回。
+ */
+public interface FunctionCaller {
+
+    /**
+     * 以一個實參調用函數值
+     */
+    MonkeyObject call1(MonkeyObject fn, MonkeyObject arg);
+
+    /**
+     * 以兩個實參調用函數值
+     */
+    MonkeyObject call2(MonkeyObject fn, MonkeyObject first, MonkeyObject second);
+}
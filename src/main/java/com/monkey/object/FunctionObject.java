@@ -15,11 +15,18 @@ public class FunctionObject implements MonkeyObject {
     private final List<Identifier> parameters;
     private final BlockStatement body;
     private final Environment env;
+    // 函數幀的槽位名稱（參數在前，其後是函數體內的 let）
+    private final String[] localNames;
 
     public FunctionObject(List<Identifier> parameters, BlockStatement body, Environment env) {
+        this(parameters, body, env, parameters.stream().map(Identifier::getValue).toArray(String[]::new));
+    }
+
+    public FunctionObject(List<Identifier> parameters, BlockStatement body, Environment env, String[] localNames) {
         this.parameters = parameters;
         this.body = body;
         this.env = env;
+        this.localNames = localNames;
     }
 
     public List<Identifier> getParameters() {
@@ -34,6 +41,10 @@ public class FunctionObject implements MonkeyObject {
         return env;
     }
 
+    public String[] getLocalNames() {
+        return localNames;
+    }
+
     @Override
     public ObjectType type() {
         return ObjectType.FUNCTION;
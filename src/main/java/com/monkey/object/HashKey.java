@@ -3,34 +3,51 @@ import java.util.Objects;
 
 /**
  * HashKey 代表雜湊表的鍵
+ * 保存完整的鍵值: 整數和布爾值存於 value，字串存於 text；相等比較使用完整的值，
+ * 因此 0 與 2^32、以及 hashCode 相同的不同字串不會再被視為同一個鍵。
  */
 public class HashKey {
     private final ObjectType type;
-    private final long value;  // 改為 long
+    private final long value;
+    private final String text;
+    private final int hash;
 
-    public HashKey(ObjectType type, long value) {  // 改為 long
+    public HashKey(ObjectType type, long value) {
         this.type = type;
         this.value = value;
+        this.text = null;
+        this.hash = Objects.hash(type, value);
+    }
+
+    public HashKey(ObjectType type, String text) {
+        this.type = type;
+        this.value = 0;
+        this.text = text;
+        this.hash = Objects.hash(type, text);
     }
 
     public ObjectType getType() {
         return type;
     }
 
-    public long getValue() {  // 改為 long
+    public long getValue() {
         return value;
     }
 
+    public String getText() {
+        return text;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
         if (o == null || getClass() != o.getClass()) return false;
         HashKey hashKey = (HashKey) o;
-        return value == hashKey.value && type == hashKey.type;
+        return value == hashKey.value && type == hashKey.type && Objects.equals(text, hashKey.text);
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(type, value);
+        return hash;
     }
-}
\ No newline at end of file
+}
@@ -1,19 +1,55 @@
 package com.monkey.object;
+import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.stream.Collectors;
 
 /**
  * HashObject 代表雜湊表
+ * 鍵值對存放在 PersistentHashMap 中: 查找不分配 HashKey，put 返回共享結構的新雜湊表。
  */
 public class HashObject implements MonkeyObject {
-    private final Map<HashKey, HashPair> pairs;
+    private final PersistentHashMap pairs;
 
-    public HashObject(Map<HashKey, HashPair> pairs) {
+    public HashObject(PersistentHashMap pairs) {
         this.pairs = pairs;
     }
 
+    public HashObject(Map<HashKey, HashPair> pairs) {
+        PersistentHashMap map = PersistentHashMap.EMPTY;
+        for (HashPair pair : pairs.values()) {
+            map = map.put(pair.key, pair.value);
+        }
+        this.pairs = map;
+    }
+
+    /**
+     * 以 HashKey 為鍵的副本，供需要 java.util.Map 的呼叫者使用
+     * 熱路徑應使用 get(MonkeyObject)
+     */
     public Map<HashKey, HashPair> getPairs() {
-        return pairs;
+        Map<HashKey, HashPair> result = new LinkedHashMap<>();
+        for (HashPair pair : pairs.pairs()) {
+            result.put(pair.key.hashKey(), pair);
+        }
+        return result;
+    }
+
+    /**
+     * 查找鍵對應的鍵值對，不存在時返回 null
+     */
+    public HashPair get(MonkeyObject key) {
+        return pairs.get(key);
+    }
+
+    /**
+     * 返回插入（或替換）一個鍵值對後的新雜湊表，原雜湊表保持不變
+     */
+    public HashObject put(MonkeyObject key, MonkeyObject value) {
+        return new HashObject(pairs.put(key, value));
+    }
+
+    public int size() {
+        return pairs.size();
     }
 
     @Override
@@ -23,7 +59,7 @@ public class HashObject implements MonkeyObject {
 
     @Override
     public String inspect() {
-        String pairsStr = pairs.values().stream()
+        String pairsStr = pairs.pairs().stream()
                 .map(pair -> pair.key.inspect() + ": " + pair.value.inspect())
                 .collect(Collectors.joining(", "));
         return "{" + pairsStr + "}";
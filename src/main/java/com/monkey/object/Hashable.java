@@ -7,4 +7,10 @@ public interface Hashable {
      * 返回雜湊鍵
      */
     HashKey hashKey();
+
+    /**
+     * 返回雜湊值，供 PersistentHashMap 定位使用
+     * 只用於分桶，鍵是否相同仍需比較完整的值
+     */
+    int keyHash();
 }
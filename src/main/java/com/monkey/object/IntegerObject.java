@@ -4,14 +4,39 @@ import java.util.Objects;
 
 /**
  * IntegerObject 代表整數值
+ * [CACHE_LOW, CACHE_HIGH] 範圍內的整數由 valueOf 返回共享實例，
+ * 與 BooleanObject.TRUE/FALSE 一樣不需要重複分配。
  */
 public class IntegerObject implements MonkeyObject, Hashable {
+    public static final long CACHE_LOW = -128;
+    // 上限可由系統屬性 monkey.integerCache.high 調整，最少為 127
+    public static final long CACHE_HIGH = Math.max(127, Long.getLong("monkey.integerCache.high", 1023));
+
+    private static final IntegerObject[] CACHE = new IntegerObject[(int) (CACHE_HIGH - CACHE_LOW + 1)];
+
+    static {
+        for (int i = 0; i < CACHE.length; i++) {
+            CACHE[i] = new IntegerObject(CACHE_LOW + i);
+        }
+    }
+
     private final long value;
+    private HashKey hashKey;
 
     public IntegerObject(long value) {
         this.value = value;
     }
 
+    /**
+     * 返回代表該值的 IntegerObject，緩存範圍內的值返回共享實例
+     */
+    public static IntegerObject valueOf(long value) {
+        if (value >= CACHE_LOW && value <= CACHE_HIGH) {
+            return CACHE[(int) (value - CACHE_LOW)];
+        }
+        return new IntegerObject(value);
+    }
+
     public long getValue() {
         return value;
     }
@@ -28,7 +53,17 @@ public class IntegerObject implements MonkeyObject, Hashable {
 
     @Override
     public HashKey hashKey() {
-        return new HashKey(type(), (int) value);
+        HashKey key = hashKey;
+        if (key == null) {
+            key = new HashKey(type(), value);
+            hashKey = key;
+        }
+        return key;
+    }
+
+    @Override
+    public int keyHash() {
+        return Long.hashCode(value);
     }
 
     @Override
@@ -0,0 +1,251 @@
+package com.monkey.object;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * PersistentHashMap 雜湊陣列映射字典樹 (HAMT)
+ *
+ * 專為 Monkey 的雜湊鍵（整數、字串、布爾值）設計:
+ * - 查找直接比較鍵的值，不需要為每次訪問建立 HashKey
+ * - 插入只複製從根到目標位置的一條路徑，其餘節點在新舊版本之間共享
+ * - 完整雜湊值相同但鍵不同時放入衝突節點，以真正的相等比較區分
+ *
+ * 每層消耗雜湊值的 5 位，節點用 32 位 bitmap 壓縮存放子項。
+ */
+public final class PersistentHashMap {
+    private static final int BITS = 5;
+    private static final int MASK = (1 << BITS) - 1;
+
+    public static final PersistentHashMap EMPTY = new PersistentHashMap(0, BitmapNode.EMPTY);
+
+    private final int size;
+    private final Node root;
+
+    private PersistentHashMap(int size, Node root) {
+        this.size = size;
+        this.root = root;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * 查找鍵對應的鍵值對，不存在時返回 null
+     */
+    public HashObject.HashPair get(MonkeyObject key) {
+        return root.find(hash(key), key, 0);
+    }
+
+    /**
+     * 返回插入（或替換）一個鍵值對後的新映射，原映射保持不變
+     */
+    public PersistentHashMap put(MonkeyObject key, MonkeyObject value) {
+        Box added = new Box();
+        Node newRoot = root.assoc(hash(key), new HashObject.HashPair(key, value), 0, added);
+        if (newRoot == root) {
+            return this;
+        }
+        return new PersistentHashMap(added.value ? size + 1 : size, newRoot);
+    }
+
+    /**
+     * 所有鍵值對（順序由雜湊值決定）
+     */
+    public List<HashObject.HashPair> pairs() {
+        List<HashObject.HashPair> result = new ArrayList<>(size);
+        root.collect(result);
+        return result;
+    }
+
+    /**
+     * 鍵的雜湊值，由鍵自身計算（或取其緩存），不分配物件
+     */
+    static int hash(MonkeyObject key) {
+        if (key instanceof Hashable hashable) {
+            return hashable.keyHash();
+        }
+        return key.hashCode();
+    }
+
+    /**
+     * 鍵的相等比較: 類型相同且值相同
+     */
+    static boolean keyEquals(MonkeyObject a, MonkeyObject b) {
+        if (a == b) {
+            return true;
+        }
+        if (a instanceof IntegerObject x && b instanceof IntegerObject y) {
+            return x.getValue() == y.getValue();
+        }
+        if (a instanceof StringObject x && b instanceof StringObject y) {
+            return x.valueEquals(y);
+        }
+        if (a instanceof BooleanObject x && b instanceof BooleanObject y) {
+            return x.getValue() == y.getValue();
+        }
+        return false;
+    }
+
+    private static final class Box {
+        boolean value;
+    }
+
+    private abstract static class Node {
+        abstract HashObject.HashPair find(int hash, MonkeyObject key, int shift);
+
+        abstract Node assoc(int hash, HashObject.HashPair pair, int shift, Box added);
+
+        abstract void collect(List<HashObject.HashPair> out);
+    }
+
+    /**
+     * BitmapNode 以 bitmap 標記存在的子項，slots 中每一項是 HashPair 或子節點
+     */
+    private static final class BitmapNode extends Node {
+        static final BitmapNode EMPTY = new BitmapNode(0, new Object[0]);
+
+        final int bitmap;
+        final Object[] slots;
+
+        BitmapNode(int bitmap, Object[] slots) {
+            this.bitmap = bitmap;
+            this.slots = slots;
+        }
+
+        @Override
+        HashObject.HashPair find(int hash, MonkeyObject key, int shift) {
+            int bit = 1 << ((hash >>> shift) & MASK);
+            if ((bitmap & bit) == 0) {
+                return null;
+            }
+            Object slot = slots[Integer.bitCount(bitmap & (bit - 1))];
+            if (slot instanceof HashObject.HashPair pair) {
+                return keyEquals(pair.key, key) ? pair : null;
+            }
+            return ((Node) slot).find(hash, key, shift + BITS);
+        }
+
+        @Override
+        Node assoc(int hash, HashObject.HashPair pair, int shift, Box added) {
+            int bit = 1 << ((hash >>> shift) & MASK);
+            int index = Integer.bitCount(bitmap & (bit - 1));
+
+            if ((bitmap & bit) == 0) {
+                Object[] newSlots = new Object[slots.length + 1];
+                System.arraycopy(slots, 0, newSlots, 0, index);
+                newSlots[index] = pair;
+                System.arraycopy(slots, index, newSlots, index + 1, slots.length - index);
+                added.value = true;
+                return new BitmapNode(bitmap | bit, newSlots);
+            }
+
+            Object slot = slots[index];
+            Object replacement;
+            if (slot instanceof HashObject.HashPair existing) {
+                if (keyEquals(existing.key, pair.key)) {
+                    if (existing.value == pair.value) {
+                        return this;
+                    }
+                    replacement = pair;
+                } else {
+                    added.value = true;
+                    replacement = merge(existing, hash(existing.key), pair, hash, shift + BITS);
+                }
+            } else {
+                Node child = (Node) slot;
+                Node newChild = child.assoc(hash, pair, shift + BITS, added);
+                if (newChild == child) {
+                    return this;
+                }
+                replacement = newChild;
+            }
+
+            Object[] newSlots = slots.clone();
+            newSlots[index] = replacement;
+            return new BitmapNode(bitmap, newSlots);
+        }
+
+        @Override
+        void collect(List<HashObject.HashPair> out) {
+            for (Object slot : slots) {
+                if (slot instanceof HashObject.HashPair pair) {
+                    out.add(pair);
+                } else {
+                    ((Node) slot).collect(out);
+                }
+            }
+        }
+
+        /**
+         * 兩個鍵落在同一位置時建立下一層節點
+         */
+        private static Node merge(HashObject.HashPair a, int hashA, HashObject.HashPair b, int hashB, int shift) {
+            if (hashA == hashB) {
+                return new CollisionNode(hashA, new HashObject.HashPair[]{a, b});
+            }
+            int bitA = 1 << ((hashA >>> shift) & MASK);
+            int bitB = 1 << ((hashB >>> shift) & MASK);
+            if (bitA == bitB) {
+                return new BitmapNode(bitA, new Object[]{merge(a, hashA, b, hashB, shift + BITS)});
+            }
+            Object[] slots = Integer.compareUnsigned(bitA, bitB) < 0
+                    ? new Object[]{a, b}
+                    : new Object[]{b, a};
+            return new BitmapNode(bitA | bitB, slots);
+        }
+    }
+
+    /**
+     * CollisionNode 存放完整雜湊值相同的多個鍵，線性比較
+     */
+    private static final class CollisionNode extends Node {
+        final int hash;
+        final HashObject.HashPair[] pairs;
+
+        CollisionNode(int hash, HashObject.HashPair[] pairs) {
+            this.hash = hash;
+            this.pairs = pairs;
+        }
+
+        @Override
+        HashObject.HashPair find(int hash, MonkeyObject key, int shift) {
+            if (hash != this.hash) {
+                return null;
+            }
+            for (HashObject.HashPair pair : pairs) {
+                if (keyEquals(pair.key, key)) {
+                    return pair;
+                }
+            }
+            return null;
+        }
+
+        @Override
+        Node assoc(int hash, HashObject.HashPair pair, int shift, Box added) {
+            if (hash != this.hash) {
+                // 不同雜湊值: 在這一層放一個 bitmap 節點，把衝突節點作為它的子項
+                BitmapNode wrapper = new BitmapNode(1 << ((this.hash >>> shift) & MASK), new Object[]{this});
+                return wrapper.assoc(hash, pair, shift, added);
+            }
+            for (int i = 0; i < pairs.length; i++) {
+                if (keyEquals(pairs[i].key, pair.key)) {
+                    HashObject.HashPair[] newPairs = pairs.clone();
+                    newPairs[i] = pair;
+                    return new CollisionNode(hash, newPairs);
+                }
+            }
+            HashObject.HashPair[] newPairs = Arrays.copyOf(pairs, pairs.length + 1);
+            newPairs[pairs.length] = pair;
+            added.value = true;
+            return new CollisionNode(hash, newPairs);
+        }
+
+        @Override
+        void collect(List<HashObject.HashPair> out) {
+            out.addAll(Arrays.asList(pairs));
+        }
+    }
+}
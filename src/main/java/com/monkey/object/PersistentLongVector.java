@@ -0,0 +1,125 @@
+package com.monkey.object;
+
+import java.util.Arrays;
+
+/**
+ * PersistentLongVector 元素全為整數時使用的持久化向量
+ *
+ * 結構與 PersistentVector 相同（分支因子 32 的字典樹加 tail），
+ * 但葉節點和 tail 是 long[]，每個元素只佔 8 字節，不需要 IntegerObject。
+ */
+public final class PersistentLongVector {
+    private static final int BITS = 5;
+    private static final int WIDTH = 1 << BITS;
+    private static final int MASK = WIDTH - 1;
+
+    private static final Object[] EMPTY_NODE = new Object[WIDTH];
+    public static final PersistentLongVector EMPTY = new PersistentLongVector(0, BITS, EMPTY_NODE, new long[0]);
+
+    private final int size;
+    private final int shift;
+    private final Object[] root;
+    private final long[] tail;
+
+    private PersistentLongVector(int size, int shift, Object[] root, long[] tail) {
+        this.size = size;
+        this.shift = shift;
+        this.root = root;
+        this.tail = tail;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public long get(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("index " + index + " out of bounds for size " + size);
+        }
+        return leafFor(index)[index & MASK];
+    }
+
+    /**
+     * 返回在末尾追加一個元素後的新向量，原向量保持不變
+     */
+    public PersistentLongVector conj(long value) {
+        // tail 未滿: 只複製 tail
+        if (size - tailOffset() < WIDTH) {
+            long[] newTail = Arrays.copyOf(tail, tail.length + 1);
+            newTail[tail.length] = value;
+            return new PersistentLongVector(size + 1, shift, root, newTail);
+        }
+
+        // tail 已滿: 把它掛進字典樹，再開始新的 tail
+        Object[] newRoot;
+        int newShift = shift;
+        if ((size >>> BITS) > (1 << shift)) {
+            // 根節點已滿，樹長高一層
+            newRoot = new Object[WIDTH];
+            newRoot[0] = root;
+            newRoot[1] = newPath(shift, tail);
+            newShift += BITS;
+        } else {
+            newRoot = pushTail(shift, root, tail);
+        }
+        return new PersistentLongVector(size + 1, newShift, newRoot, new long[]{value});
+    }
+
+    /**
+     * 轉換為存放 IntegerObject 的通用向量（陣列中出現非整數元素時使用）
+     */
+    public PersistentVector widen(int from, int to) {
+        PersistentVector vector = PersistentVector.EMPTY;
+        for (int i = from; i < to; i++) {
+            vector = vector.conj(IntegerObject.valueOf(get(i)));
+        }
+        return vector;
+    }
+
+    /**
+     * 第一個存放於 tail 的元素索引
+     */
+    private int tailOffset() {
+        if (size < WIDTH) {
+            return 0;
+        }
+        return ((size - 1) >>> BITS) << BITS;
+    }
+
+    private long[] leafFor(int index) {
+        if (index >= tailOffset()) {
+            return tail;
+        }
+        Object[] node = root;
+        for (int level = shift; level > BITS; level -= BITS) {
+            node = (Object[]) node[(index >>> level) & MASK];
+        }
+        return (long[]) node[(index >>> BITS) & MASK];
+    }
+
+    private Object[] pushTail(int level, Object[] parent, long[] tailNode) {
+        int subIndex = ((size - 1) >>> level) & MASK;
+        Object[] result = parent.clone();
+
+        Object nodeToInsert;
+        if (level == BITS) {
+            nodeToInsert = tailNode;
+        } else {
+            Object[] child = (Object[]) parent[subIndex];
+            nodeToInsert = child != null
+                    ? pushTail(level - BITS, child, tailNode)
+                    : newPath(level - BITS, tailNode);
+        }
+        result[subIndex] = nodeToInsert;
+        return result;
+    }
+
+    private static Object newPath(int level, long[] node) {
+        if (level == 0) {
+            return node;
+        }
+        Object[] path = new Object[WIDTH];
+        path[0] = newPath(level - BITS, node);
+        return path;
+    }
+}
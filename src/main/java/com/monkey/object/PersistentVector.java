@@ -0,0 +1,127 @@
+package com.monkey.object;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * PersistentVector 不可變的持久化向量（位分區字典樹）
+ *
+ * 元素存放在分支因子為 32 的字典樹葉節點中，最後一段另存於 tail。
+ * 追加只複製 tail 或一條從根到葉的路徑，其餘節點在新舊版本之間共享，
+ * 因此 conj 與 get 都是 O(log32 n)，實際上接近 O(1)。
+ */
+public final class PersistentVector {
+    private static final int BITS = 5;
+    private static final int WIDTH = 1 << BITS;
+    private static final int MASK = WIDTH - 1;
+
+    private static final Object[] EMPTY_NODE = new Object[WIDTH];
+    public static final PersistentVector EMPTY = new PersistentVector(0, BITS, EMPTY_NODE, new Object[0]);
+
+    private final int size;
+    private final int shift;
+    private final Object[] root;
+    private final Object[] tail;
+
+    private PersistentVector(int size, int shift, Object[] root, Object[] tail) {
+        this.size = size;
+        this.shift = shift;
+        this.root = root;
+        this.tail = tail;
+    }
+
+    /**
+     * 由列表依序建立向量
+     */
+    public static PersistentVector of(List<MonkeyObject> elements) {
+        PersistentVector vector = EMPTY;
+        for (MonkeyObject element : elements) {
+            vector = vector.conj(element);
+        }
+        return vector;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public MonkeyObject get(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("index " + index + " out of bounds for size " + size);
+        }
+        return (MonkeyObject) leafFor(index)[index & MASK];
+    }
+
+    /**
+     * 返回在末尾追加一個元素後的新向量，原向量保持不變
+     */
+    public PersistentVector conj(MonkeyObject value) {
+        // tail 未滿: 只複製 tail
+        if (size - tailOffset() < WIDTH) {
+            Object[] newTail = Arrays.copyOf(tail, tail.length + 1);
+            newTail[tail.length] = value;
+            return new PersistentVector(size + 1, shift, root, newTail);
+        }
+
+        // tail 已滿: 把它掛進字典樹，再開始新的 tail
+        Object[] newRoot;
+        int newShift = shift;
+        if ((size >>> BITS) > (1 << shift)) {
+            // 根節點已滿，樹長高一層
+            newRoot = new Object[WIDTH];
+            newRoot[0] = root;
+            newRoot[1] = newPath(shift, tail);
+            newShift += BITS;
+        } else {
+            newRoot = pushTail(shift, root, tail);
+        }
+        return new PersistentVector(size + 1, newShift, newRoot, new Object[]{value});
+    }
+
+    /**
+     * 第一個存放於 tail 的元素索引
+     */
+    private int tailOffset() {
+        if (size < WIDTH) {
+            return 0;
+        }
+        return ((size - 1) >>> BITS) << BITS;
+    }
+
+    private Object[] leafFor(int index) {
+        if (index >= tailOffset()) {
+            return tail;
+        }
+        Object[] node = root;
+        for (int level = shift; level > 0; level -= BITS) {
+            node = (Object[]) node[(index >>> level) & MASK];
+        }
+        return node;
+    }
+
+    private Object[] pushTail(int level, Object[] parent, Object[] tailNode) {
+        int subIndex = ((size - 1) >>> level) & MASK;
+        Object[] result = parent.clone();
+
+        Object[] nodeToInsert;
+        if (level == BITS) {
+            nodeToInsert = tailNode;
+        } else {
+            Object[] child = (Object[]) parent[subIndex];
+            nodeToInsert = child != null
+                    ? pushTail(level - BITS, child, tailNode)
+                    : newPath(level - BITS, tailNode);
+        }
+        result[subIndex] = nodeToInsert;
+        return result;
+    }
+
+    private static Object[] newPath(int level, Object[] node) {
+        if (level == 0) {
+            return node;
+        }
+        Object[] path = new Object[WIDTH];
+        path[0] = newPath(level - BITS, node);
+        return path;
+    }
+}
@@ -1,18 +1,268 @@
 package com.monkey.object;
 
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Arrays;
 import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * StringObject 代表字串值
+ *
+ * 編譯期常量和字串字面值經 intern 駐留，相同內容共享同一實例；
+ * 運行時產生的短字串（不超過 INTERN_MAX_LENGTH）經 valueOf 也會駐留。
+ * 兩個駐留字串相等當且僅當它們是同一實例，因此字串比較大多只需比較指針。
+ *
+ * 較長的字串連接結果以繩 (rope) 表示: 只記錄左右兩段，O(1) 完成連接，
+ * 第一次需要內容（inspect、雜湊、逐字比較）時才展平成 String，之後釋放左右兩段。
+ *
+ * 宿主傳入的大段文本可經 fromLatin1 / fromUtf8 以位元組切片表示: 直接引用呼叫者的緩衝區，
+ * 每個位元組是一個字元（Latin-1，純 ASCII 的 UTF-8 同樣適用），substring 只建立新的切片。
+ * 雜湊和相等比較直接在位元組上進行，結果與內容相同的 String 表示一致。
+ *
+ * len 的語義: 字元數（UTF-16 代碼單元數），與表示方式無關；位元組切片的字元數即位元組數。
  */
 public class StringObject implements MonkeyObject, Hashable {
-    private final String value;
+    // 運行時駐留的長度上限，可由系統屬性 monkey.stringIntern.maxLength 調整，0 表示只駐留常量
+    public static final int INTERN_MAX_LENGTH = Integer.getInteger("monkey.stringIntern.maxLength", 16);
+    // 連接結果短於此長度時直接複製，不建立繩節點
+    private static final int ROPE_MIN_LENGTH = 64;
+    // 駐留表的容量上限，超過後新字串不再駐留，避免長時間運行的程序無限增長
+    private static final int INTERN_TABLE_LIMIT = 1 << 16;
+    private static final ConcurrentHashMap<String, StringObject> INTERNED = new ConcurrentHashMap<>();
+
+    // 展平後的內容；繩節點在展平前為 null。先寫 flat 再清空 left/right，讀者據此判斷
+    private volatile String flat;
+    private volatile StringObject left;
+    private volatile StringObject right;
+    // 位元組切片: bytes[byteOffset, byteOffset + length)，每個位元組為一個 Latin-1 字元
+    private final byte[] bytes;
+    private final int byteOffset;
+    private final int length;
+    private final boolean interned;
+    private int hash;
+    private HashKey hashKey;
 
     public StringObject(String value) {
-        this.value = value;
+        this(value, false);
+    }
+
+    private StringObject(String value, boolean interned) {
+        this.flat = value;
+        this.bytes = null;
+        this.byteOffset = 0;
+        this.length = value.length();
+        this.interned = interned;
+    }
+
+    private StringObject(byte[] bytes, int byteOffset, int length) {
+        this.bytes = bytes;
+        this.byteOffset = byteOffset;
+        this.length = length;
+        this.interned = false;
+    }
+
+    private StringObject(StringObject left, StringObject right) {
+        this.left = left;
+        this.right = right;
+        this.bytes = null;
+        this.byteOffset = 0;
+        // 超出 String 的長度上限時拋出，而不是得到負數長度
+        this.length = Math.addExact(left.length, right.length);
+        this.interned = false;
+    }
+
+    /**
+     * 返回該內容的駐留實例
+     */
+    public static StringObject intern(String value) {
+        StringObject existing = INTERNED.get(value);
+        if (existing != null) {
+            return existing;
+        }
+        if (INTERNED.size() >= INTERN_TABLE_LIMIT) {
+            return new StringObject(value);
+        }
+        return INTERNED.computeIfAbsent(value, v -> new StringObject(v, true));
+    }
+
+    /**
+     * 運行時建立字串: 短字串駐留，其餘直接分配
+     */
+    public static StringObject valueOf(String value) {
+        if (value.length() <= INTERN_MAX_LENGTH) {
+            return intern(value);
+        }
+        return new StringObject(value);
+    }
+
+    /**
+     * 以 Latin-1 位元組建立字串，與呼叫者共享緩衝區（呼叫者不得再修改該範圍）
+     */
+    public static StringObject fromLatin1(byte[] data, int offset, int length) {
+        Objects.checkFromIndexSize(offset, length, data.length);
+        return new StringObject(data, offset, length);
+    }
+
+    /**
+     * 以 UTF-8 位元組建立字串
+     * 全為 ASCII 時與緩衝區共享；含多位元組字元時需要解碼為 String（複製）
+     */
+    public static StringObject fromUtf8(byte[] data, int offset, int length) {
+        Objects.checkFromIndexSize(offset, length, data.length);
+        for (int i = offset; i < offset + length; i++) {
+            if (data[i] < 0) {
+                return new StringObject(new String(data, offset, length, StandardCharsets.UTF_8));
+            }
+        }
+        return new StringObject(data, offset, length);
+    }
+
+    /**
+     * 返回 [from, to) 範圍的子字串，位元組切片不複製內容
+     */
+    public StringObject substring(int from, int to) {
+        Objects.checkFromToIndex(from, to, length);
+        if (bytes != null) {
+            return new StringObject(bytes, byteOffset + from, to - from);
+        }
+        return valueOf(getValue().substring(from, to));
+    }
+
+    /**
+     * 連接兩個字串
+     * 短結果直接複製；否則建立 O(1) 的繩節點，內容延遲到需要時才展平
+     */
+    public static StringObject concat(StringObject left, StringObject right) {
+        if (left.length == 0) {
+            return right;
+        }
+        if (right.length == 0) {
+            return left;
+        }
+        if (left.length + right.length < ROPE_MIN_LENGTH) {
+            return valueOf(left.getValue() + right.getValue());
+        }
+        return new StringObject(left, right);
     }
 
     public String getValue() {
+        String value = flat;
+        if (value == null) {
+            // 位元組切片每次解碼，不緩存，以免大段文本佔用雙倍內存
+            value = bytes != null ? decodeBytes() : flatten();
+        }
+        return value;
+    }
+
+    /**
+     * 字串長度，不需要展平
+     */
+    public int length() {
+        return length;
+    }
+
+    public boolean isInterned() {
+        return interned;
+    }
+
+    /**
+     * 是否仍是未展平的繩節點
+     */
+    public boolean isRope() {
+        return flat == null && bytes == null;
+    }
+
+    /**
+     * 是否以位元組切片表示
+     */
+    public boolean isBytes() {
+        return bytes != null;
+    }
+
+    /**
+     * 比較字串內容
+     * 同一實例或兩者皆駐留時只比較指針；否則先比較長度和緩存的雜湊值，再逐字比較
+     */
+    public boolean valueEquals(StringObject other) {
+        if (this == other) {
+            return true;
+        }
+        if (interned && other.interned) {
+            return false;
+        }
+        if (length != other.length) {
+            return false;
+        }
+        if (keyHash() != other.keyHash()) {
+            return false;
+        }
+        if (bytes != null && other.bytes != null) {
+            return Arrays.equals(bytes, byteOffset, byteOffset + length,
+                    other.bytes, other.byteOffset, other.byteOffset + length);
+        }
+        if (bytes != null) {
+            return bytesEqual(other.getValue());
+        }
+        if (other.bytes != null) {
+            return other.bytesEqual(getValue());
+        }
+        return getValue().equals(other.getValue());
+    }
+
+    private boolean bytesEqual(String value) {
+        for (int i = 0; i < length; i++) {
+            if ((char) (bytes[byteOffset + i] & 0xff) != value.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private String decodeBytes() {
+        return new String(bytes, byteOffset, length, StandardCharsets.ISO_8859_1);
+    }
+
+    /**
+     * 以顯式棧依序收集葉節點，避免 acc + piece 形成的深層繩導致棧溢出
+     */
+    private synchronized String flatten() {
+        String value = flat;
+        if (value != null) {
+            return value;
+        }
+
+        StringBuilder sb = new StringBuilder(length);
+        ArrayDeque<StringObject> stack = new ArrayDeque<>();
+        stack.push(this);
+        while (!stack.isEmpty()) {
+            StringObject node = stack.pop();
+            String leaf = node.flat;
+            if (leaf != null) {
+                sb.append(leaf);
+                continue;
+            }
+            if (node.bytes != null) {
+                for (int i = 0; i < node.length; i++) {
+                    sb.append((char) (node.bytes[node.byteOffset + i] & 0xff));
+                }
+                continue;
+            }
+            StringObject l = node.left;
+            StringObject r = node.right;
+            if (l == null) {
+                // 其他線程剛展平了這個節點
+                sb.append(node.flat);
+                continue;
+            }
+            stack.push(r);
+            stack.push(l);
+        }
+
+        value = sb.toString();
+        flat = value;
+        left = null;
+        right = null;
         return value;
     }
 
@@ -23,24 +273,45 @@ public class StringObject implements MonkeyObject, Hashable {
 
     @Override
     public String inspect() {
-        return value;
+        return getValue();
     }
 
     @Override
     public HashKey hashKey() {
-        return new HashKey(type(), value.hashCode());
+        HashKey key = hashKey;
+        if (key == null) {
+            key = new HashKey(type(), getValue());
+            hashKey = key;
+        }
+        return key;
+    }
+
+    @Override
+    public int keyHash() {
+        int h = hash;
+        if (h == 0) {
+            if (bytes != null) {
+                // 與 String.hashCode 相同的算法，直接作用於位元組
+                for (int i = 0; i < length; i++) {
+                    h = 31 * h + (bytes[byteOffset + i] & 0xff);
+                }
+            } else {
+                h = getValue().hashCode();
+            }
+            hash = h;
+        }
+        return h;
     }
 
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
         if (o == null || getClass() != o.getClass()) return false;
-        StringObject that = (StringObject) o;
-        return Objects.equals(value, that.value);
+        return valueEquals((StringObject) o);
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(value);
+        return keyHash();
     }
 }
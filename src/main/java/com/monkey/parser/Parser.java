@@ -19,24 +19,36 @@ public class Parser {
 
     // 運算符優先級
     private static final int LOWEST = 1;
-    private static final int EQUALS = 2;      // ==
-    private static final int LESSGREATER = 3; // > or <
-    private static final int SUM = 4;         // +
-    private static final int PRODUCT = 5;     // *
-    private static final int PREFIX = 6;      // -X or !X
-    private static final int CALL = 7;        // myFunction(X)
+    private static final int LOGICAL_OR = 2;  // ||
+    private static final int LOGICAL_AND = 3; // &&
+    private static final int EQUALS = 4;      // ==
+    private static final int LESSGREATER = 5; // > or < or >= or <=
+    private static final int SUM = 6;         // + - | ^
+    private static final int PRODUCT = 7;     // * / % & << >>
+    private static final int PREFIX = 8;      // -X or !X
+    private static final int CALL = 9;        // myFunction(X)
 
     // 優先級映射表
     private static final Map<TokenType, Integer> PRECEDENCES = new HashMap<>();
     static {
+        PRECEDENCES.put(TokenType.OR, LOGICAL_OR);
+        PRECEDENCES.put(TokenType.AND, LOGICAL_AND);
         PRECEDENCES.put(TokenType.EQ, EQUALS);
         PRECEDENCES.put(TokenType.NOT_EQ, EQUALS);
         PRECEDENCES.put(TokenType.LT, LESSGREATER);
         PRECEDENCES.put(TokenType.GT, LESSGREATER);
+        PRECEDENCES.put(TokenType.LT_EQ, LESSGREATER);
+        PRECEDENCES.put(TokenType.GT_EQ, LESSGREATER);
         PRECEDENCES.put(TokenType.PLUS, SUM);
         PRECEDENCES.put(TokenType.MINUS, SUM);
+        PRECEDENCES.put(TokenType.PIPE, SUM);
+        PRECEDENCES.put(TokenType.CARET, SUM);
         PRECEDENCES.put(TokenType.SLASH, PRODUCT);
         PRECEDENCES.put(TokenType.ASTERISK, PRODUCT);
+        PRECEDENCES.put(TokenType.PERCENT, PRODUCT);
+        PRECEDENCES.put(TokenType.AMPERSAND, PRODUCT);
+        PRECEDENCES.put(TokenType.SHIFT_LEFT, PRODUCT);
+        PRECEDENCES.put(TokenType.SHIFT_RIGHT, PRODUCT);
         PRECEDENCES.put(TokenType.LPAREN, CALL);
         PRECEDENCES.put(TokenType.LBRACKET, CALL);
     }
@@ -76,6 +88,16 @@ public class Parser {
         registerInfix(TokenType.NOT_EQ, this::parseInfixExpression);
         registerInfix(TokenType.LT, this::parseInfixExpression);
         registerInfix(TokenType.GT, this::parseInfixExpression);
+        registerInfix(TokenType.LT_EQ, this::parseInfixExpression);
+        registerInfix(TokenType.GT_EQ, this::parseInfixExpression);
+        registerInfix(TokenType.PERCENT, this::parseInfixExpression);
+        registerInfix(TokenType.AMPERSAND, this::parseInfixExpression);
+        registerInfix(TokenType.PIPE, this::parseInfixExpression);
+        registerInfix(TokenType.CARET, this::parseInfixExpression);
+        registerInfix(TokenType.SHIFT_LEFT, this::parseInfixExpression);
+        registerInfix(TokenType.SHIFT_RIGHT, this::parseInfixExpression);
+        registerInfix(TokenType.AND, this::parseInfixExpression);
+        registerInfix(TokenType.OR, this::parseInfixExpression);
         registerInfix(TokenType.LPAREN, this::parseCallExpression);
         registerInfix(TokenType.LBRACKET, this::parseIndexExpression);
 
@@ -159,6 +181,8 @@ public class Parser {
         return switch (curToken.getType()) {
             case LET -> parseLetStatement();
             case RETURN -> parseReturnStatement();
+            case WHILE -> parseWhileStatement();
+            case IDENT -> peekTokenIs(TokenType.ASSIGN) ? parseAssignStatement() : parseExpressionStatement();
             default -> parseExpressionStatement();
         };
     }
@@ -201,6 +225,49 @@ public class Parser {
         return stmt;
     }
 
+    private AssignStatement parseAssignStatement() {
+        AssignStatement stmt = new AssignStatement(curToken);
+        stmt.setName(new Identifier(curToken, curToken.getLiteral()));
+
+        nextToken();
+        nextToken();
+
+        stmt.setValue(parseExpression(LOWEST));
+
+        if (peekTokenIs(TokenType.SEMICOLON)) {
+            nextToken();
+        }
+
+        return stmt;
+    }
+
+    private WhileStatement parseWhileStatement() {
+        WhileStatement stmt = new WhileStatement(curToken);
+
+        if (!expectPeek(TokenType.LPAREN)) {
+            return null;
+        }
+
+        nextToken();
+        stmt.setCondition(parseExpression(LOWEST));
+
+        if (!expectPeek(TokenType.RPAREN)) {
+            return null;
+        }
+
+        if (!expectPeek(TokenType.LBRACE)) {
+            return null;
+        }
+
+        stmt.setBody(parseBlockStatement());
+
+        if (peekTokenIs(TokenType.SEMICOLON)) {
+            nextToken();
+        }
+
+        return stmt;
+    }
+
     private ExpressionStatement parseExpressionStatement() {
         ExpressionStatement stmt = new ExpressionStatement(curToken);
 
@@ -18,7 +18,8 @@ public class Token {
             "false", TokenType.FALSE,
             "if", TokenType.IF,
             "else", TokenType.ELSE,
-            "return", TokenType.RETURN
+            "return", TokenType.RETURN,
+            "while", TokenType.WHILE
     );
 
     public Token(TokenType type, String literal) {
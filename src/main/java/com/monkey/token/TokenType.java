@@ -20,13 +20,25 @@ public enum TokenType {
     BANG("!"),
     ASTERISK("*"),
     SLASH("/"),
+    PERCENT("%"),
+
+    AMPERSAND("&"),
+    PIPE("|"),
+    CARET("^"),
+    SHIFT_LEFT("<<"),
+    SHIFT_RIGHT(">>"),
 
     LT("<"),
     GT(">"),
+    LT_EQ("<="),
+    GT_EQ(">="),
 
     EQ("=="),
     NOT_EQ("!="),
 
+    AND("&&"),
+    OR("||"),
+
     // 分隔符
     COMMA(","),
     SEMICOLON(";"),
@@ -46,7 +58,8 @@ public enum TokenType {
     FALSE("FALSE"),
     IF("IF"),
     ELSE("ELSE"),
-    RETURN("RETURN");
+    RETURN("RETURN"),
+    WHILE("WHILE");
 
     private final String literal;
 
@@ -11,6 +11,7 @@ public class Frame {
     private final ClosureObject cl;  // Chapter 9: 改為存儲閉包而不是函數
     public int ip;
     public final int basePointer;
+    public MemoCache.Key memoKey;    // 非 null 時，返回值需寫入記憶化快取
 
     public Frame(ClosureObject cl, int basePointer) {
         this.cl = cl;
@@ -0,0 +1,124 @@
+package com.monkey.vm;
+
+import com.monkey.object.CompiledFunctionObject;
+import com.monkey.object.MonkeyObject;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * MemoCache 純函數調用結果的有界快取 (LRU)
+ *
+ * 鍵為「函數 + 參數值」，參數只允許整數或字串（值相等即視為同一個鍵）。
+ * 超過容量時淘汰最久未使用的項目，並記錄命中、未命中與淘汰次數。
+ */
+public class MemoCache {
+    public static final int DEFAULT_CAPACITY = 4096;
+
+    private final int capacity;
+    private final LinkedHashMap<Key, MonkeyObject> entries;
+
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    public MemoCache() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public MemoCache(int capacity) {
+        this.capacity = capacity;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, MonkeyObject> eldest) {
+                if (size() > MemoCache.this.capacity) {
+                    evictions++;
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * 查找快取，未命中返回 null
+     */
+    public MonkeyObject get(Key key) {
+        MonkeyObject value = entries.get(key);
+        if (value == null) {
+            misses++;
+        } else {
+            hits++;
+        }
+        return value;
+    }
+
+    public void put(Key key, MonkeyObject value) {
+        if (capacity > 0) {
+            entries.put(key, value);
+        }
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public long getHits() {
+        return hits;
+    }
+
+    public long getMisses() {
+        return misses;
+    }
+
+    public long getEvictions() {
+        return evictions;
+    }
+
+    /**
+     * 命中率 (0.0 ~ 1.0)
+     */
+    public double hitRate() {
+        long lookups = hits + misses;
+        return lookups == 0 ? 0.0 : (double) hits / lookups;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("MemoCache{size=%d, hits=%d, misses=%d, evictions=%d, hitRate=%.2f}",
+                size(), hits, misses, evictions, hitRate());
+    }
+
+    /**
+     * Key 快取鍵: 函數以身份比較，參數以值比較
+     */
+    public static final class Key {
+        private final CompiledFunctionObject fn;
+        private final MonkeyObject[] args;
+        private final int hash;
+
+        public Key(CompiledFunctionObject fn, MonkeyObject[] args) {
+            this.fn = fn;
+            this.args = args;
+            this.hash = 31 * System.identityHashCode(fn) + Arrays.hashCode(args);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key)) return false;
+            Key other = (Key) o;
+            return fn == other.fn && Arrays.equals(args, other.args);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
@@ -16,9 +16,10 @@ public class VM {
     private static final int GLOBALS_SIZE = 65536;
     private static final int MAX_FRAMES = 1024;
 
-    public static final BooleanObject TRUE = new BooleanObject(true);
-    public static final BooleanObject FALSE = new BooleanObject(false);
-    public static final NullObject NULL = new NullObject();
+    // 與編譯器提升的常量、內建函數和宿主傳入的值是同一批實例，真值判斷和比較按身份進行
+    public static final BooleanObject TRUE = BooleanObject.TRUE;
+    public static final BooleanObject FALSE = BooleanObject.FALSE;
+    public static final NullObject NULL = NullObject.NULL;
 
     private final List<MonkeyObject> constants;
     private final MonkeyObject[] stack;
@@ -28,6 +29,12 @@ public class VM {
     private final Frame[] frames;
     private int framesIndex;
 
+    // 純遞迴函數的記憶化快取
+    private MemoCache memoCache = new MemoCache();
+
+    // 高階內建函數經由它在本 VM 的堆疊上回調閉包
+    private final FunctionCaller caller = new Callbacks();
+
     public VM(Bytecode bytecode) {
         this(bytecode, new MonkeyObject[GLOBALS_SIZE]);
     }
@@ -77,12 +84,33 @@ public class VM {
         return globals;
     }
 
+    /**
+     * 獲取記憶化快取（可查看命中率與淘汰次數）
+     */
+    public MemoCache getMemoCache() {
+        return memoCache;
+    }
+
+    /**
+     * 設置記憶化快取容量，0 表示停用記憶化
+     */
+    public void setMemoCapacity(int capacity) {
+        this.memoCache = new MemoCache(capacity);
+    }
+
     public void run() throws VMException {
+        execute(0);
+    }
+
+    /**
+     * 指令分派迴圈，執行到幀數降回 exitFrames（重入調用的閉包已返回）或主函數結束為止
+     */
+    private void execute(int exitFrames) throws VMException {
         int ip;
         Instructions ins;
         Opcode op;
 
-        while (currentFrame().ip < currentFrame().instructions().size() - 1) {
+        while (framesIndex > exitFrames && currentFrame().ip < currentFrame().instructions().size() - 1) {
             currentFrame().ip++;
 
             ip = currentFrame().ip;
@@ -103,6 +131,12 @@ public class VM {
                 case OP_SUB:
                 case OP_MUL:
                 case OP_DIV:
+                case OP_MOD:
+                case OP_BIT_AND:
+                case OP_BIT_OR:
+                case OP_BIT_XOR:
+                case OP_SHIFT_LEFT:
+                case OP_SHIFT_RIGHT:
                     executeBinaryOperation(op);
                     break;
 
@@ -117,6 +151,9 @@ public class VM {
                 case OP_EQUAL:
                 case OP_NOT_EQUAL:
                 case OP_GREATER_THAN:
+                case OP_LESS_THAN:
+                case OP_GREATER_EQUAL:
+                case OP_LESS_EQUAL:
                     executeComparison(op);
                     break;
 
@@ -149,6 +186,22 @@ public class VM {
                     }
                     break;
 
+                case OP_JUMP_NOT_TRUTHY_OR_POP:
+                case OP_JUMP_TRUTHY_OR_POP:
+                    pos = Instructions.readUint16(new byte[]{
+                            ins.get(ip + 1),
+                            ins.get(ip + 2)
+                    });
+                    currentFrame().ip += 2;
+
+                    boolean jumpWhenTruthy = op == Opcode.OP_JUMP_TRUTHY_OR_POP;
+                    if (isTruthy(stack[sp - 1]) == jumpWhenTruthy) {
+                        currentFrame().ip = pos - 1;
+                    } else {
+                        pop();
+                    }
+                    break;
+
                 case OP_NULL:
                     push(NULL);
                     break;
@@ -159,7 +212,7 @@ public class VM {
                             ins.get(ip + 2)
                     });
                     currentFrame().ip += 2;
-                    globals[globalIndex] = pop();
+                    globals[globalIndex] = retain(pop());
                     break;
 
                 case OP_GET_GLOBAL:
@@ -212,6 +265,9 @@ public class VM {
 
                     Frame frame = popFrame();
                     sp = frame.basePointer - 1;
+                    if (frame.memoKey != null) {
+                        memoCache.put(frame.memoKey, returnValue);
+                    }
 
                     push(returnValue);
                     break;
@@ -219,6 +275,9 @@ public class VM {
                 case OP_RETURN:
                     frame = popFrame();
                     sp = frame.basePointer - 1;
+                    if (frame.memoKey != null) {
+                        memoCache.put(frame.memoKey, NULL);
+                    }
 
                     push(NULL);
                     break;
@@ -243,7 +302,7 @@ public class VM {
                     int builtinIndex = ins.get(ip + 1) & 0xFF;
                     currentFrame().ip += 1;
 
-                    BuiltinObject builtin = Builtins.BUILTINS[builtinIndex].builtin;
+                    BuiltinObject builtin = Builtins.get(builtinIndex);
                     push(builtin);
                     break;
 
@@ -271,6 +330,33 @@ public class VM {
                 case OP_POP:
                     pop();
                     break;
+
+                // 類型特化: 運算元已由編譯器證明為整數
+                case OP_ADD_INT:
+                case OP_SUB_INT:
+                case OP_MUL_INT:
+                case OP_DIV_INT:
+                case OP_MOD_INT:
+                    executeSpecializedArithmetic(op);
+                    break;
+
+                case OP_EQUAL_INT:
+                case OP_NOT_EQUAL_INT:
+                case OP_GREATER_THAN_INT:
+                case OP_LESS_THAN_INT:
+                case OP_GREATER_EQUAL_INT:
+                case OP_LESS_EQUAL_INT:
+                    executeSpecializedComparison(op);
+                    break;
+
+                case OP_MINUS_INT:
+                    if (stack[sp - 1] instanceof IntegerObject operand) {
+                        sp--;
+                        push(IntegerObject.valueOf(-operand.getValue()));
+                    } else {
+                        executeMinusOperator();
+                    }
+                    break;
             }
         }
     }
@@ -324,21 +410,68 @@ public class VM {
             );
         }
 
+        MemoCache.Key memoKey = null;
+        if (cl.getFn().isMemoizable() && memoCache.getCapacity() > 0) {
+            memoKey = memoKeyFor(cl.getFn(), numArgs);
+            if (memoKey != null) {
+                MonkeyObject cached = memoCache.get(memoKey);
+                if (cached != null) {
+                    sp = sp - numArgs - 1;
+                    push(cached);
+                    return;
+                }
+            }
+        }
+
         Frame frame = new Frame(cl, sp - numArgs);
+        frame.memoKey = memoKey;
         pushFrame(frame);
 
         sp = frame.basePointer + cl.getFn().getNumLocals();
     }
 
-    private void executeBuiltinFunction(BuiltinObject builtin, int numArgs) throws VMException {
+    /**
+     * 建立記憶化快取鍵，參數中有非整數 / 字串時返回 null（不記憶化）
+     * 未展平的繩字串也不記憶化: 計算鍵會迫使展平，快取還會長期持有大字串
+     */
+    private MemoCache.Key memoKeyFor(CompiledFunctionObject fn, int numArgs) {
         MonkeyObject[] args = new MonkeyObject[numArgs];
         for (int i = 0; i < numArgs; i++) {
-            args[i] = stack[sp - numArgs + i];
+            MonkeyObject arg = stack[sp - numArgs + i];
+            if (!(arg instanceof IntegerObject) && !(arg instanceof StringObject)) {
+                return null;
+            }
+            if (arg instanceof StringObject str && str.isRope()) {
+                return null;
+            }
+            args[i] = arg;
         }
+        return new MemoCache.Key(fn, args);
+    }
 
-        MonkeyObject result = builtin.getFn().apply(args);
+    /**
+     * 調用內建函數: 實參就是堆疊頂部 [base, sp) 這一段，直接交給內建函數讀取，不複製到新陣列
+     * 一個和兩個實參（len、first、push 等）走固定元數的入口
+     */
+    private void executeBuiltinFunction(BuiltinObject builtin, int numArgs) throws VMException {
+        int base = sp - numArgs;
+        MonkeyObject result;
+        if (builtin.isHigherOrder()) {
+            // 回調在 sp 之上壓入閉包和實參，不會覆蓋 [base, sp)
+            try {
+                result = builtin.call(caller, stack, base, numArgs);
+            } catch (CallbackException e) {
+                throw e.cause;
+            }
+        } else {
+            result = switch (numArgs) {
+                case 1 -> builtin.call1(stack[base]);
+                case 2 -> builtin.call2(stack[base], stack[base + 1]);
+                default -> builtin.call(stack, base, numArgs);
+            };
+        }
 
-        sp = sp - numArgs - 1;
+        sp = base - 1;
 
         if (result != null) {
             push(result);
@@ -350,28 +483,21 @@ public class VM {
     // ... 其他方法保持不變 ...
 
     private MonkeyObject buildArray(int startIndex, int endIndex) {
-        java.util.List<MonkeyObject> elements = new java.util.ArrayList<>();
-        for (int i = startIndex; i < endIndex; i++) {
-            elements.add(stack[i]);
-        }
-        return new ArrayObject(elements);
+        return ArrayObject.of(stack, startIndex, endIndex);
     }
 
     private MonkeyObject buildHash(int startIndex, int endIndex) throws VMException {
-        java.util.Map<HashKey, HashObject.HashPair> hashedPairs = new java.util.HashMap<>();
+        PersistentHashMap hashedPairs = PersistentHashMap.EMPTY;
 
         for (int i = startIndex; i < endIndex; i += 2) {
             MonkeyObject key = stack[i];
             MonkeyObject value = stack[i + 1];
 
-            HashObject.HashPair pair = new HashObject.HashPair(key, value);
-
             if (!(key instanceof Hashable)) {
                 throw new VMException("unusable as hash key: " + key.type());
             }
 
-            Hashable hashKey = (Hashable) key;
-            hashedPairs.put(hashKey.hashKey(), pair);
+            hashedPairs = hashedPairs.put(key, value);
         }
 
         return new HashObject(hashedPairs);
@@ -390,14 +516,14 @@ public class VM {
     private void executeArrayIndex(MonkeyObject array, MonkeyObject index) throws VMException {
         ArrayObject arrayObject = (ArrayObject) array;
         long i = ((IntegerObject) index).getValue();
-        long max = arrayObject.getElements().size() - 1;
+        long max = arrayObject.size() - 1;
 
         if (i < 0 || i > max) {
             push(NULL);
             return;
         }
 
-        push(arrayObject.getElements().get((int) i));
+        push(arrayObject.get((int) i));
     }
 
     private void executeHashIndex(MonkeyObject hash, MonkeyObject index) throws VMException {
@@ -407,8 +533,7 @@ public class VM {
             throw new VMException("unusable as hash key: " + index.type());
         }
 
-        Hashable key = (Hashable) index;
-        HashObject.HashPair pair = hashObject.getPairs().get(key.hashKey());
+        HashObject.HashPair pair = hashObject.get(index);
 
         if (pair == null) {
             push(NULL);
@@ -458,11 +583,132 @@ public class VM {
                 }
                 result = leftValue / rightValue;
                 break;
+            case OP_MOD:
+                if (rightValue == 0) {
+                    throw new VMException("division by zero");
+                }
+                result = leftValue % rightValue;
+                break;
+            case OP_BIT_AND:
+                result = leftValue & rightValue;
+                break;
+            case OP_BIT_OR:
+                result = leftValue | rightValue;
+                break;
+            case OP_BIT_XOR:
+                result = leftValue ^ rightValue;
+                break;
+            case OP_SHIFT_LEFT:
+                result = leftValue << rightValue;
+                break;
+            case OP_SHIFT_RIGHT:
+                result = leftValue >> rightValue;
+                break;
+            default:
+                throw new VMException("unknown integer operator: " + op);
+        }
+
+        push(IntegerObject.valueOf(result));
+    }
+
+    /**
+     * 整數特化的算術運算
+     * 運算元不是整數時（推斷沒有覆蓋到的情況，例如宿主傳入的實參）退回通用指令，
+     * 錯誤訊息與未特化的程式相同
+     */
+    private void executeSpecializedArithmetic(Opcode op) throws VMException {
+        if (!(stack[sp - 1] instanceof IntegerObject right) || !(stack[sp - 2] instanceof IntegerObject left)) {
+            executeBinaryOperation(genericOpcode(op));
+            return;
+        }
+        sp -= 2;
+        long rightValue = right.getValue();
+        long leftValue = left.getValue();
+
+        long result;
+        switch (op) {
+            case OP_ADD_INT:
+                result = leftValue + rightValue;
+                break;
+            case OP_SUB_INT:
+                result = leftValue - rightValue;
+                break;
+            case OP_MUL_INT:
+                result = leftValue * rightValue;
+                break;
+            case OP_DIV_INT:
+                if (rightValue == 0) {
+                    throw new VMException("division by zero");
+                }
+                result = leftValue / rightValue;
+                break;
+            case OP_MOD_INT:
+                if (rightValue == 0) {
+                    throw new VMException("division by zero");
+                }
+                result = leftValue % rightValue;
+                break;
             default:
                 throw new VMException("unknown integer operator: " + op);
         }
 
-        push(new IntegerObject(result));
+        push(IntegerObject.valueOf(result));
+    }
+
+    /**
+     * 整數特化的比較運算，運算元不是整數時與算術一樣退回通用指令
+     */
+    private void executeSpecializedComparison(Opcode op) throws VMException {
+        if (!(stack[sp - 1] instanceof IntegerObject right) || !(stack[sp - 2] instanceof IntegerObject left)) {
+            executeComparison(genericOpcode(op));
+            return;
+        }
+        sp -= 2;
+        long rightValue = right.getValue();
+        long leftValue = left.getValue();
+
+        switch (op) {
+            case OP_EQUAL_INT:
+                push(nativeBoolToBooleanObject(leftValue == rightValue));
+                break;
+            case OP_NOT_EQUAL_INT:
+                push(nativeBoolToBooleanObject(leftValue != rightValue));
+                break;
+            case OP_GREATER_THAN_INT:
+                push(nativeBoolToBooleanObject(leftValue > rightValue));
+                break;
+            case OP_LESS_THAN_INT:
+                push(nativeBoolToBooleanObject(leftValue < rightValue));
+                break;
+            case OP_GREATER_EQUAL_INT:
+                push(nativeBoolToBooleanObject(leftValue >= rightValue));
+                break;
+            case OP_LESS_EQUAL_INT:
+                push(nativeBoolToBooleanObject(leftValue <= rightValue));
+                break;
+            default:
+                throw new VMException("unknown operator: " + op);
+        }
+    }
+
+    /**
+     * 整數特化指令對應的通用指令
+     */
+    private static Opcode genericOpcode(Opcode op) throws VMException {
+        return switch (op) {
+            case OP_ADD_INT -> Opcode.OP_ADD;
+            case OP_SUB_INT -> Opcode.OP_SUB;
+            case OP_MUL_INT -> Opcode.OP_MUL;
+            case OP_DIV_INT -> Opcode.OP_DIV;
+            case OP_MOD_INT -> Opcode.OP_MOD;
+            case OP_EQUAL_INT -> Opcode.OP_EQUAL;
+            case OP_NOT_EQUAL_INT -> Opcode.OP_NOT_EQUAL;
+            case OP_GREATER_THAN_INT -> Opcode.OP_GREATER_THAN;
+            case OP_LESS_THAN_INT -> Opcode.OP_LESS_THAN;
+            case OP_GREATER_EQUAL_INT -> Opcode.OP_GREATER_EQUAL;
+            case OP_LESS_EQUAL_INT -> Opcode.OP_LESS_EQUAL;
+            default -> throw new VMException("unknown integer operator: " + op);
+        };
     }
 
     private void executeBinaryStringOperation(Opcode op, MonkeyObject left, MonkeyObject right)
@@ -471,10 +717,7 @@ public class VM {
             throw new VMException("unknown string operator: " + op);
         }
 
-        String leftValue = ((StringObject) left).getValue();
-        String rightValue = ((StringObject) right).getValue();
-
-        push(new StringObject(leftValue + rightValue));
+        push(StringObject.concat((StringObject) left, (StringObject) right));
     }
 
     private void executeComparison(Opcode op) throws VMException {
@@ -486,6 +729,11 @@ public class VM {
             return;
         }
 
+        if (left instanceof StringObject && right instanceof StringObject) {
+            executeStringComparison(op, (StringObject) left, (StringObject) right);
+            return;
+        }
+
         switch (op) {
             case OP_EQUAL:
                 push(nativeBoolToBooleanObject(left == right));
@@ -501,6 +749,26 @@ public class VM {
         }
     }
 
+    /**
+     * 字串比較: 駐留字串只需比較指針
+     */
+    private void executeStringComparison(Opcode op, StringObject left, StringObject right)
+            throws VMException {
+        switch (op) {
+            case OP_EQUAL:
+                push(nativeBoolToBooleanObject(left.valueEquals(right)));
+                break;
+            case OP_NOT_EQUAL:
+                push(nativeBoolToBooleanObject(!left.valueEquals(right)));
+                break;
+            default:
+                throw new VMException(
+                        String.format("unknown operator: %s (%s %s)",
+                                op, left.type(), right.type())
+                );
+        }
+    }
+
     private void executeIntegerComparison(Opcode op, IntegerObject left, IntegerObject right)
             throws VMException {
         long leftValue = left.getValue();
@@ -516,11 +784,31 @@ public class VM {
             case OP_GREATER_THAN:
                 push(nativeBoolToBooleanObject(leftValue > rightValue));
                 break;
+            case OP_LESS_THAN:
+                push(nativeBoolToBooleanObject(leftValue < rightValue));
+                break;
+            case OP_GREATER_EQUAL:
+                push(nativeBoolToBooleanObject(leftValue >= rightValue));
+                break;
+            case OP_LESS_EQUAL:
+                push(nativeBoolToBooleanObject(leftValue <= rightValue));
+                break;
             default:
                 throw new VMException("unknown operator: " + op);
         }
     }
 
+    /**
+     * 存入全局變量的陣列視圖會被長期持有，必要時壓縮以釋放底層向量
+     * 局部變量和參數不做壓縮，遞迴中的 rest 保持 O(1)
+     */
+    private MonkeyObject retain(MonkeyObject value) {
+        if (value instanceof ArrayObject array) {
+            return array.compact();
+        }
+        return value;
+    }
+
     private void executeBangOperator() throws VMException {
         MonkeyObject operand = pop();
 
@@ -543,7 +831,7 @@ public class VM {
         }
 
         long value = ((IntegerObject) operand).getValue();
-        push(new IntegerObject(-value));
+        push(IntegerObject.valueOf(-value));
     }
 
     private boolean isTruthy(MonkeyObject obj) {
@@ -578,6 +866,114 @@ public class VM {
         return o;
     }
 
+    /**
+     * 宿主調用: 以給定實參調用腳本產生的閉包，返回它的結果
+     * 在本 VM 的堆疊和幀陣列上執行，不重新編譯也不建立新的 VM，可以反覆調用。
+     * 閉包必須來自這個 VM 執行的程式（或共用同一個全局變量陣列），它讀寫的就是這裡的全局變量。
+     * 調用出錯時丟棄執行到一半的幀，VM 保持可用。VM 不是執行緒安全的
+     */
+    public MonkeyObject invoke(ClosureObject closure, MonkeyObject... args) throws VMException {
+        int entrySp = sp;
+        int entryFrames = framesIndex;
+        try {
+            push(closure);
+            for (MonkeyObject arg : args) {
+                // 真值判斷按身份比較，宿主自行建立的 BooleanObject 換成共用的實例
+                push(arg instanceof BooleanObject bool ? BooleanObject.valueOf(bool.getValue()) : arg);
+            }
+            return callValue(args.length);
+        } finally {
+            sp = entrySp;
+            framesIndex = entryFrames;
+        }
+    }
+
+    /**
+     * 為閉包建立可反覆調用的句柄（如一條規則: 載入一次，每個事件調用一次）
+     */
+    public Function function(ClosureObject closure) {
+        return new Function(closure);
+    }
+
+    /**
+     * Function 綁定到本 VM 的閉包句柄
+     */
+    public final class Function {
+        private final ClosureObject closure;
+
+        private Function(ClosureObject closure) {
+            this.closure = closure;
+        }
+
+        public MonkeyObject call(MonkeyObject... args) throws VMException {
+            return invoke(closure, args);
+        }
+
+        public ClosureObject getClosure() {
+            return closure;
+        }
+
+        /**
+         * 參數個數
+         */
+        public int getArity() {
+            return closure.getFn().getNumParameters();
+        }
+    }
+
+    /**
+     * 重入調用: 被調用者和實參已在堆疊頂部，像 OpCall 一樣進入它；
+     * 閉包在同一個堆疊和幀陣列上執行到它返回為止。彈出並返回結果
+     */
+    private MonkeyObject callValue(int numArgs) throws VMException {
+        int entryFrames = framesIndex;
+        executeCall(numArgs);
+        if (framesIndex > entryFrames) {
+            execute(entryFrames);
+        }
+        return pop();
+    }
+
+    /**
+     * 高階內建函數的回調
+     */
+    private final class Callbacks implements FunctionCaller {
+        @Override
+        public MonkeyObject call1(MonkeyObject fn, MonkeyObject arg) {
+            try {
+                push(fn);
+                push(arg);
+                return callValue(1);
+            } catch (VMException e) {
+                throw new CallbackException(e);
+            }
+        }
+
+        @Override
+        public MonkeyObject call2(MonkeyObject fn, MonkeyObject first, MonkeyObject second) {
+            try {
+                push(fn);
+                push(first);
+                push(second);
+                return callValue(2);
+            } catch (VMException e) {
+                throw new CallbackException(e);
+            }
+        }
+    }
+
+    /**
+     * 讓回調中的 VMException 穿過內建函數，由 executeBuiltinFunction 還原
+     */
+    private static final class CallbackException extends RuntimeException {
+        final VMException cause;
+
+        CallbackException(VMException cause) {
+            super(null, null, false, false);
+            this.cause = cause;
+        }
+    }
+
     public static class VMException extends Exception {
         public VMException(String message) {
             super(message);
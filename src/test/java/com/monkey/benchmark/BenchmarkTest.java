@@ -1,16 +1,34 @@
 package com.monkey.benchmark;
 
 import com.monkey.ast.Program;
+import com.monkey.closure.ClosureCompiler;
+import com.monkey.code.Instructions;
+import com.monkey.code.Opcode;
 import com.monkey.compiler.Bytecode;
 import com.monkey.compiler.Compiler;
+import com.monkey.evaluator.Environment;
+import com.monkey.evaluator.Evaluator;
 import com.monkey.lexer.Lexer;
+import com.monkey.nodes.NodeInterpreter;
+import com.monkey.object.ArrayObject;
+import com.monkey.object.CompiledFunctionObject;
+import com.monkey.object.HashKey;
+import com.monkey.object.HashObject;
+import com.monkey.object.IntegerObject;
 import com.monkey.object.MonkeyObject;
+import com.monkey.object.PersistentHashMap;
+import com.monkey.object.PersistentLongVector;
+import com.monkey.object.PersistentVector;
+import com.monkey.object.StringObject;
 import com.monkey.parser.Parser;
+import com.monkey.vm.MemoCache;
 import com.monkey.vm.VM;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Tag;
 
+import java.util.function.Supplier;
+
 import static org.junit.jupiter.api.Assertions.*;
 
 /**
@@ -228,6 +246,1096 @@ public class BenchmarkTest {
         assertEquals(12L, result.getResultValue()); // 2 + 10
     }
 
+    /**
+     * 記憶化斐波那契: 純遞迴函數的調用次數從指數級降為線性
+     */
+    @Test
+    @DisplayName("Fibonacci(30) - Memoized")
+    public void testMemoizedFibonacci30() {
+        System.out.println("\n" + "=".repeat(60));
+        System.out.println("Memoized Fibonacci Benchmark");
+        System.out.println("=".repeat(60));
+        System.out.printf("%-6s %12s %8s %8s %10s %10s%n", "n", "result", "calls", "hits", "hitRate", "time(ms)");
+
+        long previousCalls = 0;
+        for (int n = 10; n <= 30; n += 5) {
+            String input = """
+                    let fibonacci = fn(x) {
+                        if (x == 0) {
+                            return 0;
+                        } else {
+                            if (x == 1) {
+                                return 1;
+                            } else {
+                                fibonacci(x - 1) + fibonacci(x - 2);
+                            }
+                        }
+                    };
+                    fibonacci(%d);
+                    """.formatted(n);
+
+            Compiler compiler = new Compiler();
+            try {
+                compiler.compile(new Parser(new Lexer(input)).parseProgram());
+            } catch (Compiler.CompilerException e) {
+                fail("Compilation failed: " + e.getMessage());
+            }
+
+            long start = System.nanoTime();
+            VM vm = new VM(compiler.bytecode());
+            try {
+                vm.run();
+            } catch (VM.VMException e) {
+                fail("VM execution failed: " + e.getMessage());
+            }
+            long elapsed = (System.nanoTime() - start) / 1_000_000;
+
+            MemoCache cache = vm.getMemoCache();
+            long calls = cache.getHits() + cache.getMisses();
+            System.out.printf("%-6d %12s %8d %8d %9.1f%% %10d%n", n,
+                    vm.lastPoppedStackElem().inspect(), calls, cache.getHits(), cache.hitRate() * 100, elapsed);
+
+            // 每次 n 增加 5，調用次數只增加 10 (2n - 1)
+            assertEquals(2L * n - 1, calls);
+            if (previousCalls > 0) {
+                assertEquals(10, calls - previousCalls);
+            }
+            previousCalls = calls;
+
+            if (n == 30) {
+                assertEquals("832040", vm.lastPoppedStackElem().inspect());
+            }
+        }
+        System.out.println("=".repeat(60) + "\n");
+    }
+
+    /**
+     * 類型特化: 比較通用指令與整數特化指令的執行時間及指令分佈
+     */
+    @Test
+    @DisplayName("Fibonacci(25) - Generic vs Type-Specialized")
+    public void testTypeSpecializedFibonacci() {
+        String input = """
+                let fibonacci = fn(x) {
+                    if (x == 0) {
+                        return 0;
+                    } else {
+                        if (x == 1) {
+                            return 1;
+                        } else {
+                            fibonacci(x - 1) + fibonacci(x - 2);
+                        }
+                    }
+                };
+                fibonacci(25);
+                """;
+
+        System.out.println("\n" + "=".repeat(60));
+        System.out.println("Generic vs Type-Specialized Bytecode");
+        System.out.println("=".repeat(60));
+        System.out.printf("%-14s %10s %10s %12s%n", "mode", "generic", "int-only", "execute(ms)");
+
+        for (boolean specialize : new boolean[]{false, true}) {
+            Compiler compiler = new Compiler();
+            compiler.setTypeSpecialization(specialize);
+            try {
+                compiler.compile(new Parser(new Lexer(input)).parseProgram());
+            } catch (Compiler.CompilerException e) {
+                fail("Compilation failed: " + e.getMessage());
+            }
+            Bytecode bytecode = compiler.bytecode();
+
+            int[] split = countOperatorOpcodes(bytecode);
+
+            long start = System.nanoTime();
+            VM vm = new VM(bytecode);
+            vm.setMemoCapacity(0);
+            try {
+                vm.run();
+            } catch (VM.VMException e) {
+                fail("VM execution failed: " + e.getMessage());
+            }
+            long elapsed = (System.nanoTime() - start) / 1_000_000;
+
+            System.out.printf("%-14s %10d %10d %12d%n",
+                    specialize ? "specialized" : "generic", split[0], split[1], elapsed);
+
+            assertEquals("75025", vm.lastPoppedStackElem().inspect());
+            if (specialize) {
+                assertEquals(0, split[0], "every operator in fibonacci is provably integer");
+            } else {
+                assertEquals(0, split[1]);
+            }
+        }
+        System.out.println("=".repeat(60) + "\n");
+    }
+
+    /**
+     * 遞迴 vs 迴圈: 對 1..10^6 求和
+     *
+     * 遞迴版本每個元素都要一個 Frame，且深度受 MAX_FRAMES 限制，
+     * （樹遍歷求值器還受 Java 棧深度限制）因此只能分成每段 100 個元素的遞迴調用；迴圈版本只有回跳的 OpJump。
+     */
+    @Test
+    @DisplayName("Sum 1..10^6 - Recursive vs While Loop")
+    public void testRecursiveVsIterativeSum() {
+        String recursive = """
+                let sumRange = fn(lo, hi) {
+                    if (lo > hi) { 0 } else { lo + sumRange(lo + 1, hi) }
+                };
+                let total = 0;
+                let lo = 1;
+                while (lo < 1000000) {
+                    total = total + sumRange(lo, lo + 99);
+                    lo = lo + 100;
+                }
+                total;
+                """;
+        String iterative = """
+                let total = 0;
+                let i = 0;
+                while (i < 1000000) {
+                    i = i + 1;
+                    total = total + i;
+                }
+                total;
+                """;
+
+        System.out.println("\n" + "=".repeat(60));
+        System.out.println("Sum 1..10^6: Recursive vs Iterative");
+        System.out.println("=".repeat(60));
+        System.out.printf("%-12s %-10s %12s%n", "engine", "style", "time(ms)");
+
+        String[][] cases = {{"recursive", recursive}, {"iterative", iterative}};
+        for (String[] c : cases) {
+            Program program = new Parser(new Lexer(c[1])).parseProgram();
+
+            Compiler compiler = new Compiler();
+            try {
+                compiler.compile(program);
+            } catch (Compiler.CompilerException e) {
+                fail("Compilation failed: " + e.getMessage());
+            }
+            long start = System.nanoTime();
+            VM vm = new VM(compiler.bytecode());
+            vm.setMemoCapacity(0);
+            try {
+                vm.run();
+            } catch (VM.VMException e) {
+                fail("VM execution failed: " + e.getMessage());
+            }
+            long vmTime = (System.nanoTime() - start) / 1_000_000;
+            assertEquals("500000500000", vm.lastPoppedStackElem().inspect());
+
+            start = System.nanoTime();
+            MonkeyObject evaluated = Evaluator.eval(program, new Environment());
+            long evalTime = (System.nanoTime() - start) / 1_000_000;
+            assertEquals("500000500000", evaluated.inspect());
+
+            System.out.printf("%-12s %-10s %12d%n", "vm", c[0], vmTime);
+            System.out.printf("%-12s %-10s %12d%n", "evaluator", c[0], evalTime);
+        }
+        System.out.println("=".repeat(60) + "\n");
+    }
+
+    /**
+     * 持久化向量: 用 push 逐個構建 10^4 ~ 10^6 個元素的陣列
+     *
+     * push 只複製 tail 或一條根到葉的路徑，每次 push 的成本應與陣列長度無關，
+     * 原先複製整個列表的實現在 10^6 時需要約 5 * 10^11 次元素複製。
+     */
+    @Test
+    @DisplayName("Build 1M-element array with push")
+    public void testPersistentVectorPush() {
+        System.out.println("\n" + "=".repeat(60));
+        System.out.println("Array push: Persistent Vector");
+        System.out.println("=".repeat(60));
+        System.out.printf("%-10s %-10s %12s %12s%n", "engine", "n", "time(ms)", "ns/push");
+
+        for (int n : new int[]{10_000, 100_000, 1_000_000}) {
+            String input = """
+                    let a = [];
+                    let i = 0;
+                    while (i < %d) {
+                        a = push(a, i);
+                        i = i + 1;
+                    }
+                    [len(a), a[%d]];
+                    """.formatted(n, n / 2);
+            String expected = "[" + n + ", " + (n / 2) + "]";
+            Program program = new Parser(new Lexer(input)).parseProgram();
+
+            Compiler compiler = new Compiler();
+            try {
+                compiler.compile(program);
+            } catch (Compiler.CompilerException e) {
+                fail("Compilation failed: " + e.getMessage());
+            }
+            long start = System.nanoTime();
+            VM vm = new VM(compiler.bytecode());
+            try {
+                vm.run();
+            } catch (VM.VMException e) {
+                fail("VM execution failed: " + e.getMessage());
+            }
+            long vmNanos = System.nanoTime() - start;
+            assertEquals(expected, vm.lastPoppedStackElem().inspect());
+
+            start = System.nanoTime();
+            MonkeyObject evaluated = Evaluator.eval(program, new Environment());
+            long evalNanos = System.nanoTime() - start;
+            assertEquals(expected, evaluated.inspect());
+
+            System.out.printf("%-10s %-10d %12d %12d%n", "vm", n, vmNanos / 1_000_000, vmNanos / n);
+            System.out.printf("%-10s %-10d %12d %12d%n", "evaluator", n, evalNanos / 1_000_000, evalNanos / n);
+        }
+        System.out.println("=".repeat(60) + "\n");
+    }
+
+    /**
+     * rest 視圖: 對 10^5 個元素做 first/rest 遞迴 reduce
+     *
+     * rest 不再複製剩餘元素，整個 reduce 是線性的（原先約 5 * 10^9 次元素複製）。
+     * 遞迴深度受 MAX_FRAMES 和 Java 棧限制，因此每次遞迴最多處理 100 個元素，
+     * 由外層迴圈把剩餘的視圖和累加值傳給下一輪。
+     */
+    @Test
+    @DisplayName("Recursive reduce over 100k elements with rest views")
+    public void testRecursiveReduceWithRestViews() {
+        String input = """
+                let data = [];
+                let i = 0;
+                while (i < 100000) {
+                    i = i + 1;
+                    data = push(data, i);
+                }
+
+                let reduce = fn(arr, acc, f, budget) {
+                    if (len(arr) == 0 || budget == 0) {
+                        [arr, acc]
+                    } else {
+                        reduce(rest(arr), f(acc, first(arr)), f, budget - 1)
+                    }
+                };
+
+                let state = [data, 0];
+                while (len(state[0]) > 0) {
+                    state = reduce(state[0], state[1], fn(a, b) { a + b }, 100);
+                }
+                state[1];
+                """;
+        Program program = new Parser(new Lexer(input)).parseProgram();
+
+        Compiler compiler = new Compiler();
+        try {
+            compiler.compile(program);
+        } catch (Compiler.CompilerException e) {
+            fail("Compilation failed: " + e.getMessage());
+        }
+        long start = System.nanoTime();
+        VM vm = new VM(compiler.bytecode());
+        try {
+            vm.run();
+        } catch (VM.VMException e) {
+            fail("VM execution failed: " + e.getMessage());
+        }
+        long vmTime = (System.nanoTime() - start) / 1_000_000;
+        assertEquals("5000050000", vm.lastPoppedStackElem().inspect());
+
+        start = System.nanoTime();
+        MonkeyObject evaluated = Evaluator.eval(program, new Environment());
+        long evalTime = (System.nanoTime() - start) / 1_000_000;
+        assertEquals("5000050000", evaluated.inspect());
+
+        System.out.println("\n" + "=".repeat(60));
+        System.out.println("Recursive reduce over 100k elements (rest views)");
+        System.out.println("=".repeat(60));
+        System.out.printf("VM:        %d ms%n", vmTime);
+        System.out.printf("Evaluator: %d ms%n", evalTime);
+        System.out.println("=".repeat(60) + "\n");
+    }
+
+    /**
+     * 解釋器斐波那契: 樹遍歷求值器的 fibonacci(27)，取多次運行的最佳值
+     *
+     * 識別符號經解析器標註 (depth, slot) 後，變量訪問是陣列索引，
+     * 不再對每個名稱做字串雜湊和外層環境鏈查找。
+     */
+    @Test
+    @DisplayName("Interpreter fibonacci(27)")
+    public void testInterpreterFibonacci() {
+        String input = """
+                let fibonacci = fn(x) {
+                    if (x < 2) { x } else { fibonacci(x - 1) + fibonacci(x - 2) }
+                };
+                fibonacci(27);
+                """;
+        Program program = new Parser(new Lexer(input)).parseProgram();
+
+        long best = Long.MAX_VALUE;
+        for (int run = 0; run < 5; run++) {
+            long start = System.nanoTime();
+            MonkeyObject result = Evaluator.eval(program, new Environment());
+            best = Math.min(best, System.nanoTime() - start);
+            assertEquals("196418", result.inspect());
+        }
+
+        System.out.println("\n" + "=".repeat(60));
+        System.out.println("Interpreter fibonacci(27), best of 5");
+        System.out.println("=".repeat(60));
+        System.out.printf("Evaluator: %d ms%n", best / 1_000_000);
+        System.out.println("=".repeat(60) + "\n");
+    }
+
+    /**
+     * 執行引擎對比: 樹遍歷求值器、自我特化節點解釋器、閉包編譯和位元組碼 VM（關閉記憶化）
+     * 遞迴的 fibonacci(27) 和 while 迴圈的累加，各取 5 次運行的最佳值
+     */
+    @Test
+    @DisplayName("Engines: evaluator vs self-specializing nodes vs closures vs VM")
+    public void testEngineComparison() {
+        String[][] cases = {
+                {"fib(27)", """
+                        let fibonacci = fn(x) {
+                            if (x < 2) { x } else { fibonacci(x - 1) + fibonacci(x - 2) }
+                        };
+                        fibonacci(27);
+                        """, "196418"},
+                {"loop(10^6)", """
+                        let total = 0;
+                        let i = 0;
+                        while (i < 1000000) {
+                            i = i + 1;
+                            total = total + i;
+                        }
+                        total;
+                        """, "500000500000"},
+        };
+
+        System.out.println("\n" + "=".repeat(60));
+        System.out.println("Engines, best of 5");
+        System.out.println("=".repeat(60));
+        System.out.printf("%-12s %-12s %12s%n", "program", "engine", "time(ms)");
+
+        for (String[] c : cases) {
+            Program program = new Parser(new Lexer(c[1])).parseProgram();
+            Compiler compiler = new Compiler();
+            try {
+                compiler.compile(program);
+            } catch (Compiler.CompilerException e) {
+                fail("Compilation failed: " + e.getMessage());
+            }
+            Bytecode bytecode = compiler.bytecode();
+
+            long evalTime = bestOfMillis(5, c[2], () -> Evaluator.eval(program, new Environment()));
+            long nodesTime = bestOfMillis(5, c[2], () -> NodeInterpreter.eval(program, new Environment()));
+            long closureTime = bestOfMillis(5, c[2], () -> ClosureCompiler.eval(program, new Environment()));
+            long vmTime = bestOfMillis(5, c[2], () -> {
+                VM vm = new VM(bytecode);
+                vm.setMemoCapacity(0);
+                try {
+                    vm.run();
+                } catch (VM.VMException e) {
+                    fail("VM execution failed: " + e.getMessage());
+                }
+                return vm.lastPoppedStackElem();
+            });
+
+            System.out.printf("%-12s %-12s %12d%n", c[0], "evaluator", evalTime);
+            System.out.printf("%-12s %-12s %12d%n", c[0], "nodes", nodesTime);
+            System.out.printf("%-12s %-12s %12d%n", c[0], "closure", closureTime);
+            System.out.printf("%-12s %-12s %12d%n", c[0], "vm", vmTime);
+        }
+        System.out.println("=".repeat(60) + "\n");
+    }
+
+    /**
+     * 多次運行取最短時間（毫秒），並檢查每次的結果
+     */
+    private long bestOfMillis(int runs, String expected, Supplier<MonkeyObject> run) {
+        long best = Long.MAX_VALUE;
+        for (int i = 0; i < runs; i++) {
+            long start = System.nanoTime();
+            MonkeyObject result = run.get();
+            best = Math.min(best, System.nanoTime() - start);
+            assertEquals(expected, result.inspect());
+        }
+        return best / 1_000_000;
+    }
+
+    /**
+     * 雜湊查找: 10^6 次查找，HAMT 與原先的 HashMap<HashKey, HashPair>
+     *
+     * 原先每次查找都要呼叫 hashKey() 分配一個 HashKey 再走 HashMap；
+     * HashObject.get 直接比較鍵的值，查找過程不分配物件。
+     */
+    @Test
+    @DisplayName("1M hash lookups: HAMT vs HashMap<HashKey, HashPair>")
+    public void testHashLookups() {
+        int keys = 1000;
+        int lookups = 1_000_000;
+
+        MonkeyObject[] probes = new MonkeyObject[keys * 2];
+        java.util.Map<HashKey, HashObject.HashPair> legacy = new java.util.HashMap<>();
+        HashObject hash = new HashObject(PersistentHashMap.EMPTY);
+        for (int i = 0; i < keys; i++) {
+            IntegerObject intKey = new IntegerObject(i);
+            StringObject strKey = new StringObject("key" + i);
+            legacy.put(intKey.hashKey(), new HashObject.HashPair(intKey, intKey));
+            legacy.put(strKey.hashKey(), new HashObject.HashPair(strKey, intKey));
+            hash = hash.put(intKey, intKey).put(strKey, intKey);
+            // 查找使用新建的鍵物件，與 Monkey 程序中計算出的鍵一樣
+            probes[i * 2] = new IntegerObject(i);
+            probes[i * 2 + 1] = new StringObject("key" + i);
+        }
+
+        long legacySum = 0;
+        long hamtSum = 0;
+        long legacyNanos = 0;
+        long hamtNanos = 0;
+        for (int round = 0; round < 3; round++) {
+            legacySum = 0;
+            long start = System.nanoTime();
+            for (int i = 0; i < lookups; i++) {
+                HashObject.HashPair pair = legacy.get(probes[i % probes.length].hashKey());
+                legacySum += ((IntegerObject) pair.value).getValue();
+            }
+            legacyNanos = System.nanoTime() - start;
+
+            hamtSum = 0;
+            start = System.nanoTime();
+            for (int i = 0; i < lookups; i++) {
+                HashObject.HashPair pair = hash.get(probes[i % probes.length]);
+                hamtSum += ((IntegerObject) pair.value).getValue();
+            }
+            hamtNanos = System.nanoTime() - start;
+        }
+        assertEquals(legacySum, hamtSum);
+
+        String input = """
+                let h = {0: 0, 1: 1, 2: 2, 3: 3, 4: 4, 5: 5, 6: 6, 7: 7, 8: 8, 9: 9};
+                let sum = 0;
+                let j = 0;
+                while (j < %d) {
+                    sum = sum + h[j %% 10];
+                    j = j + 1;
+                }
+                sum;
+                """.formatted(lookups);
+        Program program = new Parser(new Lexer(input)).parseProgram();
+        Compiler compiler = new Compiler();
+        try {
+            compiler.compile(program);
+        } catch (Compiler.CompilerException e) {
+            fail("Compilation failed: " + e.getMessage());
+        }
+        long start = System.nanoTime();
+        VM vm = new VM(compiler.bytecode());
+        try {
+            vm.run();
+        } catch (VM.VMException e) {
+            fail("VM execution failed: " + e.getMessage());
+        }
+        long vmNanos = System.nanoTime() - start;
+        assertEquals(String.valueOf(lookups / 10 * 45L), vm.lastPoppedStackElem().inspect());
+
+        System.out.println("\n" + "=".repeat(60));
+        System.out.println("1M hash lookups (" + probes.length + " keys)");
+        System.out.println("=".repeat(60));
+        System.out.printf("HashMap<HashKey, HashPair>: %6d ms (%d ns/lookup)%n", legacyNanos / 1_000_000, legacyNanos / lookups);
+        System.out.printf("PersistentHashMap:          %6d ms (%d ns/lookup)%n", hamtNanos / 1_000_000, hamtNanos / lookups);
+        System.out.printf("VM h[j %% 10] loop:          %6d ms%n", vmNanos / 1_000_000);
+        System.out.println("=".repeat(60) + "\n");
+    }
+
+    /**
+     * 字串駐留: 10^6 次字串鍵查找與相等比較
+     *
+     * 駐留字串之間的比較只看指針；未駐留的字串需先比較緩存的雜湊值再逐字比較。
+     */
+    @Test
+    @DisplayName("1M string-key lookups and comparisons: interned vs fresh")
+    public void testStringInterning() {
+        int keys = 1000;
+        int lookups = 1_000_000;
+
+        HashObject hash = new HashObject(PersistentHashMap.EMPTY);
+        StringObject[] interned = new StringObject[keys];
+        StringObject[] fresh = new StringObject[keys];
+        for (int i = 0; i < keys; i++) {
+            String name = "identifier_" + i;
+            interned[i] = StringObject.intern(name);
+            fresh[i] = new StringObject(new String(name.toCharArray()));
+            hash = hash.put(interned[i], IntegerObject.valueOf(i));
+        }
+
+        long[] nanos = new long[4];
+        long checksum = 0;
+        for (int round = 0; round < 3; round++) {
+            StringObject[][] probeSets = {interned, fresh};
+            for (int set = 0; set < 2; set++) {
+                StringObject[] probes = probeSets[set];
+                long start = System.nanoTime();
+                for (int i = 0; i < lookups; i++) {
+                    checksum += ((IntegerObject) hash.get(probes[i % keys]).value).getValue();
+                }
+                nanos[set] = System.nanoTime() - start;
+
+                start = System.nanoTime();
+                for (int i = 0; i < lookups; i++) {
+                    // 內容相同的比較: 駐留時是同一實例，否則需要逐字比較整個字串
+                    if (probes[i % keys].valueEquals(interned[i % keys])) {
+                        checksum++;
+                    }
+                }
+                nanos[set + 2] = System.nanoTime() - start;
+            }
+        }
+        assertTrue(checksum > 0);
+
+        System.out.println("\n" + "=".repeat(60));
+        System.out.println("String interning (" + keys + " keys, " + lookups + " ops)");
+        System.out.println("=".repeat(60));
+        System.out.printf("hash lookup, interned probe: %6d ms%n", nanos[0] / 1_000_000);
+        System.out.printf("hash lookup, fresh probe:    %6d ms%n", nanos[1] / 1_000_000);
+        System.out.printf("equality, interned:          %6d ms%n", nanos[2] / 1_000_000);
+        System.out.printf("equality, fresh:             %6d ms%n", nanos[3] / 1_000_000);
+        System.out.println("=".repeat(60) + "\n");
+    }
+
+    /**
+     * 常量集合字面值: 函數內 1000 項查找表，調用 10^4 次
+     *
+     * 全常量的字面值在編譯期建立並共享；對照組的值是 i + 0，無法折疊，
+     * 每次調用都要執行 2000 條常量指令並重新雜湊 1000 個鍵。
+     */
+    @Test
+    @DisplayName("1000-entry lookup table literal inside a function, 10k calls")
+    public void testConstantLookupTable() {
+        StringBuilder constantTable = new StringBuilder();
+        StringBuilder dynamicTable = new StringBuilder();
+        for (int i = 0; i < 1000; i++) {
+            String separator = i == 0 ? "" : ", ";
+            constantTable.append(separator).append(i).append(": ").append(i * 2);
+            dynamicTable.append(separator).append(i).append(": ").append(i * 2).append(" + 0");
+        }
+
+        long[] nanos = new long[2];
+        String[] tables = {constantTable.toString(), dynamicTable.toString()};
+        for (int kind = 0; kind < 2; kind++) {
+            String input = """
+                    let lookup = fn(k) { {%s}[k] };
+                    let sum = 0;
+                    let i = 0;
+                    while (i < 10000) {
+                        sum = sum + lookup(i %% 1000);
+                        i = i + 1;
+                    }
+                    sum;
+                    """.formatted(tables[kind]);
+            Program program = new Parser(new Lexer(input)).parseProgram();
+            Compiler compiler = new Compiler();
+            try {
+                compiler.compile(program);
+            } catch (Compiler.CompilerException e) {
+                fail("Compilation failed: " + e.getMessage());
+            }
+            long start = System.nanoTime();
+            VM vm = new VM(compiler.bytecode());
+            try {
+                vm.run();
+            } catch (VM.VMException e) {
+                fail("VM execution failed: " + e.getMessage());
+            }
+            nanos[kind] = System.nanoTime() - start;
+            assertEquals("9990000", vm.lastPoppedStackElem().inspect());
+        }
+
+        System.out.println("\n" + "=".repeat(60));
+        System.out.println("Lookup table literal in a function (1000 entries, 10k calls)");
+        System.out.println("=".repeat(60));
+        System.out.printf("constant pool:      %6d ms%n", nanos[0] / 1_000_000);
+        System.out.printf("built per call:     %6d ms%n", nanos[1] / 1_000_000);
+        System.out.println("=".repeat(60) + "\n");
+    }
+
+    /**
+     * 整數陣列: 10^7 個元素的緊湊 long 表示與 IntegerObject 表示
+     *
+     * 分別比較保留的堆內存與順序掃描求和的時間。保留量是陣列仍可達時 GC 後的堆使用量差，
+     * 建立過程中複製的 tail 和路徑已被回收，不計入。
+     * 通用表示每個元素是一個 IntegerObject 加一個引用，緊湊表示只有 8 字節。
+     */
+    @Test
+    @DisplayName("10M-element integer arrays: packed long[] vs IntegerObject")
+    public void testPackedIntegerArrays() {
+        int n = 10_000_000;
+        Runtime runtime = Runtime.getRuntime();
+
+        long[] retained = new long[2];
+        long[] scanNanos = new long[3];
+        long[] sums = new long[3];
+        for (int kind = 0; kind < 2; kind++) {
+            System.gc();
+            long before = runtime.totalMemory() - runtime.freeMemory();
+            ArrayObject array = kind == 0
+                    ? new ArrayObject(PersistentLongVector.EMPTY)
+                    : new ArrayObject(PersistentVector.EMPTY);
+            for (int i = 0; i < n; i++) {
+                array = array.push(IntegerObject.valueOf(i));
+            }
+            System.gc();
+            retained[kind] = runtime.totalMemory() - runtime.freeMemory() - before;
+            // 量測時陣列必須仍可達
+            java.lang.ref.Reference.reachabilityFence(array);
+            assertEquals(kind == 0, array.isIntArray());
+
+            for (int round = 0; round < 3; round++) {
+                long start = System.nanoTime();
+                long sum = 0;
+                for (int i = 0; i < n; i++) {
+                    sum += ((IntegerObject) array.get(i)).getValue();
+                }
+                scanNanos[kind] = System.nanoTime() - start;
+                sums[kind] = sum;
+
+                if (kind == 0) {
+                    start = System.nanoTime();
+                    sum = 0;
+                    for (int i = 0; i < n; i++) {
+                        sum += array.getLong(i);
+                    }
+                    scanNanos[2] = System.nanoTime() - start;
+                    sums[2] = sum;
+                }
+            }
+            assertEquals(n, array.size());
+        }
+        long expected = (long) n * (n - 1) / 2;
+        assertEquals(expected, sums[0]);
+        assertEquals(expected, sums[1]);
+        assertEquals(expected, sums[2]);
+
+        System.out.println("\n" + "=".repeat(60));
+        System.out.println("10M-element integer array");
+        System.out.println("=".repeat(60));
+        System.out.printf("%-24s %12s %10s %10s%n", "representation", "retained(MB)", "B/element", "scan(ms)");
+        System.out.printf("%-24s %12d %10d %10d%n", "packed long, get()",
+                retained[0] >> 20, retained[0] / n, scanNanos[0] / 1_000_000);
+        System.out.printf("%-24s %12s %10s %10d%n", "packed long, getLong()", "", "", scanNanos[2] / 1_000_000);
+        System.out.printf("%-24s %12d %10d %10d%n", "IntegerObject",
+                retained[1] >> 20, retained[1] / n, scanNanos[1] / 1_000_000);
+        System.out.println("=".repeat(60) + "\n");
+    }
+
+    /**
+     * 繩字串: 以 acc + piece 把 10^5 個 100 字元的片段連接成 10MB 字串
+     *
+     * 每次連接只建立一個繩節點，最後 len 不需要展平，inspect 時一次展平；
+     * 原先每次 + 都複製整個累加值，總共約 5 * 10^11 次字元複製。
+     */
+    @Test
+    @DisplayName("Build a 10MB string from 100k pieces")
+    public void testRopeConcatenation() {
+        String piece = "0123456789".repeat(10);
+        String input = """
+                let piece = "%s";
+                let build = fn(acc, n) {
+                    if (n == 0) { acc } else { build(acc + piece, n - 1) }
+                };
+                let acc = "";
+                let i = 0;
+                while (i < 1000) {
+                    acc = build(acc, 100);
+                    i = i + 1;
+                }
+                len(acc);
+                """.formatted(piece);
+        Program program = new Parser(new Lexer(input)).parseProgram();
+
+        Compiler compiler = new Compiler();
+        try {
+            compiler.compile(program);
+        } catch (Compiler.CompilerException e) {
+            fail("Compilation failed: " + e.getMessage());
+        }
+        long start = System.nanoTime();
+        VM vm = new VM(compiler.bytecode());
+        try {
+            vm.run();
+        } catch (VM.VMException e) {
+            fail("VM execution failed: " + e.getMessage());
+        }
+        long vmBuild = System.nanoTime() - start;
+        assertEquals("10000000", vm.lastPoppedStackElem().inspect());
+
+        start = System.nanoTime();
+        StringObject built = (StringObject) vm.getGlobals()[2];
+        assertTrue(built.isRope());
+        assertEquals(10_000_000, built.inspect().length());
+        long vmFlatten = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        MonkeyObject evaluated = Evaluator.eval(program, new Environment());
+        long evalBuild = System.nanoTime() - start;
+        assertEquals("10000000", evaluated.inspect());
+
+        System.out.println("\n" + "=".repeat(60));
+        System.out.println("10MB string from 100k x 100-char pieces (rope)");
+        System.out.println("=".repeat(60));
+        System.out.printf("VM build:        %6d ms%n", vmBuild / 1_000_000);
+        System.out.printf("VM flatten:      %6d ms%n", vmFlatten / 1_000_000);
+        System.out.printf("Evaluator build: %6d ms%n", evalBuild / 1_000_000);
+        System.out.println("=".repeat(60) + "\n");
+    }
+
+    /**
+     * 整數緩存: 統計各工作負載在當前線程上分配的字節數
+     *
+     * 小整數（迴圈計數器、斐波那契的中間值、len 的結果）改用 IntegerObject.valueOf
+     * 共享的實例後，這些運算不再分配物件；分配量由 ThreadMXBean 計量。
+     */
+    @Test
+    @DisplayName("Allocation rate with the small-integer cache")
+    public void testIntegerCacheAllocation() {
+        com.sun.management.ThreadMXBean threads =
+                (com.sun.management.ThreadMXBean) java.lang.management.ManagementFactory.getThreadMXBean();
+        String[][] workloads = {
+                {"fib(20)", """
+                        let fib = fn(n) { if (n < 2) { n } else { fib(n - 1) + fib(n - 2) } };
+                        fib(20);
+                        """, "6765"},
+                {"count to 100k", """
+                        let i = 0;
+                        let acc = 0;
+                        while (i < 100000) { acc = (acc + i % 7) % 1000; i = i + 1; }
+                        acc;
+                        """, null},
+                {"len x 100k", """
+                        let a = [1, 2, 3];
+                        let i = 0;
+                        let n = 0;
+                        while (i < 100000) { n = n + len(a) - 3; i = i + 1; }
+                        n;
+                        """, "0"}
+        };
+
+        System.out.println("\n" + "=".repeat(60));
+        System.out.println("Allocated bytes per workload (small-integer cache " + IntegerObject.CACHE_LOW
+                + ".." + IntegerObject.CACHE_HIGH + ")");
+        System.out.println("=".repeat(60));
+        System.out.printf("%-16s %-10s %16s%n", "workload", "engine", "allocated(KB)");
+        for (String[] workload : workloads) {
+            Program program = new Parser(new Lexer(workload[1])).parseProgram();
+            Compiler compiler = new Compiler();
+            try {
+                compiler.compile(program);
+            } catch (Compiler.CompilerException e) {
+                fail("Compilation failed: " + e.getMessage());
+            }
+            long before = threads.getThreadAllocatedBytes(Thread.currentThread().getId());
+            VM vm = new VM(compiler.bytecode());
+            try {
+                vm.run();
+            } catch (VM.VMException e) {
+                fail("VM execution failed: " + e.getMessage());
+            }
+            long vmBytes = threads.getThreadAllocatedBytes(Thread.currentThread().getId()) - before;
+
+            before = threads.getThreadAllocatedBytes(Thread.currentThread().getId());
+            MonkeyObject evaluated = Evaluator.eval(program, new Environment());
+            long evalBytes = threads.getThreadAllocatedBytes(Thread.currentThread().getId()) - before;
+
+            assertEquals(vm.lastPoppedStackElem().inspect(), evaluated.inspect());
+            if (workload[2] != null) {
+                assertEquals(workload[2], evaluated.inspect());
+            }
+            System.out.printf("%-16s %-10s %16d%n", workload[0], "vm", vmBytes / 1024);
+            System.out.printf("%-16s %-10s %16d%n", workload[0], "evaluator", evalBytes / 1024);
+        }
+        System.out.println("=".repeat(60) + "\n");
+    }
+
+    /**
+     * 求值器的 return 控制流: 統計使用 return 的遞迴程式分配的字節數
+     *
+     * return 不再為每次返回分配 ReturnValue 包裝，而是寫入函數幀的返回槽位並傳遞預先分配的信號；
+     * 錯誤的訊息延遲到讀取時才格式化。
+     */
+    @Test
+    @DisplayName("Evaluator allocation with return-heavy recursion")
+    public void testReturnControlFlowAllocation() {
+        com.sun.management.ThreadMXBean threads =
+                (com.sun.management.ThreadMXBean) java.lang.management.ManagementFactory.getThreadMXBean();
+        String input = """
+                let fibonacci = fn(x) {
+                    if (x == 0) {
+                        return 0;
+                    } else {
+                        if (x == 1) {
+                            return 1;
+                        } else {
+                            return fibonacci(x - 1) + fibonacci(x - 2);
+                        }
+                    }
+                };
+                fibonacci(22);
+                """;
+        Program program = new Parser(new Lexer(input)).parseProgram();
+        // fibonacci(22) 的調用次數
+        long calls = 2 * 28657 - 1;
+
+        long best = Long.MAX_VALUE;
+        long bytes = 0;
+        for (int run = 0; run < 5; run++) {
+            long before = threads.getThreadAllocatedBytes(Thread.currentThread().getId());
+            long start = System.nanoTime();
+            MonkeyObject evaluated = Evaluator.eval(program, new Environment());
+            best = Math.min(best, System.nanoTime() - start);
+            bytes = threads.getThreadAllocatedBytes(Thread.currentThread().getId()) - before;
+            assertEquals("17711", evaluated.inspect());
+        }
+
+        System.out.println("\n" + "=".repeat(60));
+        System.out.println("Evaluator fibonacci(22) with explicit returns");
+        System.out.println("=".repeat(60));
+        System.out.printf("Time (best of 5): %d ms%n", best / 1_000_000);
+        System.out.printf("Allocated:        %d KB (%d bytes/call)%n", bytes / 1024, bytes / calls);
+        System.out.println("=".repeat(60) + "\n");
+    }
+
+    /**
+     * VM 內建函數調用: 遞迴中的 len(arr)
+     *
+     * 內建函數直接讀取 VM 堆疊頂部的實參，一個和兩個實參走固定元數的入口，
+     * 不再為每次調用分配並複製參數陣列。把 len(arr) 換成常量 3 的同一程式作為對照，
+     * 兩者分配量之差就是內建函數調用本身的分配。
+     */
+    @Test
+    @DisplayName("VM len(arr) calls in recursion")
+    public void testBuiltinCallInRecursion() {
+        com.sun.management.ThreadMXBean threads =
+                (com.sun.management.ThreadMXBean) java.lang.management.ManagementFactory.getThreadMXBean();
+        String template = """
+                let a = [1, 2, 3];
+                let count = fn(arr, n) { if (n == 0) { 0 } else { %s + count(arr, n - 1) } };
+                let i = 0;
+                let total = 0;
+                while (i < 2000) { total = total + count(a, 100); i = i + 1; }
+                total;
+                """;
+        long calls = 2000 * 100;
+
+        long[] times = new long[2];
+        long[] bytes = new long[2];
+        String[] operands = {"len(arr)", "3"};
+        for (int k = 0; k < operands.length; k++) {
+            Program program = new Parser(new Lexer(String.format(template, operands[k]))).parseProgram();
+            Compiler compiler = new Compiler();
+            try {
+                compiler.compile(program);
+            } catch (Compiler.CompilerException e) {
+                fail("Compilation failed: " + e.getMessage());
+            }
+            Bytecode bytecode = compiler.bytecode();
+
+            times[k] = Long.MAX_VALUE;
+            bytes[k] = Long.MAX_VALUE;
+            for (int run = 0; run < 5; run++) {
+                long before = threads.getThreadAllocatedBytes(Thread.currentThread().getId());
+                long start = System.nanoTime();
+                VM vm = new VM(bytecode);
+                try {
+                    vm.run();
+                } catch (VM.VMException e) {
+                    fail("VM execution failed: " + e.getMessage());
+                }
+                times[k] = Math.min(times[k], System.nanoTime() - start);
+                bytes[k] = Math.min(bytes[k], threads.getThreadAllocatedBytes(Thread.currentThread().getId()) - before);
+                assertEquals("600000", vm.lastPoppedStackElem().inspect());
+            }
+        }
+
+        System.out.println("\n" + "=".repeat(60));
+        System.out.println("VM len(arr) in recursion (" + calls + " calls)");
+        System.out.println("=".repeat(60));
+        System.out.printf("len(arr):  %d ms, %d KB%n", times[0] / 1_000_000, bytes[0] / 1024);
+        System.out.printf("constant:  %d ms, %d KB%n", times[1] / 1_000_000, bytes[1] / 1024);
+        System.out.printf("Per len call: %d ns, %d bytes%n",
+                (times[0] - times[1]) / calls, (bytes[0] - bytes[1]) / calls);
+        System.out.println("=".repeat(60) + "\n");
+    }
+
+    /**
+     * 百萬元素陣列上的高階內建函數: 原生 map / reduce 與以 rest / push 分批遞迴的腳本實現比較，
+     * 另外量測 filter 和帶比較函數的 sort。資料在同一個全局環境中先建立，不計入時間
+     */
+    @Test
+    @DisplayName("Native map/filter/reduce/sort on 1M elements")
+    public void testHigherOrderBuiltinsOnLargeArrays() {
+        String setup = """
+                let data = [];
+                let i = 0;
+                while (i < 1000000) { i = i + 1; data = push(data, i); }
+                let mapr = fn(arr, acc, f, budget) {
+                    if (len(arr) == 0 || budget == 0) { [arr, acc] } else { mapr(rest(arr), push(acc, f(first(arr))), f, budget - 1) }
+                };
+                let reducer = fn(arr, acc, f, budget) {
+                    if (len(arr) == 0 || budget == 0) { [arr, acc] } else { reducer(rest(arr), f(acc, first(arr)), f, budget - 1) }
+                };
+                """;
+        String[][] workloads = {
+                {"native map + reduce", "reduce(map(data, fn(x) { x * 2 }), 0, fn(a, b) { a + b })", "1000001000000"},
+                {"recursive map + reduce", """
+                        let m = [data, []];
+                        while (len(m[0]) > 0) { m = mapr(m[0], m[1], fn(x) { x * 2 }, 100); }
+                        let r = [m[1], 0];
+                        while (len(r[0]) > 0) { r = reducer(r[0], r[1], fn(a, b) { a + b }, 100); }
+                        r[1]
+                        """, "1000001000000"},
+                {"native filter", "len(filter(data, fn(x) { x % 3 == 0 }))", "333333"},
+                {"native sort (comparator)", "first(sort(data, fn(a, b) { b - a }))", "1000000"},
+        };
+
+        long[][] times = new long[workloads.length][2];
+
+        // VM: 與 REPL 一樣沿用符號表、常量池和全局變量
+        Compiler compiler = new Compiler();
+        MonkeyObject[] globals = new MonkeyObject[65536];
+        try {
+            compiler.compile(new Parser(new Lexer(setup)).parseProgram());
+            new VM(compiler.bytecode(), globals).run();
+            for (int k = 0; k < workloads.length; k++) {
+                Compiler next = new Compiler(compiler.getSymbolTable(), compiler.bytecode().getConstants());
+                next.compile(new Parser(new Lexer(workloads[k][1])).parseProgram());
+                VM vm = new VM(next.bytecode(), globals);
+                long start = System.nanoTime();
+                vm.run();
+                times[k][0] = System.nanoTime() - start;
+                assertEquals(workloads[k][2], vm.lastPoppedStackElem().inspect(), workloads[k][0]);
+            }
+        } catch (Compiler.CompilerException | VM.VMException e) {
+            fail("VM run failed: " + e.getMessage());
+        }
+
+        Environment env = new Environment();
+        Evaluator.eval(new Parser(new Lexer(setup)).parseProgram(), env);
+        for (int k = 0; k < workloads.length; k++) {
+            Program program = new Parser(new Lexer(workloads[k][1])).parseProgram();
+            long start = System.nanoTime();
+            MonkeyObject result = Evaluator.eval(program, env);
+            times[k][1] = System.nanoTime() - start;
+            assertEquals(workloads[k][2], result.inspect(), workloads[k][0]);
+        }
+
+        System.out.println("\n" + "=".repeat(60));
+        System.out.println("Higher-order builtins on 1M elements");
+        System.out.println("=".repeat(60));
+        System.out.printf("%-26s %10s %10s%n", "", "VM", "Evaluator");
+        for (int k = 0; k < workloads.length; k++) {
+            System.out.printf("%-26s %7d ms %7d ms%n", workloads[k][0], times[k][0] / 1_000_000, times[k][1] / 1_000_000);
+        }
+        System.out.println("=".repeat(60) + "\n");
+    }
+
+    /**
+     * 宿主反覆調用腳本閉包: 規則載入一次，每個事件經 VM.Function 調用一次；
+     * 對照每個事件都重新編譯並執行整個程式、從 stackTop 讀取結果的做法
+     */
+    @Test
+    @DisplayName("Host invocation of a rule closure")
+    public void testHostInvocation() {
+        String rules = """
+                let limit = 1000;
+                let score = fn(amount, country) {
+                    let s = if (amount > limit) { 50 } else { 0 };
+                    if (country == "XX") { s + 40 } else { s }
+                };
+                """;
+        int events = 1_000_000;
+        int recompiled = 2_000;
+
+        Compiler compiler = new Compiler();
+        VM vm = null;
+        long hostTime = 0;
+        long total = 0;
+        try {
+            compiler.compile(new Parser(new Lexer(rules + "score;")).parseProgram());
+            vm = new VM(compiler.bytecode());
+            vm.run();
+            VM.Function score = vm.function((com.monkey.object.ClosureObject) vm.lastPoppedStackElem());
+
+            StringObject home = StringObject.valueOf("TW");
+            StringObject flagged = StringObject.valueOf("XX");
+            long start = System.nanoTime();
+            for (int i = 0; i < events; i++) {
+                MonkeyObject result = score.call(IntegerObject.valueOf(i % 2000), i % 10 == 0 ? flagged : home);
+                total += ((IntegerObject) result).getValue();
+            }
+            hostTime = System.nanoTime() - start;
+        } catch (Compiler.CompilerException | VM.VMException e) {
+            fail("host invocation failed: " + e.getMessage());
+        }
+        assertEquals(events / 2 * 50L + events / 10 * 40L - 50L * events / 2000, total);
+
+        long start = System.nanoTime();
+        for (int i = 0; i < recompiled; i++) {
+            String program = rules + "score(" + (i % 2000) + ", \"" + (i % 10 == 0 ? "XX" : "TW") + "\");";
+            Compiler perEvent = new Compiler();
+            try {
+                perEvent.compile(new Parser(new Lexer(program)).parseProgram());
+                VM once = new VM(perEvent.bytecode());
+                once.run();
+                assertNotNull(once.lastPoppedStackElem());
+            } catch (Compiler.CompilerException | VM.VMException e) {
+                fail("per-event run failed: " + e.getMessage());
+            }
+        }
+        long recompileTime = System.nanoTime() - start;
+
+        System.out.println("\n" + "=".repeat(60));
+        System.out.println("Rule evaluation per event");
+        System.out.println("=".repeat(60));
+        System.out.printf("VM.Function.call:  %d ns/event (%d events)%n", hostTime / events, events);
+        System.out.printf("compile + run:     %d ns/event (%d events)%n", recompileTime / recompiled, recompiled);
+        System.out.println("=".repeat(60) + "\n");
+    }
+
+    /**
+     * 統計運算符指令: [0] 通用指令數量, [1] 整數特化指令數量
+     */
+    private int[] countOperatorOpcodes(Bytecode bytecode) {
+        java.util.List<Instructions> all = new java.util.ArrayList<>();
+        all.add(bytecode.getInstructions());
+        for (MonkeyObject constant : bytecode.getConstants()) {
+            if (constant instanceof CompiledFunctionObject fn) {
+                all.add(fn.getInstructions());
+            }
+        }
+
+        int[] split = new int[2];
+        for (Instructions ins : all) {
+            int ip = 0;
+            while (ip < ins.size()) {
+                Opcode op = Opcode.fromByte(ins.get(ip));
+                switch (op) {
+                    case OP_ADD, OP_SUB, OP_MUL, OP_DIV, OP_MOD, OP_EQUAL, OP_NOT_EQUAL, OP_GREATER_THAN,
+                         OP_LESS_THAN, OP_GREATER_EQUAL, OP_LESS_EQUAL, OP_MINUS -> split[0]++;
+                    case OP_ADD_INT, OP_SUB_INT, OP_MUL_INT, OP_DIV_INT, OP_MOD_INT, OP_EQUAL_INT, OP_NOT_EQUAL_INT,
+                         OP_GREATER_THAN_INT, OP_LESS_THAN_INT, OP_GREATER_EQUAL_INT, OP_LESS_EQUAL_INT,
+                         OP_MINUS_INT -> split[1]++;
+                    default -> {
+                    }
+                }
+                ip += 1;
+                for (int width : Instructions.lookup(ins.get(ip - 1)).getOperandWidths()) {
+                    ip += width;
+                }
+            }
+        }
+        return split;
+    }
+
     /**
      * 執行基準測試
      */
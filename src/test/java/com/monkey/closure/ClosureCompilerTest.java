@@ -0,0 +1,115 @@
+package com.monkey.closure;
+
+import com.monkey.ast.Program;
+import com.monkey.evaluator.Environment;
+import com.monkey.evaluator.Evaluator;
+import com.monkey.lexer.Lexer;
+import com.monkey.object.*;
+import com.monkey.parser.Parser;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * ClosureCompiler 測試類 - AST 編譯為 lambda 樹
+ */
+public class ClosureCompilerTest {
+
+    private MonkeyObject testEval(String input) {
+        Program program = new Parser(new Lexer(input)).parseProgram();
+        return ClosureCompiler.eval(program, new Environment());
+    }
+
+    /**
+     * 每個運算符和語句形式的結果（包括錯誤訊息）都與樹遍歷求值器相同
+     */
+    @Test
+    public void testMatchesEvaluator() {
+        String[] inputs = {
+                "10 - 3 * 2 + 8 / 4 - 9 % 4",
+                "(6 & 3) | (1 << 4) ^ (64 >> 2)",
+                "1 <= 1 == 2 >= 3",
+                "1 > 2 != 3 < 4",
+                "-(3 - 10)",
+                "-true",
+                "!false == !!1",
+                "\"ab\" + \"cd\" == \"abcd\"",
+                "\"x\" != \"x\"",
+                "\"x\" * 2",
+                "[1] + [2]",
+                "true == true",
+                "1 / 0",
+                "7 % 0",
+                "-7 / 2 + -7 % 2",
+                "(-1 >> 1) ^ (1 << 62)",
+                "\"a\" % 2",
+                "true & 1",
+                "1 | \"b\"",
+                "\"s\" << 1",
+                "if (0) { \"zero is truthy\" } else { 1 }",
+                "if (false) { 1 }",
+                "let a = 1; let b = a + 1; a * b",
+                "let f = fn() { return 1; 2 }; f() + f()",
+                "if (true) { return 3; } 4",
+                "let make = fn(n) { fn(m) { n * m } }; let triple = make(3); triple(5)",
+                "let fact = fn(n) { if (n == 0) { 1 } else { n * fact(n - 1) } }; fact(20)",
+                "let i = 10; while (i > 0) { i = i - 3; } i",
+                "let x = 1; let bump = fn() { x = x + 10 }; bump(); x",
+                "missing + 1",
+                "z = 2",
+                "nil && crash()",
+                "1 || crash()",
+                "[[1, 2], [3, 4]][1][0]",
+                "[1][5]",
+                "{\"k\": \"v\", 2: 3}[2]",
+                "{[1]: 2}",
+                "len([1, 2, 3]) * len(\"ab\")",
+                "push([], 1)",
+                "last([])",
+                "let first = fn(a) { 0 }; first([9])",
+                "let g = fn() { let v = fn(x) { x }; let y = v; y(7) }; g()",
+                "let f = fn(c) { if (c) { let w = 1; } w }; f(false)",
+                "\"s\"()",
+                "fn(a, b) { a }",
+                "map([1, 2, 3], fn(x) { x * x })",
+                "filter([1, 2, 3, 4, 5], fn(x) { x > 2 })",
+                "reduce([1, 2, 3], 10, fn(acc, x) { acc * x })",
+                "sort([5, 3, 9], fn(a, b) { a - b })",
+                "map([[2, 1], [\"b\", \"a\"]], sort)",
+                "map([1, 2], fn(x) { if (x == 2) { return x * 100; } x })",
+                "map([1], fn(x) { x + true })",
+                "sort([1, 2], fn(a, b) { \"x\" })",
+        };
+
+        for (String input : inputs) {
+            Program program = new Parser(new Lexer(input)).parseProgram();
+            MonkeyObject expected = Evaluator.eval(program, new Environment());
+            MonkeyObject actual = testEval(input);
+            assertEquals(expected.inspect(), actual.inspect(), input);
+        }
+    }
+
+    /**
+     * 編譯結果可以重複執行；REPL 一樣在同一個全局環境中逐行編譯
+     */
+    @Test
+    public void testCompiledCodeIsReusable() {
+        Environment env = new Environment();
+        ClosureCompiler.eval(new Parser(new Lexer("let count = 0; let tick = fn() { count = count + 1 };")).parseProgram(), env);
+
+        Code code = ClosureCompiler.compile(new Parser(new Lexer("tick(); count")).parseProgram(), env);
+        for (int i = 1; i <= 3; i++) {
+            assertEquals((long) i, ((IntegerObject) code.run(env)).getValue());
+        }
+
+        MonkeyObject result = ClosureCompiler.eval(new Parser(new Lexer("let step = 5; let tick = fn() { count = count + step }; tick(); count")).parseProgram(), env);
+        assertEquals(8L, ((IntegerObject) result).getValue());
+    }
+
+    @Test
+    public void testWrongArgumentCount() {
+        MonkeyObject result = testEval("let f = fn(a, b, c) { a }; f(1, 2)");
+        assertInstanceOf(ErrorObject.class, result);
+        assertEquals("wrong number of arguments: want=3, got=2", ((ErrorObject) result).getMessage());
+    }
+}
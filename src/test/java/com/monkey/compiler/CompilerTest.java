@@ -36,6 +36,37 @@ public class CompilerTest {
         runCompilerTests(tests);
     }
 
+    @Test
+    public void testComparisonAndBitwiseOperators() {
+        Object[][] operators = {
+                {"<", Opcode.OP_LESS_THAN},
+                {"<=", Opcode.OP_LESS_EQUAL},
+                {">=", Opcode.OP_GREATER_EQUAL},
+                {"%", Opcode.OP_MOD},
+                {"&", Opcode.OP_BIT_AND},
+                {"|", Opcode.OP_BIT_OR},
+                {"^", Opcode.OP_BIT_XOR},
+                {"<<", Opcode.OP_SHIFT_LEFT},
+                {">>", Opcode.OP_SHIFT_RIGHT}
+        };
+
+        // 運算元按原順序編譯，不再交換
+        CompilerTestCase[] tests = new CompilerTestCase[operators.length];
+        for (int i = 0; i < operators.length; i++) {
+            tests[i] = new CompilerTestCase(
+                    "1 " + operators[i][0] + " 2",
+                    new Object[]{1, 2},
+                    new byte[][]{
+                            Instructions.make(Opcode.OP_CONSTANT, 0),
+                            Instructions.make(Opcode.OP_CONSTANT, 1),
+                            Instructions.make((Opcode) operators[i][1]),
+                            Instructions.make(Opcode.OP_POP)
+                    }
+            );
+        }
+        runCompilerTests(tests);
+    }
+
     @Test
     public void testBooleanExpressions() {
         CompilerTestCase[] tests = new CompilerTestCase[]{
@@ -51,6 +82,90 @@ public class CompilerTest {
         runCompilerTests(tests);
     }
 
+    @Test
+    public void testLogicalOperators() {
+        CompilerTestCase[] tests = new CompilerTestCase[]{
+                new CompilerTestCase(
+                        "true && false",
+                        new Object[]{},
+                        new byte[][]{
+                                Instructions.make(Opcode.OP_TRUE),
+                                Instructions.make(Opcode.OP_JUMP_NOT_TRUTHY_OR_POP, 5),
+                                Instructions.make(Opcode.OP_FALSE),
+                                Instructions.make(Opcode.OP_POP)
+                        }
+                ),
+                new CompilerTestCase(
+                        "1 || 2 || 3",
+                        new Object[]{1, 2, 3},
+                        new byte[][]{
+                                Instructions.make(Opcode.OP_CONSTANT, 0),
+                                Instructions.make(Opcode.OP_JUMP_TRUTHY_OR_POP, 9),
+                                Instructions.make(Opcode.OP_CONSTANT, 1),
+                                Instructions.make(Opcode.OP_JUMP_TRUTHY_OR_POP, 15),
+                                Instructions.make(Opcode.OP_CONSTANT, 2),
+                                Instructions.make(Opcode.OP_POP)
+                        }
+                )
+        };
+        runCompilerTests(tests);
+    }
+
+    @Test
+    public void testWhileLoops() {
+        CompilerTestCase[] tests = new CompilerTestCase[]{
+                new CompilerTestCase(
+                        "let i = 0; while (i < 3) { i = i + 1 }; i",
+                        new Object[]{0, 3, 1},
+                        new byte[][]{
+                                // 0000
+                                Instructions.make(Opcode.OP_CONSTANT, 0),
+                                // 0003
+                                Instructions.make(Opcode.OP_SET_GLOBAL, 0),
+                                // 0006
+                                Instructions.make(Opcode.OP_GET_GLOBAL, 0),
+                                // 0009
+                                Instructions.make(Opcode.OP_CONSTANT, 1),
+                                // 0012
+                                Instructions.make(Opcode.OP_LESS_THAN),
+                                // 0013
+                                Instructions.make(Opcode.OP_JUMP_NOT_TRUTHY, 29),
+                                // 0016
+                                Instructions.make(Opcode.OP_GET_GLOBAL, 0),
+                                // 0019
+                                Instructions.make(Opcode.OP_CONSTANT, 2),
+                                // 0022
+                                Instructions.make(Opcode.OP_ADD),
+                                // 0023
+                                Instructions.make(Opcode.OP_SET_GLOBAL, 0),
+                                // 0026
+                                Instructions.make(Opcode.OP_JUMP, 6),
+                                // 0029
+                                Instructions.make(Opcode.OP_GET_GLOBAL, 0),
+                                // 0032
+                                Instructions.make(Opcode.OP_POP)
+                        }
+                )
+        };
+        runCompilerTests(tests);
+    }
+
+    @Test
+    public void testAssignmentErrors() {
+        String[][] tests = {
+                {"x = 1", "undefined variable x"},
+                {"len = 1", "cannot assign to BUILTIN variable len"},
+                {"let f = fn() { let x = 1; fn() { x = 2 } }", "cannot assign to FREE variable x"}
+        };
+
+        for (String[] tt : tests) {
+            Compiler compiler = new Compiler();
+            Compiler.CompilerException e = assertThrows(Compiler.CompilerException.class,
+                    () -> compiler.compile(parse(tt[0])));
+            assertEquals(tt[1], e.getMessage());
+        }
+    }
+
     @Test
     public void testConditionals() {
         CompilerTestCase[] tests = new CompilerTestCase[]{
@@ -127,11 +242,38 @@ public class CompilerTest {
                 ),
                 new CompilerTestCase(
                         "[1, 2, 3]",
-                        new Object[]{1, 2, 3},
+                        new Object[]{new int[]{1, 2, 3}},
+                        new byte[][]{
+                                Instructions.make(Opcode.OP_CONSTANT, 0),
+                                Instructions.make(Opcode.OP_POP)
+                        }
+                ),
+                new CompilerTestCase(
+                        "[1 + 2, 3 - 4, 5 * 6]",
+                        new Object[]{1, 2, 3, 4, 5, 6},
+                        new byte[][]{
+                                Instructions.make(Opcode.OP_CONSTANT, 0),
+                                Instructions.make(Opcode.OP_CONSTANT, 1),
+                                Instructions.make(Opcode.OP_ADD),
+                                Instructions.make(Opcode.OP_CONSTANT, 2),
+                                Instructions.make(Opcode.OP_CONSTANT, 3),
+                                Instructions.make(Opcode.OP_SUB),
+                                Instructions.make(Opcode.OP_CONSTANT, 4),
+                                Instructions.make(Opcode.OP_CONSTANT, 5),
+                                Instructions.make(Opcode.OP_MUL),
+                                Instructions.make(Opcode.OP_ARRAY, 3),
+                                Instructions.make(Opcode.OP_POP)
+                        }
+                ),
+                new CompilerTestCase(
+                        "[1, [2, -3], 4 + 5]",
+                        new Object[]{1, new int[]{2, -3}, 4, 5},
                         new byte[][]{
                                 Instructions.make(Opcode.OP_CONSTANT, 0),
                                 Instructions.make(Opcode.OP_CONSTANT, 1),
                                 Instructions.make(Opcode.OP_CONSTANT, 2),
+                                Instructions.make(Opcode.OP_CONSTANT, 3),
+                                Instructions.make(Opcode.OP_ADD),
                                 Instructions.make(Opcode.OP_ARRAY, 3),
                                 Instructions.make(Opcode.OP_POP)
                         }
@@ -153,15 +295,25 @@ public class CompilerTest {
                 ),
                 new CompilerTestCase(
                         "{1: 2, 3: 4, 5: 6}",
+                        new Object[]{java.util.Map.of(1, 2, 3, 4, 5, 6)},
+                        new byte[][]{
+                                Instructions.make(Opcode.OP_CONSTANT, 0),
+                                Instructions.make(Opcode.OP_POP)
+                        }
+                ),
+                new CompilerTestCase(
+                        "{1: 2 + 3, 4: 5 * 6}",
                         new Object[]{1, 2, 3, 4, 5, 6},
                         new byte[][]{
                                 Instructions.make(Opcode.OP_CONSTANT, 0),
                                 Instructions.make(Opcode.OP_CONSTANT, 1),
                                 Instructions.make(Opcode.OP_CONSTANT, 2),
+                                Instructions.make(Opcode.OP_ADD),
                                 Instructions.make(Opcode.OP_CONSTANT, 3),
                                 Instructions.make(Opcode.OP_CONSTANT, 4),
                                 Instructions.make(Opcode.OP_CONSTANT, 5),
-                                Instructions.make(Opcode.OP_HASH, 6),
+                                Instructions.make(Opcode.OP_MUL),
+                                Instructions.make(Opcode.OP_HASH, 4),
                                 Instructions.make(Opcode.OP_POP)
                         }
                 )
@@ -174,14 +326,11 @@ public class CompilerTest {
         CompilerTestCase[] tests = new CompilerTestCase[]{
                 new CompilerTestCase(
                         "[1, 2, 3][1 + 1]",
-                        new Object[]{1, 2, 3, 1, 1},
+                        new Object[]{new int[]{1, 2, 3}, 1, 1},
                         new byte[][]{
                                 Instructions.make(Opcode.OP_CONSTANT, 0),
                                 Instructions.make(Opcode.OP_CONSTANT, 1),
                                 Instructions.make(Opcode.OP_CONSTANT, 2),
-                                Instructions.make(Opcode.OP_ARRAY, 3),
-                                Instructions.make(Opcode.OP_CONSTANT, 3),
-                                Instructions.make(Opcode.OP_CONSTANT, 4),
                                 Instructions.make(Opcode.OP_ADD),
                                 Instructions.make(Opcode.OP_INDEX),
                                 Instructions.make(Opcode.OP_POP)
@@ -708,11 +857,155 @@ public class CompilerTest {
         runCompilerTests(tests);
     }
 
+    /**
+     * 測試純度分析: 只有純遞迴函數會被標記為可記憶化
+     */
+    @Test
+    public void testMemoizablePureRecursiveFunctions() {
+        String input = """
+                let limit = 10;
+                let fib = fn(n) { if (n < 2) { n } else { fib(n - 1) + fib(n - 2) } };
+                let noisy = fn(n) { puts(n); if (n == 0) { 0 } else { noisy(n - 1) } };
+                let double = fn(n) { n * 2 };
+                let capped = fn(n) { if (n > limit) { limit } else { capped(n + 1) } };
+                let viaNoisy = fn(n) { if (n == 0) { noisy(1) } else { viaNoisy(n - 1) } };
+                let outer = fn(k) { fn(n) { if (n == 0) { k } else { n } } };
+                let counter = 0;
+                let bump = fn(n) { counter = counter + 1; if (n == 0) { 0 } else { bump(n - 1) } };
+                let tri = fn(n) { let s = 0; while (n > 0) { s = s + n; n = n - 1; } if (s > 0) { s } else { tri(1) } };
+                """;
+
+        Compiler compiler = new Compiler();
+        try {
+            compiler.compile(parse(input));
+        } catch (Compiler.CompilerException e) {
+            fail("compiler error: " + e.getMessage());
+        }
+
+        List<Boolean> flags = new ArrayList<>();
+        for (MonkeyObject constant : compiler.bytecode().getConstants()) {
+            if (constant instanceof CompiledFunctionObject fn) {
+                flags.add(fn.isMemoizable());
+            }
+        }
+
+        // fib, noisy, double, capped, viaNoisy, 內層閉包, outer, bump, tri
+        assertEquals(List.of(true, false, false, true, false, false, false, false, true), flags);
+    }
+
+    /**
+     * 測試類型特化: 可證明為整數的運算使用 *_INT 指令，其餘退回通用指令
+     */
+    @Test
+    public void testTypeSpecialization() {
+        CompilerTestCase[] tests = new CompilerTestCase[]{
+                new CompilerTestCase(
+                        "1 + 2",
+                        new Object[]{1, 2},
+                        new byte[][]{
+                                Instructions.make(Opcode.OP_CONSTANT, 0),
+                                Instructions.make(Opcode.OP_CONSTANT, 1),
+                                Instructions.make(Opcode.OP_ADD_INT),
+                                Instructions.make(Opcode.OP_POP)
+                        }
+                ),
+                new CompilerTestCase(
+                        "\"mon\" + \"key\"",
+                        new Object[]{"mon", "key"},
+                        new byte[][]{
+                                Instructions.make(Opcode.OP_CONSTANT, 0),
+                                Instructions.make(Opcode.OP_CONSTANT, 1),
+                                Instructions.make(Opcode.OP_ADD),
+                                Instructions.make(Opcode.OP_POP)
+                        }
+                ),
+                // 參數類型來自所有調用點
+                new CompilerTestCase(
+                        "let inc = fn(x) { x + 1 }; inc(2) < 5;",
+                        new Object[]{
+                                1,
+                                new Object[]{
+                                        Instructions.make(Opcode.OP_GET_LOCAL, 0),
+                                        Instructions.make(Opcode.OP_CONSTANT, 0),
+                                        Instructions.make(Opcode.OP_ADD_INT),
+                                        Instructions.make(Opcode.OP_RETURN_VALUE)
+                                },
+                                2, 5
+                        },
+                        new byte[][]{
+                                Instructions.make(Opcode.OP_CLOSURE, 1, 0),
+                                Instructions.make(Opcode.OP_SET_GLOBAL, 0),
+                                Instructions.make(Opcode.OP_GET_GLOBAL, 0),
+                                Instructions.make(Opcode.OP_CONSTANT, 2),
+                                Instructions.make(Opcode.OP_CALL, 1),
+                                Instructions.make(Opcode.OP_CONSTANT, 3),
+                                Instructions.make(Opcode.OP_LESS_THAN_INT),
+                                Instructions.make(Opcode.OP_POP)
+                        }
+                ),
+                // 函數作為值傳遞後無法得知參數類型
+                new CompilerTestCase(
+                        "let inc = fn(x) { x + 1 }; let alias = inc; alias(2);",
+                        new Object[]{
+                                1,
+                                new Object[]{
+                                        Instructions.make(Opcode.OP_GET_LOCAL, 0),
+                                        Instructions.make(Opcode.OP_CONSTANT, 0),
+                                        Instructions.make(Opcode.OP_ADD),
+                                        Instructions.make(Opcode.OP_RETURN_VALUE)
+                                },
+                                2
+                        },
+                        new byte[][]{
+                                Instructions.make(Opcode.OP_CLOSURE, 1, 0),
+                                Instructions.make(Opcode.OP_SET_GLOBAL, 0),
+                                Instructions.make(Opcode.OP_GET_GLOBAL, 0),
+                                Instructions.make(Opcode.OP_SET_GLOBAL, 1),
+                                Instructions.make(Opcode.OP_GET_GLOBAL, 1),
+                                Instructions.make(Opcode.OP_CONSTANT, 2),
+                                Instructions.make(Opcode.OP_CALL, 1),
+                                Instructions.make(Opcode.OP_POP)
+                        }
+                ),
+                // 任一調用點傳入字串，參數就不再是整數
+                new CompilerTestCase(
+                        "let twice = fn(x) { x + x }; twice(1); twice(\"a\");",
+                        new Object[]{
+                                new Object[]{
+                                        Instructions.make(Opcode.OP_GET_LOCAL, 0),
+                                        Instructions.make(Opcode.OP_GET_LOCAL, 0),
+                                        Instructions.make(Opcode.OP_ADD),
+                                        Instructions.make(Opcode.OP_RETURN_VALUE)
+                                },
+                                1, "a"
+                        },
+                        new byte[][]{
+                                Instructions.make(Opcode.OP_CLOSURE, 0, 0),
+                                Instructions.make(Opcode.OP_SET_GLOBAL, 0),
+                                Instructions.make(Opcode.OP_GET_GLOBAL, 0),
+                                Instructions.make(Opcode.OP_CONSTANT, 1),
+                                Instructions.make(Opcode.OP_CALL, 1),
+                                Instructions.make(Opcode.OP_POP),
+                                Instructions.make(Opcode.OP_GET_GLOBAL, 0),
+                                Instructions.make(Opcode.OP_CONSTANT, 2),
+                                Instructions.make(Opcode.OP_CALL, 1),
+                                Instructions.make(Opcode.OP_POP)
+                        }
+                )
+        };
+        runCompilerTests(tests, true);
+    }
+
     private void runCompilerTests(CompilerTestCase[] tests) {
+        runCompilerTests(tests, false);
+    }
+
+    private void runCompilerTests(CompilerTestCase[] tests, boolean typeSpecialization) {
         for (CompilerTestCase tt : tests) {
             Program program = parse(tt.input);
 
             Compiler compiler = new Compiler();
+            compiler.setTypeSpecialization(typeSpecialization);
             try {
                 compiler.compile(program);
             } catch (Compiler.CompilerException e) {
@@ -767,6 +1060,28 @@ public class CompilerTest {
             else if (constant instanceof String) {
                 testStringObject((String) constant, actual.get(i));
             }
+            else if (constant instanceof int[] elements) {
+                // 編譯期建立的常量陣列
+                assertTrue(actual.get(i) instanceof ArrayObject,
+                        "constant " + i + " is not an Array. got=" + actual.get(i).getClass());
+                ArrayObject array = (ArrayObject) actual.get(i);
+                assertEquals(elements.length, array.size());
+                for (int j = 0; j < elements.length; j++) {
+                    testIntegerObject(elements[j], array.get(j));
+                }
+            }
+            else if (constant instanceof java.util.Map<?, ?> pairs) {
+                // 編譯期建立的常量雜湊表（整數鍵值）
+                assertTrue(actual.get(i) instanceof HashObject,
+                        "constant " + i + " is not a Hash. got=" + actual.get(i).getClass());
+                HashObject hash = (HashObject) actual.get(i);
+                assertEquals(pairs.size(), hash.size());
+                for (java.util.Map.Entry<?, ?> entry : pairs.entrySet()) {
+                    HashObject.HashPair pair = hash.get(IntegerObject.valueOf((Integer) entry.getKey()));
+                    assertNotNull(pair);
+                    testIntegerObject((Integer) entry.getValue(), pair.value);
+                }
+            }
             else if (constant instanceof Object[]) {
                 // Chapter 7: 處理 CompiledFunction 的指令
                 assertTrue(actual.get(i) instanceof CompiledFunctionObject,
@@ -41,6 +41,138 @@ public class Chapter4Test {
         assertEquals("Hello World!", ((StringObject) evaluated).getValue());
     }
 
+    @Test
+    public void testStringEquality() {
+        Object[][] tests = {
+                {"\"a\" == \"a\"", true},
+                {"\"a\" != \"a\"", false},
+                {"\"a\" == \"b\"", false},
+                {"\"mon\" + \"key\" == \"monkey\"", true},
+                {"\"a long string that \" + \"is not interned\" == \"a long string that is not interned\"", true},
+                {"\"Aa\" == \"BB\"", false},
+                {"\"1\" == 1", false}
+        };
+
+        for (Object[] tt : tests) {
+            MonkeyObject evaluated = testEval((String) tt[0]);
+            assertEquals(BooleanObject.valueOf((Boolean) tt[1]), evaluated, (String) tt[0]);
+        }
+
+        assertSame(StringObject.intern("monkey"), testEval("\"monkey\""));
+        assertSame(StringObject.intern("monkey"), testEval("\"mon\" + \"key\""));
+        assertTrue(StringObject.intern("monkey").isInterned());
+        assertFalse(new StringObject("monkey").isInterned());
+        assertTrue(new StringObject("monkey").valueEquals(StringObject.intern("monkey")));
+    }
+
+    @Test
+    public void testPackedIntegerArrays() {
+        ArrayObject ints = (ArrayObject) testEval("[1, 2, 3, 5000000000]");
+        assertTrue(ints.isIntArray());
+        assertEquals(5000000000L, ints.getLong(3));
+        assertEquals("[1, 2, 3, 5000000000]", ints.inspect());
+
+        ArrayObject pushed = (ArrayObject) testEval("push([1, 2, 3], 4)");
+        assertTrue(pushed.isIntArray());
+        assertTrue(((ArrayObject) testEval("rest([1, 2, 3])")).isIntArray());
+        assertTrue(((ArrayObject) testEval("[]")).isIntArray());
+
+        ArrayObject widened = (ArrayObject) testEval("let a = [1, 2]; let b = push(a, \"x\"); b");
+        assertFalse(widened.isIntArray());
+        assertEquals("[1, 2, x]", widened.inspect());
+        assertFalse(((ArrayObject) testEval("[1, true]")).isIntArray());
+
+        Object[][] tests = {
+                {"let a = [1, 2]; let b = push(a, \"x\"); len(a) + len(b)", 5L},
+                {"let a = [1, 2, 3]; let b = rest(a); let c = push(b, \"x\"); [first(b), last(b), len(c)][2]", 3L},
+                {"let a = []; let i = 0; while (i < 100) { a = push(a, i * 1000000000); i = i + 1; } a[99]", 99000000000L},
+                {"let a = [1, 2, 3]; let b = push(rest(a), 9); b[2]", 9L}
+        };
+        for (Object[] tt : tests) {
+            testIntegerObject(testEval((String) tt[0]), (Long) tt[1]);
+        }
+    }
+
+    @Test
+    public void testByteBackedStrings() {
+        byte[] buffer = "GET /index.html HTTP/1.1".getBytes(java.nio.charset.StandardCharsets.US_ASCII);
+        StringObject request = StringObject.fromUtf8(buffer, 0, buffer.length);
+        StringObject path = request.substring(4, 15);
+        assertTrue(request.isBytes());
+        assertTrue(path.isBytes());
+        assertEquals("/index.html", path.getValue());
+        assertEquals(11, path.length());
+        assertEquals(new StringObject("/index.html").keyHash(), path.keyHash());
+        assertTrue(path.valueEquals(StringObject.intern("/index.html")));
+        assertFalse(path.valueEquals(StringObject.intern("/index.htm!")));
+        assertTrue(path.valueEquals(StringObject.fromLatin1(buffer, 4, 11)));
+        StringObject repeated = StringObject.concat(StringObject.concat(request, request), request);
+        assertTrue(repeated.isRope());
+        assertEquals("GET /index.html HTTP/1.1".repeat(3), repeated.getValue());
+
+        byte[] latin1 = {(byte) 'c', (byte) 0xe9};
+        assertEquals("c\u00e9", StringObject.fromLatin1(latin1, 0, 2).getValue());
+        byte[] utf8 = "caf\u00e9".getBytes(java.nio.charset.StandardCharsets.UTF_8);
+        StringObject decoded = StringObject.fromUtf8(utf8, 0, utf8.length);
+        assertFalse(decoded.isBytes());
+        assertEquals(4, decoded.length());
+
+        Environment env = new Environment();
+        env.set("path", path);
+        Object[][] tests = {
+                {"path == \"/index.html\"", true},
+                {"path != \"/index.html\"", false},
+                {"len(path)", 11L},
+                {"{\"/index.html\": 1}[path]", 1L},
+                {"{path: 2}[\"/index.html\"]", 2L},
+                {"path + \"?q=1\" == \"/index.html?q=1\"", true}
+        };
+        for (Object[] tt : tests) {
+            MonkeyObject result = Evaluator.eval(new Parser(new Lexer((String) tt[0])).parseProgram(), env);
+            if (tt[1] instanceof Long) {
+                testIntegerObject(result, (Long) tt[1]);
+            } else {
+                assertEquals(BooleanObject.valueOf((Boolean) tt[1]), result, (String) tt[0]);
+            }
+        }
+    }
+
+    @Test
+    public void testRopeConcatenation() {
+        String input = """
+                let piece = "0123456789";
+                let acc = "";
+                let i = 0;
+                while (i < 20000) { acc = acc + piece; i = i + 1; }
+                acc
+                """;
+        MonkeyObject evaluated = testEval(input);
+        assertTrue(evaluated instanceof StringObject);
+        StringObject rope = (StringObject) evaluated;
+        assertTrue(rope.isRope());
+        assertEquals(200000, rope.length());
+        assertTrue(rope.isRope());
+
+        assertEquals("0123456789".repeat(20000), rope.getValue());
+        assertFalse(rope.isRope());
+
+        Object[][] tests = {
+                {"let s = \"x\"; let i = 0; while (i < 20) { s = s + s; i = i + 1; } len(s)", 1048576L},
+                {"let a = \"abcdefghijklmnopqrstuvwxyz\"; len(a + a + a + a)", 104L},
+                {"let a = \"abcdefghijklmnopqrstuvwxyz\"; (a + a) + (a + a) == a + (a + (a + a))", true},
+                {"let a = \"abcdefghijklmnopqrstuvwxyz\"; {a + a + a: 1}[a + (a + a)]", 1L},
+                {"let a = \"abcdefghijklmnopqrstuvwxyz\"; a + a + a == a + a + \"x\"", false}
+        };
+        for (Object[] tt : tests) {
+            MonkeyObject result = testEval((String) tt[0]);
+            if (tt[1] instanceof Long) {
+                testIntegerObject(result, (Long) tt[1]);
+            } else {
+                assertEquals(BooleanObject.valueOf((Boolean) tt[1]), result, (String) tt[0]);
+            }
+        }
+    }
+
     @Test
     public void testBuiltinFunctions() {
         Object[][] tests = {
@@ -152,7 +284,14 @@ public class Chapter4Test {
                 {"{}[\"foo\"]", null},
                 {"{5: 5}[5]", 5L},
                 {"{true: 5}[true]", 5L},
-                {"{false: 5}[false]", 5L}
+                {"{false: 5}[false]", 5L},
+                {"{\"Aa\": 1, \"BB\": 2}[\"BB\"]", 2L},
+                {"{\"Aa\": 1, 2112: 2}[2112]", 2L},
+                {"{\"Aa\": 1, 2112: 2}[\"Aa\"]", 1L},
+                {"{1: 1, true: 2}[true]", 2L},
+                {"{0: 1, 4294967296: 2}[0]", 1L},
+                {"{0: 1, 4294967296: 2}[4294967296]", 2L},
+                {"{0: 1}[4294967296]", null}
         };
 
         for (Object[] tt : tests) {
@@ -165,6 +304,47 @@ public class Chapter4Test {
         }
     }
 
+    @Test
+    public void testHashKeysUseFullValue() {
+        assertNotEquals(new IntegerObject(0).hashKey(), new IntegerObject(1L << 32).hashKey());
+        assertNotEquals(new StringObject("Aa").hashKey(), new StringObject("BB").hashKey());
+        assertNotEquals(new IntegerObject(1).hashKey(), BooleanObject.TRUE.hashKey());
+        assertEquals(new StringObject("Aa").hashKey(), new StringObject("Aa").hashKey());
+        assertEquals(new IntegerObject(-7).hashKey(), new IntegerObject(-7).hashKey());
+
+        IntegerObject key = new IntegerObject(3);
+        assertSame(key.hashKey(), key.hashKey());
+
+        MonkeyObject evaluated = testEval("{0: \"a\", 4294967296: \"b\", \"Aa\": 1, \"BB\": 2}");
+        assertEquals(4, ((HashObject) evaluated).getPairs().size());
+    }
+
+    @Test
+    public void testHashObjectPersistentPut() {
+        HashObject empty = new HashObject(PersistentHashMap.EMPTY);
+        HashObject hash = empty;
+        for (int i = 0; i < 5000; i++) {
+            hash = hash.put(new IntegerObject(i), new IntegerObject(i * 2L));
+        }
+        HashObject updated = hash.put(new IntegerObject(42), new StringObject("x"))
+                .put(new StringObject("Aa"), BooleanObject.TRUE)
+                .put(new StringObject("BB"), BooleanObject.FALSE);
+
+        assertEquals(0, empty.size());
+        assertEquals(5000, hash.size());
+        assertEquals(5002, updated.size());
+        for (int i = 0; i < 5000; i++) {
+            testIntegerObject(hash.get(new IntegerObject(i)).value, i * 2L);
+        }
+        testIntegerObject(hash.get(new IntegerObject(42)).value, 84L);
+        assertEquals("x", updated.get(new IntegerObject(42)).value.inspect());
+        assertEquals(BooleanObject.TRUE, updated.get(new StringObject("Aa")).value);
+        assertEquals(BooleanObject.FALSE, updated.get(new StringObject("BB")).value);
+        assertNull(hash.get(new StringObject("Aa")));
+        assertNull(updated.get(new IntegerObject(5000)));
+        assertEquals(5002, updated.getPairs().size());
+    }
+
     @Test
     public void testArrayBuiltinFunctions() {
         Object[][] tests = {
@@ -176,7 +356,21 @@ public class Chapter4Test {
                 {"let a = [1]; rest(a)", new long[]{}},
                 {"rest([])", null},
                 {"let a = [1, 2]; push(a, 3)", new long[]{1, 2, 3}},
-                {"let a = []; push(a, 1)", new long[]{1}}
+                {"let a = []; push(a, 1)", new long[]{1}},
+                {"let a = [1, 2]; let b = push(a, 3); let c = push(a, 4); [len(a), b[2], c[2]]", new long[]{2, 3, 4}},
+                {"""
+                 let a = [];
+                 let i = 0;
+                 while (i < 5000) { a = push(a, i); i = i + 1; }
+                 [len(a), a[31], a[32], a[1024], last(rest(a))]
+                 """, new long[]{5000, 31, 32, 1024, 4999}},
+                {"rest(rest([1, 2, 3, 4]))", new long[]{3, 4}},
+                {"let a = [1, 2, 3]; let b = rest(a); let c = push(a, 9); [len(b), b[0], c[3]]", new long[]{2, 2, 9}},
+                {"let a = [1, 2, 3]; rest(a)[2]", null},
+                {"""
+                 let sum = fn(arr) { if (len(arr) == 0) { 0 } else { first(arr) + sum(rest(arr)) } };
+                 sum([1, 2, 3, 4, 5])
+                 """, 15L}
         };
 
         for (Object[] tt : tests) {
@@ -1,11 +1,15 @@
 package com.monkey.evaluator;
 
+import com.monkey.ast.ExpressionStatement;
+import com.monkey.ast.Identifier;
 import com.monkey.ast.Program;
 import com.monkey.lexer.Lexer;
 import com.monkey.object.*;
 import com.monkey.parser.Parser;
 import org.junit.jupiter.api.Test;
 
+import java.util.concurrent.ForkJoinPool;
+
 import static org.junit.jupiter.api.Assertions.*;
 
 /**
@@ -38,7 +42,15 @@ public class EvaluatorTest {
                 {"2 * (5 + 10)", 30L},
                 {"3 * 3 * 3 + 10", 37L},
                 {"3 * (3 * 3) + 10", 37L},
-                {"(5 + 10 * 2 + 15 / 3) * 2 + -10", 50L}
+                {"(5 + 10 * 2 + 15 / 3) * 2 + -10", 50L},
+                {"17 % 5", 2L},
+                {"-17 % 5", -2L},
+                {"12 & 10", 8L},
+                {"12 | 10", 14L},
+                {"12 ^ 10", 6L},
+                {"1 << 10", 1024L},
+                {"-16 >> 2", -4L},
+                {"1 + 7 % 4 * 2", 7L}
         };
 
         for (Object[] tt : tests) {
@@ -47,6 +59,21 @@ public class EvaluatorTest {
         }
     }
 
+    @Test
+    public void testSmallIntegerCache() {
+        assertSame(IntegerObject.valueOf(0), IntegerObject.valueOf(0));
+        assertSame(IntegerObject.valueOf(IntegerObject.CACHE_LOW), IntegerObject.valueOf(IntegerObject.CACHE_LOW));
+        assertSame(IntegerObject.valueOf(IntegerObject.CACHE_HIGH), IntegerObject.valueOf(IntegerObject.CACHE_HIGH));
+        assertNotSame(IntegerObject.valueOf(IntegerObject.CACHE_HIGH + 1), IntegerObject.valueOf(IntegerObject.CACHE_HIGH + 1));
+        assertEquals(IntegerObject.CACHE_HIGH + 1, IntegerObject.valueOf(IntegerObject.CACHE_HIGH + 1).getValue());
+
+        // 運算結果、取負和 len 都使用共享實例
+        assertSame(IntegerObject.valueOf(5), testEval("2 + 3"));
+        assertSame(IntegerObject.valueOf(-7), testEval("-7"));
+        assertSame(IntegerObject.valueOf(3), testEval("len([1, 2, 3])"));
+        testIntegerObject(testEval("1000 * 1000"), 1000000L);
+    }
+
     @Test
     public void testEvalBooleanExpression() {
         Object[][] tests = {
@@ -59,12 +86,64 @@ public class EvaluatorTest {
                 {"true == true", true},
                 {"false == false", true},
                 {"true == false", false},
-                {"(1 < 2) == true", true}
+                {"(1 < 2) == true", true},
+                {"1 <= 1", true},
+                {"2 <= 1", false},
+                {"1 >= 1", true},
+                {"1 >= 2", false}
+        };
+
+        for (Object[] tt : tests) {
+            testBooleanObject(testEval((String) tt[0]), (Boolean) tt[1]);
+        }
+    }
+
+    @Test
+    public void testLogicalOperators() {
+        Object[][] tests = {
+                {"true && true", true},
+                {"true && false", false},
+                {"false || true", true},
+                {"false || false", false},
+                {"1 < 2 && 2 < 3", true},
+                {"1 > 2 || 2 > 3", false},
+                // 右側不會被求值
+                {"false && undefinedName", false},
+                {"true || undefinedName", true},
+                {"let f = fn() { 1 / 0 }; true || f()", true}
         };
 
         for (Object[] tt : tests) {
             testBooleanObject(testEval((String) tt[0]), (Boolean) tt[1]);
         }
+
+        // 結果是決定真假的運算元本身
+        testIntegerObject(testEval("1 && 2"), 2L);
+        testIntegerObject(testEval("1 || 2"), 1L);
+        testIntegerObject(testEval("false || 3"), 3L);
+    }
+
+    @Test
+    public void testWhileLoops() {
+        Object[][] tests = {
+                {"let i = 0; while (i < 10) { i = i + 1; } i", 10L},
+                {"let i = 0; let sum = 0; while (i < 100) { i = i + 1; sum = sum + i; } sum", 5050L},
+                {"let f = fn(n) { let r = 1; while (n > 0) { r = r * n; n = n - 1; } r }; f(5)", 120L},
+                {"let f = fn() { let i = 0; while (true) { i = i + 1; if (i == 7) { return i; } } }; f()", 7L},
+                // 閉包共享外層環境，賦值對外可見
+                {"let n = 1; let inc = fn() { n = n + 1 }; inc(); inc(); n", 3L},
+                {"let x = 5; if (true) { x = 6 }; x", 6L}
+        };
+
+        for (Object[] tt : tests) {
+            testIntegerObject(testEval((String) tt[0]), (Long) tt[1]);
+        }
+
+        testNullObject(testEval("while (false) { 1 }"));
+
+        MonkeyObject error = testEval("y = 1");
+        assertTrue(error instanceof ErrorObject);
+        assertEquals("identifier not found: y", ((ErrorObject) error).getMessage());
     }
 
     @Test
@@ -111,7 +190,12 @@ public class EvaluatorTest {
                 {"return 10; 9;", 10L},
                 {"return 2 * 5; 9;", 10L},
                 {"9; return 2 * 5; 9;", 10L},
-                {"if (10 > 1) { if (10 > 1) { return 10; } return 1; }", 10L}
+                {"if (10 > 1) { if (10 > 1) { return 10; } return 1; }", 10L},
+                // return 從函數體中的任意位置結束當前函數，不影響調用者
+                {"let f = fn(x) { while (true) { if (x > 3) { return x; } x = x + 1; } }; f(0) + f(10)", 14L},
+                {"let f = fn() { let g = fn() { return 1; }; g() + 1 }; f()", 2L},
+                {"let f = fn() { let x = if (true) { return 5; }; 10 }; f()", 5L},
+                {"let f = fn() { [1, if (true) { return 7; }, 3] }; f()", 7L}
         };
 
         for (Object[] tt : tests) {
@@ -119,6 +203,24 @@ public class EvaluatorTest {
         }
     }
 
+    /**
+     * 錯誤以模板和參數建立，訊息在讀取時才格式化
+     */
+    @Test
+    public void testStructuredErrors() {
+        MonkeyObject evaluated = testEval("let f = fn(x) { x + true }; f(1)");
+        ErrorObject error = assertInstanceOf(ErrorObject.class, evaluated);
+        assertEquals("type mismatch: %s %s %s", error.getTemplate());
+        assertArrayEquals(new Object[]{ObjectType.INTEGER, "+", ObjectType.BOOLEAN}, error.getArgs());
+        assertEquals("type mismatch: INTEGER + BOOLEAN", error.getMessage());
+        assertEquals("ERROR: type mismatch: INTEGER + BOOLEAN", error.inspect());
+
+        ErrorObject plain = new ErrorObject("plain message");
+        assertEquals("plain message", plain.getTemplate());
+        assertEquals(0, plain.getArgs().length);
+        assertEquals(plain, ErrorObject.of("plain %s", "message"));
+    }
+
     @Test
     public void testErrorHandling() {
         Object[][] tests = {
@@ -126,7 +228,10 @@ public class EvaluatorTest {
                 {"-true", "unknown operator: -BOOLEAN"},
                 {"true + false;", "unknown operator: BOOLEAN + BOOLEAN"},
                 {"foobar", "identifier not found: foobar"},
-                {"10 / 0", "division by zero"}
+                {"10 / 0", "division by zero"},
+                {"10 % 0", "division by zero"},
+                {"true & false", "unknown operator: BOOLEAN & BOOLEAN"},
+                {"fn(a, b) { a }(1)", "wrong number of arguments: want=2, got=1"}
         };
 
         for (Object[] tt : tests) {
@@ -191,6 +296,175 @@ public class EvaluatorTest {
         testIntegerObject(testEval(input), 4L);
     }
 
+    /**
+     * 識別符號解析到槽位後，作用域語義與按名稱查找時一致
+     */
+    @Test
+    public void testResolvedScopes() {
+        Object[][] tests = {
+                // 局部變量遮蔽全局變量，不影響外層
+                {"let x = 1; let f = fn() { let x = 2; x }; f() + x", 3L},
+                // 局部 let 執行之前讀到的是外層的同名變量
+                {"let x = 10; let f = fn() { let y = x; let x = 1; x + y }; f()", 11L},
+                // 只在條件分支中執行的 let
+                {"let x = 5; let f = fn(c) { if (c) { let x = 1; } x }; f(false) + f(true)", 6L},
+                // 遮蔽內建函數
+                {"let f = fn() { let len = fn(a) { 42 }; len([1]) }; f() + len([1, 2])", 44L},
+                // 閉包計數器在各自的幀中保存狀態
+                {"let counter = fn() { let n = 0; fn() { n = n + 1; n } }; let a = counter(); let b = counter(); a(); a(); b(); a()", 3L},
+                // 巢狀閉包跨多層讀取
+                {"let f = fn(a) { fn(b) { fn(c) { a + b + c } } }; f(1)(2)(3)", 6L},
+                // 函數體內的遞迴函數
+                {"let f = fn(n) { let g = fn(k) { if (k == 0) { 0 } else { k + g(k - 1) } }; g(n) }; f(10)", 55L}
+        };
+
+        for (Object[] tt : tests) {
+            testIntegerObject(testEval((String) tt[0]), (Long) tt[1]);
+        }
+
+        MonkeyObject error = testEval("let f = fn(c) { if (c) { let z = 1; } z }; f(false)");
+        assertTrue(error instanceof ErrorObject);
+        assertEquals("identifier not found: z", ((ErrorObject) error).getMessage());
+    }
+
+    /**
+     * 並行模式: 純的昂貴子表達式被分派，結果和錯誤與順序求值相同；有副作用時保持順序求值
+     */
+    @Test
+    public void testParallelEvaluation() {
+        String defs = "let fib = fn(n) { if (n < 2) { n } else { fib(n - 1) + fib(n - 2) } };"
+                + "let check = fn(n) { if (n == 3) { n + true } else { fib(n) } };"
+                + "let sum = fn(a, b, c) { let t = a + b; t = t + c; t };";
+        String[] pure = {
+                "[fib(10), fib(11), fib(12)]",
+                "{\"a\": fib(10), \"b\": fib(11)}",
+                "sum(fib(10), fib(11), 1)",
+                "[check(5), check(3), fib(1) / 0]",
+                "{fib(3): fib(4), [1]: fib(5)}",
+                "sum(fib(5), fib(6))",
+                // 雜湊字面值逐對檢查: 左側鍵不可雜湊的錯誤先於右側值的錯誤
+                "let f = fn(x) { 10 / x }; {[f(1)]: f(2), f(3): f(0)}",
+        };
+        String[] impure = {
+                "let n = 0; let inc = fn() { n = n + 1; n }; [inc() + fib(5), inc() + fib(5)]",
+                "[fib(10), puts(fib(3))]",
+                "let p = puts; [fib(5), p(fib(4))]",
+                "let apply = fn(g, x) { g(x) }; [apply(fib, 10), apply(fib, 11)]",
+        };
+
+        ForkJoinPool pool = new ForkJoinPool(4);
+        ParallelEvaluation evaluation = new ParallelEvaluation(pool, ParallelEvaluation.DEFAULT_COST_THRESHOLD);
+        try {
+            for (String input : pure) {
+                String expected = testEval(defs + input).inspect();
+                Evaluator.setParallelEvaluation(evaluation);
+                long before = evaluation.getForkedTaskCount();
+                String actual = testEval(defs + input).inspect();
+                Evaluator.setParallelEvaluation(null);
+                assertEquals(expected, actual, input);
+                assertTrue(evaluation.getForkedTaskCount() > before, input);
+            }
+            for (String input : impure) {
+                String expected = testEval(defs + input).inspect();
+                Evaluator.setParallelEvaluation(evaluation);
+                long before = evaluation.getForkedTaskCount();
+                String actual = testEval(defs + input).inspect();
+                Evaluator.setParallelEvaluation(null);
+                assertEquals(expected, actual, input);
+                assertEquals(before, evaluation.getForkedTaskCount(), input);
+            }
+        } finally {
+            Evaluator.setParallelEvaluation(null);
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * 內建函數登記表: id 即索引，解析時綁定，各元數入口與可變參數路徑結果一致
+     */
+    @Test
+    public void testBuiltinRegistry() {
+        for (int i = 0; i < Builtins.BUILTINS.length; i++) {
+            assertEquals(i, Builtins.BUILTINS[i].getId());
+            assertEquals(i, Builtins.indexOf(Builtins.BUILTINS[i].getName()));
+        }
+        assertEquals(-1, Builtins.indexOf("nope"));
+
+        Program program = new Parser(new Lexer("len")).parseProgram();
+        Environment env = new Environment();
+        assertSame(Builtins.LEN, Evaluator.eval(program, env));
+        Identifier ident = (Identifier) ((ExpressionStatement) program.getStatements().get(0)).getExpression();
+        assertEquals(Builtins.LEN.getId(), ident.getBuiltinId());
+
+        MonkeyObject array = testEval("[1, 2, 3]");
+        assertEquals(3L, ((IntegerObject) Builtins.LEN.call1(array)).getValue());
+        assertEquals(3L, ((IntegerObject) Builtins.LEN.call(new MonkeyObject[]{array})).getValue());
+        assertEquals("wrong number of arguments. got=0, want=1", ((ErrorObject) Builtins.LEN.call0()).getMessage());
+        assertEquals("wrong number of arguments. got=3, want=2",
+                ((ErrorObject) testEval("push([], 1, 2)")).getMessage());
+        assertEquals(NullObject.NULL, Builtins.PUTS.call0());
+        assertEquals(NullObject.NULL, testEval("first([])"));
+    }
+
+    /**
+     * 高階內建函數回調使用者函數、閉包和其他內建函數，回調中的錯誤原樣返回
+     */
+    @Test
+    public void testHigherOrderBuiltins() {
+        String[][] tests = {
+                {"map([1, 2, 3], fn(x) { x * 2 })", "[2, 4, 6]"},
+                {"filter([1, 2, 3, 4], fn(x) { x % 2 == 0 })", "[2, 4]"},
+                {"reduce([1, 2, 3, 4], 0, fn(acc, x) { acc + x })", "10"},
+                {"reduce([], 7, fn(acc, x) { acc + x })", "7"},
+                {"sort([3, 1, 2])", "[1, 2, 3]"},
+                {"sort([\"b\", \"c\", \"a\"])", "[a, b, c]"},
+                {"sort([3, 1, 2], fn(a, b) { b - a })", "[3, 2, 1]"},
+                {"let k = 10; map([1, 2], fn(x) { x + k })", "[11, 12]"},
+                {"map([1, 2], fn(x) { if (x > 1) { return 0; } x })", "[1, 0]"},
+                {"map([[1], [1, 2]], len)", "[1, 2]"},
+                {"map([[3, 1], [2]], sort)", "[[1, 3], [2]]"},
+                {"map([1, 2], fn(x) { reduce([1, 2, 3], x, fn(a, b) { a * b }) })", "[6, 12]"},
+                {"map([], 1)", "ERROR: argument to `map` must be FUNCTION, got INTEGER"},
+                {"filter(1, fn(x) { x })", "ERROR: argument to `filter` must be ARRAY, got INTEGER"},
+                {"reduce([1], fn(a, b) { a })", "ERROR: wrong number of arguments. got=2, want=3"},
+                {"map([1, 2], fn(x) { x + true })", "ERROR: type mismatch: INTEGER + BOOLEAN"},
+                {"map([1], fn(a, b) { a })", "ERROR: wrong number of arguments: want=2, got=1"},
+                {"sort([1, \"a\"])", "ERROR: `sort` cannot compare INTEGER without a comparator"},
+                {"sort([2, 1], fn(a, b) { true })", "ERROR: comparator for `sort` must return INTEGER, got BOOLEAN"},
+        };
+
+        for (String[] tt : tests) {
+            assertEquals(tt[1], testEval(tt[0]).inspect(), tt[0]);
+        }
+        assertEquals("builtin `map` calls functions and needs a function caller",
+                ((ErrorObject) Builtins.MAP.call2(testEval("[1]"), Builtins.LEN)).getMessage());
+    }
+
+    /**
+     * 與 REPL 一樣在同一個環境中逐行求值: 後面的行可以定義前面的函數引用的名稱
+     */
+    @Test
+    public void testIncrementalGlobalEnvironment() {
+        Environment env = new Environment();
+        String[] lines = {
+                "let f = fn() { g() + y };",
+                "let y = 1;",
+                "let g = fn() { 41 };",
+                "f()",
+                "let y = 2; f()",
+        };
+        MonkeyObject result = null;
+        for (String line : lines) {
+            result = Evaluator.eval(new Parser(new Lexer(line)).parseProgram(), env);
+        }
+        testIntegerObject(result, 43L);
+        testIntegerObject(env.get("y"), 2L);
+
+        // 宿主程式按名稱設置的變量對之後的程式可見
+        env.set("z", IntegerObject.valueOf(100));
+        testIntegerObject(Evaluator.eval(new Parser(new Lexer("f() + z")).parseProgram(), env), 143L);
+    }
+
     // 輔助測試方法
 
     private void testIntegerObject(MonkeyObject obj, long expected) {
@@ -0,0 +1,155 @@
+package com.monkey.evaluator;
+
+import com.monkey.ast.Program;
+import com.monkey.lexer.Lexer;
+import com.monkey.object.*;
+import com.monkey.parser.Parser;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * StackEvaluator 測試類 - 顯式續延棧求值器
+ */
+public class StackEvaluatorTest {
+
+    private MonkeyObject testEval(String input) {
+        Program program = new Parser(new Lexer(input)).parseProgram();
+        return StackEvaluator.eval(program, new Environment());
+    }
+
+    private MonkeyObject testEval(String input, long budget) {
+        Program program = new Parser(new Lexer(input)).parseProgram();
+        return new StackEvaluator(budget).evaluate(program, new Environment());
+    }
+
+    private MonkeyObject evaluatorEval(String input) {
+        Program program = new Parser(new Lexer(input)).parseProgram();
+        return Evaluator.eval(program, new Environment());
+    }
+
+    private static String inspect(MonkeyObject obj) {
+        return obj == null ? null : obj.inspect();
+    }
+
+    /**
+     * 與樹遍歷求值器的結果（包括錯誤訊息）逐一比較
+     */
+    @Test
+    public void testMatchesEvaluator() {
+        String[] inputs = {
+                "5 + 5 * 2 - 10 / 2 % 3",
+                "(1 << 10) | 3 & 2 ^ 7 >> 1",
+                "1 < 2 == true != false",
+                "-5 + !true",
+                "!!5",
+                "\"foo\" + \"bar\"",
+                "\"a\" == \"a\"",
+                "\"a\" != \"b\"",
+                "\"a\" - \"b\"",
+                "5 + true",
+                "true + false",
+                "1 / 0",
+                "7 % 0",
+                "if (1 > 2) { 10 } else { 20 }",
+                "if (false) { 10 }",
+                "let x = 5; let y = x * 2; x + y",
+                "let f = fn(x) { return x * 2; 99 }; f(3)",
+                "if (10 > 1) { if (10 > 1) { return 10; } return 1; }",
+                "return 7; 8",
+                "let add = fn(a, b) { a + b }; add(add(1, 2), add(3, 4))",
+                "let newAdder = fn(x) { fn(y) { x + y } }; newAdder(2)(3)",
+                "let fib = fn(n) { if (n < 2) { n } else { fib(n - 1) + fib(n - 2) } }; fib(15)",
+                "let i = 0; let sum = 0; while (i < 100) { i = i + 1; sum = sum + i; } sum",
+                "let f = fn() { let i = 0; while (true) { i = i + 1; if (i == 7) { return i; } } }; f()",
+                "let n = 1; let inc = fn() { n = n + 1 }; inc(); inc(); n",
+                "y = 1",
+                "foobar",
+                "1 && 2",
+                "false && undefined",
+                "0 || 3",
+                "[1, 2 * 2, 3 + 3][1]",
+                "[1, 2, 3][3]",
+                "[1, 2, 3][-1]",
+                "let a = [1, \"two\", [3]]; a[2][0]",
+                "{\"one\": 1, \"two\": 2}[\"two\"]",
+                "{1: true}[2]",
+                "{fn(x) { x }: 1}",
+                "{\"a\": 1}[fn(x) { x }]",
+                "len(\"hello\") + len([1, 2])",
+                "len(1)",
+                "first(rest(push([1, 2], 3)))",
+                "let len = fn(x) { 42 }; len([1])",
+                "let f = fn() { let len = fn(a) { 42 }; len([1]) }; f() + len([1, 2])",
+                "let x = 10; let f = fn() { let y = x; let x = 1; x + y }; f()",
+                "let f = fn(c) { if (c) { let z = 1; } z }; f(false)",
+                "let counter = fn() { let n = 0; fn() { n = n + 1; n } }; let a = counter(); a(); a()",
+                "5()",
+                "let f = fn(x) { x }; f",
+                "let f = fn(x) { let y = if (x) { return 1; } else { 2 }; y + 10 }; f(true) + f(false)",
+                "let f = fn(n) { while (n > 0) { n = n - 1; if (n == 2) { return n * 10; } } }; f(5)",
+                "let f = fn(x) { x && g(x) }; let g = fn(x) { x + 1 }; f(0) + f(false)",
+                "if (true) { }",
+                "map([1, 2, 3], fn(x) { x * x })",
+                "filter([1, 2, 3, 4, 5], fn(x) { x > 2 })",
+                "reduce([1, 2, 3], 10, fn(acc, x) { acc * x })",
+                "sort([5, 3, 9], fn(a, b) { a - b })",
+                "map([[2, 1], [\"b\", \"a\"]], sort)",
+                "map([1, 2], fn(x) { if (x == 2) { return x * 100; } x })",
+                "map([1], fn(x) { x + true })",
+                "sort([1, 2], fn(a, b) { \"x\" })",
+                "let map = fn(arr, g) { let iter = fn(a, acc) { if (len(a) == 0) { acc } else { iter(rest(a), push(acc, g(first(a)))) } }; iter(arr, []) }; map([1, 2, 3], fn(x) { x * x })",
+        };
+
+        for (String input : inputs) {
+            assertEquals(inspect(evaluatorEval(input)), inspect(testEval(input)), input);
+        }
+    }
+
+    /**
+     * 非尾遞迴的深度只受預算限制，遠超 Java 棧能承受的深度
+     */
+    @Test
+    public void testDeepRecursion() {
+        MonkeyObject result = testEval(
+                "let sum = fn(n) { if (n == 0) { 0 } else { n + sum(n - 1) } }; sum(200000)");
+        assertEquals(20000100000L, ((IntegerObject) result).getValue());
+
+        // 高階內建函數的回調同樣在續延棧上求值
+        result = testEval(
+                "let sum = fn(n) { if (n == 0) { 0 } else { n + sum(n - 1) } }; map([200000], sum)[0]");
+        assertEquals(20000100000L, ((IntegerObject) result).getValue());
+    }
+
+    /**
+     * 尾調用重用返回邊界，百萬次迭代只需固定的棧空間
+     */
+    @Test
+    public void testTailCallsRunInConstantStack() {
+        MonkeyObject result = testEval(
+                "let loop = fn(n, acc) { if (n == 0) { return acc; } loop(n - 1, acc + n) }; loop(1000000, 0)", 2048);
+        assertEquals(500000500000L, ((IntegerObject) result).getValue());
+
+        result = testEval(
+                "let even = fn(n) { if (n == 0) { true } else { odd(n - 1) } };"
+                        + "let odd = fn(n) { if (n == 0) { false } else { even(n - 1) } }; even(100001)", 2048);
+        assertEquals(BooleanObject.FALSE, result);
+    }
+
+    /**
+     * 超出預算時返回錯誤物件，求值器之後仍可重用
+     */
+    @Test
+    public void testBudgetExceeded() {
+        StackEvaluator evaluator = new StackEvaluator(4096);
+        Environment env = new Environment();
+
+        MonkeyObject result = evaluator.evaluate(new Parser(new Lexer(
+                "let sum = fn(n) { if (n == 0) { 0 } else { n + sum(n - 1) } }; sum(1000)")).parseProgram(), env);
+        ErrorObject error = assertInstanceOf(ErrorObject.class, result);
+        assertEquals("stack overflow: evaluation exceeded the 4096-byte stack budget", error.getMessage());
+
+        result = evaluator.evaluate(new Parser(new Lexer("sum(3)")).parseProgram(), env);
+        assertEquals(6L, ((IntegerObject) result).getValue());
+    }
+}
@@ -149,6 +149,7 @@ public class LexerTest {
             } else {
                 return false;
             }
+            while (x) { x = y; }
             """;
 
         Token[] expectedTokens = {
@@ -169,6 +170,16 @@ public class LexerTest {
                 new Token(TokenType.FALSE, "false"),
                 new Token(TokenType.SEMICOLON, ";"),
                 new Token(TokenType.RBRACE, "}"),
+                new Token(TokenType.WHILE, "while"),
+                new Token(TokenType.LPAREN, "("),
+                new Token(TokenType.IDENT, "x"),
+                new Token(TokenType.RPAREN, ")"),
+                new Token(TokenType.LBRACE, "{"),
+                new Token(TokenType.IDENT, "x"),
+                new Token(TokenType.ASSIGN, "="),
+                new Token(TokenType.IDENT, "y"),
+                new Token(TokenType.SEMICOLON, ";"),
+                new Token(TokenType.RBRACE, "}"),
                 new Token(TokenType.EOF, "")
         };
 
@@ -186,6 +197,8 @@ public class LexerTest {
         String input = """
             10 == 10;
             10 != 9;
+            a && b || c;
+            a <= b >= c % d & e | f ^ g << h >> i;
             """;
 
         Token[] expectedTokens = {
@@ -197,6 +210,30 @@ public class LexerTest {
                 new Token(TokenType.NOT_EQ, "!="),
                 new Token(TokenType.INT, "9"),
                 new Token(TokenType.SEMICOLON, ";"),
+                new Token(TokenType.IDENT, "a"),
+                new Token(TokenType.AND, "&&"),
+                new Token(TokenType.IDENT, "b"),
+                new Token(TokenType.OR, "||"),
+                new Token(TokenType.IDENT, "c"),
+                new Token(TokenType.SEMICOLON, ";"),
+                new Token(TokenType.IDENT, "a"),
+                new Token(TokenType.LT_EQ, "<="),
+                new Token(TokenType.IDENT, "b"),
+                new Token(TokenType.GT_EQ, ">="),
+                new Token(TokenType.IDENT, "c"),
+                new Token(TokenType.PERCENT, "%"),
+                new Token(TokenType.IDENT, "d"),
+                new Token(TokenType.AMPERSAND, "&"),
+                new Token(TokenType.IDENT, "e"),
+                new Token(TokenType.PIPE, "|"),
+                new Token(TokenType.IDENT, "f"),
+                new Token(TokenType.CARET, "^"),
+                new Token(TokenType.IDENT, "g"),
+                new Token(TokenType.SHIFT_LEFT, "<<"),
+                new Token(TokenType.IDENT, "h"),
+                new Token(TokenType.SHIFT_RIGHT, ">>"),
+                new Token(TokenType.IDENT, "i"),
+                new Token(TokenType.SEMICOLON, ";"),
                 new Token(TokenType.EOF, "")
         };
 
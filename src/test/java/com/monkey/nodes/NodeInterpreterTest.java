@@ -0,0 +1,205 @@
+package com.monkey.nodes;
+
+import com.monkey.ast.Program;
+import com.monkey.evaluator.Environment;
+import com.monkey.evaluator.Evaluator;
+import com.monkey.lexer.Lexer;
+import com.monkey.object.*;
+import com.monkey.parser.Parser;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * NodeInterpreter 測試類 - 自我特化節點引擎
+ */
+public class NodeInterpreterTest {
+
+    private MonkeyObject testEval(String input) {
+        Program program = new Parser(new Lexer(input)).parseProgram();
+        return NodeInterpreter.eval(program, new Environment());
+    }
+
+    private MonkeyObject evaluatorEval(String input) {
+        Program program = new Parser(new Lexer(input)).parseProgram();
+        return Evaluator.eval(program, new Environment());
+    }
+
+    /**
+     * 與樹遍歷求值器的結果（包括錯誤訊息）逐一比較
+     */
+    @Test
+    public void testMatchesEvaluator() {
+        String[] inputs = {
+                "5 + 5 * 2 - 10 / 2 % 3",
+                "(1 << 10) | 3 & 2 ^ 7 >> 1",
+                "1 < 2 == true != false",
+                "-5 + !true",
+                "!!5",
+                "\"foo\" + \"bar\"",
+                "\"a\" == \"a\"",
+                "\"a\" != \"b\"",
+                "\"a\" - \"b\"",
+                "5 + true",
+                "true + false",
+                "1 / 0",
+                "7 % 0",
+                "if (1 > 2) { 10 } else { 20 }",
+                "if (false) { 10 }",
+                "let x = 5; let y = x * 2; x + y",
+                "let f = fn(x) { return x * 2; 99 }; f(3)",
+                "if (10 > 1) { if (10 > 1) { return 10; } return 1; }",
+                "return 7; 8",
+                "let add = fn(a, b) { a + b }; add(add(1, 2), add(3, 4))",
+                "let newAdder = fn(x) { fn(y) { x + y } }; newAdder(2)(3)",
+                "let fib = fn(n) { if (n < 2) { n } else { fib(n - 1) + fib(n - 2) } }; fib(15)",
+                "let i = 0; let sum = 0; while (i < 100) { i = i + 1; sum = sum + i; } sum",
+                "let f = fn() { let i = 0; while (true) { i = i + 1; if (i == 7) { return i; } } }; f()",
+                "let n = 1; let inc = fn() { n = n + 1 }; inc(); inc(); n",
+                "y = 1",
+                "foobar",
+                "1 && 2",
+                "false && undefined",
+                "0 || 3",
+                "[1, 2 * 2, 3 + 3][1]",
+                "[1, 2, 3][3]",
+                "[1, 2, 3][-1]",
+                "let a = [1, \"two\", [3]]; a[2][0]",
+                "{\"one\": 1, \"two\": 2}[\"two\"]",
+                "{1: true}[2]",
+                "{fn(x) { x }: 1}",
+                "{\"a\": 1}[fn(x) { x }]",
+                "len(\"hello\") + len([1, 2])",
+                "len(1)",
+                "first(rest(push([1, 2], 3)))",
+                "let len = fn(x) { 42 }; len([1])",
+                "let f = fn() { let len = fn(a) { 42 }; len([1]) }; f() + len([1, 2])",
+                "let x = 10; let f = fn() { let y = x; let x = 1; x + y }; f()",
+                "let f = fn(c) { if (c) { let z = 1; } z }; f(false)",
+                "let counter = fn() { let n = 0; fn() { n = n + 1; n } }; let a = counter(); a(); a()",
+                "5()",
+                "let f = fn(x) { x }; f",
+                "map([1, 2, 3], fn(x) { x * x })",
+                "filter([1, 2, 3, 4, 5], fn(x) { x > 2 })",
+                "reduce([1, 2, 3], 10, fn(acc, x) { acc * x })",
+                "sort([5, 3, 9], fn(a, b) { a - b })",
+                "map([[2, 1], [\"b\", \"a\"]], sort)",
+                "map([1, 2], fn(x) { if (x == 2) { return x * 100; } x })",
+                "map([1], fn(x) { x + true })",
+                "sort([1, 2], fn(a, b) { \"x\" })",
+                "let map = fn(arr, g) { let iter = fn(a, acc) { if (len(a) == 0) { acc } else { iter(rest(a), push(acc, g(first(a)))) } }; iter(arr, []) }; map([1, 2, 3], fn(x) { x * x })",
+        };
+
+        for (String input : inputs) {
+            MonkeyObject expected = evaluatorEval(input);
+            MonkeyObject actual = testEval(input);
+            assertEquals(expected.inspect(), actual.inspect(), input);
+        }
+    }
+
+    /**
+     * 中綴節點在第一次執行後被重寫為對應類型的特化節點
+     */
+    @Test
+    public void testNodesSpecializeOnFirstExecution() {
+        Environment env = new Environment();
+        ControlNodes.Block root = NodeInterpreter.prepare(
+                new Parser(new Lexer("1 + 2; \"a\" + \"b\"; 3 < 4; true == false")).parseProgram(), env);
+
+        for (MonkeyNode statement : root.statements) {
+            assertInstanceOf(BinaryNode.Uninitialized.class, statement);
+        }
+
+        NodeInterpreter.execute(root, env);
+
+        assertInstanceOf(BinaryNode.IntAdd.class, root.statements[0]);
+        assertInstanceOf(BinaryNode.StringConcat.class, root.statements[1]);
+        assertInstanceOf(BinaryNode.IntLess.class, root.statements[2]);
+        assertInstanceOf(BinaryNode.Generic.class, root.statements[3]);
+        for (MonkeyNode statement : root.statements) {
+            assertSame(root, statement.getParent());
+        }
+    }
+
+    /**
+     * 特化節點遇到其他類型時退化為通用節點，結果仍然正確
+     */
+    @Test
+    public void testPolymorphicSiteGeneralizes() {
+        Environment env = new Environment();
+        ControlNodes.Block root = NodeInterpreter.prepare(
+                new Parser(new Lexer("let add = fn(a, b) { a + b };")).parseProgram(), env);
+        NodeInterpreter.execute(root, env);
+
+        VariableNodes.Let let = (VariableNodes.Let) root.statements[0];
+        ControlNodes.Block body = (ControlNodes.Block) ((ValueNodes.Function) let.value).body;
+
+        MonkeyObject result = NodeInterpreter.eval(new Parser(new Lexer("add(1, 2)")).parseProgram(), env);
+        assertEquals(3L, ((IntegerObject) result).getValue());
+        assertInstanceOf(BinaryNode.IntAdd.class, body.statements[0]);
+
+        result = NodeInterpreter.eval(new Parser(new Lexer("add(\"x\", \"y\")")).parseProgram(), env);
+        assertEquals("xy", ((StringObject) result).getValue());
+        assertInstanceOf(BinaryNode.Generic.class, body.statements[0]);
+
+        result = NodeInterpreter.eval(new Parser(new Lexer("add(4, 5)")).parseProgram(), env);
+        assertEquals(9L, ((IntegerObject) result).getValue());
+    }
+
+    /**
+     * 運算元中的遞迴調用先特化了同一個位置: 外層只委派給樹中的節點，不再重寫，子節點的父節點保持一致
+     */
+    @Test
+    public void testReentrantSpecialization() {
+        Environment env = new Environment();
+        ControlNodes.Block root = NodeInterpreter.prepare(new Parser(new Lexer("""
+                let f = fn(n) { if (n < 2) { n } else { (f(n - 1) + f(n - 2)) * 2 } };
+                let g = fn(a, n) { if (n == 0) { 0 } else { a[g(a, n - 1)] } };
+                """)).parseProgram(), env);
+        NodeInterpreter.execute(root, env);
+
+        MonkeyObject result = NodeInterpreter.eval(new Parser(new Lexer("f(10)")).parseProgram(), env);
+        assertEquals(evaluatorEval("let f = fn(n) { if (n < 2) { n } else { (f(n - 1) + f(n - 2)) * 2 } }; f(10)").inspect(),
+                result.inspect());
+        result = NodeInterpreter.eval(new Parser(new Lexer("g([0, 5], 3)")).parseProgram(), env);
+        assertEquals(0L, ((IntegerObject) result).getValue());
+
+        BinaryNode mul = (BinaryNode) elseBranch(root, 0).statements[0];
+        BinaryNode add = assertInstanceOf(BinaryNode.IntAdd.class, mul.left);
+        assertSame(mul, add.getParent());
+        assertSame(add, add.left.getParent());
+        assertSame(add, add.right.getParent());
+
+        ValueNodes.ArrayIndex index = assertInstanceOf(ValueNodes.ArrayIndex.class, elseBranch(root, 1).statements[0]);
+        assertSame(index, index.left.getParent());
+        assertSame(index, index.index.getParent());
+    }
+
+    private static ControlNodes.Block elseBranch(ControlNodes.Block root, int statement) {
+        VariableNodes.Let let = (VariableNodes.Let) root.statements[statement];
+        ControlNodes.Block body = (ControlNodes.Block) ((ValueNodes.Function) let.value).body;
+        return (ControlNodes.Block) ((ControlNodes.If) body.statements[0]).alternative;
+    }
+
+    /**
+     * 讀取內建函數的全局名稱被特化後，全局定義同名變量仍然優先
+     */
+    @Test
+    public void testBuiltinReadRespectsLaterGlobals() {
+        Environment env = new Environment();
+        NodeInterpreter.eval(new Parser(new Lexer("let size = fn(x) { len(x) };")).parseProgram(), env);
+
+        MonkeyObject result = NodeInterpreter.eval(new Parser(new Lexer("size([1, 2, 3])")).parseProgram(), env);
+        assertEquals(3L, ((IntegerObject) result).getValue());
+
+        result = NodeInterpreter.eval(new Parser(new Lexer("let len = fn(x) { 0 }; size([1, 2, 3])")).parseProgram(), env);
+        assertEquals(0L, ((IntegerObject) result).getValue());
+    }
+
+    @Test
+    public void testWrongArgumentCount() {
+        MonkeyObject result = testEval("let f = fn(a, b) { a }; f(1)");
+        assertInstanceOf(ErrorObject.class, result);
+        assertEquals("wrong number of arguments: want=2, got=1", ((ErrorObject) result).getMessage());
+    }
+}
@@ -248,7 +248,16 @@ public class ParserTest {
                 new PrecedenceTest("a + add(b * c) + d", "((a + add((b * c))) + d)"),
                 new PrecedenceTest("add(a, b, 1, 2 * 3, 4 + 5, add(6, 7 * 8))",
                         "add(a, b, 1, (2 * 3), (4 + 5), add(6, (7 * 8)))"),
-                new PrecedenceTest("add(a + b + c * d / f + g)", "add((((a + b) + ((c * d) / f)) + g))")
+                new PrecedenceTest("add(a + b + c * d / f + g)", "add((((a + b) + ((c * d) / f)) + g))"),
+                new PrecedenceTest("a || b && c", "(a || (b && c))"),
+                new PrecedenceTest("a && b || c && d", "((a && b) || (c && d))"),
+                new PrecedenceTest("a < b && b == c || !d", "(((a < b) && (b == c)) || (!d))"),
+                new PrecedenceTest("a && b && c", "((a && b) && c)"),
+                new PrecedenceTest("a <= b == b >= c", "((a <= b) == (b >= c))"),
+                new PrecedenceTest("a + b % c", "(a + (b % c))"),
+                new PrecedenceTest("x & 1 == 0", "((x & 1) == 0)"),
+                new PrecedenceTest("a | b & c ^ d", "((a | (b & c)) ^ d)"),
+                new PrecedenceTest("1 << n - 1", "((1 << n) - 1)")
         };
 
         for (PrecedenceTest tt : tests) {
@@ -284,6 +293,47 @@ public class ParserTest {
         assertTrue(bool.getValue());
     }
 
+    @Test
+    public void testWhileStatement() {
+        String input = "while (x < y) { x = x + 1; }";
+
+        Lexer l = new Lexer(input);
+        Parser p = new Parser(l);
+        Program program = p.parseProgram();
+        checkParserErrors(p);
+
+        assertEquals(1, program.getStatements().size());
+        assertTrue(program.getStatements().get(0) instanceof WhileStatement);
+
+        WhileStatement stmt = (WhileStatement) program.getStatements().get(0);
+        testInfixExpression(stmt.getCondition(), "x", "<", "y");
+
+        assertEquals(1, stmt.getBody().getStatements().size());
+        assertTrue(stmt.getBody().getStatements().get(0) instanceof AssignStatement);
+
+        AssignStatement assign = (AssignStatement) stmt.getBody().getStatements().get(0);
+        testIdentifier(assign.getName(), "x");
+        testInfixExpression(assign.getValue(), "x", "+", 1L);
+    }
+
+    @Test
+    public void testAssignStatements() {
+        String input = """
+                x = 5;
+                y = x == 5;
+                x;
+                """;
+
+        Lexer l = new Lexer(input);
+        Parser p = new Parser(l);
+        Program program = p.parseProgram();
+        checkParserErrors(p);
+
+        assertEquals(3, program.getStatements().size());
+        assertEquals("x = 5;y = (x == 5);x", program.string());
+        assertTrue(program.getStatements().get(2) instanceof ExpressionStatement);
+    }
+
     @Test
     public void testIfExpression() {
         String input = "if (x < y) { x }";
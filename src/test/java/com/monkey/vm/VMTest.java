@@ -23,7 +23,15 @@ public class VMTest {
         VMTestCase[] tests = new VMTestCase[]{
                 new VMTestCase("1", 1),
                 new VMTestCase("2", 2),
-                new VMTestCase("1 + 2", 3)
+                new VMTestCase("1 + 2", 3),
+                new VMTestCase("17 % 5", 2),
+                new VMTestCase("-17 % 5", -2),
+                new VMTestCase("12 & 10", 8),
+                new VMTestCase("12 | 10", 14),
+                new VMTestCase("12 ^ 10", 6),
+                new VMTestCase("1 << 10", 1024),
+                new VMTestCase("-16 >> 2", -4),
+                new VMTestCase("let f = fn(x, n) { x % n }; f(100, 7)", 2)
         };
         runVMTests(tests);
     }
@@ -33,7 +41,57 @@ public class VMTest {
         VMTestCase[] tests = new VMTestCase[]{
                 new VMTestCase("true", true),
                 new VMTestCase("false", false),
-                new VMTestCase("1 < 2", true)
+                new VMTestCase("1 < 2", true),
+                new VMTestCase("2 < 1", false),
+                new VMTestCase("1 <= 1", true),
+                new VMTestCase("2 <= 1", false),
+                new VMTestCase("1 >= 1", true),
+                new VMTestCase("1 >= 2", false),
+                new VMTestCase("let f = fn(a, b) { a <= b }; f(3, 4)", true),
+                new VMTestCase("\"a\" == \"a\"", true),
+                new VMTestCase("\"a\" != \"a\"", false),
+                new VMTestCase("\"a\" == \"b\"", false),
+                new VMTestCase("\"mon\" + \"key\" == \"monkey\"", true),
+                new VMTestCase("\"a long string that \" + \"is not interned\" == \"a long string that is not interned\"", true),
+                new VMTestCase("\"Aa\" == \"BB\"", false),
+                new VMTestCase("let f = fn(s) { s + \"!\" }; f(\"hi\") == f(\"hi\")", true),
+                new VMTestCase("\"1\" == 1", false)
+        };
+        runVMTests(tests);
+    }
+
+    @Test
+    public void testLogicalOperators() {
+        VMTestCase[] tests = new VMTestCase[]{
+                new VMTestCase("true && true", true),
+                new VMTestCase("true && false", false),
+                new VMTestCase("false || true", true),
+                new VMTestCase("false || false", false),
+                new VMTestCase("1 < 2 && 2 < 3", true),
+                new VMTestCase("1 && 2", 2),
+                new VMTestCase("1 || 2", 1),
+                new VMTestCase("false || 3", 3),
+                new VMTestCase("if (false || 1 > 0) { 10 } else { 20 }", 10),
+                // 右側不會被執行
+                new VMTestCase("let f = fn() { 1 / 0 }; false && f()", false),
+                new VMTestCase("let f = fn() { 1 / 0 }; true || f()", true)
+        };
+        runVMTests(tests);
+    }
+
+    @Test
+    public void testWhileLoops() {
+        VMTestCase[] tests = new VMTestCase[]{
+                new VMTestCase("let i = 0; while (i < 10) { i = i + 1; } i", 10),
+                new VMTestCase("let i = 0; let sum = 0; while (i < 100) { i = i + 1; sum = sum + i; } sum", 5050),
+                new VMTestCase("let f = fn(n) { let r = 1; while (n > 0) { r = r * n; n = n - 1; } r }; f(5)", 120),
+                new VMTestCase("let f = fn() { let i = 0; while (true) { i = i + 1; if (i == 7) { return i; } } }; f()", 7),
+                new VMTestCase("let n = 1; let inc = fn() { n = n + 1 }; inc(); inc(); n", 3),
+                new VMTestCase("let x = 5; if (true) { x = 6 }; x", 6),
+                new VMTestCase("let x = 5; let y = if (true) { x = 6 }; y", new NullObject()),
+                new VMTestCase("let f = fn() { while (false) { 1 } }; f()", new NullObject()),
+                // 迴圈次數不受 MAX_FRAMES 限制
+                new VMTestCase("let i = 0; while (i < 100000) { i = i + 1; } i", 100000)
         };
         runVMTests(tests);
     }
@@ -63,7 +121,10 @@ public class VMTest {
         VMTestCase[] tests = new VMTestCase[]{
                 new VMTestCase("\"monkey\"", "monkey"),
                 new VMTestCase("\"mon\" + \"key\"", "monkey"),
-                new VMTestCase("\"mon\" + \"key\" + \"banana\"", "monkeybanana")
+                new VMTestCase("\"mon\" + \"key\" + \"banana\"", "monkeybanana"),
+                new VMTestCase("let a = \"abcdefghijklmnopqrstuvwxyz\"; a + a + a", "abcdefghijklmnopqrstuvwxyz".repeat(3)),
+                new VMTestCase("let s = \"ab\"; let i = 0; while (i < 1000) { s = s + \"cd\"; i = i + 1; } s",
+                        "ab" + "cd".repeat(1000))
         };
         runVMTests(tests);
     }
@@ -102,7 +163,13 @@ public class VMTest {
                 new VMTestCase("[][0]", new NullObject()),
                 new VMTestCase("[1, 2, 3][99]", new NullObject()),
                 new VMTestCase("{1: 1, 2: 2}[1]", 1),
-                new VMTestCase("{1: 1}[0]", new NullObject())
+                new VMTestCase("{1: 1}[0]", new NullObject()),
+                new VMTestCase("{\"Aa\": 1, \"BB\": 2}[\"BB\"]", 2),
+                new VMTestCase("{\"Aa\": 1, 2112: 2}[\"Aa\"]", 1),
+                new VMTestCase("{1: 1, true: 2}[true]", 2),
+                new VMTestCase("{1: 1, true: 2}[false]", new NullObject()),
+                new VMTestCase("{0: 1, 4294967296: 2}[4294967296]", 2),
+                new VMTestCase("{0: 1}[4294967296]", new NullObject())
         };
         runVMTests(tests);
     }
@@ -290,6 +357,19 @@ public class VMTest {
 
                 // push 函數
                 new VMTestCase("push([], 1);", new int[]{1}),
+                // push 不修改原陣列，兩個新陣列共享前綴
+                new VMTestCase("let a = [1, 2]; let b = push(a, 3); let c = push(a, 4); [len(a), b[2], c[2]]",
+                        new int[]{2, 3, 4}),
+                // 跨越多層字典樹節點 (32 * 32 以上)
+                new VMTestCase("""
+                        let a = [];
+                        let i = 0;
+                        while (i < 5000) { a = push(a, i); i = i + 1; }
+                        let ok = true;
+                        i = 0;
+                        while (i < 5000) { ok = ok && a[i] == i; i = i + 1; }
+                        [len(a), first(a), last(a), a[1023], a[1024], a[4999], if (ok) { 1 } else { 0 }]
+                        """, new int[]{5000, 0, 4999, 1023, 1024, 4999, 1}),
                 new VMTestCase(
                         "push(1, 1);",
                         new ErrorObject("argument to `push` must be ARRAY, got INTEGER")
@@ -298,26 +378,213 @@ public class VMTest {
         runVMTests(tests);
     }
 
-    private void runVMTests(VMTestCase[] tests) {
-        for (VMTestCase tt : tests) {
-            Program program = parse(tt.input);
+    /**
+     * 高階內建函數在同一個 VM 的堆疊上重入執行閉包回調
+     */
+    @Test
+    public void testHigherOrderBuiltins() {
+        VMTestCase[] tests = new VMTestCase[]{
+                new VMTestCase("map([1, 2, 3], fn(x) { x * 2 })", new int[]{2, 4, 6}),
+                new VMTestCase("filter([1, 2, 3, 4], fn(x) { x % 2 == 0 })", new int[]{2, 4}),
+                new VMTestCase("reduce([1, 2, 3, 4], 0, fn(acc, x) { acc + x })", 10),
+                new VMTestCase("sort([3, 1, 2])", new int[]{1, 2, 3}),
+                new VMTestCase("sort([3, 1, 2], fn(a, b) { b - a })", new int[]{3, 2, 1}),
+                new VMTestCase("let k = 10; map([1, 2], fn(x) { x + k })", new int[]{11, 12}),
+                new VMTestCase("map([[1], [1, 2]], len)", new int[]{1, 2}),
+                new VMTestCase("map([1, 2], fn(x) { reduce([1, 2, 3], x, fn(a, b) { a * b }) })", new int[]{6, 12}),
+                // 回調返回後堆疊和幀恢復原狀，外層函數繼續執行
+                new VMTestCase("let f = fn(arr) { let s = reduce(arr, 0, fn(a, b) { a + b }); s * 2 }; f([1, 2, 3]) + f([4])", 20),
+                // 記憶化的遞迴函數作為回調
+                new VMTestCase("let fib = fn(n) { if (n < 2) { n } else { fib(n - 1) + fib(n - 2) } }; map([10, 20], fib)",
+                        new int[]{55, 6765}),
+                new VMTestCase("map([], 1)", new ErrorObject("argument to `map` must be FUNCTION, got INTEGER")),
+                new VMTestCase("sort([2, 1], fn(a, b) { true })",
+                        new ErrorObject("comparator for `sort` must return INTEGER, got BOOLEAN")),
+        };
+        runVMTests(tests);
+
+        runVMErrorTests(new VMTestCase[]{
+                new VMTestCase("map([1], fn(a, b) { a })", "wrong number of arguments: want=2, got=1"),
+                new VMTestCase("let f = fn() { sort([2, 1], fn(a, b) { 1(a) }) }; f()", "calling non-closure and non-builtin"),
+        });
+    }
+
+    /**
+     * 測試純遞迴函數的記憶化: 結果不變，且命中快取
+     */
+    @Test
+    public void testMemoizedRecursiveFunctions() {
+        String input = """
+                let fibonacci = fn(n) {
+                    if (n < 2) { n } else { fibonacci(n - 1) + fibonacci(n - 2) }
+                };
+                fibonacci(40);
+                """;
+
+        Compiler comp = new Compiler();
+        try {
+            comp.compile(parse(input));
+        } catch (Compiler.CompilerException e) {
+            fail("compiler error: " + e.getMessage());
+        }
+
+        VM vm = new VM(comp.bytecode());
+        try {
+            vm.run();
+        } catch (VM.VMException e) {
+            fail("vm error: " + e.getMessage());
+        }
+
+        testIntegerObject(102334155L, vm.lastPoppedStackElem());
+        assertEquals(41, vm.getMemoCache().getMisses());
+        assertEquals(38, vm.getMemoCache().getHits());
+        assertEquals(0, vm.getMemoCache().getEvictions());
+    }
+
+    @Test
+    public void testMemoCacheEviction() {
+        String input = """
+                let sum = fn(n) { if (n == 0) { 0 } else { n + sum(n - 1) } };
+                sum(100) + sum(100);
+                """;
+
+        Compiler comp = new Compiler();
+        try {
+            comp.compile(parse(input));
+        } catch (Compiler.CompilerException e) {
+            fail("compiler error: " + e.getMessage());
+        }
+
+        VM vm = new VM(comp.bytecode());
+        vm.setMemoCapacity(10);
+        try {
+            vm.run();
+        } catch (VM.VMException e) {
+            fail("vm error: " + e.getMessage());
+        }
+
+        testIntegerObject(10100L, vm.lastPoppedStackElem());
+        assertEquals(10, vm.getMemoCache().size());
+        assertEquals(91, vm.getMemoCache().getEvictions());
+    }
+
+    @Test
+    public void testConstantCollectionLiterals() {
+        VMTestCase[] tests = new VMTestCase[]{
+                new VMTestCase("let f = fn() { [1, 2, 3] }; let a = f(); let b = push(a, 4); len(f()) + len(b)", 7),
+                new VMTestCase("let f = fn() { [1, 2, 3] }; let b = push(f(), 4); f()", new int[]{1, 2, 3}),
+                new VMTestCase("let t = fn(k) { {\"a\": 1, \"b\": 2, true: 3, -4: [5, 6]}[k] }; t(\"b\") + t(true) + t(-4)[1]", 11),
+                new VMTestCase("let t = fn(k) { {\"a\": 1}[k] }; t(\"z\")", new NullObject()),
+                new VMTestCase("[[1, 2], [\"x\", true]][1][0] == \"x\"", true),
+                // 從提升的常量陣列 / 雜湊中讀出的布爾值與字面值 true / false 是同一個實例
+                new VMTestCase("if ([false][0]) { 1 } else { 2 }", 2),
+                new VMTestCase("[true][0] == true", true),
+                new VMTestCase("[false][0] != false", false),
+                new VMTestCase("{1: false}[1] == false", true),
+                new VMTestCase("let x = [false][0]; !x", true),
+                new VMTestCase("let f = fn() { [true, false] }; if (f()[1] || !f()[0]) { 1 } else { 2 }", 2)
+        };
+        runVMTests(tests);
+    }
+
+    @Test
+    public void testPackedIntegerArrays() {
+        VMTestCase[] tests = new VMTestCase[]{
+                new VMTestCase("[1, 2, 3][2]", 3),
+                new VMTestCase("let a = [1, 2]; let b = push(a, \"x\"); len(a) + len(b)", 5),
+                new VMTestCase("let a = [1, 2]; push(a, [3])[2][0]", 3),
+                new VMTestCase("let a = [1, 2, 3]; let b = push(rest(a), 9); b", new int[]{2, 3, 9}),
+                new VMTestCase("let a = []; let i = 0; while (i < 100) { a = push(a, i); i = i + 1; } first(rest(a)) + last(a)", 100)
+        };
+        runVMTests(tests);
+    }
+
+    /**
+     * 測試 rest 視圖: 結果與複製語義一致，存入全局變量時壓縮
+     */
+    @Test
+    public void testRestViews() {
+        VMTestCase[] tests = new VMTestCase[]{
+                new VMTestCase("rest(rest([1, 2, 3, 4]))", new int[]{3, 4}),
+                new VMTestCase("let a = [1, 2, 3]; let b = rest(a); push(b, 4)", new int[]{2, 3, 4}),
+                new VMTestCase("let a = [1, 2, 3]; let b = rest(a); let c = push(a, 9); [len(b), b[0], c[3]]",
+                        new int[]{2, 2, 9}),
+                new VMTestCase("let a = [1, 2, 3]; rest(a)[2]", new NullObject()),
+                new VMTestCase("""
+                        let sum = fn(arr) { if (len(arr) == 0) { 0 } else { first(arr) + sum(rest(arr)) } };
+                        sum([1, 2, 3, 4, 5])
+                        """, 15)
+        };
+        runVMTests(tests);
 
+        Compiler comp = new Compiler();
+        try {
+            comp.compile(parse("let a = [1, 2, 3, 4, 5, 6]; let b = rest(a); let c = rest(rest(rest(rest(a))));"));
+        } catch (Compiler.CompilerException e) {
+            fail("compiler error: " + e.getMessage());
+        }
+        VM vm = new VM(comp.bytecode());
+        try {
+            vm.run();
+        } catch (VM.VMException e) {
+            fail("vm error: " + e.getMessage());
+        }
+
+        // b 覆蓋了大部分底層向量，保留視圖；c 只剩兩個元素，被壓縮
+        assertTrue(((ArrayObject) vm.getGlobals()[1]).isView());
+        assertFalse(((ArrayObject) vm.getGlobals()[2]).isView());
+        assertEquals("[5, 6]", vm.getGlobals()[2].inspect());
+    }
+
+    @Test
+    public void testSmallIntegerCache() {
+        String[][] tests = {
+                {"2 + 3", "5"},
+                {"-7", "-7"},
+                {"len([1, 2, 3])", "3"},
+                {"let i = 0; while (i < 10) { i = i + 1; } i", "10"}
+        };
+        for (String[] tt : tests) {
             Compiler comp = new Compiler();
             try {
-                comp.compile(program);
+                comp.compile(parse(tt[0]));
             } catch (Compiler.CompilerException e) {
                 fail("compiler error: " + e.getMessage());
             }
-
             VM vm = new VM(comp.bytecode());
             try {
                 vm.run();
             } catch (VM.VMException e) {
                 fail("vm error: " + e.getMessage());
             }
+            assertSame(IntegerObject.valueOf(Long.parseLong(tt[1])), vm.lastPoppedStackElem());
+        }
+    }
 
-            MonkeyObject stackElem = vm.lastPoppedStackElem();
-            testExpectedObject(tt.expected, stackElem);
+    private void runVMTests(VMTestCase[] tests) {
+        // 通用指令與類型特化指令的執行結果必須一致
+        for (boolean typeSpecialization : new boolean[]{false, true}) {
+            for (VMTestCase tt : tests) {
+                Program program = parse(tt.input);
+
+                Compiler comp = new Compiler();
+                comp.setTypeSpecialization(typeSpecialization);
+                try {
+                    comp.compile(program);
+                } catch (Compiler.CompilerException e) {
+                    fail("compiler error: " + e.getMessage());
+                }
+
+                VM vm = new VM(comp.bytecode());
+                try {
+                    vm.run();
+                } catch (VM.VMException e) {
+                    fail("vm error: " + e.getMessage());
+                }
+
+                MonkeyObject stackElem = vm.lastPoppedStackElem();
+                testExpectedObject(tt.expected, stackElem);
+            }
         }
     }
 
@@ -603,8 +870,101 @@ public class VMTest {
                         first_doubled + last_doubled;
                         """,
                         10  // 2 + 8
-                )
+                ),
+                // 內建函數返回的 null 是假值
+                new VMTestCase("if (first([])) { 1 } else { 2 }", 2),
+                new VMTestCase("!rest([])", true)
         };
         runVMTests(tests);
     }
-}
\ No newline at end of file
+    /**
+     * 宿主調用: 腳本執行一次得到閉包，之後以不同實參反覆調用，共用全局變量，出錯後 VM 仍可用
+     */
+    @Test
+    public void testInvokeClosure() throws Exception {
+        Compiler comp = new Compiler();
+        comp.compile(parse("""
+                let threshold = 10;
+                let count = 0;
+                let rule = fn(event) {
+                    count = count + 1;
+                    let big = filter(event, fn(x) { x > threshold });
+                    len(big)
+                };
+                rule;
+                """));
+        VM vm = new VM(comp.bytecode());
+        vm.run();
+        ClosureObject closure = assertInstanceOf(ClosureObject.class, vm.lastPoppedStackElem());
+
+        VM.Function rule = vm.function(closure);
+        assertEquals(1, rule.getArity());
+        long total = 0;
+        for (int i = 0; i < 1000; i++) {
+            MonkeyObject event = ArrayObject.of(new MonkeyObject[]{
+                    IntegerObject.valueOf(i % 20), IntegerObject.valueOf(5), IntegerObject.valueOf(50)}, 0, 3);
+            total += ((IntegerObject) rule.call(event)).getValue();
+        }
+        assertEquals(1000 + 450, total);
+        testIntegerObject(1000, vm.getGlobals()[1]);
+
+        VM.VMException e = assertThrows(VM.VMException.class, () -> vm.invoke(closure));
+        assertEquals("wrong number of arguments: want=1, got=0", e.getMessage());
+        e = assertThrows(VM.VMException.class, () -> rule.call(ArrayObject.of(new MonkeyObject[]{VM.TRUE}, 0, 1)));
+        assertEquals("unknown operator: OP_GREATER_THAN (BOOLEAN INTEGER)", e.getMessage());
+
+        // 出錯後堆疊和幀已恢復，可以繼續調用
+        testIntegerObject(1, rule.call(ArrayObject.of(new MonkeyObject[]{IntegerObject.valueOf(11)}, 0, 1)));
+        testIntegerObject(1002, vm.getGlobals()[1]);
+
+        // 宿主傳入的布爾值按值判斷真假
+        comp = new Compiler();
+        comp.compile(parse("fn(b) { if (b) { 1 } else { 2 } }"));
+        VM host = new VM(comp.bytecode());
+        host.run();
+        ClosureObject branch = (ClosureObject) host.lastPoppedStackElem();
+        testIntegerObject(2, host.invoke(branch, BooleanObject.FALSE));
+        testIntegerObject(2, host.invoke(branch, new BooleanObject(false)));
+        testIntegerObject(1, host.function(branch).call(new BooleanObject(true)));
+    }
+
+    /**
+     * 類型特化不能讓 VM 崩潰: 內建函數可能返回錯誤物件，宿主也可能傳入推斷之外的類型，
+     * 這時特化指令與通用指令報告相同的 VMException
+     */
+    @Test
+    public void testSpecializedOperandGuards() throws Exception {
+        for (String input : new String[]{"len(1) + 1", "len(1) < 1", "-len(1)", "1 % len(true)"}) {
+            String[] messages = new String[2];
+            for (int k = 0; k < 2; k++) {
+                Compiler comp = new Compiler();
+                comp.setTypeSpecialization(k == 1);
+                comp.compile(parse(input));
+                VM vm = new VM(comp.bytecode());
+                messages[k] = assertThrows(VM.VMException.class, vm::run, input).getMessage();
+            }
+            assertEquals(messages[0], messages[1], input);
+        }
+
+        Compiler comp = new Compiler();
+        comp.setTypeSpecialization(true);
+        comp.compile(parse("""
+                let add = fn(a) { a + 1 };
+                let less = fn(a) { a < 1 };
+                let neg = fn(a) { -a };
+                add(1); less(1); neg(1);
+                """));
+        VM vm = new VM(comp.bytecode());
+        vm.run();
+        MonkeyObject[] globals = vm.getGlobals();
+        StringObject s = StringObject.intern("s");
+
+        VM.VMException e = assertThrows(VM.VMException.class, () -> vm.invoke((ClosureObject) globals[0], s));
+        assertEquals("unsupported types for binary operation: STRING INTEGER", e.getMessage());
+        e = assertThrows(VM.VMException.class, () -> vm.invoke((ClosureObject) globals[1], s));
+        assertEquals("unknown operator: OP_LESS_THAN (STRING INTEGER)", e.getMessage());
+        e = assertThrows(VM.VMException.class, () -> vm.invoke((ClosureObject) globals[2], s));
+        assertEquals("unsupported type for negation: STRING", e.getMessage());
+        testIntegerObject(3, vm.invoke((ClosureObject) globals[0], IntegerObject.valueOf(2)));
+    }
+}